@@ -72,10 +72,38 @@ public class SystemPropertyKeys {
   // Controller
   public static final String CONTROLLER_MESSAGE_PURGE_DELAY = "helix.controller.stages.MessageGenerationPhase.messagePurgeDelay";
 
+  // Number of the slowest events whose pipeline traces are retained by the controller
+  public static final String CONTROLLER_PIPELINE_TRACE_SLOWEST_EVENTS =
+      "helix.controller.pipeline.trace.slowestEvents";
+
+  // Number of the resource shards whose best possible states are calculated concurrently
+  public static final String CONTROLLER_REBALANCE_SHARDS =
+      "helix.controller.stages.BestPossibleStateCalcStage.rebalanceShards";
+
   // Message
   public static final String MESSAGE_EXPECTED_COMPLETION_PERIOD = "helix.controller.message.ExpectMessageCompletionPeriod";
 
 
+  // Participant
+  // Max number of concurrent state transitions whose current state updates and message removals
+  // are committed together. Batching is disabled if the value is 1 or less.
+  public static final String PARTICIPANT_TRANSITION_COMMIT_MAX_BATCH_SIZE =
+      "helix.participant.transitionCommit.maxBatchSize";
+
+  // Max time in milliseconds a state transition commit waits for other commits to batch with
+  public static final String PARTICIPANT_TRANSITION_COMMIT_LINGER_MS =
+      "helix.participant.transitionCommit.lingerMs";
+
+  // Run the participant message handlers in virtual threads, if the JDK supports them. The thread
+  // pool sizes still limit the number of concurrently running handlers.
+  public static final String PARTICIPANT_VIRTUAL_THREADS_ENABLED =
+      "helix.participant.virtualThreads.enabled";
+
+  // Write ZkBucketDataAccessor records as content addressed delta buckets. Only enable it once all
+  // the readers of the records, including the controllers and the REST servers, can read them.
+  public static final String ZK_BUCKET_DATA_ACCESSOR_DELTA_WRITE_ENABLED =
+      "helix.zkBucketDataAccessor.deltaWrite.enabled";
+
   // MBean monitor for helix.
   public static final String HELIX_MONITOR_TIME_WINDOW_LENGTH_MS = "helix.monitor.slidingTimeWindow.ms";
 
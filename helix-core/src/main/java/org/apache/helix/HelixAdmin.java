@@ -20,6 +20,7 @@ package org.apache.helix;
  */
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -156,6 +157,29 @@ public interface HelixAdmin {
    */
   void addResource(String clusterName, String resourceName, IdealState idealstate);
 
+  /**
+   * Add resources to a cluster in a batch. The default implementation adds the resources one at a
+   * time with {@link #addResource(String, String, IdealState)}; implementations may create the
+   * ideal states with pipelined requests instead.
+   * @param clusterName
+   * @param idealStates the ideal states of the resources to add
+   * @return a map from resource name to whether the resource is added; a resource is not added if
+   *         its state model is not found or it already exists
+   */
+  default Map<String, Boolean> addResources(String clusterName, List<IdealState> idealStates) {
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      try {
+        addResource(clusterName, resourceName, idealState);
+        result.put(resourceName, true);
+      } catch (HelixException e) {
+        result.put(resourceName, false);
+      }
+    }
+    return result;
+  }
+
   /**
    * Add a resource to a cluster
    * @param clusterName
@@ -226,6 +250,29 @@ public interface HelixAdmin {
    */
   void addInstance(String clusterName, InstanceConfig instanceConfig);
 
+  /**
+   * Add instances to a cluster in a batch. Each instance is validated the same as
+   * {@link #addInstance(String, InstanceConfig)}. The default implementation adds the instances
+   * one at a time; implementations may create the instance configs and directories with
+   * pipelined requests instead.
+   * @param clusterName
+   * @param instanceConfigs the configs of the instances to add
+   * @return a map from instance name to whether the instance is added
+   */
+  default Map<String, Boolean> addInstances(String clusterName,
+      List<InstanceConfig> instanceConfigs) {
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      try {
+        addInstance(clusterName, instanceConfig);
+        result.put(instanceConfig.getId(), true);
+      } catch (HelixException e) {
+        result.put(instanceConfig.getId(), false);
+      }
+    }
+    return result;
+  }
+
   /**
    * Drop an instance from a cluster
    * @param clusterName
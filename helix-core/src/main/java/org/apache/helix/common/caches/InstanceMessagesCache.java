@@ -19,6 +19,7 @@ package org.apache.helix.common.caches;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -26,8 +27,18 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
@@ -35,10 +46,12 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixDefinedState;
+import org.apache.helix.HelixException;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
+import org.apache.helix.monitoring.PipelineTrace;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.util.RebalanceUtil;
 import org.slf4j.Logger;
@@ -73,6 +86,20 @@ public class InstanceMessagesCache {
   private static final long DEFAULT_RELAY_MESSAGE_LIFETIME = TimeUnit.MINUTES.toMillis(60);  // in ms
   private final long _relayMessageLifetime;
 
+  // Upper bound of the helper tasks submitted to list message folders during a full refresh.
+  private static final int MAX_LISTING_PARALLELISM = 8;
+
+  // Instances whose message folders changed since the last refresh, collected from the message
+  // change notifications. Only these instances are listed again unless a full refresh is required.
+  private final Set<String> _dirtyInstances = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean _fullRefreshRequired = new AtomicBoolean(true);
+
+  // <instance -> session id of the live instance when its message folder was last listed>
+  private final Map<String, String> _listedInstanceSessions = new HashMap<>();
+
+  private int _lastScannedInstanceCount;
+  private int _lastSkippedInstanceCount;
+
   private String _clusterName;
 
   public InstanceMessagesCache(String clusterName) {
@@ -81,6 +108,43 @@ public class InstanceMessagesCache {
         .getSystemPropertyAsLong(RELAY_MESSAGE_LIFETIME, DEFAULT_RELAY_MESSAGE_LIFETIME);
   }
 
+  /**
+   * Mark the message folder of an instance as changed, so it is listed on the next refresh.
+   * @param pathChanged the path of the message change notification, either the message folder
+   *          (/{cluster}/INSTANCES/{instance}/MESSAGES) or a message under it. A full refresh is
+   *          required if the instance cannot be resolved from the path.
+   */
+  public void notifyMessageChange(String pathChanged) {
+    String instanceName = parseInstanceName(pathChanged);
+    if (instanceName == null) {
+      requireFullRefresh();
+    } else {
+      _dirtyInstances.add(instanceName);
+    }
+  }
+
+  /**
+   * Indicate that the message folders of all live instances should be listed on the next refresh.
+   */
+  public void requireFullRefresh() {
+    _fullRefreshRequired.set(true);
+  }
+
+  /**
+   * @return the number of instances whose message folder was listed in the last refresh
+   */
+  public int getLastScannedInstanceCount() {
+    return _lastScannedInstanceCount;
+  }
+
+  /**
+   * @return the number of live instances served from the cache without listing their message
+   *         folder in the last refresh
+   */
+  public int getLastSkippedInstanceCount() {
+    return _lastSkippedInstanceCount;
+  }
+
   /**
    * This refreshes all pending messages in the cluster by re-fetching the data from zookeeper in an
    * efficient way current state must be refreshed before refreshing relay messages because we need
@@ -92,14 +156,41 @@ public class InstanceMessagesCache {
    * @return
    */
   public boolean refresh(HelixDataAccessor accessor, Map<String, LiveInstance> liveInstanceMap) {
+    return refresh(accessor, liveInstanceMap, null);
+  }
+
+  /**
+   * Refresh the pending messages. Only the message folders of the instances that were notified as
+   * changed, joined the cluster or started a new session are listed, unless a full refresh is
+   * required. On a full refresh, the folders are listed concurrently with the given thread pool.
+   *
+   * @param accessor
+   * @param liveInstanceMap
+   * @param listingThreadPool the thread pool to list message folders on a full refresh, or null
+   *          to list them on the calling thread
+   *
+   * @return
+   */
+  public boolean refresh(HelixDataAccessor accessor, Map<String, LiveInstance> liveInstanceMap,
+      ExecutorService listingThreadPool) {
     LOG.info("START: InstanceMessagesCache.refresh()");
     long startTime = System.currentTimeMillis();
 
+    // Take the pending notifications before listing, so any change that arrives during the listing
+    // is picked up by the next refresh.
+    boolean fullRefresh = _fullRefreshRequired.getAndSet(false);
+    Set<String> dirtyInstances = new HashSet<>();
+    Iterator<String> dirtyIter = _dirtyInstances.iterator();
+    while (dirtyIter.hasNext()) {
+      dirtyInstances.add(dirtyIter.next());
+      dirtyIter.remove();
+    }
+
     PropertyKey.Builder keyBuilder = accessor.keyBuilder();
     Map<String, Map<String, Message>> msgMap = new HashMap<>();
-    List<PropertyKey> newMessageKeys = Lists.newLinkedList();
-    long purgeSum = 0;
-    for (String instanceName : liveInstanceMap.keySet()) {
+    List<String> instancesToList = new ArrayList<>();
+    for (Map.Entry<String, LiveInstance> entry : liveInstanceMap.entrySet()) {
+      String instanceName = entry.getKey();
       // get the cache
       Map<String, Message> cachedMap = _messageCache.get(instanceName);
       if (cachedMap == null) {
@@ -108,9 +199,32 @@ public class InstanceMessagesCache {
       }
       msgMap.put(instanceName, cachedMap);
 
-      // get the current names
-      Set<String> messageNames =
-          Sets.newHashSet(accessor.getChildNames(keyBuilder.messages(instanceName)));
+      String sessionId = entry.getValue() == null ? null : entry.getValue().getEphemeralOwner();
+      if (fullRefresh || dirtyInstances.contains(instanceName) || !_listedInstanceSessions
+          .containsKey(instanceName) || !Objects
+          .equals(_listedInstanceSessions.get(instanceName), sessionId)) {
+        instancesToList.add(instanceName);
+      }
+    }
+
+    // get the current names
+    Map<String, List<String>> messageNamesMap;
+    try (PipelineTrace.Span span = PipelineTrace.startSpan("ListMessages")) {
+      span.addCount("scannedInstances", instancesToList.size())
+          .addCount("skippedInstances", liveInstanceMap.size() - instancesToList.size());
+      messageNamesMap = listMessageNames(accessor, instancesToList,
+          fullRefresh ? listingThreadPool : null);
+    } catch (RuntimeException e) {
+      // The notifications taken above are lost, so read everything again on the next refresh.
+      requireFullRefresh();
+      throw e;
+    }
+
+    List<PropertyKey> newMessageKeys = Lists.newLinkedList();
+    long purgeSum = 0;
+    for (String instanceName : instancesToList) {
+      Map<String, Message> cachedMap = msgMap.get(instanceName);
+      Set<String> messageNames = Sets.newHashSet(messageNamesMap.get(instanceName));
 
       long purgeStart = System.currentTimeMillis();
       // clear stale names
@@ -130,7 +244,15 @@ public class InstanceMessagesCache {
           newMessageKeys.add(keyBuilder.message(instanceName, messageName));
         }
       }
+
+      LiveInstance liveInstance = liveInstanceMap.get(instanceName);
+      _listedInstanceSessions
+          .put(instanceName, liveInstance == null ? null : liveInstance.getEphemeralOwner());
     }
+    _listedInstanceSessions.keySet().retainAll(liveInstanceMap.keySet());
+
+    _lastScannedInstanceCount = instancesToList.size();
+    _lastSkippedInstanceCount = liveInstanceMap.size() - instancesToList.size();
 
     // get the new messages
     if (newMessageKeys.size() > 0) {
@@ -151,13 +273,91 @@ public class InstanceMessagesCache {
     }
 
     LOG.info(
-        "END: InstanceMessagesCache.refresh(), {} of Messages read from ZooKeeper. took {} ms. ",
-        newMessageKeys.size(), (System.currentTimeMillis() - startTime));
+        "END: InstanceMessagesCache.refresh(), {} of Messages read from ZooKeeper, listed {} "
+            + "instances (full refresh: {}), skipped {} instances. took {} ms. ",
+        newMessageKeys.size(), _lastScannedInstanceCount, fullRefresh, _lastSkippedInstanceCount,
+        (System.currentTimeMillis() - startTime));
 
     refreshStaleMessageCache();
     return true;
   }
 
+  /**
+   * List the message names of the given instances. When a thread pool is given, helper tasks and
+   * the calling thread take instances from a shared queue, so the listing still completes on the
+   * calling thread if the pool is busy.
+   */
+  private Map<String, List<String>> listMessageNames(HelixDataAccessor accessor,
+      List<String> instanceNames, ExecutorService listingThreadPool) {
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    Map<String, List<String>> messageNamesMap = new ConcurrentHashMap<>();
+    Queue<String> pendingInstances = new ConcurrentLinkedQueue<>(instanceNames);
+    // counts down once per instance, whichever thread lists it
+    CountDownLatch listedInstances = new CountDownLatch(instanceNames.size());
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    Runnable listingTask = PipelineTrace.wrap(() -> {
+      String instanceName;
+      while ((instanceName = pendingInstances.poll()) != null) {
+        try {
+          List<String> messageNames = accessor.getChildNames(keyBuilder.messages(instanceName));
+          messageNamesMap.put(instanceName,
+              messageNames == null ? Collections.emptyList() : messageNames);
+        } catch (RuntimeException e) {
+          failure.compareAndSet(null, e);
+        } finally {
+          listedInstances.countDown();
+        }
+      }
+    });
+
+    List<Future<?>> helpers = new ArrayList<>();
+    if (listingThreadPool != null && instanceNames.size() > 1) {
+      int helperCount = Math.min(MAX_LISTING_PARALLELISM, instanceNames.size() - 1);
+      try {
+        for (int i = 0; i < helperCount; i++) {
+          helpers.add(listingThreadPool.submit(listingTask));
+        }
+      } catch (RejectedExecutionException e) {
+        LOG.warn("Failed to submit message listing tasks for cluster {}, list on the calling "
+            + "thread.", _clusterName, e);
+      }
+    }
+
+    listingTask.run();
+    // The queue is drained. Helpers that have not started yet have nothing left to list, and the
+    // ones still listing an instance are awaited through the latch.
+    for (Future<?> helper : helpers) {
+      helper.cancel(false);
+    }
+    try {
+      listedInstances.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HelixException("Interrupted while listing messages for cluster " + _clusterName,
+          e);
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    return messageNamesMap;
+  }
+
+  /**
+   * @return the instance name of a path under /{cluster}/INSTANCES/{instance}/MESSAGES, or null
+   */
+  private static String parseInstanceName(String path) {
+    if (path == null) {
+      return null;
+    }
+    // "", cluster, INSTANCES, instance, MESSAGES, [message]
+    String[] parts = path.split("/");
+    if (parts.length < 5 || !"INSTANCES".equals(parts[2]) || !"MESSAGES".equals(parts[4])
+        || parts[3].isEmpty()) {
+      return null;
+    }
+    return parts[3];
+  }
+
   @VisibleForTesting
   public Map<String, Map<String, Message>> getStaleMessageCache() {
     return _staleMessageCache;
@@ -300,14 +500,19 @@ public class InstanceMessagesCache {
     _relayMessageMap = Collections.unmodifiableMap(relayMessageMap);
     long relayMessageCount = 0;
 
-    // Add valid relay messages to the instance message map.
-    for (String instance : _relayMessageMap.keySet()) {
-      Map<String, Message> relayMessages = _relayMessageMap.get(instance);
-      if (!_messageMap.containsKey(instance)) {
-        _messageMap.put(instance, Maps.<String, Message>newHashMap());
+    // Add valid relay messages to the instance message map. The per-instance maps are shared with
+    // the message cache, which keeps instances that are not re-listed, so merge into copies.
+    if (!_relayMessageMap.isEmpty()) {
+      Map<String, Map<String, Message>> msgMap = new HashMap<>(_messageMap);
+      for (String instance : _relayMessageMap.keySet()) {
+        Map<String, Message> relayMessages = _relayMessageMap.get(instance);
+        Map<String, Message> instanceMessages =
+            new HashMap<>(msgMap.getOrDefault(instance, Collections.emptyMap()));
+        instanceMessages.putAll(relayMessages);
+        msgMap.put(instance, instanceMessages);
+        relayMessageCount += relayMessages.size();
       }
-      _messageMap.get(instance).putAll(relayMessages);
-      relayMessageCount += relayMessages.size();
+      _messageMap = Collections.unmodifiableMap(msgMap);
     }
 
     LOG.info(
@@ -518,6 +723,8 @@ public class InstanceMessagesCache {
         _messageCache.put(instanceName, Maps.<String, Message>newHashMap());
       }
       _messageCache.get(instanceName).put(message.getId(), message);
+      // confirm the sent messages against zookeeper on the next refresh
+      _dirtyInstances.add(instanceName);
 
       if (message.hasRelayMessages()) {
         for (Message relayMsg : message.getRelayMessages().values()) {
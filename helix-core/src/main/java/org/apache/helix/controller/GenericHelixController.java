@@ -31,11 +31,13 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -108,8 +110,12 @@ import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.model.StatusUpdate;
+import org.apache.helix.monitoring.PipelineTrace;
 import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
+import org.apache.helix.monitoring.mbeans.PipelineTraceMonitor;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -141,6 +147,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
 
   private static final long EVENT_THREAD_JOIN_TIMEOUT = 1000;
   private static final int ASYNC_TASKS_THREADPOOL_SIZE = 10;
+  private static final int CACHE_REFRESH_THREADPOOL_SIZE = 8;
   private final PipelineRegistry _registry;
   private final PipelineRegistry _taskRegistry;
   private final PipelineRegistry _managementModeRegistry;
@@ -155,6 +162,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
   // By default not reporting status until controller status is changed to activate
   // TODO This flag should be inside ClusterStatusMonitor. When false, no MBean registering.
   private boolean _isMonitoring = false;
+  private final AtomicBoolean _pipelineTracePersistScheduled = new AtomicBoolean(false);
   private final ClusterStatusMonitor _clusterStatusMonitor;
 
   /**
@@ -200,6 +208,8 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
   private final WorkflowControllerDataProvider _workflowControlDataProvider;
   private final ManagementControllerDataProvider _managementControllerDataProvider;
   private final ScheduledExecutorService _asyncTasksThreadPool;
+  // Thread pool shared by the pipelines to refresh independent caches concurrently
+  private final ExecutorService _cacheRefreshThreadPool;
 
   /**
    * A record of last pipeline finish duration
@@ -700,6 +710,14 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
             return new Thread(r, "HelixController-async_tasks-" + _clusterName);
           }
         });
+    _cacheRefreshThreadPool =
+        Executors.newFixedThreadPool(CACHE_REFRESH_THREADPOOL_SIZE, new ThreadFactory() {
+          @Override public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "HelixController-cache_refresh-" + _clusterName);
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
     _asyncFIFOWorkerPool = new HashMap<>();
     initializeAsyncFIFOWorkers();
 
@@ -897,40 +915,52 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     long startTime = System.currentTimeMillis();
     boolean helixMetaDataAccessRebalanceFail = false;
     boolean rebalanceFail = false;
-    for (Pipeline pipeline : pipelines) {
-      event.addAttribute(AttributeName.PipelineType.name(), pipeline.getPipelineType());
-      try {
-        pipeline.handle(event);
-        pipeline.finish();
-      } catch (Exception e) {
-        logger.error(
-            "Exception while executing {} pipeline for cluster {}. Will not continue to next pipeline",
-            dataProvider.getPipelineName(), _clusterName, e);
-        if (e instanceof HelixMetaDataAccessException) {
-          helixMetaDataAccessRebalanceFail = true;
-          // If pipeline failed due to read/write fails to zookeeper, retry the pipeline.
-          dataProvider.requireFullRefresh();
-          logger.warn("Rebalance pipeline failed due to read failure from zookeeper, cluster: " + _clusterName);
-
-          // only push a retry event when there is no pending event in the corresponding event queue.
-          if (isEventQueueEmpty(isTaskFrameworkPipeline)) {
-            _continuousRebalanceFailureCount ++;
-            long delay = getRetryDelay(_continuousRebalanceFailureCount);
-            if (delay == 0) {
-              forceRebalance(manager, ClusterEventType.RetryRebalance);
-            } else {
-              _asyncTasksThreadPool
-                  .schedule(new RebalanceTask(manager, ClusterEventType.RetryRebalance), delay,
-                      TimeUnit.MILLISECONDS);
+    PipelineTrace trace = new PipelineTrace(event.getClusterName(), event.getEventId(),
+        event.getEventType().name(), dataProvider.getPipelineName());
+    event.addAttribute(AttributeName.PIPELINE_TRACE.name(), trace);
+    trace.attach();
+    try {
+      for (Pipeline pipeline : pipelines) {
+        event.addAttribute(AttributeName.PipelineType.name(), pipeline.getPipelineType());
+        try {
+          pipeline.handle(event);
+          pipeline.finish();
+        } catch (Exception e) {
+          logger.error(
+              "Exception while executing {} pipeline for cluster {}. Will not continue to next pipeline",
+              dataProvider.getPipelineName(), _clusterName, e);
+          if (e instanceof HelixMetaDataAccessException) {
+            helixMetaDataAccessRebalanceFail = true;
+            // If pipeline failed due to read/write fails to zookeeper, retry the pipeline.
+            dataProvider.requireFullRefresh();
+            logger.warn("Rebalance pipeline failed due to read failure from zookeeper, cluster: " + _clusterName);
+
+            // only push a retry event when there is no pending event in the corresponding event queue.
+            if (isEventQueueEmpty(isTaskFrameworkPipeline)) {
+              _continuousRebalanceFailureCount ++;
+              long delay = getRetryDelay(_continuousRebalanceFailureCount);
+              if (delay == 0) {
+                forceRebalance(manager, ClusterEventType.RetryRebalance);
+              } else {
+                _asyncTasksThreadPool
+                    .schedule(new RebalanceTask(manager, ClusterEventType.RetryRebalance), delay,
+                        TimeUnit.MILLISECONDS);
+              }
+              logger.info("Retry rebalance pipeline with delay " + delay + "ms for cluster: " + _clusterName);
             }
-            logger.info("Retry rebalance pipeline with delay " + delay + "ms for cluster: " + _clusterName);
           }
+          _clusterStatusMonitor.reportRebalanceFailure();
+          updateContinuousRebalancedFailureCount(isTaskFrameworkPipeline, false /*resetToZero*/);
+          rebalanceFail = true;
+          break;
         }
-        _clusterStatusMonitor.reportRebalanceFailure();
-        updateContinuousRebalancedFailureCount(isTaskFrameworkPipeline, false /*resetToZero*/);
-        rebalanceFail = true;
-        break;
       }
+    } finally {
+      trace.finish();
+      PipelineTrace.detach();
+    }
+    if (_isMonitoring) {
+      recordPipelineTrace(manager, trace);
     }
     if (!helixMetaDataAccessRebalanceFail) {
       _continuousRebalanceFailureCount = 0;
@@ -983,6 +1013,31 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     resetClusterStatusMonitor();
   }
 
+  /**
+   * Retain the trace if the event is one of the slowest, and persist the slowest traces so they
+   * can be read through the REST API. The write is done asynchronously and coalesced with the
+   * changes made before it runs.
+   */
+  private void recordPipelineTrace(HelixManager manager, PipelineTrace trace) {
+    PipelineTraceMonitor monitor = _clusterStatusMonitor.getOrCreatePipelineTraceMonitor();
+    if (monitor.record(trace) && _pipelineTracePersistScheduled.compareAndSet(false, true)) {
+      _asyncTasksThreadPool.submit(() -> {
+        _pipelineTracePersistScheduled.set(false);
+        try {
+          HelixDataAccessor accessor = manager.getHelixDataAccessor();
+          ZNRecord record = new ZNRecord(PipelineTrace.SLOWEST_EVENTS_RECORD);
+          record.setSimpleField(PipelineTrace.TRACES_FIELD, monitor.getSlowestTracesAsJson());
+          accessor.setProperty(accessor.keyBuilder()
+              .controllerTaskStatus(PipelineTrace.STATUS_UPDATE_SUB_PATH,
+                  PipelineTrace.SLOWEST_EVENTS_RECORD), new StatusUpdate(record));
+        } catch (Exception e) {
+          logger.warn("Failed to persist the slowest pipeline traces for cluster {}", _clusterName,
+              e);
+        }
+      });
+    }
+  }
+
   private void updateContinuousRebalancedFailureCount(boolean isTaskFrameworkPipeline,
       boolean resetToZero) {
     if (isTaskFrameworkPipeline) {
@@ -1461,6 +1516,8 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
     logger.info("Shutting down {} pipeline", Pipeline.Type.TASK.name());
     shutdownPipeline(_taskEventThread, _taskEventQueue);
 
+    _cacheRefreshThreadPool.shutdownNow();
+
     // shutdown asycTasksThreadpool and wait for terminate.
     _asyncTasksThreadPool.shutdownNow();
     try {
@@ -1577,6 +1634,7 @@ public class GenericHelixController implements IdealStateChangeListener, LiveIns
       return;
     }
     cache.setAsyncTasksThreadPool(_asyncTasksThreadPool);
+    cache.setRefreshThreadPool(_cacheRefreshThreadPool);
 
     eventThread.setDaemon(true);
     eventThread.start();
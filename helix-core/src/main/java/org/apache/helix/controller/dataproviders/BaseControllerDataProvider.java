@@ -25,11 +25,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -62,6 +65,7 @@ import org.apache.helix.model.ParticipantHistory;
 import org.apache.helix.model.PauseSignal;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.PipelineTrace;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.util.InstanceValidationUtil;
@@ -96,6 +100,11 @@ public class BaseControllerDataProvider implements ControlContextProvider {
   private boolean _isMaintenanceModeEnabled;
   private boolean _hasMaintenanceSignalChanged;
   private ExecutorService _asyncTasksThreadPool;
+  // Thread pool to refresh independent caches concurrently. If not set, caches are refreshed one
+  // after another on the pipeline thread.
+  private ExecutorService _refreshThreadPool;
+  // Cache name -> latency in ms of refreshing the cache in the last refresh
+  private final Map<String, Long> _cacheRefreshLatencyMap = new ConcurrentHashMap<>();
 
   // A map recording what data has changed
   protected Map<HelixConstants.ChangeType, AtomicBoolean> _propertyDataChangedMap;
@@ -537,6 +546,66 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     }
   }
 
+  /**
+   * Run the given cache refresh tasks and record the latency of each of them. The tasks are run
+   * concurrently in the refresh thread pool if it is set, otherwise they are run one by one.
+   * All tasks are completed before this method returns, so the caches are never refreshed
+   * concurrently by two refreshes. If any task fails, the exception of the first failed task is
+   * thrown.
+   * @param refreshTasks cache name -> refresh task
+   */
+  private void runRefreshTasks(Map<String, Runnable> refreshTasks) {
+    ExecutorService refreshThreadPool = _refreshThreadPool;
+    if (refreshThreadPool == null || refreshThreadPool.isShutdown()) {
+      for (Map.Entry<String, Runnable> task : refreshTasks.entrySet()) {
+        runAndRecordLatency(task.getKey(), task.getValue());
+      }
+      return;
+    }
+
+    List<Future<?>> futures = new ArrayList<>(refreshTasks.size());
+    for (Map.Entry<String, Runnable> task : refreshTasks.entrySet()) {
+      futures.add(refreshThreadPool.submit(PipelineTrace.wrap(
+          () -> runAndRecordLatency(task.getKey(), task.getValue()))));
+    }
+    Throwable failure = null;
+    boolean interrupted = false;
+    for (Future<?> future : futures) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          // Keep waiting so no refresh task is left running, restore the interrupt status later
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new HelixException("Failed to refresh cluster data cache", failure);
+    }
+  }
+
+  private void runAndRecordLatency(String cacheName, Runnable refreshTask) {
+    long startTime = System.currentTimeMillis();
+    try (PipelineTrace.Span ignored = PipelineTrace.startSpan("CacheRefresh." + cacheName)) {
+      refreshTask.run();
+    }
+    _cacheRefreshLatencyMap.put(cacheName, System.currentTimeMillis() - startTime);
+  }
+
   private void updateIdealRuleMap(ClusterConfig clusterConfig) {
     // Assumes cluster config is up-to-date
     if (clusterConfig != null) {
@@ -558,19 +627,27 @@ public class BaseControllerDataProvider implements ControlContextProvider {
    * @return The types that has been updated during the refresh.
    */
   protected synchronized Set<HelixConstants.ChangeType> doRefresh(HelixDataAccessor accessor) {
-    Set<HelixConstants.ChangeType> refreshedTypes = new HashSet<>();
+    // Concurrent set since the raw data caches may be refreshed in parallel
+    Set<HelixConstants.ChangeType> refreshedTypes = ConcurrentHashMap.newKeySet();
+    _cacheRefreshLatencyMap.clear();
+
+    // Refresh raw data. These caches are independent of each other.
+    Map<String, Runnable> rawDataRefreshTasks = new LinkedHashMap<>();
+    rawDataRefreshTasks.put("ClusterConfig", () -> refreshClusterConfig(accessor, refreshedTypes));
+    rawDataRefreshTasks.put("IdealState", () -> refreshIdealState(accessor, refreshedTypes));
+    rawDataRefreshTasks.put("LiveInstance", () -> refreshLiveInstances(accessor, refreshedTypes));
+    rawDataRefreshTasks.put("InstanceConfig",
+        () -> refreshInstanceConfigs(accessor, refreshedTypes));
+    rawDataRefreshTasks.put("ResourceConfig",
+        () -> refreshResourceConfig(accessor, refreshedTypes));
+    rawDataRefreshTasks.put("StateModelDefinition",
+        () -> _stateModelDefinitionCache.refresh(accessor));
+    rawDataRefreshTasks.put("ClusterConstraints", () -> _clusterConstraintsCache.refresh(accessor));
+    rawDataRefreshTasks.put("ManagementSignals", () -> refreshManagementSignals(accessor));
+    runRefreshTasks(rawDataRefreshTasks);
 
-    // Refresh raw data
-    refreshClusterConfig(accessor, refreshedTypes);
-    refreshIdealState(accessor, refreshedTypes);
-    refreshLiveInstances(accessor, refreshedTypes);
-    refreshInstanceConfigs(accessor, refreshedTypes);
     updateInstanceSets(_allInstanceConfigCache.getPropertyMap(), _allLiveInstanceCache.getPropertyMap(),
         _clusterConfig);
-    refreshResourceConfig(accessor, refreshedTypes);
-    _stateModelDefinitionCache.refresh(accessor);
-    _clusterConstraintsCache.refresh(accessor);
-    refreshManagementSignals(accessor);
     timeoutNodesDuringMaintenance(accessor, _clusterConfig, _isMaintenanceModeEnabled);
 
     // TODO: once controller gets split, only one controller should update offline instance history
@@ -579,8 +656,14 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     // Refresh derived data
     // Must use _liveInstanceCache instead of _assignableLiveInstancesMap because we need to
     // know about the messages and current state of all instances including the SWAP_IN ones.
-    _instanceMessagesCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap());
-    _currentStateCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap());
+    // Messages and current states only depend on live instances.
+    Map<String, Runnable> derivedDataRefreshTasks = new LinkedHashMap<>();
+    derivedDataRefreshTasks.put("InstanceMessages",
+        () -> _instanceMessagesCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap(),
+            _refreshThreadPool));
+    derivedDataRefreshTasks.put("CurrentState",
+        () -> _currentStateCache.refresh(accessor, _allLiveInstanceCache.getPropertyMap()));
+    runRefreshTasks(derivedDataRefreshTasks);
 
     // current state must be refreshed before refreshing relay messages
     // because we need to use current state to validate all relay messages.
@@ -949,6 +1032,21 @@ public class BaseControllerDataProvider implements ControlContextProvider {
         Collectors.toMap(instance -> instance, instance -> getMessages(instance).values()));
   }
 
+  /**
+   * @return the number of instances whose message folder was listed in the last refresh
+   */
+  public int getMessageCacheScannedInstanceCount() {
+    return _instanceMessagesCache.getLastScannedInstanceCount();
+  }
+
+  /**
+   * @return the number of live instances whose messages were served from the cache without
+   *         listing their message folder in the last refresh
+   */
+  public int getMessageCacheSkippedInstanceCount() {
+    return _instanceMessagesCache.getLastSkippedInstanceCount();
+  }
+
   /**
    * This function is supposed to be only used by testing purpose for safety. For "get" usage,
    * please use getStaleMessagesByInstance.
@@ -1080,12 +1178,21 @@ public class BaseControllerDataProvider implements ControlContextProvider {
    */
   public void notifyDataChange(HelixConstants.ChangeType changeType) {
     _propertyDataChangedMap.get(changeType).set(true);
+    if (changeType == HelixConstants.ChangeType.MESSAGE) {
+      // without a path, the changed message folder is unknown
+      _instanceMessagesCache.requireFullRefresh();
+    }
   }
 
   /**
    * Notify the cache that some part of the cluster data has been changed.
    */
   public void notifyDataChange(HelixConstants.ChangeType changeType, String pathChanged) {
+    if (changeType == HelixConstants.ChangeType.MESSAGE && pathChanged != null) {
+      _propertyDataChangedMap.get(changeType).set(true);
+      _instanceMessagesCache.notifyMessageChange(pathChanged);
+      return;
+    }
     notifyDataChange(changeType);
   }
 
@@ -1205,6 +1312,7 @@ public class BaseControllerDataProvider implements ControlContextProvider {
         _propertyDataChangedMap.get(type).set(true);
       }
     }
+    _instanceMessagesCache.requireFullRefresh();
   }
 
   /**
@@ -1223,6 +1331,21 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     _asyncTasksThreadPool = asyncTasksThreadPool;
   }
 
+  /**
+   * Set the thread pool used to refresh independent caches concurrently
+   * @param refreshThreadPool the thread pool, or null to refresh caches on the calling thread
+   */
+  public void setRefreshThreadPool(ExecutorService refreshThreadPool) {
+    _refreshThreadPool = refreshThreadPool;
+  }
+
+  /**
+   * @return cache name -> latency in ms of refreshing the cache in the last refresh
+   */
+  public Map<String, Long> getCacheRefreshLatencies() {
+    return Collections.unmodifiableMap(new HashMap<>(_cacheRefreshLatencyMap));
+  }
+
   public MonitoredAbnormalResolver getAbnormalStateResolver(String stateModel) {
     return _abnormalStateResolverMap
         .getOrDefault(stateModel, MonitoredAbnormalResolver.DUMMY_STATE_RESOLVER);
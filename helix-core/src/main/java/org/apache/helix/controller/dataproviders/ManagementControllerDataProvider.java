@@ -39,7 +39,7 @@ public class ManagementControllerDataProvider extends BaseControllerDataProvider
   @Override
   public void requireFullRefresh() {
     for (HelixConstants.ChangeType type : FULL_REFRESH_PROPERTIES) {
-      _propertyDataChangedMap.get(type).set(true);
+      notifyDataChange(type);
     }
   }
 }
@@ -24,6 +24,7 @@ import java.util.List;
 
 import org.apache.helix.controller.stages.AttributeName;
 import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.monitoring.PipelineTrace;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,9 +72,11 @@ public class Pipeline {
     for (Stage stage : _stages) {
       long startTime = System.currentTimeMillis();
 
-      stage.preProcess();
-      stage.process(event);
-      stage.postProcess();
+      try (PipelineTrace.Span ignored = event.startTraceSpan(stage.getStageName())) {
+        stage.preProcess();
+        stage.process(event);
+        stage.postProcess();
+      }
 
       long endTime = System.currentTimeMillis();
       long duration = endTime - startTime;
@@ -33,6 +33,7 @@ import org.apache.helix.controller.changedetector.ResourceChangeDetector;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
+import org.apache.helix.controller.rebalancer.waged.model.ClusterModelCache;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelProvider;
 import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.ClusterTopologyConfig;
@@ -74,6 +75,9 @@ class GlobalRebalanceRunner implements AutoCloseable {
   private final CountMetric _baselineCalcCounter;
   private final LatencyMetric _baselineCalcLatency;
   private final CountMetric _rebalanceFailureCount;
+  private final ClusterModelCache _clusterModelCache;
+  private final LatencyMetric _modelBuildLatency;
+  private final LatencyMetric _assignmentCalcLatency;
 
   private boolean _asyncGlobalRebalanceEnabled;
 
@@ -82,6 +86,7 @@ class GlobalRebalanceRunner implements AutoCloseable {
       MetricCollector metricCollector,
       LatencyMetric writeLatency,
       CountMetric rebalanceFailureCount,
+      ClusterModelCache clusterModelCache,
       boolean isAsyncGlobalRebalanceEnabled) {
     _baselineCalculateExecutor = Executors.newSingleThreadExecutor();
     _assignmentManager = assignmentManager;
@@ -94,7 +99,14 @@ class GlobalRebalanceRunner implements AutoCloseable {
     _baselineCalcLatency = metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.GlobalBaselineCalcLatencyGauge.name(),
         LatencyMetric.class);
+    _modelBuildLatency = metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.ClusterModelBuildLatencyGauge.name(),
+        LatencyMetric.class);
+    _assignmentCalcLatency = metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.AssignmentCalcLatencyGauge.name(),
+        LatencyMetric.class);
     _rebalanceFailureCount = rebalanceFailureCount;
+    _clusterModelCache = clusterModelCache;
     _asyncGlobalRebalanceEnabled = isAsyncGlobalRebalanceEnabled;
   }
 
@@ -169,14 +181,18 @@ class GlobalRebalanceRunner implements AutoCloseable {
         _assignmentManager.getBaselineAssignment(_assignmentMetadataStore, currentStateOutput, resourceMap.keySet());
     ClusterModel clusterModel;
     try {
+      _modelBuildLatency.startMeasuringLatency();
       clusterModel = ClusterModelProvider.generateClusterModelForBaseline(clusterData, resourceMap,
-          allAssignableInstances, clusterChanges, currentBaseline);
+          allAssignableInstances, clusterChanges, currentBaseline, _clusterModelCache);
+      _modelBuildLatency.endMeasuringLatency();
     } catch (Exception ex) {
       throw new HelixRebalanceException("Failed to generate cluster model for global rebalance.",
           HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
     }
 
+    _assignmentCalcLatency.startMeasuringLatency();
     Map<String, ResourceAssignment> newBaseline = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+    _assignmentCalcLatency.endMeasuringLatency();
     boolean isBaselineChanged =
         _assignmentMetadataStore != null && _assignmentMetadataStore.isBaselineChanged(newBaseline);
     // Write the new baseline to metadata store
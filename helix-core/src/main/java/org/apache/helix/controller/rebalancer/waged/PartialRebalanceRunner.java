@@ -30,6 +30,7 @@ import org.apache.helix.HelixRebalanceException;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
+import org.apache.helix.controller.rebalancer.waged.model.ClusterModelCache;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelProvider;
 import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.Resource;
@@ -62,6 +63,9 @@ class PartialRebalanceRunner implements AutoCloseable {
   private final CountMetric _rebalanceFailureCount;
   private final CountMetric _partialRebalanceCounter;
   private final LatencyMetric _partialRebalanceLatency;
+  private final ClusterModelCache _clusterModelCache;
+  private final LatencyMetric _modelBuildLatency;
+  private final LatencyMetric _assignmentCalcLatency;
 
   private boolean _asyncPartialRebalanceEnabled;
   private Future<Boolean> _asyncPartialRebalanceResult;
@@ -70,11 +74,13 @@ class PartialRebalanceRunner implements AutoCloseable {
       AssignmentMetadataStore assignmentMetadataStore,
       MetricCollector metricCollector,
       CountMetric rebalanceFailureCount,
+      ClusterModelCache clusterModelCache,
       boolean isAsyncPartialRebalanceEnabled) {
     _assignmentManager = assignmentManager;
     _assignmentMetadataStore = assignmentMetadataStore;
     _bestPossibleCalculateExecutor = Executors.newSingleThreadExecutor();
     _rebalanceFailureCount = rebalanceFailureCount;
+    _clusterModelCache = clusterModelCache;
     _asyncPartialRebalanceEnabled = isAsyncPartialRebalanceEnabled;
 
     _partialRebalanceCounter = metricCollector.getMetric(
@@ -87,6 +93,12 @@ class PartialRebalanceRunner implements AutoCloseable {
     _baselineDivergenceGauge = metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.BaselineDivergenceGauge.name(),
         BaselineDivergenceGauge.class);
+    _modelBuildLatency = metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.ClusterModelBuildLatencyGauge.name(),
+        LatencyMetric.class);
+    _assignmentCalcLatency = metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.AssignmentCalcLatencyGauge.name(),
+        LatencyMetric.class);
   }
 
   public void partialRebalance(ResourceControllerDataProvider clusterData, Map<String, Resource> resourceMap,
@@ -154,14 +166,18 @@ class PartialRebalanceRunner implements AutoCloseable {
             resourceMap.keySet());
     ClusterModel clusterModel;
     try {
+      _modelBuildLatency.startMeasuringLatency();
       clusterModel = ClusterModelProvider
           .generateClusterModelForPartialRebalance(clusterData, resourceMap, activeNodes,
-              currentBaseline, currentBestPossibleAssignment);
+              currentBaseline, currentBestPossibleAssignment, _clusterModelCache);
+      _modelBuildLatency.endMeasuringLatency();
     } catch (Exception ex) {
       throw new HelixRebalanceException("Failed to generate cluster model for partial rebalance.",
           HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
     }
+    _assignmentCalcLatency.startMeasuringLatency();
     Map<String, ResourceAssignment> newAssignment = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+    _assignmentCalcLatency.endMeasuringLatency();
 
     // Asynchronously report baseline divergence metric before persisting to metadata store,
     // just in case if persisting fails, we still have the metric.
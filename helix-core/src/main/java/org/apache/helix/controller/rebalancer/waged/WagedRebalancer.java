@@ -44,6 +44,7 @@ import org.apache.helix.controller.rebalancer.util.WagedRebalanceUtil;
 import org.apache.helix.controller.rebalancer.util.WagedValidationUtil;
 import org.apache.helix.controller.rebalancer.waged.constraints.ConstraintBasedAlgorithmFactory;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
+import org.apache.helix.controller.rebalancer.waged.model.ClusterModelCache;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelProvider;
 import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.model.ClusterConfig;
@@ -93,7 +94,11 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
   private final LatencyMetric _emergencyRebalanceLatency;
   private final CountMetric _rebalanceOverwriteCounter;
   private final LatencyMetric _rebalanceOverwriteLatency;
+  private final LatencyMetric _modelBuildLatency;
+  private final LatencyMetric _assignmentCalcLatency;
   private final AssignmentManager _assignmentManager;
+  // Keeps the unchanged nodes and replicas across the cluster model calculations.
+  private final ClusterModelCache _clusterModelCache = new ClusterModelCache();
   private final PartialRebalanceRunner _partialRebalanceRunner;
   private final GlobalRebalanceRunner _globalRebalanceRunner;
 
@@ -182,6 +187,12 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
     _rebalanceOverwriteLatency = _metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.RebalanceOverwriteLatencyGauge.name(),
         LatencyMetric.class);
+    _modelBuildLatency = _metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.ClusterModelBuildLatencyGauge.name(),
+        LatencyMetric.class);
+    _assignmentCalcLatency = _metricCollector.getMetric(
+        WagedRebalancerMetricCollector.WagedRebalancerMetricNames.AssignmentCalcLatencyGauge.name(),
+        LatencyMetric.class);
     _writeLatency = _metricCollector.getMetric(
         WagedRebalancerMetricCollector.WagedRebalancerMetricNames.StateWriteLatencyGauge.name(),
         LatencyMetric.class);
@@ -190,9 +201,9 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
         LatencyMetric.class));
 
     _partialRebalanceRunner = new PartialRebalanceRunner(_assignmentManager, assignmentMetadataStore, metricCollector,
-        _rebalanceFailureCount, isAsyncPartialRebalanceEnabled);
+        _rebalanceFailureCount, _clusterModelCache, isAsyncPartialRebalanceEnabled);
     _globalRebalanceRunner = new GlobalRebalanceRunner(_assignmentManager, assignmentMetadataStore, metricCollector,
-        _writeLatency, _rebalanceFailureCount, isAsyncGlobalRebalanceEnabled);
+        _writeLatency, _rebalanceFailureCount, _clusterModelCache, isAsyncGlobalRebalanceEnabled);
   }
 
   // Update the global rebalance mode to be asynchronous or synchronous
@@ -222,6 +233,7 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
       _assignmentMetadataStore.reset();
     }
     _globalRebalanceRunner.resetChangeDetector();
+    _clusterModelCache.clear();
   }
 
   // TODO the rebalancer should reject any other computing request after being closed.
@@ -412,9 +424,13 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
     LOG.info("Start delayed rebalance overwrites in emergency rebalance.");
     try {
       // use the "real" live and enabled instances for calculation
+      _modelBuildLatency.startMeasuringLatency();
       ClusterModel clusterModel = ClusterModelProvider.generateClusterModelForDelayedRebalanceOverwrites(
-          clusterData, resourceMap, enabledLiveInstances, currentResourceAssignment);
+          clusterData, resourceMap, enabledLiveInstances, currentResourceAssignment, _clusterModelCache);
+      _modelBuildLatency.endMeasuringLatency();
+      _assignmentCalcLatency.startMeasuringLatency();
       Map<String, ResourceAssignment> assignment = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+      _assignmentCalcLatency.endMeasuringLatency();
       // keep only the resource entries requiring changes for minActiveReplica
       assignment.keySet().retainAll(clusterModel.getAssignableReplicaMap().keySet());
       DelayedRebalanceUtil.mergeAssignments(assignment, currentResourceAssignment);
@@ -476,14 +492,18 @@ public class WagedRebalancer implements StatefulRebalancer<ResourceControllerDat
       LOG.info("Emergency rebalance responding to permanent node down.");
       ClusterModel clusterModel;
       try {
+        _modelBuildLatency.startMeasuringLatency();
         clusterModel =
             ClusterModelProvider.generateClusterModelForEmergencyRebalance(clusterData, resourceMap, activeNodes,
-                currentBestPossibleAssignment);
+                currentBestPossibleAssignment, _clusterModelCache);
+        _modelBuildLatency.endMeasuringLatency();
       } catch (Exception ex) {
         throw new HelixRebalanceException("Failed to generate cluster model for emergency rebalance.",
             HelixRebalanceException.Type.INVALID_CLUSTER_STATUS, ex);
       }
+      _assignmentCalcLatency.startMeasuringLatency();
       newAssignment = WagedRebalanceUtil.calculateAssignment(clusterModel, algorithm);
+      _assignmentCalcLatency.endMeasuringLatency();
     } else {
       newAssignment = currentBestPossibleAssignment;
     }
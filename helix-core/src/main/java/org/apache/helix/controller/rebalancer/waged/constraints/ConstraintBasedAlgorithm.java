@@ -21,16 +21,25 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.helix.HelixRebalanceException;
 import org.apache.helix.controller.rebalancer.waged.RebalanceAlgorithm;
 import org.apache.helix.controller.rebalancer.waged.model.AssignableNode;
@@ -55,13 +64,39 @@ import org.slf4j.LoggerFactory;
 class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
   private static final float DIV_GUARD = 0.01f;
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintBasedAlgorithm.class);
+  // The pool that assigns the independent instance groups concurrently. It is shared by all the
+  // algorithm instances. The threads are daemon threads and time out when idle.
+  private static final ExecutorService INSTANCE_GROUP_EXECUTOR = createInstanceGroupExecutor();
   private final List<HardConstraint> _hardConstraints;
   private final Map<SoftConstraint, Float> _softConstraints;
+  private final boolean _splitByInstanceGroup;
 
   ConstraintBasedAlgorithm(List<HardConstraint> hardConstraints,
       Map<SoftConstraint, Float> softConstraints) {
+    this(hardConstraints, softConstraints, true);
+  }
+
+  /**
+   * @param splitByInstanceGroup If true, the replicas of the instance groups that do not share any
+   *                             node are assigned concurrently.
+   */
+  ConstraintBasedAlgorithm(List<HardConstraint> hardConstraints,
+      Map<SoftConstraint, Float> softConstraints, boolean splitByInstanceGroup) {
     _hardConstraints = hardConstraints;
     _softConstraints = softConstraints;
+    // Without the group tag constraint, any replica may be assigned to any node.
+    _splitByInstanceGroup = splitByInstanceGroup && hardConstraints.stream()
+        .anyMatch(constraint -> constraint instanceof ValidGroupTagConstraint);
+  }
+
+  private static ExecutorService createInstanceGroupExecutor() {
+    int poolSize = Math.max(1, Runtime.getRuntime().availableProcessors());
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("WagedInstanceGroupAssignment-%d").build());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
   }
 
   @Override
@@ -94,6 +129,24 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
             replica -> new AssignableReplicaWithScore(replica, clusterModel, positiveEstimateClusterRemainCap)).sorted()
             .collect(Collectors.toList());
 
+    List<InstanceGroup> instanceGroups = _splitByInstanceGroup
+        ? splitByInstanceGroup(toBeAssignedReplicas, nodes)
+        : Collections.singletonList(new InstanceGroup(nodes, toBeAssignedReplicas));
+    if (instanceGroups.size() > 1) {
+      assignInstanceGroups(instanceGroups, clusterModel, busyInstances);
+    } else {
+      assignReplicas(toBeAssignedReplicas, nodes, clusterModel, busyInstances, optimalAssignment);
+    }
+    optimalAssignment.updateAssignments(clusterModel);
+    return optimalAssignment;
+  }
+
+  /**
+   * Assign the replicas in the given order, each one to the node with the highest points.
+   */
+  private void assignReplicas(List<AssignableReplicaWithScore> toBeAssignedReplicas,
+      List<AssignableNode> nodes, ClusterModel clusterModel, Set<String> busyInstances,
+      OptimalAssignment optimalAssignment) throws HelixRebalanceException {
     for (AssignableReplicaWithScore replicaWithScore : toBeAssignedReplicas) {
       AssignableReplica replica = replicaWithScore.getAssignableReplica();
       Optional<AssignableNode> maybeBestNode =
@@ -113,8 +166,98 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
           .assign(replica.getResourceName(), replica.getPartitionName(), replica.getReplicaState(),
               bestNode.getInstanceName());
     }
-    optimalAssignment.updateAssignments(clusterModel);
-    return optimalAssignment;
+  }
+
+  /**
+   * Assign the replicas of the instance groups concurrently. The groups do not share any node,
+   * and the cluster context estimations do not change during the assignment, so each group gets
+   * the same result as in a sequential assignment.
+   */
+  private void assignInstanceGroups(List<InstanceGroup> instanceGroups, ClusterModel clusterModel,
+      Set<String> busyInstances) throws HelixRebalanceException {
+    List<Future<Void>> results = new ArrayList<>();
+    for (InstanceGroup instanceGroup : instanceGroups) {
+      results.add(INSTANCE_GROUP_EXECUTOR.submit(() -> {
+        // The failures are recorded separately since OptimalAssignment is not thread-safe.
+        assignReplicas(instanceGroup._replicas, instanceGroup._nodes, clusterModel,
+            busyInstances, new OptimalAssignment());
+        return null;
+      }));
+    }
+    try {
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof HelixRebalanceException) {
+        throw (HelixRebalanceException) e.getCause();
+      }
+      throw new HelixRebalanceException("Failed to assign the replicas of an instance group.",
+          HelixRebalanceException.Type.FAILED_TO_CALCULATE, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HelixRebalanceException("Interrupted while assigning the replicas.",
+          HelixRebalanceException.Type.FAILED_TO_CALCULATE, e);
+    } finally {
+      results.forEach(result -> result.cancel(false));
+    }
+  }
+
+  /**
+   * Split the replicas into the groups whose candidate nodes do not overlap. A replica of a
+   * resource with an instance group tag can only be assigned to the nodes with the tag, so the
+   * tags that share any node are merged into one group.
+   * @return the instance groups, each with its replicas in the given order. If any replica can be
+   *         assigned to any node, a single group with all the replicas and nodes is returned.
+   */
+  private List<InstanceGroup> splitByInstanceGroup(List<AssignableReplicaWithScore> replicas,
+      List<AssignableNode> nodes) {
+    // Union-find of the instance group tags. <tag, parent tag>
+    Map<String, String> tagParents = new HashMap<>();
+    for (AssignableReplicaWithScore replicaWithScore : replicas) {
+      AssignableReplica replica = replicaWithScore.getAssignableReplica();
+      if (!replica.hasResourceInstanceGroupTag()) {
+        return Collections.singletonList(new InstanceGroup(nodes, replicas));
+      }
+      tagParents.putIfAbsent(replica.getResourceInstanceGroupTag(),
+          replica.getResourceInstanceGroupTag());
+    }
+    for (AssignableNode node : nodes) {
+      String nodeGroupTag = null;
+      for (String tag : node.getInstanceTags()) {
+        if (tagParents.containsKey(tag)) {
+          String groupTag = findGroupTag(tagParents, tag);
+          if (nodeGroupTag == null) {
+            nodeGroupTag = groupTag;
+          } else if (!nodeGroupTag.equals(groupTag)) {
+            tagParents.put(groupTag, nodeGroupTag);
+          }
+        }
+      }
+    }
+
+    Map<String, InstanceGroup> instanceGroups = new LinkedHashMap<>();
+    for (AssignableReplicaWithScore replicaWithScore : replicas) {
+      String groupTag = findGroupTag(tagParents,
+          replicaWithScore.getAssignableReplica().getResourceInstanceGroupTag());
+      instanceGroups.computeIfAbsent(groupTag, tag -> new InstanceGroup())._replicas
+          .add(replicaWithScore);
+    }
+    // The nodes without any of the tags cannot be assigned any replica.
+    for (AssignableNode node : nodes) {
+      node.getInstanceTags().stream().filter(tagParents::containsKey).findFirst().ifPresent(
+          tag -> instanceGroups.get(findGroupTag(tagParents, tag))._nodes.add(node));
+    }
+    return new ArrayList<>(instanceGroups.values());
+  }
+
+  private static String findGroupTag(Map<String, String> tagParents, String tag) {
+    String groupTag = tag;
+    while (!tagParents.get(groupTag).equals(groupTag)) {
+      groupTag = tagParents.get(groupTag);
+    }
+    tagParents.put(tag, groupTag);
+    return groupTag;
   }
 
   private Optional<AssignableNode> getNodeWithHighestPoints(AssignableReplica replica,
@@ -179,6 +322,23 @@ class ConstraintBasedAlgorithm implements RebalanceAlgorithm {
         .collect(Collectors.toList());
   }
 
+  /**
+   * The replicas that can only be assigned to the nodes of the group.
+   */
+  private static class InstanceGroup {
+    private final List<AssignableNode> _nodes;
+    private final List<AssignableReplicaWithScore> _replicas;
+
+    InstanceGroup() {
+      this(new ArrayList<>(), new ArrayList<>());
+    }
+
+    InstanceGroup(List<AssignableNode> nodes, List<AssignableReplicaWithScore> replicas) {
+      _nodes = nodes;
+      _replicas = replicas;
+    }
+  }
+
   private static class AssignableReplicaWithScore implements Comparable<AssignableReplicaWithScore> {
     private final AssignableReplica _replica;
     private float _score = 0;
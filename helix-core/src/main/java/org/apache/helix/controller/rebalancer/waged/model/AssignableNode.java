@@ -96,6 +96,23 @@ public class AssignableNode implements Comparable<AssignableNode> {
     this(clusterConfig, null, instanceConfig, instanceName);
   }
 
+  /**
+   * Create a node with the same instance properties as the given node and no assigned replicas.
+   * The immutable properties are shared, so this is much cheaper than parsing the configs again.
+   */
+  AssignableNode(AssignableNode node) {
+    _instanceName = node._instanceName;
+    _logicaId = node._logicaId;
+    _faultZone = node._faultZone;
+    _instanceTags = node._instanceTags;
+    _disabledPartitionsMap = node._disabledPartitionsMap;
+    _maxAllowedCapacity = node._maxAllowedCapacity;
+    _remainingCapacity = new HashMap<>(node._maxAllowedCapacity);
+    _remainingTopStateCapacity = new HashMap<>(node._maxAllowedCapacity);
+    _maxPartition = node._maxPartition;
+    _currentAssignedReplicaMap = new HashMap<>();
+  }
+
   /**
    * This function should only be used to assign a set of new partitions that are not allocated on
    * this node. It's because the any exception could occur at the middle of batch assignment and the
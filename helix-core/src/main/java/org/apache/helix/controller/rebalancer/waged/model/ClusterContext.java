@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.apache.helix.HelixException;
@@ -52,7 +53,10 @@ public class ClusterContext {
   private final float _estimatedTopStateMaxUtilization;
 
   // map{zoneName : map{resourceName : set(partitionNames)}}
-  private Map<String, Map<String, Set<String>>> _assignmentForFaultZoneMap = new HashMap<>();
+  // The maps are concurrent since independent instance groups can be assigned concurrently. The
+  // partition set of one resource is only updated by the thread that assigns the resource.
+  private Map<String, Map<String, Set<String>>> _assignmentForFaultZoneMap =
+      new ConcurrentHashMap<>();
   // Records about the previous assignment
   // <ResourceName, ResourceAssignment contains the baseline assignment>
   private final Map<String, ResourceAssignment> _baselineAssignment;
@@ -189,7 +193,7 @@ public class ClusterContext {
   }
 
   void addPartitionToFaultZone(String faultZoneId, String resourceName, String partition) {
-    if (!_assignmentForFaultZoneMap.computeIfAbsent(faultZoneId, k -> new HashMap<>())
+    if (!_assignmentForFaultZoneMap.computeIfAbsent(faultZoneId, k -> new ConcurrentHashMap<>())
         .computeIfAbsent(resourceName, k -> new HashSet<>())
         .add(partition)) {
       throw new HelixException(
@@ -205,7 +209,10 @@ public class ClusterContext {
   }
 
   void setAssignmentForFaultZoneMap(Map<String, Map<String, Set<String>>> assignmentForFaultZoneMap) {
-    _assignmentForFaultZoneMap = assignmentForFaultZoneMap;
+    Map<String, Map<String, Set<String>>> concurrentMap = new ConcurrentHashMap<>();
+    assignmentForFaultZoneMap.forEach((faultZoneId, resourceMap) -> concurrentMap
+        .put(faultZoneId, new ConcurrentHashMap<>(resourceMap)));
+    _assignmentForFaultZoneMap = concurrentMap;
   }
 
   private static int estimateAvgReplicaCount(int replicaCount, int instanceCount) {
@@ -0,0 +1,184 @@
+package org.apache.helix.controller.rebalancer.waged.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * Keeps the config derived parts of the cluster model across rebalance calculations, so a new
+ * {@link ClusterModel} only parses the instance and resource configs that changed since the
+ * previous calculation.
+ * The assignable nodes are kept as templates, and every calculation gets fresh copies of them
+ * since the nodes track the assignment state. The assignable replicas are immutable, so they are
+ * shared between calculations.
+ * Any cluster config change invalidates all the entries, since both the topology and the default
+ * capacity settings are defined in the cluster config.
+ * This class is thread-safe; the WAGED rebalancer may build models concurrently.
+ */
+public class ClusterModelCache {
+  private final Map<String, NodeEntry> _nodeEntries = new ConcurrentHashMap<>();
+  private final Map<String, ReplicaEntry> _replicaEntries = new ConcurrentHashMap<>();
+  private volatile ClusterConfigEntry _clusterConfigEntry;
+
+  /**
+   * @return a fresh assignable node of the instance, reusing the parsed instance properties if
+   *         neither the cluster config nor the instance config has changed
+   */
+  AssignableNode getAssignableNode(ClusterConfig clusterConfig, InstanceConfig instanceConfig,
+      String instanceName, Supplier<AssignableNode> nodeBuilder) {
+    ClusterConfigEntry clusterConfigEntry = getClusterConfigEntry(clusterConfig);
+    NodeEntry entry = _nodeEntries.get(instanceName);
+    if (entry == null || entry._clusterConfigEntry != clusterConfigEntry
+        || !entry._instanceConfig.equals(instanceConfig.getRecord())) {
+      entry = new NodeEntry(clusterConfigEntry, copyOf(instanceConfig.getRecord()),
+          nodeBuilder.get());
+      _nodeEntries.put(instanceName, entry);
+    }
+    return new AssignableNode(entry._node);
+  }
+
+  /**
+   * @return a new set of the assignable replicas of the resource, reusing the replicas built
+   *         previously if all the inputs are the same
+   */
+  Set<AssignableReplica> getAssignableReplicas(ClusterConfig clusterConfig,
+      ResourceConfig mergedResourceConfig, Set<String> partitions,
+      Map<String, Integer> stateCountMap, Map<String, Integer> statePriorityMap,
+      Supplier<Set<AssignableReplica>> replicaBuilder) {
+    ClusterConfigEntry clusterConfigEntry = getClusterConfigEntry(clusterConfig);
+    String resourceName = mergedResourceConfig.getResourceName();
+    ReplicaEntry entry = _replicaEntries.get(resourceName);
+    if (entry == null || entry._clusterConfigEntry != clusterConfigEntry || !entry
+        .isBuiltFrom(mergedResourceConfig.getRecord(), partitions, stateCountMap,
+            statePriorityMap)) {
+      entry = new ReplicaEntry(clusterConfigEntry, copyOf(mergedResourceConfig.getRecord()),
+          new HashSet<>(partitions), new HashMap<>(stateCountMap),
+          new HashMap<>(statePriorityMap), replicaBuilder.get());
+      _replicaEntries.put(resourceName, entry);
+    }
+    return new HashSet<>(entry._replicas);
+  }
+
+  /**
+   * Remove the entries of the instances and resources that are no longer in the cluster.
+   */
+  void retain(Set<String> instanceNames, Set<String> resourceNames) {
+    _nodeEntries.keySet().retainAll(instanceNames);
+    _replicaEntries.keySet().retainAll(resourceNames);
+  }
+
+  /**
+   * Remove all the entries.
+   */
+  public void clear() {
+    _nodeEntries.clear();
+    _replicaEntries.clear();
+    _clusterConfigEntry = null;
+  }
+
+  int getNodeEntryCount() {
+    return _nodeEntries.size();
+  }
+
+  int getReplicaEntryCount() {
+    return _replicaEntries.size();
+  }
+
+  private synchronized ClusterConfigEntry getClusterConfigEntry(ClusterConfig clusterConfig) {
+    ClusterConfigEntry entry = _clusterConfigEntry;
+    if (entry == null || !entry._clusterConfig.equals(clusterConfig.getRecord())) {
+      entry = new ClusterConfigEntry(copyOf(clusterConfig.getRecord()));
+      _clusterConfigEntry = entry;
+      _nodeEntries.clear();
+      _replicaEntries.clear();
+    }
+    return entry;
+  }
+
+  // The records are copied deeply since the cached config objects might be modified in place.
+  private static ZNRecord copyOf(ZNRecord record) {
+    ZNRecord copy = new ZNRecord(record.getId());
+    copy.setSimpleFields(new HashMap<>(record.getSimpleFields()));
+    record.getMapFields().forEach((key, value) -> copy.setMapField(key,
+        value == null ? null : new HashMap<>(value)));
+    record.getListFields().forEach((key, value) -> copy.setListField(key,
+        value == null ? null : new ArrayList<>(value)));
+    return copy;
+  }
+
+  private static final class ClusterConfigEntry {
+    final ZNRecord _clusterConfig;
+
+    ClusterConfigEntry(ZNRecord clusterConfig) {
+      _clusterConfig = clusterConfig;
+    }
+  }
+
+  private static final class NodeEntry {
+    final ClusterConfigEntry _clusterConfigEntry;
+    final ZNRecord _instanceConfig;
+    final AssignableNode _node;
+
+    NodeEntry(ClusterConfigEntry clusterConfigEntry, ZNRecord instanceConfig,
+        AssignableNode node) {
+      _clusterConfigEntry = clusterConfigEntry;
+      _instanceConfig = instanceConfig;
+      _node = node;
+    }
+  }
+
+  private static final class ReplicaEntry {
+    final ClusterConfigEntry _clusterConfigEntry;
+    final ZNRecord _resourceConfig;
+    final Set<String> _partitions;
+    final Map<String, Integer> _stateCountMap;
+    final Map<String, Integer> _statePriorityMap;
+    final Set<AssignableReplica> _replicas;
+
+    ReplicaEntry(ClusterConfigEntry clusterConfigEntry, ZNRecord resourceConfig,
+        Set<String> partitions, Map<String, Integer> stateCountMap,
+        Map<String, Integer> statePriorityMap, Set<AssignableReplica> replicas) {
+      _clusterConfigEntry = clusterConfigEntry;
+      _resourceConfig = resourceConfig;
+      _partitions = partitions;
+      _stateCountMap = stateCountMap;
+      _statePriorityMap = statePriorityMap;
+      _replicas = replicas;
+    }
+
+    boolean isBuiltFrom(ZNRecord resourceConfig, Set<String> partitions,
+        Map<String, Integer> stateCountMap, Map<String, Integer> statePriorityMap) {
+      return _partitions.equals(partitions) && _stateCountMap.equals(stateCountMap)
+          && _statePriorityMap.equals(statePriorityMap)
+          && _resourceConfig.equals(resourceConfig);
+    }
+  }
+}
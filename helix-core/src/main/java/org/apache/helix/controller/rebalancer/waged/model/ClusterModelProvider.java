@@ -27,6 +27,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.helix.HelixConstants;
@@ -79,9 +80,22 @@ public class ClusterModelProvider {
       Map<String, Resource> resourceMap,
       Set<String> activeInstances,
       Map<String, ResourceAssignment> resourceAssignment) {
+    return generateClusterModelForDelayedRebalanceOverwrites(dataProvider, resourceMap,
+        activeInstances, resourceAssignment, null);
+  }
+
+  /**
+   * Same as {@link #generateClusterModelForDelayedRebalanceOverwrites(ResourceControllerDataProvider,
+   * Map, Set, Map)}, but reuses the unchanged nodes and replicas kept in the model cache.
+   * @param modelCache The cache of the model objects. If null, all the objects are created.
+   */
+  public static ClusterModel generateClusterModelForDelayedRebalanceOverwrites(
+      ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
+      Set<String> activeInstances, Map<String, ResourceAssignment> resourceAssignment,
+      ClusterModelCache modelCache) {
     return generateClusterModel(dataProvider, resourceMap, activeInstances, Collections.emptyMap(),
         Collections.emptyMap(), resourceAssignment,
-        RebalanceScopeType.DELAYED_REBALANCE_OVERWRITES);
+        RebalanceScopeType.DELAYED_REBALANCE_OVERWRITES, modelCache);
   }
 
   /**
@@ -102,8 +116,21 @@ public class ClusterModelProvider {
   public static ClusterModel generateClusterModelForEmergencyRebalance(ResourceControllerDataProvider dataProvider,
       Map<String, Resource> resourceMap, Set<String> activeInstances,
       Map<String, ResourceAssignment> bestPossibleAssignment) {
+    return generateClusterModelForEmergencyRebalance(dataProvider, resourceMap, activeInstances,
+        bestPossibleAssignment, null);
+  }
+
+  /**
+   * Same as {@link #generateClusterModelForEmergencyRebalance(ResourceControllerDataProvider, Map,
+   * Set, Map)}, but reuses the unchanged nodes and replicas kept in the model cache.
+   * @param modelCache The cache of the model objects. If null, all the objects are created.
+   */
+  public static ClusterModel generateClusterModelForEmergencyRebalance(
+      ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
+      Set<String> activeInstances, Map<String, ResourceAssignment> bestPossibleAssignment,
+      ClusterModelCache modelCache) {
     return generateClusterModel(dataProvider, resourceMap, activeInstances, Collections.emptyMap(),
-        Collections.emptyMap(), bestPossibleAssignment, RebalanceScopeType.EMERGENCY);
+        Collections.emptyMap(), bestPossibleAssignment, RebalanceScopeType.EMERGENCY, modelCache);
   }
 
   /**
@@ -126,8 +153,21 @@ public class ClusterModelProvider {
       ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
       Set<String> activeInstances, Map<String, ResourceAssignment> baselineAssignment,
       Map<String, ResourceAssignment> bestPossibleAssignment) {
+    return generateClusterModelForPartialRebalance(dataProvider, resourceMap, activeInstances,
+        baselineAssignment, bestPossibleAssignment, null);
+  }
+
+  /**
+   * Same as {@link #generateClusterModelForPartialRebalance(ResourceControllerDataProvider, Map,
+   * Set, Map, Map)}, but reuses the unchanged nodes and replicas kept in the model cache.
+   * @param modelCache The cache of the model objects. If null, all the objects are created.
+   */
+  public static ClusterModel generateClusterModelForPartialRebalance(
+      ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
+      Set<String> activeInstances, Map<String, ResourceAssignment> baselineAssignment,
+      Map<String, ResourceAssignment> bestPossibleAssignment, ClusterModelCache modelCache) {
     return generateClusterModel(dataProvider, resourceMap, activeInstances, Collections.emptyMap(),
-        baselineAssignment, bestPossibleAssignment, RebalanceScopeType.PARTIAL);
+        baselineAssignment, bestPossibleAssignment, RebalanceScopeType.PARTIAL, modelCache);
   }
 
   /**
@@ -146,8 +186,22 @@ public class ClusterModelProvider {
       ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
       Set<String> allInstances, Map<HelixConstants.ChangeType, Set<String>> clusterChanges,
       Map<String, ResourceAssignment> baselineAssignment) {
+    return generateClusterModelForBaseline(dataProvider, resourceMap, allInstances, clusterChanges,
+        baselineAssignment, null);
+  }
+
+  /**
+   * Same as {@link #generateClusterModelForBaseline(ResourceControllerDataProvider, Map, Set, Map,
+   * Map)}, but reuses the unchanged nodes and replicas kept in the model cache.
+   * @param modelCache The cache of the model objects. If null, all the objects are created.
+   */
+  public static ClusterModel generateClusterModelForBaseline(
+      ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
+      Set<String> allInstances, Map<HelixConstants.ChangeType, Set<String>> clusterChanges,
+      Map<String, ResourceAssignment> baselineAssignment, ClusterModelCache modelCache) {
     return generateClusterModel(dataProvider, resourceMap, allInstances, clusterChanges,
-        Collections.emptyMap(), baselineAssignment, RebalanceScopeType.GLOBAL_BASELINE);
+        Collections.emptyMap(), baselineAssignment, RebalanceScopeType.GLOBAL_BASELINE,
+        modelCache);
   }
 
   /**
@@ -166,7 +220,7 @@ public class ClusterModelProvider {
     return generateClusterModel(dataProvider, resourceMap,
         dataProvider.getAssignableEnabledLiveInstances(), Collections.emptyMap(),
         Collections.emptyMap(), currentStateAssignment,
-        RebalanceScopeType.GLOBAL_BASELINE);
+        RebalanceScopeType.GLOBAL_BASELINE, null);
   }
 
   /**
@@ -182,18 +236,23 @@ public class ClusterModelProvider {
    * @param idealAssignment        The ideal assignment.
    * @param currentAssignment      The current assignment that was generated in the previous rebalance.
    * @param scopeType              Specify how to determine the rebalance scope.
+   * @param modelCache             The cache of the model objects, or null if not cached.
    * @return the new cluster model
    */
   private static ClusterModel generateClusterModel(ResourceControllerDataProvider dataProvider,
       Map<String, Resource> resourceMap, Set<String> activeInstances,
       Map<HelixConstants.ChangeType, Set<String>> clusterChanges,
       Map<String, ResourceAssignment> idealAssignment,
-      Map<String, ResourceAssignment> currentAssignment, RebalanceScopeType scopeType) {
+      Map<String, ResourceAssignment> currentAssignment, RebalanceScopeType scopeType,
+      ClusterModelCache modelCache) {
     Map<String, InstanceConfig> assignableInstanceConfigMap = dataProvider.getAssignableInstanceConfigMap();
+    if (modelCache != null) {
+      modelCache.retain(dataProvider.getInstanceConfigMap().keySet(), resourceMap.keySet());
+    }
     // Construct all the assignable nodes and initialize with the allocated replicas.
     Set<AssignableNode> assignableNodes =
         getAllAssignableNodes(dataProvider.getClusterConfig(), assignableInstanceConfigMap,
-            activeInstances);
+            activeInstances, modelCache);
 
     // Generate the logical view of the ideal assignment and the current assignment.
     ClusterTopologyConfig clusterTopologyConfig =
@@ -226,7 +285,7 @@ public class ClusterModelProvider {
     // Generate replica objects for all the resource partitions.
     // <resource, replica set>
     Map<String, Set<AssignableReplica>> replicaMap =
-        getAllAssignableReplicas(dataProvider, resourceMap, assignableNodes);
+        getAllAssignableReplicas(dataProvider, resourceMap, assignableNodes, modelCache);
 
     // Check if the replicas need to be reassigned.
     Map<String, Set<AssignableReplica>> allocatedReplicas =
@@ -599,17 +658,24 @@ public class ClusterModelProvider {
    * @param instanceConfigMap A map of all the instance configuration.
    *                          If any active instance has no configuration, it will be ignored.
    * @param activeInstances   All the instances that are online and enabled.
+   * @param modelCache        The cache of the model objects, or null if not cached.
    * @return A map of assignable node set, <InstanceName, node set>.
    */
   private static Set<AssignableNode> getAllAssignableNodes(ClusterConfig clusterConfig,
-      Map<String, InstanceConfig> instanceConfigMap, Set<String> activeInstances) {
+      Map<String, InstanceConfig> instanceConfigMap, Set<String> activeInstances,
+      ClusterModelCache modelCache) {
     ClusterTopologyConfig clusterTopologyConfig =
         ClusterTopologyConfig.createFromClusterConfig(clusterConfig);
     return activeInstances.parallelStream()
-        .filter(instanceConfigMap::containsKey).map(
-            instanceName -> new AssignableNode(clusterConfig, clusterTopologyConfig,
-                instanceConfigMap.get(instanceName),
-                instanceName)).collect(Collectors.toSet());
+        .filter(instanceConfigMap::containsKey).map(instanceName -> {
+          InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
+          Supplier<AssignableNode> nodeBuilder =
+              () -> new AssignableNode(clusterConfig, clusterTopologyConfig, instanceConfig,
+                  instanceName);
+          return modelCache == null ? nodeBuilder.get()
+              : modelCache.getAssignableNode(clusterConfig, instanceConfig, instanceName,
+                  nodeBuilder);
+        }).collect(Collectors.toSet());
   }
 
   /**
@@ -618,11 +684,12 @@ public class ClusterModelProvider {
    * @param dataProvider The cluster status cache that contains the current cluster status.
    * @param resourceMap  All the valid resources that are managed by the rebalancer.
    * @param assignableNodes All the active assignable nodes.
+   * @param modelCache   The cache of the model objects, or null if not cached.
    * @return A map of assignable replica set, <ResourceName, replica set>.
    */
   private static Map<String, Set<AssignableReplica>> getAllAssignableReplicas(
       ResourceControllerDataProvider dataProvider, Map<String, Resource> resourceMap,
-      Set<AssignableNode> assignableNodes) {
+      Set<AssignableNode> assignableNodes, ClusterModelCache modelCache) {
     ClusterConfig clusterConfig = dataProvider.getClusterConfig();
     int activeFaultZoneCount = assignableNodes.stream().map(AssignableNode::getFaultZone)
         .collect(Collectors.toSet()).size();
@@ -647,16 +714,23 @@ public class ClusterModelProvider {
           def.getStateCountMap(activeFaultZoneCount, is.getReplicaCount(assignableNodes.size()));
       ResourceConfig mergedResourceConfig =
           ResourceConfig.mergeIdealStateWithResourceConfig(resourceConfig, is);
-      Set<AssignableReplica> replicas = new HashSet<>();
-      for (String partition : is.getPartitionSet()) {
-        for (Map.Entry<String, Integer> entry : stateCountMap.entrySet()) {
-          String state = entry.getKey();
-          for (int i = 0; i < entry.getValue(); i++) {
-            replicas.add(new AssignableReplica(clusterConfig, mergedResourceConfig, partition, state,
-                    def.getStatePriorityMap().get(state)));
+      Set<String> partitions = is.getPartitionSet();
+      Supplier<Set<AssignableReplica>> replicaBuilder = () -> {
+        Set<AssignableReplica> replicas = new HashSet<>();
+        for (String partition : partitions) {
+          for (Map.Entry<String, Integer> entry : stateCountMap.entrySet()) {
+            String state = entry.getKey();
+            for (int i = 0; i < entry.getValue(); i++) {
+              replicas.add(new AssignableReplica(clusterConfig, mergedResourceConfig, partition,
+                  state, def.getStatePriorityMap().get(state)));
+            }
           }
         }
-      }
+        return replicas;
+      };
+      Set<AssignableReplica> replicas = modelCache == null ? replicaBuilder.get()
+          : modelCache.getAssignableReplicas(clusterConfig, mergedResourceConfig, partitions,
+              stateCountMap, def.getStatePriorityMap(), replicaBuilder);
       return new HashMap.SimpleEntry<>(resourceName, replicas);
     }).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
   }
@@ -48,6 +48,9 @@ public enum AttributeName {
   /** Represents cluster's status, used in management mode pipeline. */
   CLUSTER_STATUS,
 
+  /** The PipelineTrace recording the stages and calls made while processing the event. */
+  PIPELINE_TRACE,
+
   // This attribute should only be used in TaskGarbageCollectionStage, misuse could cause race conditions.
   TO_BE_PURGED_WORKFLOWS,
   // This attribute should only be used in TaskGarbageCollectionStage, misuse could cause race conditions.
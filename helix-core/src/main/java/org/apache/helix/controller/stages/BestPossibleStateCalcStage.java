@@ -20,29 +20,42 @@ package org.apache.helix.controller.stages;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixRebalanceException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
 import org.apache.helix.controller.pipeline.AbstractBaseStage;
 import org.apache.helix.controller.pipeline.StageException;
+import org.apache.helix.controller.rebalancer.AutoRebalancer;
 import org.apache.helix.controller.rebalancer.CustomRebalancer;
 import org.apache.helix.controller.rebalancer.DelayedAutoRebalancer;
 import org.apache.helix.controller.rebalancer.MaintenanceRebalancer;
 import org.apache.helix.controller.rebalancer.Rebalancer;
 import org.apache.helix.controller.rebalancer.SemiAutoRebalancer;
 import org.apache.helix.controller.rebalancer.internal.MappingCalculator;
+import org.apache.helix.controller.rebalancer.strategy.AutoRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.CrushEdRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.CrushRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.MultiRoundCrushRebalanceStrategy;
+import org.apache.helix.controller.rebalancer.strategy.RebalanceStrategy;
 import org.apache.helix.controller.rebalancer.util.WagedValidationUtil;
 import org.apache.helix.controller.rebalancer.waged.ReadOnlyWagedRebalancer;
 import org.apache.helix.controller.rebalancer.waged.WagedRebalancer;
@@ -56,6 +69,7 @@ import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.PipelineTrace;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.apache.helix.monitoring.mbeans.ResourceMonitor;
 import org.apache.helix.task.TaskConstants;
@@ -70,6 +84,20 @@ import org.slf4j.LoggerFactory;
 public class BestPossibleStateCalcStage extends AbstractBaseStage {
   private static final Logger logger =
       LoggerFactory.getLogger(BestPossibleStateCalcStage.class.getName());
+  // By default, all the resources that are not rebalanced by the WAGED rebalancer are calculated
+  // sequentially in one shard.
+  private static final int DEFAULT_REBALANCE_SHARDS = 1;
+  private static final Set<String> SHARDABLE_REBALANCERS = ImmutableSet
+      .of(DelayedAutoRebalancer.class.getName(), AutoRebalancer.class.getName(),
+          SemiAutoRebalancer.class.getName(), CustomRebalancer.class.getName());
+  private static final Set<String> SHARDABLE_STRATEGIES = ImmutableSet
+      .of(AutoRebalanceStrategy.class.getName(), CrushRebalanceStrategy.class.getName(),
+          CrushEdRebalanceStrategy.class.getName(),
+          MultiRoundCrushRebalanceStrategy.class.getName());
+  // The pool that calculates the resource shards concurrently. It is shared by all the
+  // controllers in the process. The threads are daemon threads and time out when idle.
+  private static final ExecutorService REBALANCE_SHARD_EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("RebalanceShard-%d").build());
 
   @Override
   public void process(ClusterEvent event) throws Exception {
@@ -254,9 +282,13 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
 
     final List<String> failureResources = new ArrayList<>();
 
-    Map<String, Resource> calculatedResourceMap =
-        computeResourceBestPossibleStateWithWagedRebalancer(wagedRebalancer, cache,
-            currentStateOutput, resourceMap, output, failureResources);
+    Map<String, Resource> calculatedResourceMap;
+    try (PipelineTrace.Span span = event.startTraceSpan("WagedRebalancer")) {
+      calculatedResourceMap =
+          computeResourceBestPossibleStateWithWagedRebalancer(wagedRebalancer, cache,
+              currentStateOutput, resourceMap, output, failureResources);
+      addResourceCounts(span, calculatedResourceMap.values());
+    }
 
     Map<String, Resource> remainingResourceMap = new HashMap<>(resourceMap);
     remainingResourceMap.keySet().removeAll(calculatedResourceMap.keySet());
@@ -264,23 +296,19 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     // Fallback to the original single resource rebalancer calculation.
     // This is required because we support mixed cluster that uses both WAGED rebalancer and the
     // older rebalancers.
-    Iterator<Resource> itr = remainingResourceMap.values().iterator();
-    while (itr.hasNext()) {
-      Resource resource = itr.next();
-      boolean result = false;
-      try {
-        result = computeSingleResourceBestPossibleState(event, cache, currentStateOutput, resource,
-            output);
-      } catch (HelixException ex) {
-        LogUtil.logError(logger, _eventId, String
-            .format("Exception when calculating best possible states for %s",
-                resource.getResourceName()), ex);
-
-      }
-      if (!result) {
-        failureResources.add(resource.getResourceName());
-        LogUtil.logWarn(logger, _eventId, String
-            .format("Failed to calculate best possible states for %s", resource.getResourceName()));
+    try (PipelineTrace.Span span = event.startTraceSpan("SingleResourceRebalancers")) {
+      addResourceCounts(span, remainingResourceMap.values());
+      int shardCount = HelixUtil
+          .getSystemPropertyAsInt(SystemPropertyKeys.CONTROLLER_REBALANCE_SHARDS,
+              DEFAULT_REBALANCE_SHARDS);
+      List<List<Resource>> shards =
+          splitIntoShards(remainingResourceMap.values(), cache, shardCount);
+      if (shards.size() > 1) {
+        computeShardsBestPossibleState(event, cache, currentStateOutput, shards, output,
+            failureResources);
+      } else {
+        computeResourcesBestPossibleState(event, cache, currentStateOutput,
+            remainingResourceMap.values(), output, failureResources);
       }
     }
 
@@ -293,6 +321,14 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     return output;
   }
 
+  private static void addResourceCounts(PipelineTrace.Span span, Collection<Resource> resources) {
+    long partitionCount = 0;
+    for (Resource resource : resources) {
+      partitionCount += resource.getPartitions().size();
+    }
+    span.addCount("resources", resources.size()).addCount("partitions", partitionCount);
+  }
+
   private void updateRebalanceStatus(final boolean hasFailure, final List<String> failedResources,
       final HelixManager helixManager, final ResourceControllerDataProvider cache,
       final ClusterStatusMonitor clusterStatusMonitor, final String errorMessage) {
@@ -443,6 +479,135 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     }
   }
 
+  private void computeResourcesBestPossibleState(ClusterEvent event,
+      ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput,
+      Collection<Resource> resources, BestPossibleStateOutput output,
+      List<String> failureResources) {
+    for (Resource resource : resources) {
+      boolean result = false;
+      try {
+        result = computeSingleResourceBestPossibleState(event, cache, currentStateOutput,
+            resource, output);
+      } catch (HelixException ex) {
+        LogUtil.logError(logger, _eventId, String
+            .format("Exception when calculating best possible states for %s",
+                resource.getResourceName()), ex);
+
+      }
+      if (!result) {
+        failureResources.add(resource.getResourceName());
+        LogUtil.logWarn(logger, _eventId, String
+            .format("Failed to calculate best possible states for %s",
+                resource.getResourceName()));
+      }
+    }
+  }
+
+  /**
+   * Split the resources into at most shardCount shards. The resources of the same resource group
+   * are always in the same shard, and the other resources are spread by their names.
+   * The resources that may share state in the cache with other resources are all put in the first
+   * shard, so they are still calculated one by one in the given order.
+   * @return the non-empty shards, each with its resources in the given order
+   */
+  private static List<List<Resource>> splitIntoShards(Collection<Resource> resources,
+      ResourceControllerDataProvider cache, int shardCount) {
+    List<List<Resource>> shards = new ArrayList<>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new ArrayList<>());
+    }
+    for (Resource resource : resources) {
+      IdealState idealState = cache.getIdealState(resource.getResourceName());
+      if (idealState != null && !isShardable(idealState)) {
+        shards.get(0).add(resource);
+        continue;
+      }
+      String shardKey = idealState == null || idealState.getResourceGroupName() == null
+          ? resource.getResourceName() : idealState.getResourceGroupName();
+      shards.get(Math.floorMod(shardKey.hashCode(), shardCount)).add(resource);
+    }
+    shards.removeIf(List::isEmpty);
+    return shards;
+  }
+
+  /**
+   * @return true if the resource is rebalanced by a built-in rebalancer and rebalance strategy
+   *         that only update the entries of the resource itself in the cache. The greedy strategy
+   *         assigns partitions against the instance capacities shared by all the resources, and
+   *         the user-defined rebalancers and strategies are not known to be thread-safe.
+   */
+  private static boolean isShardable(IdealState idealState) {
+    switch (idealState.getRebalanceMode()) {
+    case SEMI_AUTO:
+    case CUSTOMIZED:
+      return true;
+    case FULL_AUTO:
+      String rebalancerClassName = idealState.getRebalancerClassName();
+      if (rebalancerClassName != null && !SHARDABLE_REBALANCERS.contains(rebalancerClassName)) {
+        return false;
+      }
+      String strategyName = idealState.getRebalanceStrategy();
+      return strategyName == null
+          || strategyName.equalsIgnoreCase(RebalanceStrategy.DEFAULT_REBALANCE_STRATEGY)
+          || SHARDABLE_STRATEGIES.contains(strategyName);
+    default:
+      return false;
+    }
+  }
+
+  /**
+   * Calculate the best possible states of the resource shards concurrently. The shards share the
+   * refreshed cache of this event, and each shard records its result separately. The results are
+   * merged into the output once all the shards are done, so the stage takes as long as the
+   * slowest shard instead of the sum of all the resources.
+   */
+  private void computeShardsBestPossibleState(ClusterEvent event,
+      ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput,
+      List<List<Resource>> shards, BestPossibleStateOutput output,
+      List<String> failureResources) {
+    List<BestPossibleStateOutput> shardOutputs = new ArrayList<>();
+    List<List<String>> shardFailureResources = new ArrayList<>();
+    List<Future<?>> results = new ArrayList<>();
+    try {
+      for (List<Resource> shard : shards) {
+        BestPossibleStateOutput shardOutput = new BestPossibleStateOutput();
+        List<String> shardFailures = new ArrayList<>();
+        shardOutputs.add(shardOutput);
+        shardFailureResources.add(shardFailures);
+        results.add(REBALANCE_SHARD_EXECUTOR.submit(PipelineTrace.wrap(() -> {
+          try (PipelineTrace.Span span = event.startTraceSpan("RebalanceShard")) {
+            addResourceCounts(span, shard);
+            computeResourcesBestPossibleState(event, cache, currentStateOutput, shard,
+                shardOutput, shardFailures);
+          }
+        })));
+      }
+      for (Future<?> result : results) {
+        result.get();
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new HelixException("Failed to calculate the best possible states of a resource shard.",
+          e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new HelixException("Interrupted while calculating the best possible states.", e);
+    } finally {
+      results.forEach(result -> result.cancel(false));
+    }
+
+    for (int i = 0; i < shardOutputs.size(); i++) {
+      BestPossibleStateOutput shardOutput = shardOutputs.get(i);
+      shardOutput.getResourceStatesMap().forEach(output::setState);
+      if (shardOutput.getPreferenceLists() != null) {
+        shardOutput.getPreferenceLists().forEach(output::setPreferenceLists);
+      }
+      failureResources.addAll(shardFailureResources.get(i));
+    }
+  }
+
   private boolean computeSingleResourceBestPossibleState(ClusterEvent event,
       ResourceControllerDataProvider cache, CurrentStateOutput currentStateOutput,
       Resource resource, BestPossibleStateOutput output) {
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.helix.monitoring.PipelineTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,6 +106,15 @@ public class ClusterEvent {
     return ret == null ? defaultVal : (T) ret;
   }
 
+  /**
+   * Start a span in the pipeline trace of this event.
+   * @return the started span, or a no-op span if the event is not traced
+   */
+  public PipelineTrace.Span startTraceSpan(String name) {
+    PipelineTrace trace = getAttribute(AttributeName.PIPELINE_TRACE.name());
+    return trace == null ? PipelineTrace.Span.NOOP : trace.startChildSpan(name);
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
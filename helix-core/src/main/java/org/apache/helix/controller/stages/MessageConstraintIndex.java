@@ -0,0 +1,266 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.apache.helix.model.ClusterConstraints;
+import org.apache.helix.model.ClusterConstraints.ConstraintAttribute;
+import org.apache.helix.model.ClusterConstraints.ConstraintValue;
+import org.apache.helix.model.ConstraintItem;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageType;
+
+/**
+ * A compiled form of the message {@link ClusterConstraints} used by {@link MessageThrottleStage}.
+ * Constraint items are grouped by the set of attributes they constrain. Within one group, the
+ * counter a message is charged against only depends on the message's values for those attributes,
+ * so the selected constraint item is resolved once per distinct value tuple and remembered
+ * together with a counter slot. Throttling a message is then one lookup per group plus an array
+ * update, instead of regex matching every constraint item and building string keys.
+ * This class is not thread-safe; it is owned by a single stage instance.
+ */
+class MessageConstraintIndex {
+  // Resolved decisions are kept across pipeline runs. Partition scoped constraints can make the
+  // number of distinct tuples grow with the cluster, so the memo is reset beyond this size.
+  static final int MAX_RESOLVED_SLOTS = 1 << 20;
+
+  private static final Pattern LITERAL = Pattern.compile("[A-Za-z0-9_\\-]*");
+  private static final ConstraintAttribute[] ATTRIBUTES = ConstraintAttribute.values();
+
+  private final Map<String, Map<String, String>> _sourceFields;
+  private final MessageThrottleStage _stage;
+  private final List<AttributeGroup> _groups = new ArrayList<>();
+  private final List<Slot> _slots = new ArrayList<>();
+
+  MessageConstraintIndex(ClusterConstraints constraints, MessageThrottleStage stage) {
+    _sourceFields = copyOf(constraints.getRecord().getMapFields());
+    _stage = stage;
+
+    // Items are re-created from the record so the index does not depend on the mutable source.
+    Map<Set<ConstraintAttribute>, AttributeGroup> groups = new LinkedHashMap<>();
+    ClusterConstraints snapshot = new ClusterConstraints(constraints.getRecord());
+    for (String constraintId : new TreeMap<>(_sourceFields).keySet()) {
+      ConstraintItem item = snapshot.getConstraintItem(constraintId);
+      // constraints with CONSTRAINT_VALUE=ANY are never selected
+      if (item == null || item.getConstraintValue().equals(ConstraintValue.ANY.toString())) {
+        continue;
+      }
+      Set<ConstraintAttribute> attributes = item.getAttributes().keySet();
+      groups.computeIfAbsent(attributes, AttributeGroup::new).add(item);
+    }
+    _groups.addAll(groups.values());
+  }
+
+  /**
+   * @return true if this index was compiled from constraints with the same content
+   */
+  boolean isCompiledFrom(ClusterConstraints constraints) {
+    return _sourceFields.equals(constraints.getRecord().getMapFields());
+  }
+
+  /**
+   * Start a new throttling pass. Counters are scoped to the returned object.
+   */
+  Counters newCounters() {
+    if (_slots.size() > MAX_RESOLVED_SLOTS) {
+      _slots.clear();
+      for (AttributeGroup group : _groups) {
+        group._resolved.clear();
+      }
+    }
+    return new Counters();
+  }
+
+  int getGroupCount() {
+    return _groups.size();
+  }
+
+  int getResolvedSlotCount() {
+    return _slots.size();
+  }
+
+  /**
+   * Same attributes as {@link ClusterConstraints#toConstraintAttributes(Message)}, indexed by
+   * {@link ConstraintAttribute#ordinal()}.
+   */
+  static String[] toAttributeValues(Message msg) {
+    String[] values = new String[ATTRIBUTES.length];
+    String msgType = msg.getMsgType();
+    values[ConstraintAttribute.MESSAGE_TYPE.ordinal()] = msgType;
+    if (MessageType.STATE_TRANSITION.name().equals(msgType)) {
+      if (msg.getFromState() != null && msg.getToState() != null) {
+        values[ConstraintAttribute.TRANSITION.ordinal()] =
+            msg.getFromState() + "-" + msg.getToState();
+      }
+      values[ConstraintAttribute.RESOURCE.ordinal()] = msg.getResourceName();
+      values[ConstraintAttribute.INSTANCE.ordinal()] = msg.getTgtName();
+      values[ConstraintAttribute.PARTITION.ordinal()] = msg.getPartitionName();
+    }
+    return values;
+  }
+
+  private static Map<String, Map<String, String>> copyOf(Map<String, Map<String, String>> fields) {
+    Map<String, Map<String, String>> copy = new HashMap<>();
+    for (Map.Entry<String, Map<String, String>> entry : fields.entrySet()) {
+      copy.put(entry.getKey(),
+          entry.getValue() == null ? null : new HashMap<>(entry.getValue()));
+    }
+    return copy;
+  }
+
+  /**
+   * Per-pass consumption of the resolved counter slots.
+   */
+  class Counters {
+    private int[] _consumed = new int[Math.max(16, _slots.size())];
+
+    /**
+     * Charge the message against every constraint selected for it.
+     * @return the first constraint item whose limit is exceeded, or null if none is exceeded
+     */
+    ConstraintItem charge(Message message) {
+      String[] values = toAttributeValues(message);
+      ConstraintItem exceeded = null;
+      for (AttributeGroup group : _groups) {
+        Slot slot = group.resolve(values);
+        if (slot == null) {
+          continue;
+        }
+        if (slot._id >= _consumed.length) {
+          _consumed = Arrays.copyOf(_consumed, Math.max(slot._id + 1, _consumed.length * 2));
+        }
+        int remaining = slot._limit - ++_consumed[slot._id];
+        if (remaining < 0 && exceeded == null) {
+          exceeded = slot._item;
+        }
+      }
+      return exceeded;
+    }
+  }
+
+  private static final class Slot {
+    final int _id;
+    final ConstraintItem _item;
+    final int _limit;
+
+    Slot(int id, ConstraintItem item, int limit) {
+      _id = id;
+      _item = item;
+      _limit = limit;
+    }
+  }
+
+  private static final Slot NO_MATCH = new Slot(-1, null, Integer.MAX_VALUE);
+
+  /**
+   * Constraint items that constrain exactly the same set of attributes.
+   */
+  private class AttributeGroup {
+    final ConstraintAttribute[] _attributes;
+    // items without regex metacharacters, keyed by their attribute values
+    final Map<List<String>, List<ConstraintItem>> _literalItems = new HashMap<>();
+    final List<ConstraintItem> _patternItems = new ArrayList<>();
+    final List<Pattern[]> _patterns = new ArrayList<>();
+    final Map<List<String>, Slot> _resolved = new HashMap<>();
+
+    AttributeGroup(Set<ConstraintAttribute> attributes) {
+      _attributes = attributes.toArray(new ConstraintAttribute[0]);
+      Arrays.sort(_attributes);
+    }
+
+    void add(ConstraintItem item) {
+      String[] itemValues = new String[_attributes.length];
+      boolean literal = true;
+      for (int i = 0; i < _attributes.length; i++) {
+        itemValues[i] = item.getAttributeValue(_attributes[i]);
+        literal &= LITERAL.matcher(itemValues[i]).matches();
+      }
+      if (literal) {
+        _literalItems.computeIfAbsent(Arrays.asList(itemValues), k -> new ArrayList<>()).add(item);
+      } else {
+        Pattern[] patterns = new Pattern[_attributes.length];
+        for (int i = 0; i < _attributes.length; i++) {
+          patterns[i] = Pattern.compile(itemValues[i]);
+        }
+        _patternItems.add(item);
+        _patterns.add(patterns);
+      }
+    }
+
+    Slot resolve(String[] messageValues) {
+      String[] key = new String[_attributes.length];
+      for (int i = 0; i < _attributes.length; i++) {
+        key[i] = messageValues[_attributes[i].ordinal()];
+        if (key[i] == null) {
+          // the message does not carry an attribute every item in this group requires
+          return null;
+        }
+      }
+      List<String> tuple = Arrays.asList(key);
+      Slot slot = _resolved.get(tuple);
+      if (slot == null) {
+        slot = select(key);
+        _resolved.put(tuple, slot);
+      }
+      return slot == NO_MATCH ? null : slot;
+    }
+
+    private Slot select(String[] key) {
+      // candidates keep the constraint id order so ties between equivalent items are stable
+      Set<ConstraintItem> matches = new LinkedHashSet<>(
+          _literalItems.getOrDefault(Arrays.asList(key), Collections.emptyList()));
+      for (int i = 0; i < _patternItems.size(); i++) {
+        Pattern[] patterns = _patterns.get(i);
+        boolean matched = true;
+        for (int j = 0; j < patterns.length && matched; j++) {
+          matched = patterns[j].matcher(key[j]).matches();
+        }
+        if (matched) {
+          matches.add(_patternItems.get(i));
+        }
+      }
+      if (matches.isEmpty()) {
+        return NO_MATCH;
+      }
+
+      Map<ConstraintAttribute, String> attributes = new EnumMap<>(ConstraintAttribute.class);
+      for (int i = 0; i < _attributes.length; i++) {
+        attributes.put(_attributes[i], key[i]);
+      }
+      // all items share the same attributes, so at most one item is selected
+      ConstraintItem selected = _stage.selectConstraints(matches, attributes).iterator().next();
+      Slot slot = new Slot(_slots.size(), selected, _stage.valueOf(selected.getConstraintValue()));
+      _slots.add(slot);
+      return slot;
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.helix.controller.stages;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -44,6 +45,9 @@ import org.slf4j.LoggerFactory;
 public class MessageThrottleStage extends AbstractBaseStage {
   private static final Logger LOG = LoggerFactory.getLogger(MessageThrottleStage.class.getName());
 
+  // compiled form of the last seen message constraints, rebuilt when their content changes
+  private MessageConstraintIndex _constraintIndex;
+
   int valueOf(String valueStr) {
     int value = Integer.MAX_VALUE;
 
@@ -131,13 +135,13 @@ public class MessageThrottleStage extends AbstractBaseStage {
     MessageOutput output = new MessageOutput();
 
     ClusterConstraints constraint = cache.getConstraint(ConstraintType.MESSAGE_CONSTRAINT);
-    Map<String, Integer> throttleCounterMap = new HashMap<String, Integer>();
+    MessageConstraintIndex.Counters counters = null;
 
     if (constraint != null) {
+      counters = getConstraintIndex(constraint).newCounters();
       // go through all pending messages, they should be counted but not throttled
       for (String instance : cache.getLiveInstances().keySet()) {
-        throttle(throttleCounterMap, constraint, new ArrayList<>(cache.getMessages(instance)
-            .values()), false);
+        throttle(counters, cache.getMessages(instance).values(), false);
       }
     }
 
@@ -148,7 +152,7 @@ public class MessageThrottleStage extends AbstractBaseStage {
       for (Partition partition : resource.getPartitions()) {
         List<Message> messages = msgSelectionOutput.getMessages(resourceName, partition);
         if (constraint != null && messages != null && messages.size() > 0) {
-          messages = throttle(throttleCounterMap, constraint, messages, true);
+          messages = throttle(counters, messages, true);
         }
         output.addMessages(resourceName, partition, messages);
       }
@@ -157,36 +161,26 @@ public class MessageThrottleStage extends AbstractBaseStage {
     event.addAttribute(AttributeName.MESSAGES_THROTTLE.name(), output);
   }
 
-  private List<Message> throttle(Map<String, Integer> throttleMap, ClusterConstraints constraint,
-      List<Message> messages, final boolean needThrottle) {
+  private MessageConstraintIndex getConstraintIndex(ClusterConstraints constraint) {
+    if (_constraintIndex == null || !_constraintIndex.isCompiledFrom(constraint)) {
+      _constraintIndex = new MessageConstraintIndex(constraint, this);
+    }
+    return _constraintIndex;
+  }
+
+  private List<Message> throttle(MessageConstraintIndex.Counters counters, Collection<Message> messages,
+      final boolean needThrottle) {
 
     List<Message> throttleOutputMsgs = new ArrayList<Message>();
     for (Message message : messages) {
-      Map<ConstraintAttribute, String> msgAttr = ClusterConstraints.toConstraintAttributes(message);
-
-      Set<ConstraintItem> matches = constraint.match(msgAttr);
-      matches = selectConstraints(matches, msgAttr);
+      ConstraintItem exceeded = counters.charge(message);
 
-      boolean msgThrottled = false;
-      for (ConstraintItem item : matches) {
-        String key = item.filter(msgAttr).toString();
-        if (!throttleMap.containsKey(key)) {
-          throttleMap.put(key, valueOf(item.getConstraintValue()));
+      if (needThrottle && exceeded != null) {
+        if (LOG.isDebugEnabled()) {
+          LogUtil.logDebug(LOG, _eventId,
+              "message: " + message + " is throttled by constraint: " + exceeded);
         }
-        int value = throttleMap.get(key);
-        throttleMap.put(key, --value);
-
-        if (needThrottle && value < 0) {
-          msgThrottled = true;
-
-          if (LOG.isDebugEnabled()) {
-            // TODO: printout constraint item that throttles the message
-            LogUtil.logDebug(LOG, _eventId,
-                "message: " + message + " is throttled by constraint: " + item);
-          }
-        }
-      }
-      if (!msgThrottled) {
+      } else {
         throttleOutputMsgs.add(message);
       }
     }
@@ -38,6 +38,7 @@ import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Message;
+import org.apache.helix.monitoring.mbeans.ClusterEventMonitor;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.apache.helix.util.InstanceValidationUtil;
 import org.slf4j.Logger;
@@ -64,6 +65,16 @@ public class ReadClusterDataStage extends AbstractBaseStage {
         final ClusterStatusMonitor clusterStatusMonitor =
             event.getAttribute(AttributeName.clusterStatusMonitor.name());
 
+    if (clusterStatusMonitor != null) {
+      for (Map.Entry<String, Long> latency : dataProvider.getCacheRefreshLatencies().entrySet()) {
+        clusterStatusMonitor.updateClusterEventDuration(
+            ClusterEventMonitor.getCacheRefreshPhaseName(latency.getKey()), latency.getValue());
+      }
+      clusterStatusMonitor
+          .reportMessageCacheRefresh(dataProvider.getMessageCacheScannedInstanceCount(),
+              dataProvider.getMessageCacheSkippedInstanceCount());
+    }
+
     // TODO (harry): move this to separate stage for resource controller only
     if (dataProvider instanceof ResourceControllerDataProvider) {
       asyncExecute(dataProvider.getAsyncTasksThreadPool(), new Callable<Object>() {
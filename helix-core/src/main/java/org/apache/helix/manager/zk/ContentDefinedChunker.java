@@ -0,0 +1,91 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Splits a byte array at content defined boundaries using a gear rolling hash. A boundary only
+ * depends on the bytes right before it, so a local change in the input only changes the chunks
+ * around it, and the remaining chunks keep the same content.
+ */
+class ContentDefinedChunker {
+  // The gear table must never change, otherwise previously written chunks can't be reused.
+  private static final long GEAR_SEED = 0x48656c6978L;
+  private static final long[] GEAR = new long[256];
+
+  static {
+    Random random = new Random(GEAR_SEED);
+    for (int i = 0; i < GEAR.length; i++) {
+      GEAR[i] = random.nextLong();
+    }
+  }
+
+  private final int _minSize;
+  private final int _maxSize;
+  private final long _mask;
+
+  /**
+   * @param minSize the minimum chunk size, except for the last chunk
+   * @param avgSize the expected chunk size
+   * @param maxSize the maximum chunk size
+   */
+  ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+    if (minSize <= 0 || avgSize <= minSize || maxSize < avgSize) {
+      throw new IllegalArgumentException(String
+          .format("Invalid chunk sizes! min: %d, avg: %d, max: %d", minSize, avgSize, maxSize));
+    }
+    _minSize = minSize;
+    _maxSize = maxSize;
+    // A boundary is found on average every 2^bits bytes after the minimum size.
+    int bits = 31 - Integer.numberOfLeadingZeros(avgSize - minSize);
+    _mask = bits == 0 ? 0L : -1L << (64 - bits);
+  }
+
+  /**
+   * @return the exclusive end offsets of the chunks of the data
+   */
+  List<Integer> split(byte[] data) {
+    List<Integer> ends = new ArrayList<>();
+    int start = 0;
+    while (start < data.length) {
+      start = nextBoundary(data, start);
+      ends.add(start);
+    }
+    return ends;
+  }
+
+  private int nextBoundary(byte[] data, int start) {
+    if (data.length - start <= _minSize) {
+      return data.length;
+    }
+    int limit = Math.min(data.length, start + _maxSize);
+    long hash = 0L;
+    for (int i = start + _minSize; i < limit; i++) {
+      hash = (hash << 1) + GEAR[data[i] & 0xff];
+      if ((hash & _mask) == 0) {
+        return i + 1;
+      }
+    }
+    return limit;
+  }
+}
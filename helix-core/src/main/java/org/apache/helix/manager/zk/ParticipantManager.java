@@ -53,6 +53,7 @@ import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.ParticipantHistory;
 import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
+import org.apache.helix.monitoring.mbeans.ParticipantSessionMonitor;
 import org.apache.helix.participant.StateMachineEngine;
 import org.apache.helix.participant.statemachine.ScheduledTaskStateModelFactory;
 import org.apache.helix.participant.statemachine.StateModel;
@@ -76,6 +77,7 @@ import org.slf4j.LoggerFactory;
  */
 public class ParticipantManager {
   private static Logger LOG = LoggerFactory.getLogger(ParticipantManager.class);
+  private static final int CARRY_OVER_UPDATE_BATCH_SIZE = 1000;
   final RealmAwareZkClient _zkclient;
   final HelixManager _manager;
   final PropertyKey.Builder _keyBuilder;
@@ -143,7 +145,11 @@ public class ParticipantManager {
               + zkClientHexSession);
     }
 
+    long handleNewSessionStartTime = System.currentTimeMillis();
+    long phaseStartTime = handleNewSessionStartTime;
     joinCluster();
+    phaseStartTime = reportSessionPhaseLatency(ParticipantSessionMonitor.Phase.JoinCluster,
+        phaseStartTime);
 
     /**
      * Invoke PreConnectCallbacks
@@ -151,22 +157,48 @@ public class ParticipantManager {
     for (PreConnectCallback callback : _preConnectCallbacks) {
       callback.onPreConnect();
     }
+    phaseStartTime = reportSessionPhaseLatency(ParticipantSessionMonitor.Phase.PreConnectCallbacks,
+        phaseStartTime);
 
     // TODO create live instance node after all the init works done --JJ
     // This will help to prevent controller from sending any message prematurely.
     // Live instance creation also checks if the expected session is valid or not. Live instance
     // should not be created by an expired zk session.
     createLiveInstance();
+    phaseStartTime = reportSessionPhaseLatency(ParticipantSessionMonitor.Phase.CreateLiveInstance,
+        phaseStartTime);
     if (shouldCarryOver()) {
       carryOverPreviousCurrentState(_dataAccessor, _instanceName, _sessionId,
           _manager.getStateMachineEngine(), true);
     }
+    phaseStartTime = reportSessionPhaseLatency(
+        ParticipantSessionMonitor.Phase.CarryOverCurrentState, phaseStartTime);
     removePreviousTaskCurrentStates();
+    phaseStartTime = reportSessionPhaseLatency(
+        ParticipantSessionMonitor.Phase.RemoveTaskCurrentStates, phaseStartTime);
 
     /**
      * setup message listener
      */
     setupMsgHandler();
+    reportSessionPhaseLatency(ParticipantSessionMonitor.Phase.SetupMessageHandler, phaseStartTime);
+    reportSessionPhaseLatency(ParticipantSessionMonitor.Phase.HandleNewSession,
+        handleNewSessionStartTime);
+  }
+
+  /**
+   * Report the latency of a phase of handling new session.
+   * @return the end time of the phase
+   */
+  private long reportSessionPhaseLatency(ParticipantSessionMonitor.Phase phase, long startTime) {
+    long endTime = System.currentTimeMillis();
+    LOG.info("Participant {} finished {} for session {} in {} ms", _instanceName, phase,
+        _sessionId, endTime - startTime);
+    if (_messagingService != null) {
+      _messagingService.getExecutor().getParticipantMonitor()
+          .reportSessionPhaseLatency(phase, endTime - startTime);
+    }
+    return endTime;
   }
 
   private boolean shouldCarryOver() {
@@ -373,6 +405,17 @@ public class ParticipantManager {
       boolean setToInitState) {
     PropertyKey.Builder keyBuilder = dataAccessor.keyBuilder();
     List<String> sessions = dataAccessor.getChildNames(keyBuilder.sessions(instanceName));
+    BaseDataAccessor<ZNRecord> baseAccessor = dataAccessor.getBaseDataAccessor();
+    // State model definitions are shared by many resources, only read each of them once
+    Map<String, StateModelDefinition> stateModelDefMap = new HashMap<>();
+
+    // Current states are updated in batches after all of them are prepared
+    List<String> curStatePaths = new ArrayList<>();
+    List<DataUpdater<ZNRecord>> curStateUpdaters = new ArrayList<>();
+    List<String> bucketizedCurStatePaths = new ArrayList<>();
+    List<DataUpdater<ZNRecord>> bucketizedMetaUpdaters = new ArrayList<>();
+    List<CurrentState> bucketizedLastCurStates = new ArrayList<>();
+    List<Map<String, String>> bucketizedExpectedStateMaps = new ArrayList<>();
 
     for (String session : sessions) {
       if (session.equals(sessionId)) {
@@ -400,11 +443,11 @@ public class ParticipantManager {
           continue;
         }
 
-        StateModelDefinition stateModelDef =
-            dataAccessor.getProperty(keyBuilder.stateModelDef(stateModelDefRef));
-        String initState = stateModelDef.getInitialState();
         Map<String, String> partitionExpectedStateMap = new HashMap<>();
         if (setToInitState) {
+          StateModelDefinition stateModelDef = stateModelDefMap.computeIfAbsent(stateModelDefRef,
+              ref -> dataAccessor.getProperty(keyBuilder.stateModelDef(ref)));
+          String initState = stateModelDef.getInitialState();
           lastCurState.getPartitionStateMap().keySet()
               .forEach(partition -> partitionExpectedStateMap.put(partition, initState));
         } else {
@@ -420,7 +463,6 @@ public class ParticipantManager {
           });
         }
 
-        BaseDataAccessor<ZNRecord> baseAccessor = dataAccessor.getBaseDataAccessor();
         String curStatePath =
             keyBuilder.currentState(instanceName, sessionId, lastCurState.getResourceName())
                 .getPath();
@@ -429,34 +471,42 @@ public class ParticipantManager {
           // update parent node
           ZNRecord metaRecord = new ZNRecord(lastCurState.getId());
           metaRecord.setSimpleFields(lastCurState.getRecord().getSimpleFields());
-          DataUpdater<ZNRecord> metaRecordUpdater =
-              new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, new CurrentState(metaRecord));
-          boolean success =
-              baseAccessor.update(curStatePath, metaRecordUpdater, AccessOption.PERSISTENT);
-          if (success) {
-            // update current state buckets
-            ZNRecordBucketizer bucketizer = new ZNRecordBucketizer(lastCurState.getBucketSize());
-
-            Map<String, ZNRecord> map = bucketizer.bucketize(lastCurState.getRecord());
-            List<String> paths = new ArrayList<String>();
-            List<DataUpdater<ZNRecord>> updaters = new ArrayList<DataUpdater<ZNRecord>>();
-            for (String bucketName : map.keySet()) {
-              paths.add(curStatePath + "/" + bucketName);
-              updaters.add(new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, new CurrentState(map
-                  .get(bucketName))));
-            }
-
-            baseAccessor.updateChildren(paths, updaters, AccessOption.PERSISTENT);
-          }
-
+          bucketizedCurStatePaths.add(curStatePath);
+          bucketizedMetaUpdaters.add(new CurStateCarryOverUpdater(sessionId,
+              partitionExpectedStateMap, new CurrentState(metaRecord)));
+          bucketizedLastCurStates.add(lastCurState);
+          bucketizedExpectedStateMaps.add(partitionExpectedStateMap);
         } else {
-          dataAccessor.getBaseDataAccessor().update(curStatePath,
-              new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, lastCurState),
-              AccessOption.PERSISTENT);
+          curStatePaths.add(curStatePath);
+          curStateUpdaters.add(
+              new CurStateCarryOverUpdater(sessionId, partitionExpectedStateMap, lastCurState));
         }
       }
     }
 
+    updateCurrentStatesInBatches(baseAccessor, curStatePaths, curStateUpdaters);
+
+    // Update the parent nodes of bucketized current states first, then update the buckets of the
+    // ones whose parent node is successfully updated
+    boolean[] metaUpdateResults =
+        updateCurrentStatesInBatches(baseAccessor, bucketizedCurStatePaths, bucketizedMetaUpdaters);
+    List<String> bucketPaths = new ArrayList<>();
+    List<DataUpdater<ZNRecord>> bucketUpdaters = new ArrayList<>();
+    for (int i = 0; i < metaUpdateResults.length; i++) {
+      if (!metaUpdateResults[i]) {
+        continue;
+      }
+      CurrentState lastCurState = bucketizedLastCurStates.get(i);
+      ZNRecordBucketizer bucketizer = new ZNRecordBucketizer(lastCurState.getBucketSize());
+      Map<String, ZNRecord> map = bucketizer.bucketize(lastCurState.getRecord());
+      for (String bucketName : map.keySet()) {
+        bucketPaths.add(bucketizedCurStatePaths.get(i) + "/" + bucketName);
+        bucketUpdaters.add(new CurStateCarryOverUpdater(sessionId,
+            bucketizedExpectedStateMaps.get(i), new CurrentState(map.get(bucketName))));
+      }
+    }
+    updateCurrentStatesInBatches(baseAccessor, bucketPaths, bucketUpdaters);
+
     /**
      * remove previous current state parent nodes
      */
@@ -474,6 +524,28 @@ public class ParticipantManager {
     }
   }
 
+  /**
+   * Update the current states with pipelined async requests, at most
+   * CARRY_OVER_UPDATE_BATCH_SIZE of them in flight at a time.
+   * @return whether each of the current states is updated successfully
+   */
+  private static boolean[] updateCurrentStatesInBatches(BaseDataAccessor<ZNRecord> baseAccessor,
+      List<String> paths, List<DataUpdater<ZNRecord>> updaters) {
+    boolean[] results = new boolean[paths.size()];
+    for (int start = 0; start < paths.size(); start += CARRY_OVER_UPDATE_BATCH_SIZE) {
+      int end = Math.min(start + CARRY_OVER_UPDATE_BATCH_SIZE, paths.size());
+      boolean[] batchResults = baseAccessor.updateChildren(paths.subList(start, end),
+          updaters.subList(start, end), AccessOption.PERSISTENT);
+      for (int i = 0; i < batchResults.length; i++) {
+        results[start + i] = batchResults[i];
+        if (!batchResults[i]) {
+          LOG.warn("Failed to carry over current state: {}", paths.get(start + i));
+        }
+      }
+    }
+    return results;
+  }
+
   /**
    * Remove all previous task current state sessions
    */
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -206,20 +207,11 @@ public class ZKHelixAdmin implements HelixAdmin {
       throw new HelixException("Node " + nodeId + " already exists in cluster " + clusterName);
     }
 
-    if (!ALLOWED_INSTANCE_OPERATIONS_FOR_ADD_INSTANCE.contains(
-        instanceConfig.getInstanceOperation())) {
-      throw new HelixException(
-          "Instance can only be added if InstanceOperation is set to one of" + "the following: "
-              + ALLOWED_INSTANCE_OPERATIONS_FOR_ADD_INSTANCE + " This instance: " + nodeId
-              + " has InstanceOperation set to " + instanceConfig.getInstanceOperation());
-    }
-
     // Get the topology key used to determine the logicalId of a node.
     ClusterConfig clusterConfig = _configAccessor.getClusterConfig(clusterName);
     ClusterTopologyConfig clusterTopologyConfig =
         ClusterTopologyConfig.createFromClusterConfig(clusterConfig);
     String logicalIdKey = clusterTopologyConfig.getEndNodeType();
-    String faultZoneKey = clusterTopologyConfig.getFaultZoneType();
     String toAddInstanceLogicalId = instanceConfig.getLogicalId(logicalIdKey);
 
     HelixConfigScope instanceConfigScope =
@@ -232,6 +224,149 @@ public class ZKHelixAdmin implements HelixAdmin {
                 existingInstanceConfig -> existingInstanceConfig.getLogicalId(logicalIdKey)
                     .equals(toAddInstanceLogicalId)).collect(Collectors.toList());
 
+    validateInstanceToAdd(clusterName, instanceConfig, clusterConfig,
+        foundInstanceConfigsWithMatchingLogicalId);
+
+    ZKUtil.createChildren(_zkClient, instanceConfigsPath, instanceConfig.getRecord());
+
+    _zkClient.createPersistent(PropertyPathBuilder.instanceMessage(clusterName, nodeId), true);
+    _zkClient.createPersistent(PropertyPathBuilder.instanceCurrentState(clusterName, nodeId), true);
+    _zkClient
+        .createPersistent(PropertyPathBuilder.instanceTaskCurrentState(clusterName, nodeId), true);
+    _zkClient.createPersistent(PropertyPathBuilder.instanceCustomizedState(clusterName, nodeId), true);
+    _zkClient.createPersistent(PropertyPathBuilder.instanceError(clusterName, nodeId), true);
+    _zkClient.createPersistent(PropertyPathBuilder.instanceStatusUpdate(clusterName, nodeId), true);
+    _zkClient.createPersistent(PropertyPathBuilder.instanceHistory(clusterName, nodeId), true);
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_zkClient));
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    accessor.setProperty(keyBuilder.participantHistory(nodeId), new ParticipantHistory(nodeId));
+  }
+
+  @Override
+  public Map<String, Boolean> addInstances(String clusterName,
+      List<InstanceConfig> instanceConfigs) {
+    logger.info("Add {} instances to cluster {}.", instanceConfigs.size(), clusterName);
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("cluster " + clusterName + " is not setup yet");
+    }
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    instanceConfigs.forEach(instanceConfig -> result.put(instanceConfig.getId(), false));
+
+    // Read the cluster config and the existing instances once for the whole batch
+    ClusterConfig clusterConfig = _configAccessor.getClusterConfig(clusterName);
+    String logicalIdKey =
+        ClusterTopologyConfig.createFromClusterConfig(clusterConfig).getEndNodeType();
+    HelixDataAccessor accessor =
+        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_zkClient));
+    BaseDataAccessor<ZNRecord> baseAccessor = accessor.getBaseDataAccessor();
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    Set<String> existingInstanceIds =
+        new HashSet<>(accessor.getChildNames(keyBuilder.instanceConfigs()));
+    Map<String, List<InstanceConfig>> instanceConfigsByLogicalId = new HashMap<>();
+    for (InstanceConfig existingInstanceConfig : accessor.<InstanceConfig>getChildValues(
+        keyBuilder.instanceConfigs(), true)) {
+      instanceConfigsByLogicalId
+          .computeIfAbsent(existingInstanceConfig.getLogicalId(logicalIdKey),
+              k -> new ArrayList<>()).add(existingInstanceConfig);
+    }
+
+    List<InstanceConfig> validInstanceConfigs = new ArrayList<>();
+    for (InstanceConfig instanceConfig : instanceConfigs) {
+      String nodeId = instanceConfig.getId();
+      try {
+        if (!existingInstanceIds.add(nodeId)) {
+          throw new HelixException("Node " + nodeId + " already exists in cluster " + clusterName);
+        }
+        String logicalId = instanceConfig.getLogicalId(logicalIdKey);
+        List<InstanceConfig> sameLogicalIdInstanceConfigs =
+            instanceConfigsByLogicalId.computeIfAbsent(logicalId, k -> new ArrayList<>());
+        validateInstanceToAdd(clusterName, instanceConfig, clusterConfig,
+            sameLogicalIdInstanceConfigs);
+        sameLogicalIdInstanceConfigs.add(instanceConfig);
+        validInstanceConfigs.add(instanceConfig);
+      } catch (HelixException e) {
+        logger.warn("Failed to add instance {} to cluster {}.", nodeId, clusterName, e);
+      }
+    }
+
+    // Create all the instance configs in one batch
+    List<String> configPaths = new ArrayList<>();
+    List<ZNRecord> configRecords = new ArrayList<>();
+    for (InstanceConfig instanceConfig : validInstanceConfigs) {
+      configPaths.add(keyBuilder.instanceConfig(instanceConfig.getId()).getPath());
+      configRecords.add(instanceConfig.getRecord());
+    }
+    boolean[] configCreated =
+        baseAccessor.createChildren(configPaths, configRecords, AccessOption.PERSISTENT);
+
+    List<String> addedInstances = new ArrayList<>();
+    List<String> instancePaths = new ArrayList<>();
+    List<ZNRecord> historyRecords = new ArrayList<>();
+    for (int i = 0; i < validInstanceConfigs.size(); i++) {
+      String nodeId = validInstanceConfigs.get(i).getId();
+      if (!configCreated[i]) {
+        logger.warn("Failed to create the instance config of {} in cluster {}.", nodeId,
+            clusterName);
+        continue;
+      }
+      addedInstances.add(nodeId);
+      instancePaths.add(PropertyPathBuilder.instanceMessage(clusterName, nodeId));
+      instancePaths.add(PropertyPathBuilder.instanceCurrentState(clusterName, nodeId));
+      instancePaths.add(PropertyPathBuilder.instanceTaskCurrentState(clusterName, nodeId));
+      instancePaths.add(PropertyPathBuilder.instanceCustomizedState(clusterName, nodeId));
+      instancePaths.add(PropertyPathBuilder.instanceError(clusterName, nodeId));
+      instancePaths.add(PropertyPathBuilder.instanceStatusUpdate(clusterName, nodeId));
+      instancePaths.add(PropertyPathBuilder.instanceHistory(clusterName, nodeId));
+      historyRecords.add(new ParticipantHistory(nodeId).getRecord());
+    }
+
+    // Create the instance directories of all the added instances in one batch. Fall back to the
+    // sync call for the failed paths, which also tolerates the existing ones.
+    boolean[] instancePathCreated = baseAccessor.createChildren(instancePaths,
+        Collections.nCopies(instancePaths.size(), null), AccessOption.PERSISTENT);
+    for (int i = 0; i < instancePaths.size(); i++) {
+      if (!instancePathCreated[i]) {
+        _zkClient.createPersistent(instancePaths.get(i), true);
+      }
+    }
+    List<String> historyPaths = addedInstances.stream()
+        .map(nodeId -> keyBuilder.participantHistory(nodeId).getPath())
+        .collect(Collectors.toList());
+    boolean[] historyCreated =
+        baseAccessor.createChildren(historyPaths, historyRecords, AccessOption.PERSISTENT);
+    for (int i = 0; i < addedInstances.size(); i++) {
+      String nodeId = addedInstances.get(i);
+      if (!historyCreated[i]) {
+        accessor.setProperty(keyBuilder.participantHistory(nodeId), new ParticipantHistory(nodeId));
+      }
+      result.put(nodeId, true);
+    }
+    return result;
+  }
+
+  /**
+   * Validate whether an instance can be added to the cluster, given the existing instances that
+   * share its logicalId. The InstanceOperation of the instance may be set to SWAP_IN.
+   * @throws HelixException if the instance cannot be added
+   */
+  private void validateInstanceToAdd(String clusterName, InstanceConfig instanceConfig,
+      ClusterConfig clusterConfig, List<InstanceConfig> foundInstanceConfigsWithMatchingLogicalId) {
+    String nodeId = instanceConfig.getId();
+    if (!ALLOWED_INSTANCE_OPERATIONS_FOR_ADD_INSTANCE.contains(
+        instanceConfig.getInstanceOperation())) {
+      throw new HelixException(
+          "Instance can only be added if InstanceOperation is set to one of" + "the following: "
+              + ALLOWED_INSTANCE_OPERATIONS_FOR_ADD_INSTANCE + " This instance: " + nodeId
+              + " has InstanceOperation set to " + instanceConfig.getInstanceOperation());
+    }
+
+    ClusterTopologyConfig clusterTopologyConfig =
+        ClusterTopologyConfig.createFromClusterConfig(clusterConfig);
+    String faultZoneKey = clusterTopologyConfig.getFaultZoneType();
+    String toAddInstanceLogicalId =
+        instanceConfig.getLogicalId(clusterTopologyConfig.getEndNodeType());
+
     if (foundInstanceConfigsWithMatchingLogicalId.size() >= 2) {
       // If the length is 2, we cannot add an instance with the same logicalId as an existing instance
       // regardless of InstanceOperation.
@@ -314,21 +449,6 @@ public class ZKHelixAdmin implements HelixAdmin {
               + " cannot join cluster with InstanceOperation set to "
               + instanceConfig.getInstanceOperation() + ".");
     }
-
-    ZKUtil.createChildren(_zkClient, instanceConfigsPath, instanceConfig.getRecord());
-
-    _zkClient.createPersistent(PropertyPathBuilder.instanceMessage(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceCurrentState(clusterName, nodeId), true);
-    _zkClient
-        .createPersistent(PropertyPathBuilder.instanceTaskCurrentState(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceCustomizedState(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceError(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceStatusUpdate(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceHistory(clusterName, nodeId), true);
-    HelixDataAccessor accessor =
-        new ZKHelixDataAccessor(clusterName, new ZkBaseDataAccessor<ZNRecord>(_zkClient));
-    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
-    accessor.setProperty(keyBuilder.participantHistory(nodeId), new ParticipantHistory(nodeId));
   }
 
   @Override
@@ -1586,6 +1706,52 @@ public class ZKHelixAdmin implements HelixAdmin {
     ZKUtil.createChildren(_zkClient, idealStatePath, idealstate.getRecord());
   }
 
+  @Override
+  public Map<String, Boolean> addResources(String clusterName, List<IdealState> idealStates) {
+    logger.info("Add {} resources in cluster {}.", idealStates.size(), clusterName);
+    if (!ZKUtil.isClusterSetup(clusterName, _zkClient)) {
+      throw new HelixException("cluster " + clusterName + " is not setup yet");
+    }
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    idealStates.forEach(idealState -> result.put(idealState.getResourceName(), false));
+
+    // Read the state model definitions and the existing resources once for the whole batch
+    Set<String> stateModelDefs =
+        new HashSet<>(_zkClient.getChildren(PropertyPathBuilder.stateModelDef(clusterName)));
+    String idealStatePath = PropertyPathBuilder.idealState(clusterName);
+    Set<String> existingResources = new HashSet<>(_zkClient.getChildren(idealStatePath));
+
+    List<String> resourceNames = new ArrayList<>();
+    List<String> paths = new ArrayList<>();
+    List<ZNRecord> records = new ArrayList<>();
+    for (IdealState idealState : idealStates) {
+      String resourceName = idealState.getResourceName();
+      if (!stateModelDefs.contains(idealState.getStateModelDefRef())) {
+        logger.warn("Skip adding resource {}. State model {} not found in the cluster {}.",
+            resourceName, idealState.getStateModelDefRef(), clusterName);
+      } else if (!existingResources.add(resourceName)) {
+        logger.warn("Skip adding resource {}. It already exists in cluster {}.", resourceName,
+            clusterName);
+      } else {
+        resourceNames.add(resourceName);
+        paths.add(idealStatePath + "/" + resourceName);
+        records.add(idealState.getRecord());
+      }
+    }
+
+    boolean[] created = new ZkBaseDataAccessor<ZNRecord>(_zkClient)
+        .createChildren(paths, records, AccessOption.PERSISTENT);
+    for (int i = 0; i < resourceNames.size(); i++) {
+      if (created[i]) {
+        result.put(resourceNames.get(i), true);
+      } else {
+        logger.warn("Failed to create the ideal state of resource {} in cluster {}.",
+            resourceNames.get(i), clusterName);
+      }
+    }
+    return result;
+  }
+
   @Override
   public void addResource(String clusterName, String resourceName, int partitions,
       String stateModelRef, String rebalancerMode, int bucketSize) {
@@ -41,6 +41,7 @@ import org.apache.helix.model.MaintenanceSignal;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.PauseSignal;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.PipelineTrace;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.ZNRecordAssembler;
 import org.apache.helix.zookeeper.datamodel.ZNRecordBucketizer;
@@ -59,6 +60,11 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
   private final Builder _propertyKeyBuilder;
   private final GroupCommit _groupCommit = new GroupCommit();
 
+  // Trace spans of the batch accesses, recorded if the caller is processing a traced event
+  private static final String ZK_BATCH_READ_SPAN = "ZkBatchRead";
+  private static final String ZK_BATCH_WRITE_SPAN = "ZkBatchWrite";
+  private static final String PATHS_COUNT = "paths";
+
   public ZKHelixDataAccessor(String clusterName, BaseDataAccessor<ZNRecord> baseDataAccessor) {
     _clusterName = clusterName;
     _baseDataAccessor = baseDataAccessor;
@@ -223,7 +229,11 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
       paths.add(key.getPath());
       stats.add(new Stat());
     }
-    List<ZNRecord> children = _baseDataAccessor.get(paths, stats, 0, throwException);
+    List<ZNRecord> children;
+    try (PipelineTrace.Span ignored = PipelineTrace.startSpan(ZK_BATCH_READ_SPAN)
+        .addCount(PATHS_COUNT, paths.size())) {
+      children = _baseDataAccessor.get(paths, stats, 0, throwException);
+    }
 
     // check if bucketized
     for (int i = 0; i < keys.size(); i++) {
@@ -414,10 +424,13 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
     int options = constructOptions(type);
     List<T> childValues = new ArrayList<T>();
     List<ZNRecord> children;
-    if (throwException) {
-      children = _baseDataAccessor.getChildren(parentPath, null, options, 1, 0);
-    } else {
-      children = _baseDataAccessor.getChildren(parentPath, null, options);
+    try (PipelineTrace.Span span = PipelineTrace.startSpan(ZK_BATCH_READ_SPAN)) {
+      if (throwException) {
+        children = _baseDataAccessor.getChildren(parentPath, null, options, 1, 0);
+      } else {
+        children = _baseDataAccessor.getChildren(parentPath, null, options);
+      }
+      span.addCount(PATHS_COUNT, children == null ? 0 : children.size());
     }
     if (children != null) {
       for (ZNRecord record : children) {
@@ -516,7 +529,10 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
       records.add(value.getRecord());
       options = constructOptions(type);
     }
-    return _baseDataAccessor.createChildren(paths, records, options);
+    try (PipelineTrace.Span ignored = PipelineTrace.startSpan(ZK_BATCH_WRITE_SPAN)
+        .addCount(PATHS_COUNT, paths.size())) {
+      return _baseDataAccessor.createChildren(paths, records, options);
+    }
   }
 
   @Override
@@ -573,24 +589,28 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
       }
     }
 
-    // set non-bucketized nodes or parent nodes of bucketized nodes
-    boolean success[] = _baseDataAccessor.setChildren(paths, records, options);
+    try (PipelineTrace.Span span = PipelineTrace.startSpan(ZK_BATCH_WRITE_SPAN)
+        .addCount(PATHS_COUNT, paths.size())) {
+      // set non-bucketized nodes or parent nodes of bucketized nodes
+      boolean success[] = _baseDataAccessor.setChildren(paths, records, options);
 
-    // set bucketized nodes
-    List<String> allBucketizedPaths = new ArrayList<String>();
-    List<ZNRecord> allBucketizedRecords = new ArrayList<ZNRecord>();
+      // set bucketized nodes
+      List<String> allBucketizedPaths = new ArrayList<String>();
+      List<ZNRecord> allBucketizedRecords = new ArrayList<ZNRecord>();
 
-    for (int i = 0; i < keys.size(); i++) {
-      if (success[i] && bucketizedPaths.get(i) != null) {
-        allBucketizedPaths.addAll(bucketizedPaths.get(i));
-        allBucketizedRecords.addAll(bucketizedRecords.get(i));
+      for (int i = 0; i < keys.size(); i++) {
+        if (success[i] && bucketizedPaths.get(i) != null) {
+          allBucketizedPaths.addAll(bucketizedPaths.get(i));
+          allBucketizedRecords.addAll(bucketizedRecords.get(i));
+        }
       }
-    }
 
-    // TODO: set success accordingly
-    _baseDataAccessor.setChildren(allBucketizedPaths, allBucketizedRecords, options);
+      // TODO: set success accordingly
+      _baseDataAccessor.setChildren(allBucketizedPaths, allBucketizedRecords, options);
+      span.addCount(PATHS_COUNT, allBucketizedPaths.size());
 
-    return success;
+      return success;
+    }
   }
 
   @Override
@@ -601,6 +621,9 @@ public class ZKHelixDataAccessor implements HelixDataAccessor {
   @Override
   public <T extends HelixProperty> boolean[] updateChildren(List<String> paths,
       List<DataUpdater<ZNRecord>> updaters, int options) {
-    return _baseDataAccessor.updateChildren(paths, updaters, options);
+    try (PipelineTrace.Span ignored = PipelineTrace.startSpan(ZK_BATCH_WRITE_SPAN)
+        .addCount(PATHS_COUNT, paths.size())) {
+      return _baseDataAccessor.updateChildren(paths, updaters, options);
+    }
   }
 }
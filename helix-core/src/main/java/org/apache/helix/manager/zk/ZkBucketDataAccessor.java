@@ -20,12 +20,18 @@ package org.apache.helix.manager.zk;
  */
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -48,11 +54,29 @@ import org.apache.helix.zookeeper.impl.client.FederatedZkClient;
 import org.apache.helix.zookeeper.impl.factory.DedicatedZkClientFactory;
 import org.apache.helix.zookeeper.util.GZipCompressionUtil;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
+import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkException;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * A {@link BucketDataAccessor} that stores large records in ZooKeeper.
+ * By default, a record is compressed and split into numbered buckets under the version node.
+ * If {@link SystemPropertyKeys#ZK_BUCKET_DATA_ACCESSOR_DELTA_WRITE_ENABLED} is set, the
+ * serialized record is instead cut into chunks at content defined boundaries. Each chunk is
+ * compressed and stored once under {@code <rootPath>/BUCKETS/<sha-256 of the compressed chunk>},
+ * and every write version only adds a small manifest that lists the buckets of the record in
+ * order. Buckets that are already present are reused, so a write only uploads the chunks that
+ * changed since previous writes. The manifest is marked with its format version, so the readers
+ * that don't know the format fail explicitly. Both layouts can always be read.
+ * Buckets that are no longer referenced are removed by the stale version GC. The GC only removes
+ * buckets if no write has started since it checked the references, which is verified against
+ * the write version in ZooKeeper, so it is safe with concurrent writers in other processes.
+ */
 public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(ZkBucketDataAccessor.class);
 
@@ -60,9 +84,23 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private static final long DEFAULT_VERSION_TTL = TimeUnit.MINUTES.toMillis(1L); // 1 min
   private static final String BUCKET_SIZE_KEY = "BUCKET_SIZE";
   private static final String DATA_SIZE_KEY = "DATA_SIZE";
+  private static final String FORMAT_VERSION_KEY = "FORMAT_VERSION";
+  // The format of the content addressed buckets. The legacy layout doesn't have a format version.
+  private static final String CONTENT_ADDRESSED_FORMAT_VERSION = "2";
+  private static final String SERIALIZED_SIZE_KEY = "SERIALIZED_SIZE";
   private static final String METADATA_KEY = "METADATA";
   private static final String LAST_SUCCESSFUL_WRITE_KEY = "LAST_SUCCESSFUL_WRITE";
   private static final String LAST_WRITE_KEY = "LAST_WRITE";
+  private static final String BUCKETS_KEY = "BUCKETS";
+  private static final String BUCKET_DELIMITER = ",";
+  private static final String BUCKET_HASH_ALGORITHM = "SHA-256";
+  // Chunk sizes in number of buckets of uncompressed data. Chunks whose compressed form doesn't
+  // fit into one bucket are split further.
+  private static final int MIN_CHUNK_BUCKETS = 1;
+  private static final int AVG_CHUNK_BUCKETS = 4;
+  private static final int MAX_CHUNK_BUCKETS = 16;
+  // Max number of buckets removed in one transaction by the GC
+  private static final int GC_BATCH_SIZE = 100;
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
   // Thread pool for deleting stale versions
   // Note that newScheduledThreadPool(1) may not work. newSingleThreadScheduledExecutor guarantees
@@ -80,6 +118,8 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   private final RealmAwareZkClient _zkClient;
   private final ZkBaseDataAccessor<byte[]> _zkBaseDataAccessor;
   private final Map<String, ScheduledFuture> _gcTaskFutureMap = new HashMap<>();
+  private final ContentDefinedChunker _chunker;
+  private final boolean _deltaWriteEnabled;
   private boolean _usesExternalZkClient = false;
 
   /**
@@ -108,6 +148,14 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     _bucketSize = bucketSize;
     _versionTTLms = versionTTLms;
     _usesExternalZkClient = usesExternalZkClient;
+    _chunker = new ContentDefinedChunker(chunkSize(bucketSize, MIN_CHUNK_BUCKETS),
+        chunkSize(bucketSize, AVG_CHUNK_BUCKETS), chunkSize(bucketSize, MAX_CHUNK_BUCKETS));
+    _deltaWriteEnabled =
+        Boolean.getBoolean(SystemPropertyKeys.ZK_BUCKET_DATA_ACCESSOR_DELTA_WRITE_ENABLED);
+  }
+
+  private static int chunkSize(int bucketSize, int numBuckets) {
+    return (int) Math.min(Integer.MAX_VALUE, (long) bucketSize * numBuckets);
   }
 
   /**
@@ -170,52 +218,16 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     String versionStr = new String(binaryVersion);
     final long version = Long.parseLong(versionStr);
 
-    // 2. Write to the incremented last write version
-    String versionedDataPath = rootPath + "/" + versionStr;
-
+    // 2. Write to the incremented last write version, with the metadata in the same batch
     // Take the ZNRecord and serialize it (get byte[])
     byte[] serializedRecord = _zkSerializer.serialize(value.getRecord());
-    // Compress the byte[]
-    byte[] compressedRecord = GZipCompressionUtil.compress(serializedRecord);
-    // Compute N - number of buckets
-    int numBuckets = (compressedRecord.length + _bucketSize - 1) / _bucketSize;
-
-    List<String> paths = new ArrayList<>();
-    List<byte[]> buckets = new ArrayList<>();
-
-    int ptr = 0;
-    int counter = 0;
-    while (counter < numBuckets) {
-      paths.add(versionedDataPath + "/" + counter);
-      if (counter == numBuckets - 1) {
-        // Special treatment for the last bucket
-        buckets.add(
-            Arrays.copyOfRange(compressedRecord, ptr, ptr + compressedRecord.length % _bucketSize));
-      } else {
-        buckets.add(Arrays.copyOfRange(compressedRecord, ptr, ptr + _bucketSize));
-      }
-      ptr += _bucketSize;
-      counter++;
-    }
-
-    // 3. Include the metadata in the batch write
-    Map<String, String> metadata = ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize),
-        DATA_SIZE_KEY, Integer.toString(compressedRecord.length));
-    byte[] binaryMetadata = OBJECT_MAPPER.writeValueAsBytes(metadata);
-    paths.add(versionedDataPath + "/" + METADATA_KEY);
-    buckets.add(binaryMetadata);
-
-    // Do an async set to ZK
-    boolean[] success = _zkBaseDataAccessor.setChildren(paths, buckets, AccessOption.PERSISTENT);
-    // Exception and fail the write if any failed
-    for (boolean s : success) {
-      if (!s) {
-        throw new HelixException(
-            String.format("Failed to write the data buckets for path: %s", rootPath));
-      }
+    if (_deltaWriteEnabled) {
+      writeBuckets(rootPath, versionStr, serializedRecord);
+    } else {
+      writeLegacyBuckets(rootPath, versionStr, serializedRecord);
     }
 
-    // 4. Update lastSuccessfulWriteVersion using Updater
+    // 3. Update lastSuccessfulWriteVersion using Updater
     DataUpdater<byte[]> lastSuccessfulWriteVersionUpdater = dataInZk -> {
       if (dataInZk == null || dataInZk.length == 0) {
         // No last write version exists, so write version from this write
@@ -238,11 +250,126 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
           .format("Failed to write the last successful write metadata at path: %s!", rootPath));
     }
 
-    // 5. Update the timer for GC
+    // 4. Update the timer for GC
     updateGCTimer(rootPath, version);
     return true;
   }
 
+  /**
+   * Write the record as a manifest of content addressed buckets. Only the buckets that don't
+   * exist yet are written.
+   * Note that the buckets are listed after the write version is reserved, which the GC relies on
+   * to not remove the buckets that are reused here.
+   */
+  private void writeBuckets(String rootPath, String versionStr, byte[] serializedRecord)
+      throws IOException {
+    // Cut it into chunks and compress each of them into a content addressed bucket
+    List<String> bucketHashes = new ArrayList<>();
+    Map<String, byte[]> buckets = new LinkedHashMap<>();
+    int chunkStart = 0;
+    for (int chunkEnd : _chunker.split(serializedRecord)) {
+      addBuckets(serializedRecord, chunkStart, chunkEnd, bucketHashes, buckets);
+      chunkStart = chunkEnd;
+    }
+
+    // Write the buckets that don't exist yet, together with the manifest of this version
+    String bucketsPath = rootPath + "/" + BUCKETS_KEY;
+    Map<String, String> metadata = ImmutableMap
+        .of(FORMAT_VERSION_KEY, CONTENT_ADDRESSED_FORMAT_VERSION, BUCKET_SIZE_KEY,
+            Integer.toString(_bucketSize), SERIALIZED_SIZE_KEY,
+            Integer.toString(serializedRecord.length), BUCKETS_KEY,
+            String.join(BUCKET_DELIMITER, bucketHashes));
+    List<String> existingBuckets =
+        _zkBaseDataAccessor.getChildNames(bucketsPath, AccessOption.PERSISTENT);
+    Set<String> existingBucketSet =
+        existingBuckets == null ? new HashSet<>() : new HashSet<>(existingBuckets);
+
+    List<String> paths = new ArrayList<>();
+    List<byte[]> data = new ArrayList<>();
+    for (Map.Entry<String, byte[]> bucket : buckets.entrySet()) {
+      if (!existingBucketSet.contains(bucket.getKey())) {
+        paths.add(bucketsPath + "/" + bucket.getKey());
+        data.add(bucket.getValue());
+      }
+    }
+    LOG.debug("Writing {} of {} buckets for path: {}, version: {}", paths.size(), buckets.size(),
+        rootPath, versionStr);
+    paths.add(rootPath + "/" + versionStr + "/" + METADATA_KEY);
+    data.add(OBJECT_MAPPER.writeValueAsBytes(metadata));
+    setChildren(rootPath, paths, data);
+  }
+
+  /**
+   * Write the record as one compressed buffer split into numbered buckets under the version node.
+   */
+  private void writeLegacyBuckets(String rootPath, String versionStr, byte[] serializedRecord)
+      throws IOException {
+    String versionedDataPath = rootPath + "/" + versionStr;
+    // Compress the byte[]
+    byte[] compressedRecord = GZipCompressionUtil.compress(serializedRecord);
+    // Compute N - number of buckets
+    int numBuckets = (compressedRecord.length + _bucketSize - 1) / _bucketSize;
+
+    List<String> paths = new ArrayList<>();
+    List<byte[]> buckets = new ArrayList<>();
+    for (int i = 0; i < numBuckets; i++) {
+      paths.add(versionedDataPath + "/" + i);
+      buckets.add(Arrays.copyOfRange(compressedRecord, i * _bucketSize,
+          Math.min(compressedRecord.length, (i + 1) * _bucketSize)));
+    }
+
+    // Include the metadata in the batch write
+    Map<String, String> metadata = ImmutableMap.of(BUCKET_SIZE_KEY, Integer.toString(_bucketSize),
+        DATA_SIZE_KEY, Integer.toString(compressedRecord.length));
+    paths.add(versionedDataPath + "/" + METADATA_KEY);
+    buckets.add(OBJECT_MAPPER.writeValueAsBytes(metadata));
+    setChildren(rootPath, paths, buckets);
+  }
+
+  private void setChildren(String rootPath, List<String> paths, List<byte[]> data) {
+    // Do an async set to ZK
+    boolean[] success = _zkBaseDataAccessor.setChildren(paths, data, AccessOption.PERSISTENT);
+    // Exception and fail the write if any failed
+    for (boolean s : success) {
+      if (!s) {
+        throw new HelixException(
+            String.format("Failed to write the data buckets for path: %s", rootPath));
+      }
+    }
+  }
+
+  /**
+   * Compress the chunk [start, end) of data into buckets. A chunk that doesn't fit into one
+   * bucket after compression is split in halves.
+   */
+  private void addBuckets(byte[] data, int start, int end, List<String> bucketHashes,
+      Map<String, byte[]> buckets) throws IOException {
+    byte[] compressedChunk = GZipCompressionUtil.compress(data, start, end - start);
+    if (compressedChunk.length > _bucketSize && end - start > 1) {
+      int mid = start + (end - start) / 2;
+      addBuckets(data, start, mid, bucketHashes, buckets);
+      addBuckets(data, mid, end, bucketHashes, buckets);
+      return;
+    }
+    String bucketHash = computeBucketHash(compressedChunk);
+    bucketHashes.add(bucketHash);
+    buckets.putIfAbsent(bucketHash, compressedChunk);
+  }
+
+  private static String computeBucketHash(byte[] bucket) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance(BUCKET_HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new HelixException("Failed to compute the bucket hash!", e);
+    }
+    StringBuilder sb = new StringBuilder();
+    for (byte b : md.digest(bucket)) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+
   @Override
   public <T extends HelixProperty> HelixProperty compressedBucketRead(String path,
       Class<T> helixPropertySubType) {
@@ -290,22 +417,75 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
       throw new HelixException(String.format("Failed to deserialize path metadata: %s!", path), e);
     }
 
-    // 3. Read the data
-    Object bucketSizeObj = metadata.get(BUCKET_SIZE_KEY);
-    Object dataSizeObj = metadata.get(DATA_SIZE_KEY);
-    if (bucketSizeObj == null) {
-      throw new HelixException(
-          String.format("Metadata ZNRecord does not have %s! Path: %s", BUCKET_SIZE_KEY, path));
+    // 3. Read the data in the layout of the format version
+    Object formatVersion = metadata.get(FORMAT_VERSION_KEY);
+    byte[] serializedRecord;
+    if (formatVersion == null) {
+      serializedRecord = readLegacyBuckets(path, versionToRead, metadata);
+    } else if (CONTENT_ADDRESSED_FORMAT_VERSION.equals(formatVersion)) {
+      serializedRecord = readBuckets(path, metadata);
+    } else {
+      throw new HelixException(String
+          .format("Unsupported bucket format version %s! Path: %s", formatVersion, path));
     }
-    if (dataSizeObj == null) {
+
+    // Deserialize the record to retrieve the original
+    ZNRecord originalRecord = (ZNRecord) _zkSerializer.deserialize(serializedRecord);
+    return new HelixProperty(originalRecord);
+  }
+
+  /**
+   * Read the record written as a manifest of content addressed buckets.
+   */
+  private byte[] readBuckets(String path, Map metadata) {
+    int dataSize = getIntMetadata(path, metadata, SERIALIZED_SIZE_KEY);
+    Object bucketsObj = metadata.get(BUCKETS_KEY);
+    if (bucketsObj == null) {
       throw new HelixException(
-          String.format("Metadata ZNRecord does not have %s! Path: %s", DATA_SIZE_KEY, path));
+          String.format("Metadata ZNRecord does not have %s! Path: %s", BUCKETS_KEY, path));
+    }
+    String bucketList = (String) bucketsObj;
+    List<String> paths = new ArrayList<>();
+    if (!bucketList.isEmpty()) {
+      for (String bucketHash : bucketList.split(BUCKET_DELIMITER)) {
+        paths.add(path + "/" + BUCKETS_KEY + "/" + bucketHash);
+      }
     }
-    int bucketSize = Integer.parseInt((String) bucketSizeObj);
-    int dataSize = Integer.parseInt((String) dataSizeObj);
 
-    // Compute N - number of buckets
-    int numBuckets = (dataSize + _bucketSize - 1) / _bucketSize;
+    // Async get
+    List<byte[]> buckets = _zkBaseDataAccessor.get(paths, null, AccessOption.PERSISTENT, true);
+
+    ByteArrayOutputStream serializedRecord = new ByteArrayOutputStream(dataSize);
+    for (int i = 0; i < paths.size(); i++) {
+      if (buckets.get(i) == null) {
+        throw new ZkNoNodeException(
+            String.format("Bucket ZNode does not exist! Path: %s", paths.get(i)));
+      }
+      try {
+        serializedRecord
+            .write(GZipCompressionUtil.uncompress(new ByteArrayInputStream(buckets.get(i))));
+      } catch (IOException e) {
+        throw new HelixException(String.format("Failed to decompress path: %s!", paths.get(i)),
+            e);
+      }
+    }
+    if (serializedRecord.size() != dataSize) {
+      throw new HelixException(String
+          .format("Data size mismatch for path: %s! Expected: %d, read: %d", path, dataSize,
+              serializedRecord.size()));
+    }
+    return serializedRecord.toByteArray();
+  }
+
+  /**
+   * Read the record written as one compressed buffer split into numbered buckets.
+   */
+  private byte[] readLegacyBuckets(String path, String versionToRead, Map metadata) {
+    int dataSize = getIntMetadata(path, metadata, DATA_SIZE_KEY);
+    int bucketSize = getIntMetadata(path, metadata, BUCKET_SIZE_KEY);
+
+    // Compute N - number of buckets using the bucket size of the writer
+    int numBuckets = (dataSize + bucketSize - 1) / bucketSize;
     byte[] compressedRecord = new byte[dataSize];
     String dataPath = path + "/" + versionToRead;
 
@@ -322,7 +502,7 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     for (int i = 0; i < numBuckets; i++) {
       if (i == numBuckets - 1) {
         // Special treatment for the last bucket
-        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, dataSize % bucketSize);
+        System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, dataSize - copyPtr);
       } else {
         System.arraycopy(buckets.get(i), 0, compressedRecord, copyPtr, bucketSize);
         copyPtr += bucketSize;
@@ -331,16 +511,20 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
 
     // Decompress the byte array
     ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(compressedRecord);
-    byte[] serializedRecord;
     try {
-      serializedRecord = GZipCompressionUtil.uncompress(byteArrayInputStream);
+      return GZipCompressionUtil.uncompress(byteArrayInputStream);
     } catch (IOException e) {
       throw new HelixException(String.format("Failed to decompress path: %s!", path), e);
     }
+  }
 
-    // Deserialize the record to retrieve the original
-    ZNRecord originalRecord = (ZNRecord) _zkSerializer.deserialize(serializedRecord);
-    return new HelixProperty(originalRecord);
+  private static int getIntMetadata(String path, Map metadata, String key) {
+    Object value = metadata.get(key);
+    if (value == null) {
+      throw new HelixException(
+          String.format("Metadata ZNRecord does not have %s! Path: %s", key, path));
+    }
+    return Integer.parseInt((String) value);
   }
 
   @Override
@@ -369,23 +553,125 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
   }
 
   /**
-   * Deletes all stale versions.
+   * Deletes all stale versions and the buckets that are no longer referenced by any version.
    * @param rootPath
    * @param currentVersion
    */
   private void deleteStaleVersions(String rootPath, long currentVersion) {
+    // Read the write version before the children, so any write that starts later is detected
+    // before its buckets could be removed.
+    Stat lastWriteStat = new Stat();
+    byte[] binaryLastWrite = _zkBaseDataAccessor
+        .get(rootPath + "/" + LAST_WRITE_KEY, lastWriteStat, AccessOption.PERSISTENT);
     // Get all children names under path
     List<String> children = _zkBaseDataAccessor.getChildNames(rootPath, AccessOption.PERSISTENT);
-    if (children == null || children.isEmpty()) {
+    if (binaryLastWrite == null || children == null || children.isEmpty()) {
       // The whole path has been deleted so return immediately
       return;
     }
-    List<String> pathsToDelete =
-        getPathsToDelete(rootPath, filterChildrenNames(children, currentVersion));
+    List<String> staleVersions = filterChildrenNames(children, currentVersion);
+    List<String> pathsToDelete = getPathsToDelete(rootPath, staleVersions);
     for (String pathToDelete : pathsToDelete) {
       // TODO: Should be batch delete but it doesn't work. It's okay since this runs async
       _zkBaseDataAccessor.remove(pathToDelete, AccessOption.PERSISTENT);
     }
+
+    Set<String> remainingVersions = new HashSet<>();
+    for (String child : children) {
+      if (!staleVersions.contains(child) && isVersion(child)) {
+        remainingVersions.add(child);
+      }
+    }
+    deleteUnreferencedBuckets(rootPath, currentVersion, remainingVersions,
+        Long.parseLong(new String(binaryLastWrite)), lastWriteStat.getVersion());
+  }
+
+  /**
+   * Deletes the buckets that are not listed in the manifest of any of the given versions.
+   * The versions before the current version can never become the last successful write, so only
+   * the buckets of the current version and the later ones need to be kept. If any of the later
+   * versions doesn't have its manifest yet, it may still be written, so no bucket is deleted.
+   * The buckets are deleted together with a check that the write version hasn't changed, so a
+   * write that started after the check, in any process, never loses the buckets it reuses.
+   * @param rootPath
+   * @param currentVersion
+   * @param versions the remaining version nodes
+   * @param lastWriteVersion the last reserved write version
+   * @param lastWriteStatVersion the ZNode version of the last reserved write version
+   */
+  private void deleteUnreferencedBuckets(String rootPath, long currentVersion,
+      Set<String> versions, long lastWriteVersion, int lastWriteStatVersion) {
+    String bucketsPath = rootPath + "/" + BUCKETS_KEY;
+    List<String> buckets = _zkBaseDataAccessor.getChildNames(bucketsPath, AccessOption.PERSISTENT);
+    if (buckets == null || buckets.isEmpty()) {
+      return;
+    }
+
+    List<String> metadataPaths = new ArrayList<>();
+    for (long ver = currentVersion; ver <= lastWriteVersion; ver++) {
+      if (!versions.contains(Long.toString(ver))) {
+        LOG.info("Skip deleting buckets since version {} is not written yet. Path: {}", ver,
+            rootPath);
+        return;
+      }
+      metadataPaths.add(rootPath + "/" + ver + "/" + METADATA_KEY);
+    }
+    List<byte[]> binaryMetadataList =
+        _zkBaseDataAccessor.get(metadataPaths, null, AccessOption.PERSISTENT, false);
+    Set<String> referencedBuckets = new HashSet<>();
+    for (int i = 0; i < metadataPaths.size(); i++) {
+      byte[] binaryMetadata = binaryMetadataList.get(i);
+      if (binaryMetadata == null) {
+        // The version may still be written, so its buckets are unknown
+        LOG.info("Skip deleting buckets since metadata is missing. Path: {}",
+            metadataPaths.get(i));
+        return;
+      }
+      Map metadata;
+      try {
+        metadata = OBJECT_MAPPER.readValue(binaryMetadata, Map.class);
+      } catch (IOException e) {
+        LOG.warn("Skip deleting buckets since metadata is invalid. Path: {}",
+            metadataPaths.get(i), e);
+        return;
+      }
+      Object bucketList = metadata.get(BUCKETS_KEY);
+      if (bucketList != null && !((String) bucketList).isEmpty()) {
+        referencedBuckets.addAll(Arrays.asList(((String) bucketList).split(BUCKET_DELIMITER)));
+      }
+    }
+
+    List<Op> ops = new ArrayList<>();
+    for (String bucket : buckets) {
+      if (!referencedBuckets.contains(bucket)) {
+        ops.add(Op.delete(bucketsPath + "/" + bucket, -1));
+      }
+    }
+    String lastWritePath = rootPath + "/" + LAST_WRITE_KEY;
+    for (int start = 0; start < ops.size(); start += GC_BATCH_SIZE) {
+      List<Op> batch = new ArrayList<>();
+      batch.add(Op.check(lastWritePath, lastWriteStatVersion));
+      batch.addAll(ops.subList(start, Math.min(ops.size(), start + GC_BATCH_SIZE)));
+      try {
+        _zkClient.multi(batch);
+      } catch (ZkBadVersionException e) {
+        LOG.info("Skip deleting buckets since a new version is being written. Path: {}",
+            rootPath);
+        return;
+      } catch (ZkException e) {
+        LOG.warn("Failed to delete the unreferenced buckets. Path: {}", rootPath, e);
+        return;
+      }
+    }
+  }
+
+  private static boolean isVersion(String child) {
+    try {
+      Long.parseLong(child);
+      return true;
+    } catch (NumberFormatException ex) {
+      return false;
+    }
   }
 
   /**
@@ -398,7 +684,8 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     List<String> childrenToRemove = new ArrayList<>();
     for (String child : childrenNodes) {
       // Leave out metadata
-      if (child.equals(LAST_SUCCESSFUL_WRITE_KEY) || child.equals(LAST_WRITE_KEY)) {
+      if (child.equals(LAST_SUCCESSFUL_WRITE_KEY) || child.equals(LAST_WRITE_KEY)
+          || child.equals(BUCKETS_KEY)) {
         continue;
       }
       long childVer;
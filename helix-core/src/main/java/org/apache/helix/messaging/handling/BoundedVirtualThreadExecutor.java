@@ -0,0 +1,264 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An executor that runs every task in a new virtual thread, and runs at most a fixed number of
+ * tasks concurrently. Tasks beyond the limit wait in a FIFO queue, so the limit keeps the
+ * semantics of a fixed size thread pool of the same size, while a task that blocks on I/O doesn't
+ * hold a platform thread. The queue can optionally be ordered by a comparator, in which case the
+ * equal tasks still start in the FIFO order.
+ * Virtual threads are available on JDK 21 and later. Helix is compiled for an older release, so
+ * they are created reflectively; use {@link #isSupported()} to check the running JDK.
+ */
+public class BoundedVirtualThreadExecutor extends AbstractExecutorService {
+  private static final Logger LOG = LoggerFactory.getLogger(BoundedVirtualThreadExecutor.class);
+  private static final int MIN_JDK_VERSION = 21;
+  private static final Method OF_VIRTUAL = lookUpOfVirtual();
+
+  private final int _maxConcurrency;
+  private final ThreadFactory _threadFactory;
+  private final Object _lock = new Object();
+  // guarded by _lock
+  private final Queue<QueuedTask> _queue;
+  private long _sequence;
+  private final Set<Thread> _threads = new HashSet<>();
+  private int _permits;
+  private boolean _isShutdown;
+
+  /**
+   * @return true if the running JDK supports virtual threads
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * @param maxConcurrency the max number of tasks running at the same time
+   * @param threadNamePrefix the name prefix of the virtual threads
+   * @throws UnsupportedOperationException if the running JDK doesn't support virtual threads
+   */
+  public BoundedVirtualThreadExecutor(int maxConcurrency, String threadNamePrefix) {
+    this(maxConcurrency, threadNamePrefix, null);
+  }
+
+  /**
+   * @param maxConcurrency the max number of tasks running at the same time
+   * @param threadNamePrefix the name prefix of the virtual threads
+   * @param queueOrder the order in which the queued tasks start, null for the FIFO order
+   * @throws UnsupportedOperationException if the running JDK doesn't support virtual threads
+   */
+  public BoundedVirtualThreadExecutor(int maxConcurrency, String threadNamePrefix,
+      Comparator<Runnable> queueOrder) {
+    this(maxConcurrency, virtualThreadFactory(threadNamePrefix), queueOrder);
+  }
+
+  BoundedVirtualThreadExecutor(int maxConcurrency, ThreadFactory threadFactory,
+      Comparator<Runnable> queueOrder) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("Invalid max concurrency: " + maxConcurrency);
+    }
+    _maxConcurrency = maxConcurrency;
+    _permits = maxConcurrency;
+    _threadFactory = threadFactory;
+    _queue = queueOrder == null ? new ArrayDeque<>() : new PriorityQueue<>(
+        Comparator.comparing((QueuedTask queued) -> queued._task, queueOrder)
+            .thenComparingLong(queued -> queued._sequence));
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    synchronized (_lock) {
+      if (_isShutdown) {
+        throw new RejectedExecutionException("Executor has been shut down");
+      }
+      if (_permits == 0) {
+        _queue.add(new QueuedTask(command, _sequence++));
+        return;
+      }
+      _permits--;
+      start(command);
+    }
+  }
+
+  // The caller holds a permit for the task.
+  private void start(Runnable task) {
+    Thread thread = _threadFactory.newThread(() -> runAndHandOver(task));
+    _threads.add(thread);
+    thread.start();
+  }
+
+  private void runAndHandOver(Runnable task) {
+    try {
+      task.run();
+    } finally {
+      synchronized (_lock) {
+        _threads.remove(Thread.currentThread());
+        QueuedTask next = _queue.poll();
+        if (next != null) {
+          // hand the permit over to the next task
+          start(next._task);
+        } else {
+          _permits++;
+          if (isTerminated()) {
+            _lock.notifyAll();
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (_lock) {
+      _isShutdown = true;
+      if (isTerminated()) {
+        _lock.notifyAll();
+      }
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    synchronized (_lock) {
+      _isShutdown = true;
+      List<Runnable> pending = new ArrayList<>(_queue.size());
+      while (!_queue.isEmpty()) {
+        pending.add(_queue.poll()._task);
+      }
+      for (Thread thread : _threads) {
+        thread.interrupt();
+      }
+      if (isTerminated()) {
+        _lock.notifyAll();
+      }
+      return pending;
+    }
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (_lock) {
+      return _isShutdown;
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    synchronized (_lock) {
+      return _isShutdown && _permits == _maxConcurrency;
+    }
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (_lock) {
+      while (!isTerminated()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(_lock, remaining);
+      }
+      return true;
+    }
+  }
+
+  public int getMaxConcurrency() {
+    return _maxConcurrency;
+  }
+
+  /**
+   * @return the number of running tasks
+   */
+  public int getActiveCount() {
+    synchronized (_lock) {
+      return _maxConcurrency - _permits;
+    }
+  }
+
+  /**
+   * @return the number of tasks waiting for a permit
+   */
+  public int getQueueSize() {
+    synchronized (_lock) {
+      return _queue.size();
+    }
+  }
+
+  private static final class QueuedTask {
+    final Runnable _task;
+    final long _sequence;
+
+    QueuedTask(Runnable task, long sequence) {
+      _task = task;
+      _sequence = sequence;
+    }
+  }
+
+  private static ThreadFactory virtualThreadFactory(String threadNamePrefix) {
+    if (OF_VIRTUAL == null) {
+      throw new UnsupportedOperationException(
+          "Virtual threads are not supported by JDK " + Runtime.version());
+    }
+    try {
+      Object builder = OF_VIRTUAL.invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class)
+          .invoke(builder, threadNamePrefix, 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException e) {
+      throw new UnsupportedOperationException("Failed to create a virtual thread factory", e);
+    }
+  }
+
+  private static Method lookUpOfVirtual() {
+    if (Runtime.version().feature() < MIN_JDK_VERSION) {
+      return null;
+    }
+    try {
+      return Thread.class.getMethod("ofVirtual");
+    } catch (NoSuchMethodException e) {
+      LOG.warn("Virtual threads are not available in JDK {}.", Runtime.version());
+      return null;
+    }
+  }
+}
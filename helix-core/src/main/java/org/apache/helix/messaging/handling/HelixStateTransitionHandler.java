@@ -20,7 +20,6 @@ package org.apache.helix.messaging.handling;
  */
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -41,7 +40,7 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.Attributes;
 import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
-import org.apache.helix.participant.statemachine.StateModelParser;
+import org.apache.helix.participant.statemachine.StateTransitionDispatchTable;
 import org.apache.helix.participant.statemachine.StateTransitionError;
 import org.apache.helix.task.TaskStateModel;
 import org.apache.helix.util.StatusUpdateUtil;
@@ -81,7 +80,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
   private static final Logger logger = LoggerFactory.getLogger(HelixStateTransitionHandler.class);
   private final StateModel _stateModel;
   StatusUpdateUtil _statusUpdateUtil;
-  private final StateModelParser _transitionMethodFinder;
+  private final StateTransitionDispatchTable _transitionDispatchTable;
   private final CurrentState _currentStateDelta;
   private final HelixManager _manager;
   private final StateModelFactory<? extends StateModel> _stateModelFactory;
@@ -95,7 +94,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
     super(message, context);
     _stateModel = stateModel;
     _statusUpdateUtil = new StatusUpdateUtil();
-    _transitionMethodFinder = new StateModelParser();
+    _transitionDispatchTable = StateTransitionDispatchTable.getInstance(stateModel.getClass());
     _currentStateDelta = currentStateDelta;
     _manager = _notificationContext.getManager();
     _stateModelFactory = stateModelFactory;
@@ -236,7 +235,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
           .currentState(instanceName, sessionId, resource, bucketizer.getBucketName(partitionKey));
       if (_message.getAttribute(Attributes.PARENT_MSG_ID) == null) {
         // normal message
-        if (!accessor.updateProperty(key, _currentStateDelta)) {
+        if (!persistCurrentStateDelta(accessor, key)) {
           throw new HelixException(
               "Fails to persist current state back to ZK for resource " + resource + " partition: "
                   + _message.getPartitionName());
@@ -260,6 +259,17 @@ public class HelixStateTransitionHandler extends MessageHandler {
 
   }
 
+  private boolean persistCurrentStateDelta(HelixDataAccessor accessor, PropertyKey key) {
+    Object executor = _notificationContext.get(MapKey.TASK_EXECUTOR.toString());
+    StateTransitionCommitBatcher commitBatcher = executor instanceof HelixTaskExecutor
+        ? ((HelixTaskExecutor) executor).getCommitBatcher() : null;
+    if (commitBatcher != null) {
+      // merged with the updates of the other transitions of the resource that complete meanwhile
+      return commitBatcher.updateCurrentState(accessor, key, _currentStateDelta);
+    }
+    return accessor.updateProperty(key, _currentStateDelta);
+  }
+
   @Override
   public HelixTaskResult handleMessage() {
     NotificationContext context = _notificationContext;
@@ -328,13 +338,10 @@ public class HelixStateTransitionHandler extends MessageHandler {
         "Message handling invoking", manager);
 
     // by default, we invoke state transition function in state model
-    Method methodToInvoke = null;
     String fromState = message.getFromState();
     String toState = message.getToState();
-    methodToInvoke = _transitionMethodFinder.getMethodForTransition(_stateModel.getClass(),
-        fromState, toState, new Class[] {
-            Message.class, NotificationContext.class
-        });
+    StateTransitionDispatchTable.TransitionMethod methodToInvoke =
+        _transitionDispatchTable.getTransitionMethod(fromState, toState);
     if (methodToInvoke != null) {
       logger.info(String.format(
           "Instance %s, partition %s received state transition from %s to %s on session %s, message id: %s",
@@ -347,9 +354,7 @@ public class HelixStateTransitionHandler extends MessageHandler {
             message.getToState(), message.getTgtSessionId(), message.getMsgId()));
       }
 
-      Object result = methodToInvoke.invoke(_stateModel, new Object[] {
-          message, context
-      });
+      Object result = methodToInvoke.invoke(_stateModel, message, context);
       taskResult.setSuccess(true);
       String resultStr;
       if (result == null || result instanceof Void) {
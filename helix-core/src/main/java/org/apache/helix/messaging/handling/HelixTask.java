@@ -217,7 +217,11 @@ public class HelixTask implements MessageTask {
   }
 
   private void removeMessageFromZk(HelixDataAccessor accessor, Message message) {
-    if (!HelixUtil.removeMessageFromZK(accessor, message, _manager.getInstanceName())) {
+    StateTransitionCommitBatcher commitBatcher = _executor.getCommitBatcher();
+    boolean removed = commitBatcher != null
+        ? commitBatcher.removeMessage(accessor, message, _manager.getInstanceName())
+        : HelixUtil.removeMessageFromZK(accessor, message, _manager.getInstanceName());
+    if (!removed) {
       logger.warn("Failed to delete message " + message.getId() + " from zk!");
     } else {
       logger.info("Delete message " + message.getId() + " from zk!");
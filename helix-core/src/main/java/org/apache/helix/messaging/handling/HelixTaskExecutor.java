@@ -37,6 +37,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -48,6 +49,7 @@ import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.InstanceType;
 import org.apache.helix.NotificationContext;
 import org.apache.helix.NotificationContext.MapKey;
@@ -67,6 +69,7 @@ import org.apache.helix.model.LiveInstance.LiveInstanceStatus;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.MessageState;
 import org.apache.helix.model.Message.MessageType;
+import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
 import org.apache.helix.monitoring.mbeans.MessageQueueMonitor;
 import org.apache.helix.monitoring.mbeans.ParticipantMessageMonitor;
@@ -156,6 +159,14 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   final ConcurrentHashMap<String, ExecutorService> _executorMap;
 
   final ExecutorService _batchMessageExecutorService;
+  // null if state transition commits are not batched
+  private final StateTransitionCommitBatcher _commitBatcher;
+  // whether the message handlers run in virtual threads
+  private final boolean _useVirtualThreads;
+  // state model definitions for the state transition priorities of the messages, refreshed by
+  // onMessage(). Missing definitions are cached too, so they are not read again until created.
+  private final Map<String, CachedStateModelDefinition> _stateModelDefs =
+      new ConcurrentHashMap<>();
 
   final ConcurrentHashMap<String, String> _messageTaskMap;
 
@@ -190,8 +201,12 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _executorMap = new ConcurrentHashMap<>();
     _messageTaskMap = new ConcurrentHashMap<>();
     _knownMessageIds = Collections.newSetFromMap(new ConcurrentHashMap<>());
-    _batchMessageExecutorService = Executors.newCachedThreadPool();
+    _useVirtualThreads = isVirtualThreadModeEnabled();
+    _batchMessageExecutorService = _useVirtualThreads ? new BoundedVirtualThreadExecutor(
+        Integer.MAX_VALUE, "HelixTaskExecutor-batch_message_handle_")
+        : Executors.newCachedThreadPool();
     _monitor.createExecutorMonitor("BatchMessageExecutor", _batchMessageExecutorService);
+    _commitBatcher = StateTransitionCommitBatcher.fromSystemProperties();
 
     _resourcesThreadpoolChecked = Collections.newSetFromMap(new ConcurrentHashMap<>());
     _transitionTypeThreadpoolChecked = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -248,8 +263,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     MsgHandlerFactoryRegistryItem prevItem = _hdlrFtyRegistry.putIfAbsent(type, newItem);
     if (prevItem == null) {
       _executorMap.computeIfAbsent(type, msgType -> {
-        ExecutorService newPool = Executors.newFixedThreadPool(threadpoolSize, r -> new Thread(r,
-            "HelixTaskExecutor-message_handle_thread_" + thread_uid.getAndIncrement()));
+        ExecutorService newPool = newMessageHandlingPool(threadpoolSize,
+            "HelixTaskExecutor-message_handle_thread_", r -> new Thread(r,
+                "HelixTaskExecutor-message_handle_thread_" + thread_uid.getAndIncrement()));
         _monitor.createExecutorMonitor(type, newPool);
         return newPool;
       });
@@ -345,8 +361,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       }
       final String key = msgInfo.getMessageIdentifier(Message.MessageInfo.MessageIdentifierBase.PER_RESOURCE);
       if (threadpoolSize > 0) {
-        _executorMap.put(key, Executors.newFixedThreadPool(threadpoolSize,
-            r -> new Thread(r, "GenericHelixController-message_handle_" + key)));
+        String threadName = "GenericHelixController-message_handle_" + key;
+        _executorMap.put(key, newMessageHandlingPool(threadpoolSize, threadName,
+            r -> new Thread(r, threadName)));
         LOG.info("Added dedicate threadpool for resource: " + resourceName + " with size: " + threadpoolSize);
       } else {
         // if threadpool is not configured
@@ -465,7 +482,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
           }
 
           LOG.info("Submit task: " + taskId + " to pool: " + exeSvc);
-          Future<HelixTaskResult> future = exeSvc.submit(task);
+          Future<HelixTaskResult> future = submitTask(exeSvc, task);
 
           _messageTaskMap
               .putIfAbsent(getMessageTarget(message.getResourceName(), message.getPartitionName()),
@@ -499,6 +516,124 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     return false;
   }
 
+  /**
+   * Submit the task to the pool. The pools created by the executor start the queued tasks in the
+   * order of their message priorities, instead of the FIFO order.
+   */
+  private Future<HelixTaskResult> submitTask(ExecutorService exeSvc, MessageTask task) {
+    if (!(exeSvc instanceof PriorityThreadPoolExecutor
+        || exeSvc instanceof BoundedVirtualThreadExecutor)) {
+      return exeSvc.submit(task);
+    }
+    Message message = task.getMessage();
+    MessagePriority priority = MessagePriority
+        .of(message, getStateModelDefinition(message), System.currentTimeMillis());
+    PrioritizedFutureTask<HelixTaskResult> future =
+        new PrioritizedFutureTask<>(task, priority, _monitor);
+    try {
+      exeSvc.execute(future);
+    } catch (RuntimeException e) {
+      // the task is not queued
+      future.cancel(false);
+      throw e;
+    }
+    return future;
+  }
+
+  /**
+   * @return the cached state model definition of the state transition message, or null if it is
+   *         not a state transition message or the definition is not known
+   */
+  @VisibleForTesting
+  StateModelDefinition getStateModelDefinition(Message message) {
+    String stateModelName = message.getStateModelDef();
+    if (stateModelName == null || !MessageType.STATE_TRANSITION.name()
+        .equals(message.getMsgType())) {
+      return null;
+    }
+    CachedStateModelDefinition cached = _stateModelDefs.get(stateModelName);
+    return cached == null ? null : cached._stateModelDef;
+  }
+
+  /**
+   * Refresh the cached state model definitions used by the state transition messages. The stats of
+   * the definitions are read in one batch, and only the new or changed definitions are read again,
+   * so the tasks are scheduled without reading ZK.
+   */
+  @VisibleForTesting
+  void refreshStateModelDefinitions(Collection<MessageHandler> handlers,
+      HelixDataAccessor accessor) {
+    List<String> stateModelNames = new ArrayList<>();
+    for (MessageHandler handler : handlers) {
+      Message message = handler._message;
+      String stateModelName = message.getStateModelDef();
+      if (stateModelName != null && MessageType.STATE_TRANSITION.name()
+          .equals(message.getMsgType()) && !stateModelNames.contains(stateModelName)) {
+        stateModelNames.add(stateModelName);
+      }
+    }
+    if (stateModelNames.isEmpty()) {
+      return;
+    }
+
+    Builder keyBuilder = accessor.keyBuilder();
+    try {
+      List<PropertyKey> keys = new ArrayList<>(stateModelNames.size());
+      for (String stateModelName : stateModelNames) {
+        keys.add(keyBuilder.stateModelDef(stateModelName));
+      }
+      List<HelixProperty.Stat> stats = accessor.getPropertyStats(keys);
+
+      List<String> changedNames = new ArrayList<>();
+      List<PropertyKey> changedKeys = new ArrayList<>();
+      List<Integer> changedVersions = new ArrayList<>();
+      for (int i = 0; i < stateModelNames.size(); i++) {
+        String stateModelName = stateModelNames.get(i);
+        HelixProperty.Stat stat = stats.get(i);
+        CachedStateModelDefinition cached = _stateModelDefs.get(stateModelName);
+        if (stat == null) {
+          _stateModelDefs.put(stateModelName, CachedStateModelDefinition.MISSING);
+        } else if (cached == null || cached._version != stat.getVersion()) {
+          changedNames.add(stateModelName);
+          changedKeys.add(keys.get(i));
+          changedVersions.add(stat.getVersion());
+        }
+      }
+      if (changedKeys.isEmpty()) {
+        return;
+      }
+
+      // A definition changed after its stat is read is read again on the next refresh, since its
+      // cached version is still the older one.
+      List<StateModelDefinition> stateModelDefs = accessor.getProperty(changedKeys, false);
+      for (int i = 0; i < changedNames.size(); i++) {
+        StateModelDefinition stateModelDef = stateModelDefs.get(i);
+        _stateModelDefs.put(changedNames.get(i), stateModelDef == null
+            ? CachedStateModelDefinition.MISSING
+            : new CachedStateModelDefinition(stateModelDef, changedVersions.get(i)));
+      }
+    } catch (Exception e) {
+      LOG.warn("Failed to refresh the state model definitions {}, the cached definitions are used "
+          + "for the message priorities.", stateModelNames, e);
+    }
+  }
+
+  /**
+   * A cached state model definition with its ZK version. The definition is null if it does not
+   * exist.
+   */
+  private static class CachedStateModelDefinition {
+    static final CachedStateModelDefinition MISSING = new CachedStateModelDefinition(null, -1);
+
+    final StateModelDefinition _stateModelDef;
+    final int _version;
+
+    CachedStateModelDefinition(StateModelDefinition stateModelDef, int version) {
+      _stateModelDef = stateModelDef;
+      _version = version;
+    }
+  }
+
   @Override
   public boolean cancelTask(MessageTask task) {
     Message message = task.getMessage();
@@ -541,6 +676,13 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     return false;
   }
 
+  /**
+   * @return the batcher of the state transition commits, or null if they are not batched
+   */
+  StateTransitionCommitBatcher getCommitBatcher() {
+    return _commitBatcher;
+  }
+
   @Override
   public void finishTask(MessageTask task) {
     Message message = task.getMessage();
@@ -751,6 +893,8 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
     _knownMessageIds.clear();
 
+    _stateModelDefs.clear();
+
     _lastSessionSyncTime = null;
     _isCleanState = true;
   }
@@ -768,8 +912,9 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     for (final String msgType : _hdlrFtyRegistry.keySet()) {
       MsgHandlerFactoryRegistryItem item = _hdlrFtyRegistry.get(msgType);
       ExecutorService pool = _executorMap.computeIfAbsent(msgType, type -> {
-        ExecutorService newPool = Executors.newFixedThreadPool(item.threadPoolSize(),
-            r -> new Thread(r, "HelixTaskExecutor-message_handle_" + type));
+        String threadName = "HelixTaskExecutor-message_handle_" + type;
+        ExecutorService newPool = newMessageHandlingPool(item.threadPoolSize(), threadName,
+            r -> new Thread(r, threadName));
         _monitor.createExecutorMonitor(type, newPool);
         return newPool;
       });
@@ -777,6 +922,38 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     }
   }
 
+  /**
+   * Create a pool that runs at most threadpoolSize message handlers concurrently, and starts the
+   * queued handlers in the order of their message priorities. The handlers run in virtual threads
+   * if the virtual thread mode is enabled, otherwise in a fixed size pool of threads from the
+   * platformThreadFactory.
+   */
+  private ExecutorService newMessageHandlingPool(int threadpoolSize, String threadNamePrefix,
+      ThreadFactory platformThreadFactory) {
+    if (_useVirtualThreads) {
+      return new BoundedVirtualThreadExecutor(threadpoolSize, threadNamePrefix,
+          PrioritizedFutureTask.QUEUE_ORDER);
+    }
+    return new PriorityThreadPoolExecutor(threadpoolSize, platformThreadFactory);
+  }
+
+  private static boolean isVirtualThreadModeEnabled() {
+    if (!Boolean.getBoolean(SystemPropertyKeys.PARTICIPANT_VIRTUAL_THREADS_ENABLED)) {
+      return false;
+    }
+    if (!BoundedVirtualThreadExecutor.isSupported()) {
+      LOG.warn("Virtual threads are not supported by JDK {}, message handlers run in platform "
+          + "threads.", Runtime.version());
+      return false;
+    }
+    return true;
+  }
+
+  @VisibleForTesting
+  boolean isVirtualThreadModeUsed() {
+    return _useVirtualThreads;
+  }
+
   private void syncSessionToController(HelixManager manager) {
     if (_lastSessionSyncTime == null || System.currentTimeMillis() - _lastSessionSyncTime
         > SESSION_SYNC_INTERVAL) { // > delay since last sync
@@ -1028,6 +1205,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     // update message state in batch and schedule tasks for all read messages
     updateMessageState(msgsToBeUpdated.values(), accessor, instanceName);
 
+    refreshStateModelDefinitions(stateTransitionHandlers.values(), accessor);
     for (Map.Entry<String, MessageHandler> handlerEntry : stateTransitionHandlers.entrySet()) {
       MessageHandler handler = handlerEntry.getValue();
       NotificationContext context = stateTransitionContexts.get(handlerEntry.getKey());
@@ -0,0 +1,122 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageType;
+import org.apache.helix.model.StateModelDefinition;
+
+/**
+ * The order in which the queued message tasks of a thread pool start. A task of a more urgent
+ * state transition, according to the transition priority list of its state model definition,
+ * starts first. Tasks of equally urgent transitions start in the order of their deadlines, which
+ * are the message expiry time and the end of the execution timeout, and then in the order they
+ * were scheduled in.
+ */
+final class MessagePriority implements Comparable<MessagePriority> {
+  // The priority of the transitions that are not in the priority list, and of the other tasks
+  static final int LOWEST_TRANSITION_PRIORITY = Integer.MAX_VALUE;
+  private static final long NO_DEADLINE = Long.MAX_VALUE;
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  private final int _transitionPriority;
+  private final long _deadline;
+  private final long _sequence;
+
+  private MessagePriority(int transitionPriority, long deadline) {
+    _transitionPriority = transitionPriority;
+    _deadline = deadline;
+    _sequence = SEQUENCE.getAndIncrement();
+  }
+
+  /**
+   * @param message the message of the task
+   * @param stateModelDef the state model definition of the message, null if it is unknown
+   * @param scheduleTime the time the task is scheduled, which starts its execution timeout
+   */
+  static MessagePriority of(Message message, StateModelDefinition stateModelDef,
+      long scheduleTime) {
+    int transitionPriority = LOWEST_TRANSITION_PRIORITY;
+    if (stateModelDef != null && MessageType.STATE_TRANSITION.name().equals(message.getMsgType())) {
+      List<String> transitionPriorityList = stateModelDef.getStateTransitionPriorityList();
+      if (transitionPriorityList != null) {
+        int index =
+            transitionPriorityList.indexOf(message.getFromState() + "-" + message.getToState());
+        if (index >= 0) {
+          transitionPriority = index;
+        }
+      }
+    }
+    return new MessagePriority(transitionPriority, getDeadline(message, scheduleTime));
+  }
+
+  /**
+   * @return the priority of a task that is not a message task, or whose message is unknown
+   */
+  static MessagePriority lowest() {
+    return new MessagePriority(LOWEST_TRANSITION_PRIORITY, NO_DEADLINE);
+  }
+
+  private static long getDeadline(Message message, long scheduleTime) {
+    long deadline = NO_DEADLINE;
+    long expiryPeriod = message.getExpiryPeriod();
+    if (expiryPeriod >= 0) {
+      // same as Message.isExpired()
+      long startTime =
+          message.isRelayMessage() ? message.getRelayTime() : message.getCreateTimeStamp();
+      if (startTime > 0) {
+        deadline = startTime + expiryPeriod;
+      }
+    }
+    if (message.getExecutionTimeout() > 0) {
+      deadline = Math.min(deadline, scheduleTime + message.getExecutionTimeout());
+    }
+    return deadline;
+  }
+
+  /**
+   * @return the index of the transition in the transition priority list, or
+   *         LOWEST_TRANSITION_PRIORITY if the transition is not in the list
+   */
+  int getTransitionPriority() {
+    return _transitionPriority;
+  }
+
+  @Override
+  public int compareTo(MessagePriority other) {
+    int result = Integer.compare(_transitionPriority, other._transitionPriority);
+    if (result == 0) {
+      result = Long.compare(_deadline, other._deadline);
+    }
+    if (result == 0) {
+      result = Long.compare(_sequence, other._sequence);
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "MessagePriority{transitionPriority=" + _transitionPriority + ", deadline=" + _deadline
+        + ", sequence=" + _sequence + "}";
+  }
+}
@@ -0,0 +1,96 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
+
+/**
+ * A future task that is queued by its {@link MessagePriority}. The queue depth and the time the
+ * task waits in the queue are reported to the participant status monitor by the priority.
+ */
+class PrioritizedFutureTask<T> extends FutureTask<T> {
+  /**
+   * The queue order of the prioritized thread pools. The runnables that are not prioritized
+   * start after the prioritized tasks.
+   */
+  static final Comparator<Runnable> QUEUE_ORDER =
+      Comparator.comparing(PrioritizedFutureTask::getPriority);
+
+  private static final MessagePriority UNPRIORITIZED = MessagePriority.lowest();
+
+  private final MessagePriority _priority;
+  private final ParticipantStatusMonitor _monitor;
+  private final long _queuedTime;
+  private final AtomicBoolean _isDequeued = new AtomicBoolean();
+
+  /**
+   * @param monitor the monitor of the queue metrics, null if the metrics are not reported
+   */
+  PrioritizedFutureTask(Callable<T> callable, MessagePriority priority,
+      ParticipantStatusMonitor monitor) {
+    super(callable);
+    _priority = priority;
+    _monitor = monitor;
+    _queuedTime = System.currentTimeMillis();
+    if (_monitor != null) {
+      _monitor.reportQueuedMessage(_priority.getTransitionPriority());
+    }
+  }
+
+  PrioritizedFutureTask(Runnable runnable, T result, MessagePriority priority) {
+    super(runnable, result);
+    _priority = priority;
+    _monitor = null;
+    _queuedTime = System.currentTimeMillis();
+  }
+
+  MessagePriority getPriority() {
+    return _priority;
+  }
+
+  @Override
+  public void run() {
+    dequeue(true);
+    super.run();
+  }
+
+  @Override
+  protected void done() {
+    // the task is cancelled before it starts
+    dequeue(false);
+  }
+
+  private void dequeue(boolean isStarted) {
+    if (_monitor != null && _isDequeued.compareAndSet(false, true)) {
+      _monitor.reportDequeuedMessage(_priority.getTransitionPriority(),
+          isStarted ? System.currentTimeMillis() - _queuedTime : -1);
+    }
+  }
+
+  private static MessagePriority getPriority(Runnable runnable) {
+    return runnable instanceof PrioritizedFutureTask
+        ? ((PrioritizedFutureTask<?>) runnable)._priority : UNPRIORITIZED;
+  }
+}
@@ -0,0 +1,52 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size thread pool whose queued tasks start in the order of their
+ * {@link MessagePriority}. The tasks that are submitted without a priority get the lowest
+ * priority, and start in the order they are submitted.
+ */
+class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+  private static final int INITIAL_QUEUE_CAPACITY = 16;
+
+  PriorityThreadPoolExecutor(int poolSize, ThreadFactory threadFactory) {
+    super(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+        new PriorityBlockingQueue<>(INITIAL_QUEUE_CAPACITY, PrioritizedFutureTask.QUEUE_ORDER),
+        threadFactory);
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+    return new PrioritizedFutureTask<>(callable, MessagePriority.lowest(), null);
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+    return new PrioritizedFutureTask<>(runnable, value, MessagePriority.lowest());
+  }
+}
@@ -0,0 +1,233 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.Message;
+import org.apache.helix.util.HelixUtil;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Commits the results of concurrent state transitions in micro batches. The current state deltas
+ * of transitions that complete close together on the same current state znode are merged into
+ * one update, and their messages are removed with one batched delete.
+ * The first commit of a batch waits up to the linger time for more commits to join, or until the
+ * batch is full, and then flushes the whole batch. Every commit blocks until its batch is
+ * flushed, so a transition still finishes only after its current state is persisted and the
+ * error handling is the same as committing alone.
+ */
+class StateTransitionCommitBatcher {
+  private static final Logger LOG = LoggerFactory.getLogger(StateTransitionCommitBatcher.class);
+
+  // batching is disabled by default
+  static final int DEFAULT_MAX_BATCH_SIZE = 1;
+  static final long DEFAULT_LINGER_MS = 5L;
+
+  private final int _maxBatchSize;
+  private final long _lingerMs;
+  // batch key -> the batch that is still accepting commits
+  private final Map<String, Batch<?>> _openBatches = new HashMap<>();
+
+  StateTransitionCommitBatcher(int maxBatchSize, long lingerMs) {
+    _maxBatchSize = maxBatchSize;
+    _lingerMs = lingerMs;
+  }
+
+  /**
+   * @return a batcher configured by the system properties, or null if batching is disabled
+   */
+  static StateTransitionCommitBatcher fromSystemProperties() {
+    int maxBatchSize = HelixUtil.getSystemPropertyAsInt(
+        SystemPropertyKeys.PARTICIPANT_TRANSITION_COMMIT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_SIZE);
+    long lingerMs = HelixUtil.getSystemPropertyAsLong(
+        SystemPropertyKeys.PARTICIPANT_TRANSITION_COMMIT_LINGER_MS, DEFAULT_LINGER_MS);
+    if (maxBatchSize <= 1) {
+      return null;
+    }
+    LOG.info("Batch state transition commits, max batch size: {}, linger: {} ms.", maxBatchSize,
+        lingerMs);
+    return new StateTransitionCommitBatcher(maxBatchSize, lingerMs);
+  }
+
+  /**
+   * Persist the current state delta of a transition together with the deltas of the other
+   * transitions on the same current state znode.
+   * @return true if the merged update succeeded
+   */
+  boolean updateCurrentState(HelixDataAccessor accessor, PropertyKey key, CurrentState delta) {
+    if (!delta.getRecord().getDeltaList().isEmpty()) {
+      // a delta list subtracts from the persisted record, so it can't be merged with other deltas
+      return accessor.updateProperty(key, delta);
+    }
+    return commit(key.getPath(), delta, deltas -> {
+      CurrentState merged = new CurrentState(delta.getId());
+      for (CurrentState batchedDelta : deltas) {
+        merged.getRecord().merge(batchedDelta.getRecord());
+      }
+      boolean[] results = new boolean[deltas.size()];
+      Arrays.fill(results, accessor.updateProperty(key, merged));
+      return results;
+    });
+  }
+
+  /**
+   * Remove the message together with the other messages removed from the same message folder.
+   * @return true if the message was removed
+   */
+  boolean removeMessage(HelixDataAccessor accessor, Message message, String instanceName) {
+    String path = message.getKey(accessor.keyBuilder(), instanceName).getPath();
+    String folder = path.substring(0, path.lastIndexOf('/') + 1);
+    BaseDataAccessor<ZNRecord> baseAccessor = accessor.getBaseDataAccessor();
+    return commit(folder, path, paths -> {
+      boolean[] results;
+      try {
+        results = baseAccessor.remove(paths, AccessOption.PERSISTENT);
+      } catch (Exception e) {
+        LOG.error("Failed to remove {} messages in {} in batch.", paths.size(), folder, e);
+        results = new boolean[paths.size()];
+      }
+      // The batched delete reports missing messages as failures, retry them one by one.
+      for (int i = 0; i < results.length; i++) {
+        if (!results[i]) {
+          try {
+            results[i] = baseAccessor.remove(paths.get(i), AccessOption.PERSISTENT);
+          } catch (Exception e) {
+            LOG.error("Failed to remove message {}.", paths.get(i), e);
+          }
+        }
+      }
+      return results;
+    });
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> boolean commit(String batchKey, T item, Function<List<T>, boolean[]> flusher) {
+    Batch<T> batch;
+    int index;
+    boolean isLeader;
+    boolean isFull;
+    synchronized (_openBatches) {
+      batch = (Batch<T>) _openBatches.get(batchKey);
+      isLeader = batch == null;
+      if (isLeader) {
+        batch = new Batch<>();
+        _openBatches.put(batchKey, batch);
+      }
+      index = batch._items.size();
+      batch._items.add(item);
+      isFull = batch._items.size() >= _maxBatchSize;
+      if (isFull) {
+        _openBatches.remove(batchKey);
+        batch._closed = true;
+      }
+    }
+
+    if (!isLeader) {
+      if (isFull) {
+        batch.wakeUpLeader();
+      }
+      return batch.awaitResult(index);
+    }
+
+    batch.linger(_lingerMs);
+    synchronized (_openBatches) {
+      if (!batch._closed) {
+        _openBatches.remove(batchKey, batch);
+        batch._closed = true;
+      }
+    }
+    // The batch is closed, so its items don't change any more.
+    boolean[] results;
+    try {
+      results = flusher.apply(batch._items);
+    } catch (RuntimeException e) {
+      LOG.error("Failed to flush {} commits of {}.", batch._items.size(), batchKey, e);
+      results = new boolean[batch._items.size()];
+    }
+    batch.complete(results);
+    return results[index];
+  }
+
+  private static class Batch<T> {
+    final List<T> _items = new ArrayList<>();
+    final CountDownLatch _flushed = new CountDownLatch(1);
+    volatile boolean _closed;
+    volatile boolean[] _results;
+
+    synchronized void linger(long lingerMs) {
+      long deadline = System.currentTimeMillis() + lingerMs;
+      long remaining = lingerMs;
+      boolean interrupted = false;
+      while (!_closed && remaining > 0) {
+        try {
+          wait(remaining);
+        } catch (InterruptedException e) {
+          // the transition is complete, the commit must not be abandoned
+          interrupted = true;
+        }
+        remaining = deadline - System.currentTimeMillis();
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    synchronized void wakeUpLeader() {
+      notifyAll();
+    }
+
+    void complete(boolean[] results) {
+      _results = results;
+      _flushed.countDown();
+    }
+
+    boolean awaitResult(int index) {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          _flushed.await();
+          break;
+        } catch (InterruptedException e) {
+          // the leader flushes the commit anyway, wait for its result
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return _results[index];
+    }
+  }
+}
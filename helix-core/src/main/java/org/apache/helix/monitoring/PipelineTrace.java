@@ -0,0 +1,302 @@
+package org.apache.helix.monitoring;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the critical path of processing one ClusterEvent as a tree of nested spans: pipeline
+ * stages, cache refreshes, ZK batch reads/writes and rebalancer calls, each with optional counts
+ * of the items touched (resources, partitions, paths).
+ *
+ * Each thread tracks its innermost open span, so spans nest as long as they are closed in the
+ * reverse order they are started (i.e. used with try-with-resources). The controller stages start
+ * spans in the trace of their event. Code that has no access to the event, such as the data
+ * accessors and caches, can use {@link #startSpan(String)}, which records into the span open on
+ * the calling thread, or does nothing if there is none. Work handed to another thread can be wrapped with
+ * {@link #wrap(Runnable)} to keep its spans under the span of the submitting thread.
+ */
+public class PipelineTrace {
+  // The sub path and record name under the controller status updates where the slowest traces
+  // are persisted for the REST endpoint.
+  public static final String STATUS_UPDATE_SUB_PATH = "PipelineTrace";
+  public static final String SLOWEST_EVENTS_RECORD = "SlowestEvents";
+  public static final String TRACES_FIELD = "traces";
+
+  // Bound the memory of a single trace, the further spans are only counted
+  static final int MAX_SPANS_PER_TRACE = 1000;
+
+  private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<>();
+
+  private final String _clusterName;
+  private final String _eventId;
+  private final String _eventType;
+  private final String _pipelineName;
+  private final long _startTime;
+  private final Span _root;
+  private final AtomicInteger _spanCount = new AtomicInteger(0);
+  private final AtomicInteger _droppedSpanCount = new AtomicInteger(0);
+
+  public PipelineTrace(String clusterName, String eventId, String eventType,
+      String pipelineName) {
+    _clusterName = clusterName;
+    _eventId = eventId;
+    _eventType = eventType;
+    _pipelineName = pipelineName;
+    _startTime = System.currentTimeMillis();
+    _root = new Span(this, null, _pipelineName, System.nanoTime());
+  }
+
+  /**
+   * Bind this trace to the calling thread, so {@link #startSpan(String)} calls on this thread
+   * record into it.
+   */
+  public void attach() {
+    CURRENT_SPAN.set(_root);
+  }
+
+  /**
+   * Unbind any trace from the calling thread.
+   */
+  public static void detach() {
+    CURRENT_SPAN.remove();
+  }
+
+  /**
+   * Start a span under the span open on the calling thread.
+   * @return the started span, or a no-op span if no trace is bound to the calling thread
+   */
+  public static Span startSpan(String name) {
+    Span current = CURRENT_SPAN.get();
+    return current == null ? Span.NOOP : current._trace.startChildSpan(name);
+  }
+
+  /**
+   * Wrap a task so that when it runs on another thread, its spans are recorded under the span
+   * open on the calling thread now.
+   */
+  public static Runnable wrap(Runnable task) {
+    Span current = CURRENT_SPAN.get();
+    if (current == null) {
+      return task;
+    }
+    return () -> {
+      Span previous = CURRENT_SPAN.get();
+      CURRENT_SPAN.set(current);
+      try {
+        task.run();
+      } finally {
+        restoreCurrentSpan(previous);
+      }
+    };
+  }
+
+  /**
+   * Start a span under the span of this trace open on the calling thread, or under the root span
+   * if there is none.
+   */
+  public Span startChildSpan(String name) {
+    Span previous = CURRENT_SPAN.get();
+    Span parent = previous != null && previous._trace == this ? previous : _root;
+    if (!parent.reserveChild()) {
+      return Span.NOOP;
+    }
+    Span span = new Span(this, previous, name, System.nanoTime());
+    parent.addChild(span);
+    CURRENT_SPAN.set(span);
+    return span;
+  }
+
+  /**
+   * Complete the trace. Any span left open is reported with its duration so far.
+   */
+  public void finish() {
+    _root.close();
+  }
+
+  private static void restoreCurrentSpan(Span span) {
+    if (span == null) {
+      CURRENT_SPAN.remove();
+    } else {
+      CURRENT_SPAN.set(span);
+    }
+  }
+
+  public String getClusterName() {
+    return _clusterName;
+  }
+
+  public String getEventId() {
+    return _eventId;
+  }
+
+  public String getEventType() {
+    return _eventType;
+  }
+
+  public String getPipelineName() {
+    return _pipelineName;
+  }
+
+  public long getStartTime() {
+    return _startTime;
+  }
+
+  public long getDurationMs() {
+    return TimeUnit.NANOSECONDS.toMillis(_root.getDurationNanos());
+  }
+
+  public Span getRootSpan() {
+    return _root;
+  }
+
+  /**
+   * @return the trace as a tree of plain maps and lists, ready to be serialized to JSON
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("eventId", _eventId);
+    map.put("eventType", _eventType);
+    map.put("clusterName", _clusterName);
+    map.put("pipeline", _pipelineName);
+    map.put("startTime", _startTime);
+    map.put("durationMs", getDurationMs());
+    if (_droppedSpanCount.get() > 0) {
+      map.put("droppedSpans", _droppedSpanCount.get());
+    }
+    map.put("spans", _root.toMap(_root._startNanos).get("spans"));
+    return map;
+  }
+
+  /**
+   * A timed operation in the trace. Closing a span records its duration; a span is meant to be
+   * used with try-with-resources.
+   */
+  public static class Span implements AutoCloseable {
+    // A span that records nothing, used when there is no trace to record into
+    public static final Span NOOP = new Span(null, null, null, 0L);
+
+    private final PipelineTrace _trace;
+    // The span open on the starting thread before this one, restored when this span is closed
+    private final Span _previous;
+    private final String _name;
+    private final long _startNanos;
+    private volatile long _durationNanos = -1L;
+    private Map<String, Long> _counts;
+    private List<Span> _children;
+
+    private Span(PipelineTrace trace, Span previous, String name, long startNanos) {
+      _trace = trace;
+      _previous = previous;
+      _name = name;
+      _startNanos = startNanos;
+    }
+
+    /**
+     * Add to a named count of the items touched in this span, e.g. resources or partitions.
+     * @return this span
+     */
+    public Span addCount(String key, long delta) {
+      if (_trace != null) {
+        synchronized (this) {
+          if (_counts == null) {
+            _counts = new LinkedHashMap<>();
+          }
+          _counts.merge(key, delta, Long::sum);
+        }
+      }
+      return this;
+    }
+
+    @Override
+    public void close() {
+      if (_trace == null || _durationNanos >= 0) {
+        return;
+      }
+      _durationNanos = System.nanoTime() - _startNanos;
+      if (this != _trace._root && CURRENT_SPAN.get() == this) {
+        restoreCurrentSpan(_previous);
+      }
+    }
+
+    public String getName() {
+      return _name;
+    }
+
+    public long getDurationNanos() {
+      long duration = _durationNanos;
+      return duration >= 0 ? duration : System.nanoTime() - _startNanos;
+    }
+
+    public synchronized Map<String, Long> getCounts() {
+      return _counts == null ? Collections.emptyMap() : new LinkedHashMap<>(_counts);
+    }
+
+    public synchronized List<Span> getChildren() {
+      return _children == null ? Collections.emptyList() : new ArrayList<>(_children);
+    }
+
+    private boolean reserveChild() {
+      if (_trace._spanCount.incrementAndGet() > MAX_SPANS_PER_TRACE) {
+        _trace._droppedSpanCount.incrementAndGet();
+        return false;
+      }
+      return true;
+    }
+
+    private synchronized void addChild(Span span) {
+      if (_children == null) {
+        _children = new ArrayList<>();
+      }
+      _children.add(span);
+    }
+
+    private Map<String, Object> toMap(long traceStartNanos) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("name", _name);
+      map.put("startOffsetMs", toMillis(_startNanos - traceStartNanos));
+      map.put("durationMs", toMillis(getDurationNanos()));
+      Map<String, Long> counts = getCounts();
+      if (!counts.isEmpty()) {
+        map.put("counts", counts);
+      }
+      List<Span> children = getChildren();
+      if (!children.isEmpty()) {
+        List<Map<String, Object>> spans = new ArrayList<>(children.size());
+        for (Span child : children) {
+          spans.add(child.toMap(traceStartNanos));
+        }
+        map.put("spans", spans);
+      }
+      return map;
+    }
+
+    private static double toMillis(long nanos) {
+      // Keep microsecond precision, most ZK calls take less than a millisecond
+      return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+  }
+}
@@ -41,6 +41,7 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
   private static final String CLUSTEREVENT_DN_KEY = "ClusterEventStatus";
   private static final String EVENT_DN_KEY = "eventName";
   private static final String PHASE_DN_KEY = "phaseName";
+  private static final String CACHE_REFRESH_PHASE_PREFIX = "CacheRefresh.";
 
   private final String _phaseName;
 
@@ -75,6 +76,14 @@ public class ClusterEventMonitor extends DynamicMBeanProvider {
     _totalDuration = new SimpleDynamicMetric("TotalDurationCounter", 0l);
   }
 
+  /**
+   * @param cacheName name of a controller data cache
+   * @return the phase name to report the latency of refreshing the given cache
+   */
+  public static String getCacheRefreshPhaseName(String cacheName) {
+    return CACHE_REFRESH_PHASE_PREFIX + cacheName;
+  }
+
   public void reportDuration(long duration) {
     _totalDuration.updateValue(_totalDuration.getValue() + duration);
     _count.updateValue(_count.getValue() + 1);
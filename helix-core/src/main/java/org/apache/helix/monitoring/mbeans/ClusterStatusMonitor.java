@@ -38,6 +38,7 @@ import javax.management.ObjectName;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.Sets;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.controller.stages.BestPossibleStateOutput;
 import org.apache.helix.model.ExternalView;
@@ -51,6 +52,7 @@ import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.TaskState;
 import org.apache.helix.task.WorkflowConfig;
 import org.apache.helix.task.WorkflowContext;
+import org.apache.helix.util.HelixUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,6 +69,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   static final String JOB_TYPE_DN_KEY = "jobType";
   static final String DEFAULT_WORKFLOW_JOB_TYPE = "DEFAULT";
   public static final String DEFAULT_TAG = "DEFAULT";
+  static final int DEFAULT_PIPELINE_TRACE_SLOWEST_EVENTS = 10;
 
   private final String _clusterName;
   private final MBeanServer _beanServer;
@@ -87,6 +90,8 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   private AtomicLong _rebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousResourceRebalanceFailureCount = new AtomicLong(0L);
   private AtomicLong _continuousTaskRebalanceFailureCount = new AtomicLong(0L);
+  private AtomicLong _messageCacheScannedInstanceCount = new AtomicLong(0L);
+  private AtomicLong _messageCacheSkippedInstanceCount = new AtomicLong(0L);
 
   private final ConcurrentHashMap<String, ResourceMonitor> _resourceMonitorMap =
       new ConcurrentHashMap<>();
@@ -99,6 +104,8 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
 
   private CustomizedViewMonitor _customizedViewMonitor;
 
+  private PipelineTraceMonitor _pipelineTraceMonitor;
+
   /**
    * PerInstanceResource monitor map: beanName->monitor
    */
@@ -352,6 +359,32 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _customizedViewMonitor;
   }
 
+  /**
+   * Lazy initialization of the pipeline trace monitor, which retains the traces of the slowest
+   * events
+   * @return the pipeline trace monitor instance
+   */
+  public synchronized PipelineTraceMonitor getOrCreatePipelineTraceMonitor() {
+    if (_pipelineTraceMonitor == null) {
+      _pipelineTraceMonitor = new PipelineTraceMonitor(this, HelixUtil
+          .getSystemPropertyAsInt(SystemPropertyKeys.CONTROLLER_PIPELINE_TRACE_SLOWEST_EVENTS,
+              DEFAULT_PIPELINE_TRACE_SLOWEST_EVENTS));
+      try {
+        _pipelineTraceMonitor.register();
+      } catch (JMException e) {
+        LOG.error("Failed to register PipelineTraceMonitorMBean for cluster " + _clusterName, e);
+      }
+    }
+    return _pipelineTraceMonitor;
+  }
+
+  private synchronized void unregisterPipelineTraceMonitor() {
+    if (_pipelineTraceMonitor != null) {
+      _pipelineTraceMonitor.unregister();
+      _pipelineTraceMonitor = null;
+    }
+  }
+
   private ClusterEventMonitor getOrCreateClusterEventMonitor(String phase) {
     try {
       if (!_clusterEventMonitorMap.containsKey(phase)) {
@@ -645,6 +678,7 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       unregisterAllPerInstanceResources();
       unregister(getObjectName(clusterBeanName()));
       unregisterAllEventMonitors();
+      unregisterPipelineTraceMonitor();
       unregisterAllWorkflowsMonitor();
       unregisterAllJobs();
 
@@ -660,6 +694,8 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       _rebalanceFailureCount.set(0L);
       _continuousResourceRebalanceFailureCount.set(0L);
       _continuousTaskRebalanceFailureCount.set(0L);
+      _messageCacheScannedInstanceCount.set(0L);
+      _messageCacheSkippedInstanceCount.set(0L);
     } catch (Exception e) {
       LOG.error("Fail to reset ClusterStatusMonitor, cluster: " + _clusterName, e);
     }
@@ -1037,6 +1073,11 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     _continuousTaskRebalanceFailureCount.set(newValue);
   }
 
+  public void reportMessageCacheRefresh(long scannedInstanceCount, long skippedInstanceCount) {
+    _messageCacheScannedInstanceCount.addAndGet(scannedInstanceCount);
+    _messageCacheSkippedInstanceCount.addAndGet(skippedInstanceCount);
+  }
+
   @Override
   public long getRebalanceFailureCounter() {
     return _rebalanceFailureCount.get();
@@ -1052,6 +1093,16 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _continuousTaskRebalanceFailureCount.get();
   }
 
+  @Override
+  public long getMessageCacheScannedInstanceCounter() {
+    return _messageCacheScannedInstanceCount.get();
+  }
+
+  @Override
+  public long getMessageCacheSkippedInstanceCounter() {
+    return _messageCacheSkippedInstanceCount.get();
+  }
+
   @Override
   public long getTotalResourceGauge() {
     return _resourceMonitorMap.size();
@@ -97,6 +97,17 @@ public interface ClusterStatusMonitorMBean extends SensorNameProvider {
    */
   long getContinuousTaskRebalanceFailureCount();
 
+  /**
+   * @return The number of instances whose message folder was listed by the message cache refresh
+   */
+  long getMessageCacheScannedInstanceCounter();
+
+  /**
+   * @return The number of live instances served from the message cache without listing their
+   *         message folder
+   */
+  long getMessageCacheSkippedInstanceCounter();
+
   /**
    * @return number of all resources in this cluster
    */
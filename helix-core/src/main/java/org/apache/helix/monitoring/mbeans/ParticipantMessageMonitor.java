@@ -21,16 +21,23 @@ package org.apache.helix.monitoring.mbeans;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import javax.management.JMException;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
 
 public class ParticipantMessageMonitor extends DynamicMBeanProvider {
   private static final String MBEAN_DESCRIPTION = "Helix Participant Message Monitor";
   private final String _domainName;
   public static final String PARTICIPANT_STATUS_KEY = "ParticipantMessageStatus";
+  // The number of priority levels that have queue metrics. The transition priorities are the
+  // indexes in the transition priority list, and the last level includes all the lower priorities.
+  public static final int MESSAGE_PRIORITY_LEVELS = 4;
 
   private final String _participantName;
 
@@ -39,6 +46,8 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _completedMessages;
   private SimpleDynamicMetric<Long> _failedMessages;
   private SimpleDynamicMetric<Long> _pendingMessages;
+  private final List<SimpleDynamicMetric<Long>> _queuedMessages = new ArrayList<>();
+  private final List<HistogramDynamicMetric> _messageWaitTimeGauges = new ArrayList<>();
 
   /**
    * The current processed state of the message
@@ -57,6 +66,12 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
     _completedMessages = new SimpleDynamicMetric("CompletedMessages", 0L);
     _failedMessages = new SimpleDynamicMetric("FailedMessages", 0L);
     _pendingMessages = new SimpleDynamicMetric("PendingMessages", 0L);
+    for (int level = 0; level < MESSAGE_PRIORITY_LEVELS; level++) {
+      _queuedMessages.add(new SimpleDynamicMetric<>("Priority" + level + "QueuedMessages", 0L));
+      _messageWaitTimeGauges.add(new HistogramDynamicMetric(
+          "Priority" + level + "MessageWaitTimeGauge", new Histogram(
+          new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS))));
+    }
   }
 
   public void incrementReceivedMessages(long count) {
@@ -83,6 +98,32 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
     incrementSimpleDynamicMetric(_pendingMessages, -1 * count);
   }
 
+  /**
+   * Report a message task that is queued in a thread pool.
+   * @param transitionPriority the transition priority of the message
+   */
+  public void incrementQueuedMessages(int transitionPriority) {
+    incrementSimpleDynamicMetric(_queuedMessages.get(getPriorityLevel(transitionPriority)), 1);
+  }
+
+  /**
+   * Report a message task that leaves the queue of a thread pool.
+   * @param transitionPriority the transition priority of the message
+   * @param waitTime the time in ms the task waited in the queue, or a negative value if the task
+   *                 didn't start
+   */
+  public void decrementQueuedMessages(int transitionPriority, long waitTime) {
+    int level = getPriorityLevel(transitionPriority);
+    incrementSimpleDynamicMetric(_queuedMessages.get(level), -1);
+    if (waitTime >= 0) {
+      _messageWaitTimeGauges.get(level).updateValue(waitTime);
+    }
+  }
+
+  private static int getPriorityLevel(int transitionPriority) {
+    return Math.max(0, Math.min(transitionPriority, MESSAGE_PRIORITY_LEVELS - 1));
+  }
+
   @Override
   public String getSensorName() {
     return PARTICIPANT_STATUS_KEY;
@@ -101,6 +142,8 @@ public class ParticipantMessageMonitor extends DynamicMBeanProvider {
     attributeList.add(_completedMessages);
     attributeList.add(_failedMessages);
     attributeList.add(_pendingMessages);
+    attributeList.addAll(_queuedMessages);
+    attributeList.addAll(_messageWaitTimeGauges);
     doRegister(attributeList, MBEAN_DESCRIPTION, _domainName,
         ParticipantStatusMonitor.PARTICIPANT_KEY, _participantName, "MonitorType",
         ParticipantMessageMonitor.class.getSimpleName());
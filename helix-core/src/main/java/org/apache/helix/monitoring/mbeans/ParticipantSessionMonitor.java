@@ -0,0 +1,100 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Monitors the latency of each phase of establishing a new ZK session for a participant.
+ */
+public class ParticipantSessionMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Participant Session Monitor";
+  public static final String PARTICIPANT_SESSION_STATUS_KEY = "ParticipantSessionStatus";
+
+  public enum Phase {
+    JoinCluster,
+    PreConnectCallbacks,
+    CreateLiveInstance,
+    CarryOverCurrentState,
+    RemoveTaskCurrentStates,
+    SetupMessageHandler,
+    HandleNewSession
+  }
+
+  private final String _sensorName;
+  private final String _domainName;
+  private final String _participantName;
+
+  private final Map<Phase, HistogramDynamicMetric> _phaseLatencyGauges = new EnumMap<>(Phase.class);
+  private final Map<Phase, SimpleDynamicMetric<Long>> _phaseTotalLatencies =
+      new EnumMap<>(Phase.class);
+
+  public ParticipantSessionMonitor(String domainName, String participantName) {
+    _domainName = domainName;
+    _participantName = participantName;
+    _sensorName = String.format("%s.%s", PARTICIPANT_SESSION_STATUS_KEY, participantName);
+
+    for (Phase phase : Phase.values()) {
+      _phaseLatencyGauges.put(phase, new HistogramDynamicMetric(phase.name() + "LatencyGauge",
+          new Histogram(
+              new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS))));
+      _phaseTotalLatencies.put(phase, new SimpleDynamicMetric<>(phase.name() + "TotalLatency", 0L));
+    }
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  /**
+   * Report the latency of a phase of establishing a new session
+   * @param phase the phase
+   * @param latency latency in ms
+   */
+  public synchronized void updatePhaseLatency(Phase phase, long latency) {
+    _phaseLatencyGauges.get(phase).updateValue(latency);
+    SimpleDynamicMetric<Long> totalLatency = _phaseTotalLatencies.get(phase);
+    totalLatency.updateValue(totalLatency.getValue() + latency);
+  }
+
+  @Override
+  public ParticipantSessionMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.addAll(_phaseLatencyGauges.values());
+    attributeList.addAll(_phaseTotalLatencies.values());
+    doRegister(attributeList, MBEAN_DESCRIPTION, _domainName,
+        ParticipantStatusMonitor.PARTICIPANT_KEY, _participantName, "MonitorType",
+        ParticipantSessionMonitor.class.getSimpleName());
+    return this;
+  }
+}
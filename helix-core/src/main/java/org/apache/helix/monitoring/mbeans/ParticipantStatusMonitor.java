@@ -29,6 +29,7 @@ import javax.management.MBeanServer;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
+import org.apache.helix.messaging.handling.BoundedVirtualThreadExecutor;
 import org.apache.helix.model.Message;
 import org.apache.helix.monitoring.StateTransitionContext;
 import org.apache.helix.monitoring.StateTransitionDataPoint;
@@ -46,6 +47,7 @@ public class ParticipantStatusMonitor {
   private MBeanServer _beanServer;
   private ParticipantMessageMonitor _messageMonitor;
   private MessageLatencyMonitor _messageLatencyMonitor;
+  private ParticipantSessionMonitor _sessionMonitor;
   private Map<String, ThreadPoolExecutorMonitor> _executorMonitors;
 
   public ParticipantStatusMonitor(boolean isParticipant, String instanceName) {
@@ -61,6 +63,10 @@ public class ParticipantStatusMonitor {
             new MessageLatencyMonitor(MonitorDomainNames.CLMParticipantReport.name(),
                 _instanceName);
         _messageLatencyMonitor.register();
+        _sessionMonitor =
+            new ParticipantSessionMonitor(MonitorDomainNames.CLMParticipantReport.name(),
+                _instanceName);
+        _sessionMonitor.register();
         _executorMonitors = new ConcurrentHashMap<>();
       }
     } catch (Exception e) {
@@ -98,6 +104,39 @@ public class ParticipantStatusMonitor {
     }
   }
 
+  /**
+   * Report a message task that is queued in a thread pool.
+   * @param transitionPriority the transition priority of the message
+   */
+  public synchronized void reportQueuedMessage(int transitionPriority) {
+    if (_messageMonitor != null) {  // is participant
+      _messageMonitor.incrementQueuedMessages(transitionPriority);
+    }
+  }
+
+  /**
+   * Report a message task that leaves the queue of a thread pool.
+   * @param transitionPriority the transition priority of the message
+   * @param waitTime the time in ms the task waited in the queue, or a negative value if the task
+   *                 didn't start
+   */
+  public synchronized void reportDequeuedMessage(int transitionPriority, long waitTime) {
+    if (_messageMonitor != null) {  // is participant
+      _messageMonitor.decrementQueuedMessages(transitionPriority, waitTime);
+    }
+  }
+
+  /**
+   * Report the latency of a phase of establishing a new ZK session
+   * @param phase the phase
+   * @param latency latency in ms
+   */
+  public void reportSessionPhaseLatency(ParticipantSessionMonitor.Phase phase, long latency) {
+    if (_sessionMonitor != null) {  // is participant
+      _sessionMonitor.updatePhaseLatency(phase, latency);
+    }
+  }
+
   public void reportTransitionStat(StateTransitionContext cxt, StateTransitionDataPoint data) {
     if (_beanServer == null) {
       LOG.warn("bean server is null, skip reporting");
@@ -142,6 +181,9 @@ public class ParticipantStatusMonitor {
     if (_messageMonitor != null) {
       _messageMonitor.unregister();
     }
+    if (_sessionMonitor != null) {
+      _sessionMonitor.unregister();
+    }
     for (StateTransitionContext cxt : _monitorMap.keySet()) {
       try {
         ObjectName name = getObjectName(cxt.toString());
@@ -159,13 +201,14 @@ public class ParticipantStatusMonitor {
     if (_executorMonitors == null) {
       return;
     }
-    if (!(executor instanceof ThreadPoolExecutor)) {
-      return;
-    }
-
     try {
-      _executorMonitors
-          .put(type, new ThreadPoolExecutorMonitor(type, (ThreadPoolExecutor) executor));
+      if (executor instanceof ThreadPoolExecutor) {
+        _executorMonitors
+            .put(type, new ThreadPoolExecutorMonitor(type, (ThreadPoolExecutor) executor));
+      } else if (executor instanceof BoundedVirtualThreadExecutor) {
+        _executorMonitors.put(type,
+            new ThreadPoolExecutorMonitor(type, (BoundedVirtualThreadExecutor) executor));
+      }
     } catch (JMException e) {
       LOG.warn(String.format("Error in creating ThreadPoolExecutorMonitor for type=%s", type), e);
     }
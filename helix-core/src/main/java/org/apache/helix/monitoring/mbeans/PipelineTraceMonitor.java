@@ -0,0 +1,136 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.management.JMException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.helix.monitoring.PipelineTrace;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retains the pipeline traces of the slowest cluster events processed by the controller, and
+ * exposes them as a JSON attribute so the critical path of a slow event can be inspected.
+ */
+public class PipelineTraceMonitor extends DynamicMBeanProvider {
+  private static final Logger LOG = LoggerFactory.getLogger(PipelineTraceMonitor.class);
+  private static final String EVENT_DN_KEY = "eventName";
+  private static final String PIPELINE_TRACE = "PipelineTrace";
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final ClusterStatusMonitor _clusterStatusMonitor;
+  private final int _capacity;
+  // The retained traces, the fastest of them on the top
+  private final PriorityQueue<PipelineTrace> _slowestTraces =
+      new PriorityQueue<>(Comparator.comparingLong(PipelineTrace::getDurationMs));
+
+  private final SimpleDynamicMetric<Long> _tracedEventCounter;
+  private final SimpleDynamicMetric<Long> _slowestEventDuration;
+  private final SimpleDynamicMetric<String> _slowestEventTraces;
+
+  public PipelineTraceMonitor(ClusterStatusMonitor clusterStatusMonitor, int capacity) {
+    _clusterStatusMonitor = clusterStatusMonitor;
+    _capacity = capacity;
+    _tracedEventCounter = new SimpleDynamicMetric<>("TracedEventCounter", 0L);
+    _slowestEventDuration = new SimpleDynamicMetric<>("SlowestEventDurationGauge", 0L);
+    _slowestEventTraces = new SimpleDynamicMetric<>("SlowestEventTraces", "[]");
+  }
+
+  /**
+   * Record the trace of a processed event.
+   * @return true if the trace is retained as one of the slowest, i.e. the retained traces changed
+   */
+  public synchronized boolean record(PipelineTrace trace) {
+    incrementSimpleDynamicMetric(_tracedEventCounter);
+    if (_capacity <= 0) {
+      return false;
+    }
+    if (_slowestTraces.size() >= _capacity) {
+      if (_slowestTraces.peek().getDurationMs() >= trace.getDurationMs()) {
+        return false;
+      }
+      _slowestTraces.poll();
+    }
+    _slowestTraces.add(trace);
+    _slowestEventDuration.updateValue(
+        Math.max(_slowestEventDuration.getValue(), trace.getDurationMs()));
+    _slowestEventTraces.updateValue(toJson(getSlowestTraces()));
+    return true;
+  }
+
+  /**
+   * @return the retained traces, the slowest first
+   */
+  public synchronized List<PipelineTrace> getSlowestTraces() {
+    List<PipelineTrace> traces = new ArrayList<>(_slowestTraces);
+    traces.sort(Comparator.comparingLong(PipelineTrace::getDurationMs).reversed());
+    return traces;
+  }
+
+  public String getSlowestTracesAsJson() {
+    return _slowestEventTraces.getValue();
+  }
+
+  /**
+   * Serialize the given traces to a JSON array.
+   */
+  public static String toJson(List<PipelineTrace> traces) {
+    List<Object> traceMaps = new ArrayList<>(traces.size());
+    for (PipelineTrace trace : traces) {
+      traceMaps.add(trace.toMap());
+    }
+    try {
+      return OBJECT_MAPPER.writeValueAsString(traceMaps);
+    } catch (JsonProcessingException e) {
+      LOG.warn("Failed to serialize the pipeline traces", e);
+      return "[]";
+    }
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s.%s", MonitorDomainNames.ClusterStatus.name(),
+        _clusterStatusMonitor.getClusterName(), PIPELINE_TRACE);
+  }
+
+  private String getBeanName() {
+    return String.format("%s,%s=%s", _clusterStatusMonitor.clusterBeanName(), EVENT_DN_KEY,
+        PIPELINE_TRACE);
+  }
+
+  @Override
+  public PipelineTraceMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_tracedEventCounter);
+    attributeList.add(_slowestEventDuration);
+    attributeList.add(_slowestEventTraces);
+    doRegister(attributeList, _clusterStatusMonitor.getObjectName(getBeanName()));
+    return this;
+  }
+}
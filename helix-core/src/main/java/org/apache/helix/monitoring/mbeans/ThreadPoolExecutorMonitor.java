@@ -20,20 +20,45 @@ package org.apache.helix.monitoring.mbeans;
  */
 
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
 import javax.management.JMException;
 import javax.management.ObjectName;
 
+import org.apache.helix.messaging.handling.BoundedVirtualThreadExecutor;
+
 public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean {
   public static final String TYPE = "Type";
 
   private ObjectName _objectName;
-  private ThreadPoolExecutor _executor;
   private String _type;
+  private final IntSupplier _coreSize;
+  private final IntSupplier _maxSize;
+  private final IntSupplier _queueSize;
+  private final IntSupplier _activeCount;
 
   public ThreadPoolExecutorMonitor(String type, ThreadPoolExecutor executor)
       throws JMException {
+    this(type, executor::getCorePoolSize, executor::getMaximumPoolSize,
+        () -> executor.getQueue().size(), executor::getActiveCount);
+  }
+
+  /**
+   * Monitor a virtual thread executor as a thread pool whose core and max sizes are both the max
+   * concurrency, and whose active threads are the running tasks.
+   */
+  public ThreadPoolExecutorMonitor(String type, BoundedVirtualThreadExecutor executor)
+      throws JMException {
+    this(type, executor::getMaxConcurrency, executor::getMaxConcurrency,
+        executor::getQueueSize, executor::getActiveCount);
+  }
+
+  private ThreadPoolExecutorMonitor(String type, IntSupplier coreSize, IntSupplier maxSize,
+      IntSupplier queueSize, IntSupplier activeCount) throws JMException {
     _type = type;
-    _executor = executor;
+    _coreSize = coreSize;
+    _maxSize = maxSize;
+    _queueSize = queueSize;
+    _activeCount = activeCount;
     _objectName = MBeanRegistrar
         .register(this, MonitorDomainNames.HelixThreadPoolExecutor.name(), TYPE, type);
   }
@@ -50,21 +75,21 @@ public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean
 
   @Override
   public int getThreadPoolCoreSizeGauge() {
-    return _executor.getCorePoolSize();
+    return _coreSize.getAsInt();
   }
 
   @Override
   public int getThreadPoolMaxSizeGauge() {
-    return _executor.getMaximumPoolSize();
+    return _maxSize.getAsInt();
   }
 
   @Override
   public int getQueueSizeGauge() {
-    return _executor.getQueue().size();
+    return _queueSize.getAsInt();
   }
 
   @Override
   public int getNumOfActiveThreadsGauge() {
-    return _executor.getActiveCount();
+    return _activeCount.getAsInt();
   }
 }
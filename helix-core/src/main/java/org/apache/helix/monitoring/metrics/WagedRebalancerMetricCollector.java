@@ -45,6 +45,9 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
     PartialRebalanceLatencyGauge,
     EmergencyRebalanceLatencyGauge,
     RebalanceOverwriteLatencyGauge,
+    // Latency of building the cluster model and of calculating the assignment on the model
+    ClusterModelBuildLatencyGauge,
+    AssignmentCalcLatencyGauge,
 
     // The following latency metrics are related to AssignmentMetadataStore
     StateReadLatencyGauge,
@@ -107,6 +110,12 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
     LatencyMetric rebalanceOverwriteLatencyGauge =
         new RebalanceLatencyGauge(WagedRebalancerMetricNames.RebalanceOverwriteLatencyGauge.name(),
             getResetIntervalInMs());
+    LatencyMetric clusterModelBuildLatencyGauge =
+        new RebalanceLatencyGauge(WagedRebalancerMetricNames.ClusterModelBuildLatencyGauge.name(),
+            getResetIntervalInMs());
+    LatencyMetric assignmentCalcLatencyGauge =
+        new RebalanceLatencyGauge(WagedRebalancerMetricNames.AssignmentCalcLatencyGauge.name(),
+            getResetIntervalInMs());
     LatencyMetric stateReadLatencyGauge =
         new RebalanceLatencyGauge(WagedRebalancerMetricNames.StateReadLatencyGauge.name(),
             getResetIntervalInMs());
@@ -131,6 +140,8 @@ public class WagedRebalancerMetricCollector extends MetricCollector {
     addMetric(partialRebalanceLatencyGauge);
     addMetric(emergencyRebalanceLatencyGauge);
     addMetric(rebalanceOverwriteLatencyGauge);
+    addMetric(clusterModelBuildLatencyGauge);
+    addMetric(assignmentCalcLatencyGauge);
     addMetric(stateReadLatencyGauge);
     addMetric(stateWriteLatencyGauge);
     addMetric(baselineDivergenceGauge);
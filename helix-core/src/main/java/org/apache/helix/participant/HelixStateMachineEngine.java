@@ -47,6 +47,7 @@ import org.apache.helix.model.StateModelDefinition;
 import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
 import org.apache.helix.participant.statemachine.StateModelParser;
+import org.apache.helix.participant.statemachine.StateTransitionDispatchTable;
 import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.TaskPartitionState;
 import org.slf4j.Logger;
@@ -113,6 +114,8 @@ public class HelixStateMachineEngine implements StateMachineEngine {
     }
 
     _stateModelFactoryMap.get(stateModelName).put(factoryName, factory);
+    // Resolve the transition methods once per StateModel class instead of per message
+    StateTransitionDispatchTable.prepare(factory);
     sendNopMessage();
     return true;
   }
@@ -0,0 +1,218 @@
+package org.apache.helix.participant.statemachine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.helix.NotificationContext;
+import org.apache.helix.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the transition methods of a StateModel class, so the reflective lookup done by
+ * {@link StateModelParser} happens once per class and transition instead of once per message.
+ * Resolved methods are invoked through a {@link MethodHandle}.
+ */
+public class StateTransitionDispatchTable {
+  private static final Logger logger = LoggerFactory.getLogger(StateTransitionDispatchTable.class);
+
+  private static final String CONVENTION_PREFIX = "onBecome";
+  private static final String CONVENTION_FROM = "From";
+  private static final Class<?>[] TRANSITION_PARAM_TYPES = new Class[] {
+      Message.class, NotificationContext.class
+  };
+  private static final MethodType TRANSITION_METHOD_TYPE = MethodType
+      .methodType(Object.class, StateModel.class, Message.class, NotificationContext.class);
+  private static final TransitionMethod NO_TRANSITION_METHOD = new TransitionMethod(null, null);
+  // Kept with the StateModel class, so the table doesn't keep the class and its class loader alive
+  private static final ClassValue<StateTransitionDispatchTable> TABLES =
+      new ClassValue<StateTransitionDispatchTable>() {
+        @Override
+        protected StateTransitionDispatchTable computeValue(Class<?> stateModelClass) {
+          return new StateTransitionDispatchTable(stateModelClass.asSubclass(StateModel.class));
+        }
+      };
+
+  private final Class<? extends StateModel> _stateModelClass;
+  private final StateModelParser _transitionMethodFinder = new StateModelParser();
+  // from state -> to state -> transition method, with the state names in upper case
+  private final Map<String, Map<String, TransitionMethod>> _transitionMethods =
+      new ConcurrentHashMap<>();
+
+  private StateTransitionDispatchTable(Class<? extends StateModel> stateModelClass) {
+    _stateModelClass = stateModelClass;
+  }
+
+  /**
+   * Get the dispatch table of a StateModel class, creating it on first access.
+   * @param stateModelClass the StateModel class
+   * @return the dispatch table shared by all instances of the class
+   */
+  public static StateTransitionDispatchTable getInstance(
+      Class<? extends StateModel> stateModelClass) {
+    return TABLES.get(stateModelClass);
+  }
+
+  /**
+   * Create the dispatch table for the StateModel class produced by a factory, if the class can be
+   * resolved from the factory's type argument.
+   * @param factory the StateModel factory
+   * @return the dispatch table, or null if the StateModel class cannot be resolved
+   */
+  public static StateTransitionDispatchTable prepare(
+      StateModelFactory<? extends StateModel> factory) {
+    Class<? extends StateModel> stateModelClass = resolveStateModelClass(factory.getClass());
+    if (stateModelClass == null) {
+      return null;
+    }
+    StateTransitionDispatchTable table = getInstance(stateModelClass);
+    table.resolveDeclaredTransitions();
+    return table;
+  }
+
+  /**
+   * Get the method handling a transition
+   * @param fromState the from state
+   * @param toState the to state
+   * @return the transition method, or null if the class does not define one
+   */
+  public TransitionMethod getTransitionMethod(String fromState, String toState) {
+    // State names are matched case-insensitively by StateModelParser
+    String fromStateKey = fromState.toUpperCase(Locale.ROOT);
+    Map<String, TransitionMethod> toStateMethods = _transitionMethods.get(fromStateKey);
+    if (toStateMethods == null) {
+      toStateMethods =
+          _transitionMethods.computeIfAbsent(fromStateKey, k -> new ConcurrentHashMap<>());
+    }
+    String toStateKey = toState.toUpperCase(Locale.ROOT);
+    TransitionMethod transitionMethod = toStateMethods.get(toStateKey);
+    if (transitionMethod == null) {
+      transitionMethod = toStateMethods.computeIfAbsent(toStateKey,
+          k -> createTransitionMethod(_transitionMethodFinder.getMethodForTransition(
+              _stateModelClass, fromState, toState, TRANSITION_PARAM_TYPES)));
+    }
+    return transitionMethod == NO_TRANSITION_METHOD ? null : transitionMethod;
+  }
+
+  /**
+   * Resolve the transitions named by the Transition annotations and the "onBecome" + toState +
+   * "From" + fromState methods of the StateModel class, so they are not looked up on the first
+   * message.
+   */
+  private void resolveDeclaredTransitions() {
+    boolean useAnnotation = _stateModelClass.getAnnotation(StateModelInfo.class) != null;
+    for (Method method : _stateModelClass.getMethods()) {
+      Transition annotation = method.getAnnotation(Transition.class);
+      if (useAnnotation && annotation != null) {
+        if (!"*".equals(annotation.from()) && !"*".equals(annotation.to())) {
+          getTransitionMethod(annotation.from(), annotation.to());
+        }
+        continue;
+      }
+      String methodName = method.getName();
+      int fromIndex = methodName.indexOf(CONVENTION_FROM, CONVENTION_PREFIX.length());
+      if (methodName.startsWith(CONVENTION_PREFIX) && fromIndex > CONVENTION_PREFIX.length()
+          && fromIndex + CONVENTION_FROM.length() < methodName.length()) {
+        getTransitionMethod(methodName.substring(fromIndex + CONVENTION_FROM.length()),
+            methodName.substring(CONVENTION_PREFIX.length(), fromIndex));
+      }
+    }
+  }
+
+  private TransitionMethod createTransitionMethod(Method method) {
+    if (method == null) {
+      return NO_TRANSITION_METHOD;
+    }
+    MethodHandle methodHandle = null;
+    try {
+      methodHandle = MethodHandles.publicLookup().unreflect(method).asType(TRANSITION_METHOD_TYPE);
+    } catch (IllegalAccessException e) {
+      // Keep the reflective call, which reports the access failure when the transition runs
+      logger.warn("Cannot create method handle for {} in {}, use reflection instead.",
+          method.getName(), _stateModelClass, e);
+    }
+    return new TransitionMethod(method, methodHandle);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<? extends StateModel> resolveStateModelClass(Class<?> factoryClass) {
+    for (Class<?> clazz = factoryClass; clazz != null && clazz != Object.class;
+        clazz = clazz.getSuperclass()) {
+      Type superType = clazz.getGenericSuperclass();
+      if (superType instanceof ParameterizedType
+          && ((ParameterizedType) superType).getRawType() == StateModelFactory.class) {
+        Type typeArgument = ((ParameterizedType) superType).getActualTypeArguments()[0];
+        if (typeArgument instanceof Class && StateModel.class
+            .isAssignableFrom((Class<?>) typeArgument)) {
+          return (Class<? extends StateModel>) typeArgument;
+        }
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A resolved transition method of a StateModel class
+   */
+  public static class TransitionMethod {
+    private final Method _method;
+    private final MethodHandle _methodHandle;
+
+    private TransitionMethod(Method method, MethodHandle methodHandle) {
+      _method = method;
+      _methodHandle = methodHandle;
+    }
+
+    public Method getMethod() {
+      return _method;
+    }
+
+    /**
+     * Invoke the transition method on a state model. Exceptions thrown by the transition are
+     * wrapped in an InvocationTargetException, the same as a reflective call.
+     * @param stateModel the state model
+     * @param message the state transition message
+     * @param context the notification context
+     * @return the value returned by the transition method, null if it returns void
+     */
+    public Object invoke(StateModel stateModel, Message message, NotificationContext context)
+        throws IllegalAccessException, InvocationTargetException {
+      if (_methodHandle == null) {
+        return _method.invoke(stateModel, message, context);
+      }
+      try {
+        return (Object) _methodHandle.invokeExact(stateModel, message, context);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+}
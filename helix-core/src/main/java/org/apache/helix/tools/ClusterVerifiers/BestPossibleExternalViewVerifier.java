@@ -30,10 +30,13 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.helix.HelixDefinedState;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.HelixRebalanceException;
 import org.apache.helix.PropertyKey;
+import org.apache.helix.common.caches.ExternalViewCache;
 import org.apache.helix.controller.common.PartitionStateMap;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.util.WagedValidationUtil;
 import org.apache.helix.controller.rebalancer.waged.ReadOnlyWagedRebalancer;
 import org.apache.helix.controller.rebalancer.waged.RebalanceAlgorithm;
 import org.apache.helix.controller.stages.AttributeName;
@@ -46,8 +49,10 @@ import org.apache.helix.controller.stages.CurrentStateOutput;
 import org.apache.helix.controller.stages.ResourceComputationStage;
 import org.apache.helix.manager.zk.ZkBucketDataAccessor;
 import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.IdealState;
+import org.apache.helix.model.LiveInstance;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
@@ -70,6 +75,17 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
   private final Set<String> _expectLiveInstances;
   private final ResourceControllerDataProvider _dataProvider;
 
+  // Incremental verification only recomputes the best possible states of the resources whose
+  // inputs changed and only compares the changed external views.
+  private boolean _incrementalVerification = false;
+  private final ExternalViewCache _externalViewCache;
+  private Map<String, Object> _globalInputVersions = Collections.emptyMap();
+  private final Map<String, Map<String, Object>> _resourceInputVersions = new HashMap<>();
+  private final Map<String, PartitionStateMap> _bestPossibleStates = new HashMap<>();
+  // The external views that have been verified against the cached best possible states
+  private final Map<String, ExternalView> _verifiedExternalViews = new HashMap<>();
+  private volatile long _lastTimeToConverge = -1L;
+
   /**
    * Deprecated - please use the Builder to construct this class.
    * @param zkAddr
@@ -92,6 +108,7 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
     _resources = resources;
     _expectLiveInstances = expectLiveInstances;
     _dataProvider = new ResourceControllerDataProvider();
+    _externalViewCache = new ExternalViewCache(clusterName);
     // _zkClient should be closed with BestPossibleExternalViewVerifier
   }
 
@@ -134,6 +151,7 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
     _expectLiveInstances =
         expectLiveInstances == null ? new HashSet<>() : new HashSet<>(expectLiveInstances);
     _dataProvider = new ResourceControllerDataProvider();
+    _externalViewCache = new ExternalViewCache(clusterName);
   }
 
   public static class Builder extends ZkHelixClusterVerifier.Builder<Builder> {
@@ -142,6 +160,7 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
     private Set<String> _resources;
     private Set<String> _expectLiveInstances;
     private RealmAwareZkClient _zkClient;
+    private boolean _incrementalVerification = false;
 
     public Builder(String clusterName) {
       _clusterName = clusterName;
@@ -152,23 +171,27 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
         throw new IllegalArgumentException("Cluster name is missing!");
       }
 
-      // _usesExternalZkClient == true
+      BestPossibleExternalViewVerifier verifier;
       if (_zkClient != null) {
-        return new BestPossibleExternalViewVerifier(_zkClient, _clusterName, _errStates, _resources,
-            _expectLiveInstances, _waitPeriodTillVerify, true);
-      }
-      // _usesExternalZkClient == false
-      if (_realmAwareZkConnectionConfig == null || _realmAwareZkClientConfig == null) {
+        // _usesExternalZkClient == true
+        verifier = new BestPossibleExternalViewVerifier(_zkClient, _clusterName, _errStates,
+            _resources, _expectLiveInstances, _waitPeriodTillVerify, true);
+      } else if (_realmAwareZkConnectionConfig == null || _realmAwareZkClientConfig == null) {
+        // _usesExternalZkClient == false
         // For backward-compatibility
-        return new BestPossibleExternalViewVerifier(_zkAddress, _clusterName, _resources,
+        verifier = new BestPossibleExternalViewVerifier(_zkAddress, _clusterName, _resources,
             _errStates, _expectLiveInstances, _waitPeriodTillVerify);
+      } else {
+        // _usesExternalZkClient == false
+        validate();
+        verifier = new BestPossibleExternalViewVerifier(
+            createZkClient(RealmAwareZkClient.RealmMode.SINGLE_REALM,
+                _realmAwareZkConnectionConfig, _realmAwareZkClientConfig, _zkAddress),
+            _clusterName, _errStates, _resources, _expectLiveInstances, _waitPeriodTillVerify,
+            false);
       }
-
-      validate();
-      return new BestPossibleExternalViewVerifier(
-          createZkClient(RealmAwareZkClient.RealmMode.SINGLE_REALM, _realmAwareZkConnectionConfig,
-              _realmAwareZkClientConfig, _zkAddress), _clusterName, _errStates, _resources,
-          _expectLiveInstances, _waitPeriodTillVerify, false);
+      verifier._incrementalVerification = _incrementalVerification;
+      return verifier;
     }
 
     public String getClusterName() {
@@ -210,6 +233,26 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
       _zkClient = zkClient;
       return this;
     }
+
+    public boolean isIncrementalVerification() {
+      return _incrementalVerification;
+    }
+
+    /**
+     * Enable incremental verification. The verifier caches the best possible states and only
+     * recomputes the resources whose IdealState, ResourceConfig or CurrentStates changed. Any
+     * change to the cluster level inputs (ClusterConfig, LiveInstances, InstanceConfigs, state
+     * model definitions or maintenance signal) triggers a full recomputation. Resources using the
+     * WAGED rebalancer are always recomputed.
+     * Note that best possible states that change over time without any input change, such as
+     * after a delayed rebalance window expires, are only picked up on the next input change.
+     * @param incrementalVerification true to enable incremental verification
+     * @return the builder
+     */
+    public Builder setIncrementalVerification(boolean incrementalVerification) {
+      _incrementalVerification = incrementalVerification;
+      return this;
+    }
   }
 
   @Override
@@ -219,6 +262,7 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
 
   @Override
   public boolean verifyByZkCallback(long timeout) {
+    long startTime = System.currentTimeMillis();
     waitTillVerify();
 
     List<ClusterVerifyTrigger> triggers = new ArrayList<ClusterVerifyTrigger>();
@@ -237,7 +281,20 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
       triggers.add(new ClusterVerifyTrigger(_keyBuilder.externalViews(), false, true, true));
     }
 
-    return verifyByCallback(timeout, triggers);
+    boolean success = verifyByCallback(timeout, triggers);
+    if (success) {
+      _lastTimeToConverge = System.currentTimeMillis() - startTime;
+      LOG.info("{} converged in {} ms", this, _lastTimeToConverge);
+    }
+    return success;
+  }
+
+  /**
+   * @return the time in ms the last successful verifyByZkCallback() took for the cluster to
+   *         converge, or -1 if no verification has succeeded
+   */
+  public long getLastTimeToConverge() {
+    return _lastTimeToConverge;
   }
 
   @Override
@@ -265,10 +322,16 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
         }
       }
 
-      Map<String, ExternalView> extViews =
-          _accessor.getChildValuesMap(keyBuilder.externalViews(), true);
-      if (extViews == null) {
-        extViews = Collections.emptyMap();
+      Map<String, ExternalView> extViews;
+      if (_incrementalVerification) {
+        // Only the changed external views are read from ZK
+        _externalViewCache.refresh(_accessor);
+        extViews = new HashMap<>(_externalViewCache.getExternalViewMap());
+      } else {
+        extViews = _accessor.getChildValuesMap(keyBuilder.externalViews(), true);
+        if (extViews == null) {
+          extViews = Collections.emptyMap();
+        }
       }
 
       // Filter resources if requested
@@ -289,28 +352,15 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
       }
 
       // calculate best possible state
-      BestPossibleStateOutput bestPossOutput = calcBestPossState(_dataProvider, _resources);
-      Map<String, Map<Partition, Map<String, String>>> bestPossStateMap =
-          bestPossOutput.getStateMap();
-
-      // set error states
-      if (_errStates != null) {
-        for (String resourceName : _errStates.keySet()) {
-          Map<String, String> partErrStates = _errStates.get(resourceName);
-          for (String partitionName : partErrStates.keySet()) {
-            String instanceName = partErrStates.get(partitionName);
-
-            if (!bestPossStateMap.containsKey(resourceName)) {
-              bestPossStateMap.put(resourceName, new HashMap<Partition, Map<String, String>>());
-            }
-            Partition partition = new Partition(partitionName);
-            if (!bestPossStateMap.get(resourceName).containsKey(partition)) {
-              bestPossStateMap.get(resourceName).put(partition, new HashMap<String, String>());
-            }
-            bestPossStateMap.get(resourceName).get(partition)
-                .put(instanceName, HelixDefinedState.ERROR.toString());
-          }
-        }
+      BestPossibleStateOutput bestPossOutput;
+      Set<String> recomputedResources;
+      if (_incrementalVerification) {
+        recomputedResources = new HashSet<>();
+        bestPossOutput = calcBestPossStateIncrementally(idealStates, recomputedResources);
+      } else {
+        recomputedResources = idealStates.keySet();
+        bestPossOutput = calcBestPossState(_dataProvider, _resources);
+        setErrorStates(bestPossOutput.getStateMap());
       }
 
       for (String resourceName : idealStates.keySet()) {
@@ -325,6 +375,13 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
           extView = new ExternalView(resourceName);
         }
 
+        // skip the external view if neither it nor the best possible state changed since the
+        // last successful comparison
+        if (!recomputedResources.contains(resourceName)
+            && _verifiedExternalViews.get(resourceName) == extView) {
+          continue;
+        }
+
         // step 0: remove empty map and DROPPED state from best possible state
         PartitionStateMap bpStateMap =
             bestPossOutput.getPartitionStateMap(resourceName);
@@ -349,6 +406,9 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
           }
           return false;
         }
+        if (_incrementalVerification) {
+          _verifiedExternalViews.put(resourceName, extView);
+        }
       }
       return true;
     } catch (Exception e) {
@@ -367,7 +427,10 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
 
     removeEntryWithIgnoredStates(bestPossibleStateMap.entrySet().iterator(), ignoreStates);
 
-    Map<String, Map<String, String>> externalViewMap = externalView.getRecord().getMapFields();
+    // copy the map fields, so the cached external view is not modified
+    Map<String, Map<String, String>> externalViewMap = new HashMap<>();
+    externalView.getRecord().getMapFields()
+        .forEach((partition, stateMap) -> externalViewMap.put(partition, new HashMap<>(stateMap)));
     removeEntryWithIgnoredStates(externalViewMap.entrySet().iterator(), ignoreStates);
 
     return externalViewMap.equals(bestPossibleStateMap);
@@ -397,11 +460,147 @@ public class BestPossibleExternalViewVerifier extends ZkHelixClusterVerifier {
       PartitionStateMap bestPossibleState) {
     Map<String, Map<String, String>> result = new HashMap<String, Map<String, String>>();
     for (Partition partition : bestPossibleState.getStateMap().keySet()) {
-      result.put(partition.getPartitionName(), bestPossibleState.getPartitionMap(partition));
+      result.put(partition.getPartitionName(),
+          new HashMap<>(bestPossibleState.getPartitionMap(partition)));
     }
     return result;
   }
 
+  private void setErrorStates(Map<String, Map<Partition, Map<String, String>>> bestPossStateMap) {
+    if (_errStates != null) {
+      for (String resourceName : _errStates.keySet()) {
+        Map<String, String> partErrStates = _errStates.get(resourceName);
+        for (String partitionName : partErrStates.keySet()) {
+          String instanceName = partErrStates.get(partitionName);
+
+          if (!bestPossStateMap.containsKey(resourceName)) {
+            bestPossStateMap.put(resourceName, new HashMap<Partition, Map<String, String>>());
+          }
+          Partition partition = new Partition(partitionName);
+          if (!bestPossStateMap.get(resourceName).containsKey(partition)) {
+            bestPossStateMap.get(resourceName).put(partition, new HashMap<String, String>());
+          }
+          bestPossStateMap.get(resourceName).get(partition)
+              .put(instanceName, HelixDefinedState.ERROR.toString());
+        }
+      }
+    }
+  }
+
+  /**
+   * Calculate the best possible state of the resources whose inputs changed since the last
+   * verification and reuse the cached best possible state of the others.
+   * @param idealStates the IdealStates of the resources to verify
+   * @param recomputedResources output, the resources whose best possible state is recomputed
+   * @return the best possible state of all the given resources
+   * @throws Exception
+   */
+  private BestPossibleStateOutput calcBestPossStateIncrementally(
+      Map<String, IdealState> idealStates, Set<String> recomputedResources) throws Exception {
+    Map<String, Object> globalInputVersions = getGlobalInputVersions(_dataProvider);
+    if (!globalInputVersions.equals(_globalInputVersions)) {
+      // A cluster level change may affect the best possible state of any resource
+      _resourceInputVersions.clear();
+      _bestPossibleStates.clear();
+      _verifiedExternalViews.clear();
+      _globalInputVersions = globalInputVersions;
+    }
+    _resourceInputVersions.keySet().retainAll(idealStates.keySet());
+    _bestPossibleStates.keySet().retainAll(idealStates.keySet());
+    _verifiedExternalViews.keySet().retainAll(idealStates.keySet());
+
+    Map<String, Map<String, Object>> resourceInputVersions =
+        getResourceInputVersions(_dataProvider, idealStates);
+    for (String resourceName : idealStates.keySet()) {
+      // The WAGED rebalancer calculates the assignment of all its resources globally
+      if (!_bestPossibleStates.containsKey(resourceName)
+          || WagedValidationUtil.isWagedEnabled(idealStates.get(resourceName))
+          || !resourceInputVersions.get(resourceName)
+          .equals(_resourceInputVersions.get(resourceName))) {
+        recomputedResources.add(resourceName);
+      }
+    }
+
+    BestPossibleStateOutput bestPossOutput = new BestPossibleStateOutput();
+    if (!recomputedResources.isEmpty()) {
+      bestPossOutput = calcBestPossState(_dataProvider, recomputedResources);
+      setErrorStates(bestPossOutput.getStateMap());
+      for (String resourceName : recomputedResources) {
+        _bestPossibleStates.put(resourceName, bestPossOutput.getPartitionStateMap(resourceName));
+        _resourceInputVersions.put(resourceName, resourceInputVersions.get(resourceName));
+        _verifiedExternalViews.remove(resourceName);
+      }
+      LOG.info("Recomputed the best possible state of {} out of {} resources.",
+          recomputedResources.size(), idealStates.size());
+    }
+    for (Map.Entry<String, PartitionStateMap> entry : _bestPossibleStates.entrySet()) {
+      if (!recomputedResources.contains(entry.getKey())) {
+        bestPossOutput.setState(entry.getKey(), entry.getValue());
+      }
+    }
+    return bestPossOutput;
+  }
+
+  /**
+   * Get the versions of the cluster level inputs of the best possible state calculation.
+   */
+  private Map<String, Object> getGlobalInputVersions(ResourceControllerDataProvider cache) {
+    Map<String, Object> versions = new HashMap<>();
+    putInputVersion(versions, "ClusterConfig", cache.getClusterConfig());
+    putInputVersion(versions, "MaintenanceSignal", cache.getMaintenanceSignal());
+    cache.getLiveInstances()
+        .forEach((name, liveInstance) -> putInputVersion(versions, "LiveInstance/" + name,
+            liveInstance));
+    cache.getInstanceConfigMap()
+        .forEach((name, config) -> putInputVersion(versions, "InstanceConfig/" + name, config));
+    cache.getStateModelDefMap()
+        .forEach((name, stateModelDef) -> putInputVersion(versions, "StateModelDef/" + name,
+            stateModelDef));
+    return versions;
+  }
+
+  /**
+   * Get the versions of the resource level inputs of the best possible state calculation.
+   */
+  private Map<String, Map<String, Object>> getResourceInputVersions(
+      ResourceControllerDataProvider cache, Map<String, IdealState> idealStates) {
+    Map<String, Map<String, Object>> versions = new HashMap<>();
+    for (Map.Entry<String, IdealState> entry : idealStates.entrySet()) {
+      Map<String, Object> resourceVersions = new HashMap<>();
+      putInputVersion(resourceVersions, "IdealState", entry.getValue());
+      putInputVersion(resourceVersions, "ResourceConfig",
+          cache.getResourceConfig(entry.getKey()));
+      versions.put(entry.getKey(), resourceVersions);
+    }
+    for (LiveInstance liveInstance : cache.getLiveInstances().values()) {
+      String instanceName = liveInstance.getInstanceName();
+      Map<String, CurrentState> currentStates =
+          cache.getCurrentState(instanceName, liveInstance.getEphemeralOwner());
+      for (Map.Entry<String, CurrentState> entry : currentStates.entrySet()) {
+        Map<String, Object> resourceVersions = versions.get(entry.getKey());
+        if (resourceVersions != null) {
+          putInputVersion(resourceVersions, "CurrentState/" + instanceName, entry.getValue());
+        }
+      }
+    }
+    return versions;
+  }
+
+  private static void putInputVersion(Map<String, Object> versions, String key,
+      HelixProperty property) {
+    if (property == null) {
+      return;
+    }
+    HelixProperty.Stat stat = property.getStat();
+    // The stat is not available if the property is not read with it. The stat of a bucketized
+    // property does not reflect the changes of its buckets. Compare the content in these cases.
+    if (stat == null || stat.getVersion() < 0 || property.getBucketSize() > 0) {
+      versions.put(key, property.getRecord());
+    } else {
+      versions.put(key, stat);
+    }
+  }
+
   /**
    * calculate the best possible state note that DROPPED states are not checked since when
    * kick off the BestPossibleStateCalcStage we are providing an empty current state map
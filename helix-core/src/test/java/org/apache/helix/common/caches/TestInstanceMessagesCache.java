@@ -0,0 +1,157 @@
+package org.apache.helix.common.caches;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.MockAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.Message;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the dirty instance tracking of {@link InstanceMessagesCache}
+ */
+public class TestInstanceMessagesCache {
+  private static final String CLUSTER_NAME = "TestInstanceMessagesCache";
+  private static final int INSTANCE_COUNT = 3;
+
+  @Test
+  public void testRefreshOnlyNotifiedInstances() {
+    HelixDataAccessor accessor = new MockAccessor(CLUSTER_NAME);
+    Map<String, LiveInstance> liveInstances = createLiveInstances(INSTANCE_COUNT, "session_0");
+    InstanceMessagesCache cache = new InstanceMessagesCache(CLUSTER_NAME);
+
+    // the first refresh lists every instance
+    addMessage(accessor, "instance_0", "msg_0");
+    cache.refresh(accessor, liveInstances);
+    Assert.assertEquals(cache.getLastScannedInstanceCount(), INSTANCE_COUNT);
+    Assert.assertEquals(cache.getLastSkippedInstanceCount(), 0);
+    Assert.assertTrue(cache.getMessages("instance_0").containsKey("msg_0"));
+
+    // without notification, the message folders are served from the cache
+    addMessage(accessor, "instance_1", "msg_1");
+    cache.refresh(accessor, liveInstances);
+    Assert.assertEquals(cache.getLastScannedInstanceCount(), 0);
+    Assert.assertEquals(cache.getLastSkippedInstanceCount(), INSTANCE_COUNT);
+    Assert.assertTrue(cache.getMessages("instance_1").isEmpty());
+
+    // a child change notification on the message folder
+    cache.notifyMessageChange(accessor.keyBuilder().messages("instance_1").getPath());
+    cache.refresh(accessor, liveInstances);
+    Assert.assertEquals(cache.getLastScannedInstanceCount(), 1);
+    Assert.assertEquals(cache.getLastSkippedInstanceCount(), INSTANCE_COUNT - 1);
+    Assert.assertTrue(cache.getMessages("instance_1").containsKey("msg_1"));
+
+    // a data change notification on a message
+    PropertyKey msgKey = accessor.keyBuilder().message("instance_0", "msg_0");
+    accessor.removeProperty(msgKey);
+    cache.notifyMessageChange(msgKey.getPath());
+    cache.refresh(accessor, liveInstances);
+    Assert.assertEquals(cache.getLastScannedInstanceCount(), 1);
+    Assert.assertTrue(cache.getMessages("instance_0").isEmpty());
+    Assert.assertTrue(cache.getMessages("instance_1").containsKey("msg_1"));
+
+    // an unknown path falls back to the full refresh
+    cache.notifyMessageChange("/" + CLUSTER_NAME + "/INSTANCES");
+    cache.refresh(accessor, liveInstances);
+    Assert.assertEquals(cache.getLastScannedInstanceCount(), INSTANCE_COUNT);
+  }
+
+  @Test
+  public void testRefreshNewInstanceAndSession() {
+    HelixDataAccessor accessor = new MockAccessor(CLUSTER_NAME);
+    Map<String, LiveInstance> liveInstances = createLiveInstances(INSTANCE_COUNT, "session_0");
+    InstanceMessagesCache cache = new InstanceMessagesCache(CLUSTER_NAME);
+    cache.refresh(accessor, liveInstances);
+
+    // an instance restarted with a new session
+    addMessage(accessor, "instance_2", "msg_2");
+    LiveInstance restarted = new LiveInstance("instance_2");
+    restarted.setSessionId("session_1");
+    liveInstances.put("instance_2", restarted);
+    cache.refresh(accessor, liveInstances);
+    Assert.assertEquals(cache.getLastScannedInstanceCount(), 1);
+    Assert.assertTrue(cache.getMessages("instance_2").containsKey("msg_2"));
+
+    // a new instance joined
+    addMessage(accessor, "instance_new", "msg_new");
+    LiveInstance newInstance = new LiveInstance("instance_new");
+    newInstance.setSessionId("session_0");
+    liveInstances.put("instance_new", newInstance);
+    cache.refresh(accessor, liveInstances);
+    Assert.assertEquals(cache.getLastScannedInstanceCount(), 1);
+    Assert.assertEquals(cache.getLastSkippedInstanceCount(), INSTANCE_COUNT);
+    Assert.assertTrue(cache.getMessages("instance_new").containsKey("msg_new"));
+  }
+
+  @Test
+  public void testParallelFullRefresh() {
+    HelixDataAccessor accessor = new MockAccessor(CLUSTER_NAME);
+    int instanceCount = 50;
+    Map<String, LiveInstance> liveInstances = createLiveInstances(instanceCount, "session_0");
+    for (String instance : liveInstances.keySet()) {
+      addMessage(accessor, instance, "msg_" + instance);
+    }
+    InstanceMessagesCache cache = new InstanceMessagesCache(CLUSTER_NAME);
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 20; i++) {
+        cache.requireFullRefresh();
+        cache.refresh(accessor, liveInstances, pool);
+        Assert.assertEquals(cache.getLastScannedInstanceCount(), instanceCount);
+        for (String instance : liveInstances.keySet()) {
+          Assert.assertTrue(cache.getMessages(instance).containsKey("msg_" + instance));
+        }
+      }
+
+      // the listing completes on the calling thread even if the pool is shut down
+      pool.shutdownNow();
+      cache.requireFullRefresh();
+      cache.refresh(accessor, liveInstances, pool);
+      Assert.assertEquals(cache.getLastScannedInstanceCount(), instanceCount);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static Map<String, LiveInstance> createLiveInstances(int count, String sessionId) {
+    Map<String, LiveInstance> liveInstances = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      LiveInstance liveInstance = new LiveInstance("instance_" + i);
+      liveInstance.setSessionId(sessionId);
+      liveInstances.put(liveInstance.getInstanceName(), liveInstance);
+    }
+    return liveInstances;
+  }
+
+  private static void addMessage(HelixDataAccessor accessor, String instance, String msgId) {
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, msgId);
+    message.setTgtName(instance);
+    accessor.setProperty(accessor.keyBuilder().message(instance, msgId), message);
+  }
+}
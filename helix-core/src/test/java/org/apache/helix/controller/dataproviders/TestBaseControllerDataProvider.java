@@ -0,0 +1,98 @@
+package org.apache.helix.controller.dataproviders;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.helix.controller.stages.BaseStageTest;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.Message;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class TestBaseControllerDataProvider extends BaseStageTest {
+
+  @Test
+  public void testConcurrentRefresh() {
+    String[] resources = {"testResourceName1", "testResourceName2"};
+    setupIdealState(5, resources, 10, 1, IdealState.RebalanceMode.SEMI_AUTO);
+    setupStateModel();
+    setupInstances(5);
+    setupLiveInstances(5);
+
+    CurrentState currentState = new CurrentState(resources[0]);
+    currentState.setSessionId(SESSION_PREFIX + "0");
+    currentState.setStateModelDefRef("MasterSlave");
+    currentState.setState(resources[0] + "_0", "MASTER");
+    accessor.setProperty(accessor.keyBuilder()
+        .currentState(HOSTNAME_PREFIX + "0", SESSION_PREFIX + "0", resources[0]), currentState);
+    Message message =
+        new Message(Message.MessageType.STATE_TRANSITION, "testMessage");
+    message.setTgtName(HOSTNAME_PREFIX + "1");
+    message.setTgtSessionId(SESSION_PREFIX + "1");
+    accessor.setProperty(accessor.keyBuilder().message(HOSTNAME_PREFIX + "1", message.getId()),
+        message);
+
+    BaseControllerDataProvider serialProvider = new BaseControllerDataProvider(_clusterName, "Test");
+    serialProvider.refresh(accessor);
+
+    ExecutorService refreshThreadPool = Executors.newFixedThreadPool(4);
+    try {
+      BaseControllerDataProvider concurrentProvider =
+          new BaseControllerDataProvider(_clusterName, "Test");
+      concurrentProvider.setRefreshThreadPool(refreshThreadPool);
+      concurrentProvider.refresh(accessor);
+
+      Assert.assertEquals(concurrentProvider.getClusterConfig(), serialProvider.getClusterConfig());
+      Assert.assertEquals(concurrentProvider.getIdealStates().keySet(),
+          new HashSet<>(Arrays.asList(resources)));
+      Assert.assertEquals(concurrentProvider.getIdealStates(), serialProvider.getIdealStates());
+      Assert.assertEquals(concurrentProvider.getLiveInstances().keySet(),
+          serialProvider.getLiveInstances().keySet());
+      Assert.assertEquals(concurrentProvider.getInstanceConfigMap().keySet(),
+          serialProvider.getInstanceConfigMap().keySet());
+      Assert.assertEquals(concurrentProvider.getAssignableInstances(),
+          serialProvider.getAssignableInstances());
+      Assert.assertEquals(concurrentProvider.getStateModelDefMap().keySet(),
+          serialProvider.getStateModelDefMap().keySet());
+      Assert.assertEquals(
+          concurrentProvider.getCurrentState(HOSTNAME_PREFIX + "0", SESSION_PREFIX + "0"),
+          serialProvider.getCurrentState(HOSTNAME_PREFIX + "0", SESSION_PREFIX + "0"));
+      Assert.assertEquals(concurrentProvider.getMessages(HOSTNAME_PREFIX + "1").keySet(),
+          serialProvider.getMessages(HOSTNAME_PREFIX + "1").keySet());
+      Assert.assertEquals(concurrentProvider.getMessages(HOSTNAME_PREFIX + "1").size(), 1);
+
+      // The latency of every cache refresh is recorded
+      Assert.assertEquals(concurrentProvider.getCacheRefreshLatencies().keySet(),
+          serialProvider.getCacheRefreshLatencies().keySet());
+      Assert.assertTrue(concurrentProvider.getCacheRefreshLatencies().keySet().containsAll(
+          Arrays.asList("ClusterConfig", "IdealState", "LiveInstance", "InstanceConfig",
+              "ResourceConfig", "StateModelDefinition", "ClusterConstraints", "ManagementSignals",
+              "InstanceMessages", "CurrentState")));
+    } finally {
+      refreshThreadPool.shutdownNow();
+    }
+  }
+}
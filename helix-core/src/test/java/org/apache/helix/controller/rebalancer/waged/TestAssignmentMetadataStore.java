@@ -189,6 +189,7 @@ public class TestAssignmentMetadataStore extends ZkTestBase {
     }
     children.remove("LAST_SUCCESSFUL_WRITE");
     children.remove("LAST_WRITE");
+    children.remove("BUCKETS");
     return children;
   }
 }
@@ -21,8 +21,10 @@ package org.apache.helix.controller.rebalancer.waged.constraints;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.helix.HelixRebalanceException;
@@ -30,6 +32,7 @@ import org.apache.helix.controller.rebalancer.waged.model.AssignableReplica;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModel;
 import org.apache.helix.controller.rebalancer.waged.model.ClusterModelTestHelper;
 import org.apache.helix.controller.rebalancer.waged.model.OptimalAssignment;
+import org.apache.helix.model.ResourceAssignment;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -143,4 +146,63 @@ public class TestConstraintBasedAlgorithm {
       Assert.assertEquals(ex.getFailureType(), HelixRebalanceException.Type.FAILED_TO_CALCULATE);
     }
   }
+
+  @Test
+  public void testCalculateByInstanceGroup() throws IOException, HelixRebalanceException {
+    Map<String, Set<String>> instanceTags = new HashMap<>();
+    for (int i = 0; i < 12; i++) {
+      instanceTags.put("Instance" + i, ImmutableSet.of("Tag" + i % 4));
+    }
+    verifySameAssignmentByInstanceGroup(instanceTags);
+
+    // A node with two tags merges the two instance groups.
+    instanceTags.put("Instance12", ImmutableSet.of("Tag0", "Tag1"));
+    verifySameAssignmentByInstanceGroup(instanceTags);
+  }
+
+  @Test(expectedExceptions = HelixRebalanceException.class)
+  public void testCalculateByInstanceGroupFailure()
+      throws IOException, HelixRebalanceException {
+    Map<String, Set<String>> instanceTags = new HashMap<>();
+    for (int i = 0; i < 4; i++) {
+      instanceTags.put("Instance" + i, ImmutableSet.of("Tag" + i % 2));
+    }
+    // Each partition has 3 replicas, but each tag only has 2 instances.
+    getAlgorithm(true).calculate(new ClusterModelTestHelper()
+        .getMultiTenantClusterModel(instanceTags, 2, 4));
+  }
+
+  private void verifySameAssignmentByInstanceGroup(Map<String, Set<String>> instanceTags)
+      throws IOException, HelixRebalanceException {
+    ClusterModel clusterModel =
+        new ClusterModelTestHelper().getMultiTenantClusterModel(instanceTags, 3, 10);
+    Map<String, ResourceAssignment> assignment =
+        getAlgorithm(true).calculate(clusterModel).getOptimalResourceAssignment();
+    Map<String, ResourceAssignment> expectedAssignment = getAlgorithm(false).calculate(
+        new ClusterModelTestHelper().getMultiTenantClusterModel(instanceTags, 3, 10))
+        .getOptimalResourceAssignment();
+    Assert.assertEquals(assignment, expectedAssignment);
+
+    assignment.forEach((resource, resourceAssignment) -> {
+      String tag = resource.substring(0, resource.indexOf('_'));
+      resourceAssignment.getMappedPartitions().forEach(partition -> {
+        Assert.assertEquals(resourceAssignment.getReplicaMap(partition).size(), 3);
+        resourceAssignment.getReplicaMap(partition).keySet()
+            .forEach(instance -> Assert.assertTrue(instanceTags.get(instance).contains(tag)));
+      });
+    });
+  }
+
+  private ConstraintBasedAlgorithm getAlgorithm(boolean splitByInstanceGroup) {
+    List<HardConstraint> hardConstraints =
+        ImmutableList.of(new FaultZoneAwareConstraint(), new NodeCapacityConstraint(),
+            new ReplicaActivateConstraint(), new NodeMaxPartitionLimitConstraint(),
+            new ValidGroupTagConstraint(), new SamePartitionOnInstanceConstraint());
+    Map<SoftConstraint, Float> softConstraints = ImmutableMap
+        .of(new PartitionMovementConstraint(), 2f, new InstancePartitionsCountConstraint(), 1f,
+            new ResourcePartitionAntiAffinityConstraint(), 1f,
+            new TopStateMaxCapacityUsageInstanceConstraint(), 3f,
+            new MaxCapacityUsageInstanceConstraint(), 6f);
+    return new ConstraintBasedAlgorithm(hardConstraints, softConstraints, splitByInstanceGroup);
+  }
 }
@@ -22,11 +22,15 @@ package org.apache.helix.controller.rebalancer.waged.model;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.ResourceConfig;
 
 import static org.mockito.Mockito.when;
 
@@ -56,6 +60,58 @@ public class ClusterModelTestHelper extends AbstractTestClusterModel {
     return getClusterHelper(setupClusterDataCacheForNoFitUtil());
   }
 
+  /**
+   * Generate a cluster model where every resource is restricted to the nodes of one tag.
+   * @param instanceTags <instance name, instance tags>
+   * @param resourcesPerTag the number of resources of each tag
+   * @param partitionsPerResource the number of partitions of each resource, each partition has a
+   *                              MASTER and two SLAVE replicas
+   */
+  public ClusterModel getMultiTenantClusterModel(Map<String, Set<String>> instanceTags,
+      int resourcesPerTag, int partitionsPerResource) throws IOException {
+    initialize();
+    ClusterConfig clusterConfig = new ClusterConfig("testClusterConfigId");
+    clusterConfig.setInstanceCapacityKeys(Collections.singletonList("item1"));
+    clusterConfig.setDefaultPartitionWeightMap(Collections.singletonMap("item1", 1));
+
+    Set<AssignableNode> assignableNodes = new HashSet<>();
+    Set<String> tags = new TreeSet<>();
+    instanceTags.forEach((instanceName, instanceTagSet) -> {
+      InstanceConfig instanceConfig = new InstanceConfig(instanceName);
+      instanceConfig.setInstanceCapacityMap(Collections.singletonMap("item1", 1000));
+      instanceTagSet.forEach(instanceConfig::addTag);
+      assignableNodes.add(new AssignableNode(clusterConfig, instanceConfig, instanceName));
+      tags.addAll(instanceTagSet);
+    });
+
+    Set<AssignableReplica> assignableReplicas = new HashSet<>();
+    int weight = 1;
+    for (String tag : tags) {
+      for (int i = 0; i < resourcesPerTag; i++) {
+        String resourceName = tag + "_Resource" + i;
+        ResourceConfig resourceConfig = new ResourceConfig(resourceName);
+        resourceConfig.getRecord().setSimpleField(
+            ResourceConfig.ResourceConfigProperty.INSTANCE_GROUP_TAG.name(), tag);
+        resourceConfig.setPartitionCapacityMap(Collections.singletonMap(
+            ResourceConfig.DEFAULT_PARTITION_KEY, Collections.singletonMap("item1", weight++)));
+        for (int p = 0; p < partitionsPerResource; p++) {
+          String partitionName = resourceName + "_" + p;
+          assignableReplicas.add(
+              new AssignableReplica(clusterConfig, resourceConfig, partitionName, "MASTER", 1));
+          assignableReplicas.add(
+              new AssignableReplica(clusterConfig, resourceConfig, partitionName, "SLAVE", 2));
+          assignableReplicas.add(
+              new AssignableReplica(clusterConfig, resourceConfig, partitionName, "SLAVE", 2));
+        }
+      }
+    }
+
+    ClusterContext context =
+        new ClusterContext(assignableReplicas, assignableNodes, Collections.emptyMap(),
+            Collections.emptyMap());
+    return new ClusterModel(context, assignableReplicas, assignableNodes);
+  }
+
   private ClusterModel getClusterHelper(ResourceControllerDataProvider testCache)
       throws IOException {
     InstanceConfig testInstanceConfig1 = createMockInstanceConfig(TEST_INSTANCE_ID_1);
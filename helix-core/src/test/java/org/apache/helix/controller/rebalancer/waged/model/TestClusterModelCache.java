@@ -0,0 +1,194 @@
+package org.apache.helix.controller.rebalancer.waged.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.waged.WagedRebalancer;
+import org.apache.helix.model.ClusterConfig;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.Partition;
+import org.apache.helix.model.Resource;
+import org.apache.helix.model.ResourceAssignment;
+import org.apache.helix.model.ResourceConfig;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+public class TestClusterModelCache extends AbstractTestClusterModel {
+
+  @Override
+  protected ResourceControllerDataProvider setupClusterDataCache() throws IOException {
+    ResourceControllerDataProvider testCache = super.setupClusterDataCache();
+    Map<String, IdealState> isMap = new HashMap<>();
+    for (String resource : _resourceNames) {
+      IdealState is = new IdealState(resource);
+      is.setNumPartitions(_partitionNames.size());
+      is.setRebalanceMode(IdealState.RebalanceMode.FULL_AUTO);
+      is.setStateModelDefRef("MasterSlave");
+      is.setReplicas("1");
+      is.setRebalancerClassName(WagedRebalancer.class.getName());
+      _partitionNames.forEach(partition -> is.setPreferenceList(partition, Collections.emptyList()));
+      isMap.put(resource, is);
+    }
+    when(testCache.getIdealState(anyString())).thenAnswer(
+        (Answer<IdealState>) invocationOnMock -> isMap.get(invocationOnMock.getArguments()[0]));
+    return testCache;
+  }
+
+  @Test
+  public void testReuseUnchangedModelObjects() throws IOException {
+    ResourceControllerDataProvider testCache = setupClusterDataCache();
+    ClusterModelCache modelCache = new ClusterModelCache();
+
+    // The first model starts with one replica allocated from the baseline.
+    ResourceAssignment baseline = new ResourceAssignment(_resourceNames.get(0));
+    baseline.addReplicaMap(new Partition(_partitionNames.get(0)),
+        Collections.singletonMap(_testInstanceId, "MASTER"));
+    ClusterModel firstModel = generateModel(testCache, modelCache,
+        Collections.singletonMap(_resourceNames.get(0), baseline));
+    Assert.assertEquals(modelCache.getNodeEntryCount(), 1);
+    Assert.assertEquals(modelCache.getReplicaEntryCount(), 2);
+    Assert.assertEquals(
+        firstModel.getAssignableNodes().get(_testInstanceId).getAssignedReplicaCount(), 1);
+
+    // The cached model matches the model that is built from scratch.
+    ClusterModel expectedModel = ClusterModelProvider
+        .generateClusterModelForBaseline(testCache, getResourceMap(), _instances,
+            Collections.emptyMap(), Collections.singletonMap(_resourceNames.get(0), baseline));
+    assertSameModel(firstModel, expectedModel);
+
+    // The replicas are shared, but the nodes don't carry the previous assignment over.
+    ClusterModel secondModel = generateModel(testCache, modelCache, Collections.emptyMap());
+    AssignableNode firstNode = firstModel.getAssignableNodes().get(_testInstanceId);
+    AssignableNode secondNode = secondModel.getAssignableNodes().get(_testInstanceId);
+    Assert.assertNotSame(secondNode, firstNode);
+    Assert.assertEquals(secondNode.getAssignedReplicaCount(), 0);
+    Assert.assertEquals(secondNode.getRemainingCapacity(), secondNode.getMaxCapacity());
+    Assert.assertEquals(secondNode.getFaultZone(), firstNode.getFaultZone());
+    // The first model doesn't include the allocated replica to be assigned.
+    for (String resource : _resourceNames) {
+      assertSameReplicas(firstModel, secondModel, resource, true);
+    }
+  }
+
+  @Test
+  public void testRebuildChangedModelObjects() throws IOException {
+    ResourceControllerDataProvider testCache = setupClusterDataCache();
+    ClusterModelCache modelCache = new ClusterModelCache();
+    ClusterModel model = generateModel(testCache, modelCache, Collections.emptyMap());
+
+    // A resource config change only rebuilds the replicas of that resource.
+    ResourceConfig resourceConfig = new ResourceConfig(_resourceNames.get(0));
+    resourceConfig.setPartitionCapacityMap(Collections.singletonMap(
+        ResourceConfig.DEFAULT_PARTITION_KEY, Collections.singletonMap("item1", 7)));
+    when(testCache.getResourceConfig(_resourceNames.get(0))).thenReturn(resourceConfig);
+    ClusterModel newModel = generateModel(testCache, modelCache, Collections.emptyMap());
+    assertSameReplicas(newModel, model, _resourceNames.get(0), false);
+    assertSameReplicas(newModel, model, _resourceNames.get(1), true);
+    newModel.getAssignableReplicaMap().get(_resourceNames.get(0))
+        .forEach(replica -> Assert.assertEquals(replica.getCapacity().get("item1"),
+            Integer.valueOf(7)));
+
+    // An instance config change rebuilds the node.
+    InstanceConfig instanceConfig = createMockInstanceConfig(_testInstanceId);
+    Map<String, Integer> capacity = new HashMap<>(_capacityDataMap);
+    capacity.put("item1", 100);
+    instanceConfig.setInstanceCapacityMap(capacity);
+    when(testCache.getAssignableInstanceConfigMap())
+        .thenReturn(Collections.singletonMap(_testInstanceId, instanceConfig));
+    model = newModel;
+    newModel = generateModel(testCache, modelCache, Collections.emptyMap());
+    Assert.assertEquals(newModel.getAssignableNodes().get(_testInstanceId).getMaxCapacity(),
+        capacity);
+    for (String resource : _resourceNames) {
+      assertSameReplicas(newModel, model, resource, true);
+    }
+
+    // A cluster config change rebuilds everything.
+    ClusterConfig clusterConfig = new ClusterConfig(testCache.getClusterConfig().getRecord());
+    clusterConfig.setMaxPartitionsPerInstance(10);
+    when(testCache.getClusterConfig()).thenReturn(clusterConfig);
+    model = newModel;
+    newModel = generateModel(testCache, modelCache, Collections.emptyMap());
+    Assert.assertEquals(newModel.getAssignableNodes().get(_testInstanceId).getMaxPartition(), 10);
+    for (String resource : _resourceNames) {
+      assertSameReplicas(newModel, model, resource, false);
+    }
+
+    // Removed resources are dropped from the cache.
+    ClusterModelProvider.generateClusterModelForBaseline(testCache,
+        Collections.singletonMap(_resourceNames.get(1), new Resource(_resourceNames.get(1))),
+        _instances, Collections.emptyMap(), Collections.emptyMap(), modelCache);
+    Assert.assertEquals(modelCache.getReplicaEntryCount(), 1);
+  }
+
+  private ClusterModel generateModel(ResourceControllerDataProvider testCache,
+      ClusterModelCache modelCache, Map<String, ResourceAssignment> baseline) {
+    return ClusterModelProvider.generateClusterModelForBaseline(testCache, getResourceMap(),
+        _instances, Collections.emptyMap(), baseline, modelCache);
+  }
+
+  private Map<String, Resource> getResourceMap() {
+    return _resourceNames.stream().collect(Collectors.toMap(name -> name, Resource::new));
+  }
+
+  private void assertSameModel(ClusterModel model, ClusterModel expectedModel) {
+    // The replicas don't override hashCode, so they are compared as sorted lists.
+    Assert.assertEquals(model.getAssignableReplicaMap().keySet(),
+        expectedModel.getAssignableReplicaMap().keySet());
+    model.getAssignableReplicaMap().forEach((resource, replicas) -> Assert.assertEquals(
+        replicas.stream().sorted().collect(Collectors.toList()),
+        expectedModel.getAssignableReplicaMap().get(resource).stream().sorted()
+            .collect(Collectors.toList())));
+    Assert.assertEquals(model.getAssignableNodes().keySet(),
+        expectedModel.getAssignableNodes().keySet());
+    for (AssignableNode node : model.getAssignableNodes().values()) {
+      AssignableNode expectedNode = expectedModel.getAssignableNodes().get(node.getInstanceName());
+      Assert.assertEquals(node.getLogicalId(), expectedNode.getLogicalId());
+      Assert.assertEquals(node.getFaultZone(), expectedNode.getFaultZone());
+      Assert.assertEquals(node.getInstanceTags(), expectedNode.getInstanceTags());
+      Assert.assertEquals(node.getDisabledPartitionsMap(), expectedNode.getDisabledPartitionsMap());
+      Assert.assertEquals(node.getMaxPartition(), expectedNode.getMaxPartition());
+      Assert.assertEquals(node.getMaxCapacity(), expectedNode.getMaxCapacity());
+      Assert.assertEquals(node.getRemainingCapacity(), expectedNode.getRemainingCapacity());
+      Assert.assertEquals(node.getAssignedPartitionsMap(), expectedNode.getAssignedPartitionsMap());
+    }
+  }
+
+  private void assertSameReplicas(ClusterModel model, ClusterModel otherModel, String resource,
+      boolean shared) {
+    Set<AssignableReplica> replicas = model.getAssignableReplicaMap().get(resource);
+    Set<AssignableReplica> otherReplicas = otherModel.getAssignableReplicaMap().get(resource);
+    for (AssignableReplica replica : replicas) {
+      Assert.assertEquals(otherReplicas.stream().anyMatch(other -> other == replica), shared);
+    }
+  }
+}
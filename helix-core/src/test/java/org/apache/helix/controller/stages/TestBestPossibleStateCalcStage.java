@@ -23,7 +23,9 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
+import org.apache.helix.controller.rebalancer.strategy.GreedyRebalanceStrategy;
 import org.apache.helix.model.BuiltInStateModelDefinitions;
 import org.apache.helix.model.ClusterConfig;
 import org.apache.helix.model.IdealState.RebalanceMode;
@@ -144,4 +146,88 @@ public class TestBestPossibleStateCalcStage extends BaseStageTest {
         output.getInstanceStateMap("testResourceName", new Partition("testResourceName_1"))
             .get("localhost_2"));
   }
+
+  @Test
+  public void testShardedCalculation() {
+    String[] resources = new String[8];
+    for (int i = 0; i < resources.length; i++) {
+      resources[i] = "testResource_" + i;
+    }
+    int numInstances = 5;
+    int numPartitions = 4;
+
+    setupIdealState(numInstances, resources, numPartitions, 2, RebalanceMode.FULL_AUTO,
+        BuiltInStateModelDefinitions.MasterSlave.name());
+    setupLiveInstances(numInstances);
+    setupStateModel();
+    setupInstances(numInstances);
+
+    Map<String, Resource> resourceMap =
+        getResourceMap(resources, numPartitions, BuiltInStateModelDefinitions.MasterSlave.name());
+    BestPossibleStateOutput expectedOutput = runBestPossibleStateCalcStage(resourceMap);
+
+    System.setProperty(SystemPropertyKeys.CONTROLLER_REBALANCE_SHARDS, "4");
+    try {
+      event = new ClusterEvent(ClusterEventType.Unknown);
+      BestPossibleStateOutput output = runBestPossibleStateCalcStage(resourceMap);
+      // The sharded calculation gets the same result as the sequential one.
+      Assert.assertEquals(output.getStateMap(), expectedOutput.getStateMap());
+      Assert.assertEquals(output.getPreferenceLists(), expectedOutput.getPreferenceLists());
+      Assert.assertEquals(output.getStateMap().size(), resources.length);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.CONTROLLER_REBALANCE_SHARDS);
+    }
+  }
+
+  @Test
+  public void testShardedCalculationWithSharedCapacity() {
+    String[] resources = new String[8];
+    for (int i = 0; i < resources.length; i++) {
+      resources[i] = "testResource_" + i;
+    }
+    int numInstances = 5;
+    int numPartitions = 4;
+
+    // The greedy strategy assigns the partitions against the capacities shared by the resources.
+    // There is not enough capacity for all the replicas, so the result depends on the order.
+    setupIdealState(numInstances, resources, numPartitions, 2, RebalanceMode.FULL_AUTO,
+        BuiltInStateModelDefinitions.MasterSlave.name(), null,
+        GreedyRebalanceStrategy.class.getName(), -1);
+    setupLiveInstances(numInstances);
+    setupStateModel();
+    setupInstances(numInstances);
+    ClusterConfig clusterConfig = accessor.getProperty(accessor.keyBuilder().clusterConfig());
+    clusterConfig.setGlobalMaxPartitionAllowedPerInstance(6);
+    setClusterConfig(clusterConfig);
+
+    Map<String, Resource> resourceMap =
+        getResourceMap(resources, numPartitions, BuiltInStateModelDefinitions.MasterSlave.name());
+    BestPossibleStateOutput expectedOutput = runBestPossibleStateCalcStage(resourceMap);
+
+    System.setProperty(SystemPropertyKeys.CONTROLLER_REBALANCE_SHARDS, "4");
+    try {
+      for (int i = 0; i < 5; i++) {
+        event = new ClusterEvent(ClusterEventType.Unknown);
+        BestPossibleStateOutput output = runBestPossibleStateCalcStage(resourceMap);
+        // The resources are calculated in one shard, so the result is the same every time.
+        Assert.assertEquals(output.getStateMap(), expectedOutput.getStateMap());
+        Assert.assertEquals(output.getPreferenceLists(), expectedOutput.getPreferenceLists());
+      }
+    } finally {
+      System.clearProperty(SystemPropertyKeys.CONTROLLER_REBALANCE_SHARDS);
+    }
+  }
+
+  private BestPossibleStateOutput runBestPossibleStateCalcStage(
+      Map<String, Resource> resourceMap) {
+    event.addAttribute(AttributeName.helixmanager.name(), manager);
+    event.addAttribute(AttributeName.RESOURCES.name(), resourceMap);
+    event.addAttribute(AttributeName.RESOURCES_TO_REBALANCE.name(), resourceMap);
+    event.addAttribute(AttributeName.CURRENT_STATE.name(), new CurrentStateOutput());
+    event.addAttribute(AttributeName.ControllerDataProvider.name(),
+        new ResourceControllerDataProvider());
+    runStage(event, new ReadClusterDataStage());
+    runStage(event, new BestPossibleStateCalcStage());
+    return event.getAttribute(AttributeName.BEST_POSSIBLE_STATE.name());
+  }
 }
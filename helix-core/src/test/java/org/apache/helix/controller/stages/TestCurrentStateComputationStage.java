@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
 
+import org.apache.helix.HelixConstants;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.controller.dataproviders.WorkflowControllerDataProvider;
 import org.apache.helix.model.ClusterConfig;
@@ -94,6 +95,8 @@ public class TestCurrentStateComputationStage extends BaseStageTest {
 
     Builder keyBuilder = accessor.keyBuilder();
     accessor.setProperty(keyBuilder.message("localhost_" + 3, message.getId()), message);
+    dataCache.notifyDataChange(HelixConstants.ChangeType.MESSAGE,
+        keyBuilder.messages("localhost_" + 3).getPath());
 
     runStage(event, new ReadClusterDataStage());
     runStage(event, stage);
@@ -159,6 +162,8 @@ public class TestCurrentStateComputationStage extends BaseStageTest {
     message.setTgtName("localhost_3");
     message.setTgtSessionId("session_3");
     accessor.setProperty(keyBuilder.message("localhost_" + 3, message.getId()), message);
+    dataCache.notifyDataChange(HelixConstants.ChangeType.MESSAGE,
+        keyBuilder.messages("localhost_" + 3).getPath());
 
     runStage(event, new ReadClusterDataStage());
     runStage(event, stage);
@@ -0,0 +1,186 @@
+package org.apache.helix.controller.stages;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.helix.model.ClusterConstraints;
+import org.apache.helix.model.ClusterConstraints.ConstraintAttribute;
+import org.apache.helix.model.ClusterConstraints.ConstraintType;
+import org.apache.helix.model.ConstraintItem;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageType;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestMessageConstraintIndex {
+  private static final String[] INSTANCES = {"localhost_0", "localhost_1", "localhost_2"};
+  private static final String[] RESOURCES = {"TestDB", "TestDB2", "MyDB"};
+  private static final String[] TRANSITIONS = {"OFFLINE-SLAVE", "SLAVE-MASTER", "MASTER-SLAVE"};
+
+  @Test
+  public void testMatchesLegacyThrottling() {
+    Random random = new Random(42);
+    for (int round = 0; round < 50; round++) {
+      ClusterConstraints constraints = randomConstraints(random, 1 + random.nextInt(12));
+      MessageThrottleStage stage = new MessageThrottleStage();
+      MessageConstraintIndex index = new MessageConstraintIndex(constraints, stage);
+
+      // run two passes to also cover decisions resolved by a previous pass
+      for (int pass = 0; pass < 2; pass++) {
+        MessageConstraintIndex.Counters counters = index.newCounters();
+        Map<String, Integer> legacyCounters = new HashMap<>();
+        for (int i = 0; i < 200; i++) {
+          Message message = randomMessage(random);
+          boolean expected = legacyThrottled(stage, constraints, legacyCounters, message);
+          Assert.assertEquals(counters.charge(message) != null, expected,
+              "Mismatch for " + message.getRecord() + " with " + constraints.getRecord());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRecompileOnChange() {
+    ClusterConstraints constraints = new ClusterConstraints(ConstraintType.MESSAGE_CONSTRAINT);
+    constraints.addConstraintItem("c0", item("1", ConstraintAttribute.INSTANCE, ".*"));
+    MessageConstraintIndex index = new MessageConstraintIndex(constraints, new MessageThrottleStage());
+    Assert.assertTrue(index.isCompiledFrom(constraints));
+    Assert.assertTrue(index.isCompiledFrom(new ClusterConstraints(constraints.getRecord())));
+    Assert.assertEquals(index.getGroupCount(), 1);
+
+    MessageConstraintIndex.Counters counters = index.newCounters();
+    Assert.assertNull(counters.charge(message("localhost_0", "TestDB", "TestDB_0")));
+    Assert.assertNotNull(counters.charge(message("localhost_0", "TestDB", "TestDB_1")));
+    Assert.assertNull(counters.charge(message("localhost_1", "TestDB", "TestDB_0")));
+    Assert.assertEquals(index.getResolvedSlotCount(), 2);
+
+    // a fresh pass starts with full budgets but keeps the resolved slots
+    counters = index.newCounters();
+    Assert.assertNull(counters.charge(message("localhost_0", "TestDB", "TestDB_0")));
+    Assert.assertEquals(index.getResolvedSlotCount(), 2);
+
+    constraints.addConstraintItem("c1", item("ANY", ConstraintAttribute.RESOURCE, "TestDB"));
+    Assert.assertFalse(index.isCompiledFrom(constraints));
+    // constraints with CONSTRAINT_VALUE=ANY are never selected
+    Assert.assertEquals(new MessageConstraintIndex(constraints, new MessageThrottleStage())
+        .getGroupCount(), 1);
+  }
+
+  private boolean legacyThrottled(MessageThrottleStage stage, ClusterConstraints constraints,
+      Map<String, Integer> throttleMap, Message message) {
+    Map<ConstraintAttribute, String> msgAttr = ClusterConstraints.toConstraintAttributes(message);
+    Set<ConstraintItem> matches = stage.selectConstraints(constraints.match(msgAttr), msgAttr);
+    boolean throttled = false;
+    for (ConstraintItem item : matches) {
+      String key = item.filter(msgAttr).toString();
+      if (!throttleMap.containsKey(key)) {
+        throttleMap.put(key, stage.valueOf(item.getConstraintValue()));
+      }
+      int value = throttleMap.get(key) - 1;
+      throttleMap.put(key, value);
+      throttled |= value < 0;
+    }
+    return throttled;
+  }
+
+  private ClusterConstraints randomConstraints(Random random, int count) {
+    ZNRecord record = new ZNRecord(ConstraintType.MESSAGE_CONSTRAINT.toString());
+    Set<Map<String, String>> attributes = new HashSet<>();
+    for (int i = 0; i < count; i++) {
+      Map<String, String> fields = new TreeMap<>();
+      if (random.nextBoolean()) {
+        fields.put(ConstraintAttribute.MESSAGE_TYPE.name(),
+            random.nextInt(4) == 0 ? ".*" : MessageType.STATE_TRANSITION.name());
+      }
+      if (random.nextBoolean()) {
+        fields.put(ConstraintAttribute.TRANSITION.name(), pick(random, TRANSITIONS, "OFFLINE-.*"));
+      }
+      if (random.nextBoolean()) {
+        fields.put(ConstraintAttribute.RESOURCE.name(), pick(random, RESOURCES, "TestDB.*"));
+      }
+      if (random.nextBoolean()) {
+        fields.put(ConstraintAttribute.INSTANCE.name(), pick(random, INSTANCES, "localhost_[01]"));
+      }
+      if (random.nextInt(4) == 0) {
+        fields.put(ConstraintAttribute.PARTITION.name(), "TestDB_" + random.nextInt(3));
+      }
+      if (fields.isEmpty()) {
+        fields.put(ConstraintAttribute.INSTANCE.name(), ".*");
+      }
+      // identical attributes make the legacy selection depend on hash set iteration order
+      if (attributes.contains(fields)) {
+        continue;
+      }
+      attributes.add(new TreeMap<>(fields));
+      fields.put(ConstraintAttribute.CONSTRAINT_VALUE.name(),
+          random.nextInt(5) == 0 ? "ANY" : Integer.toString(random.nextInt(6)));
+      record.setMapField("constraint" + i, fields);
+    }
+    return new ClusterConstraints(record);
+  }
+
+  private String pick(Random random, String[] values, String pattern) {
+    int i = random.nextInt(values.length + 2);
+    if (i < values.length) {
+      return values[i];
+    }
+    return i == values.length ? ".*" : pattern;
+  }
+
+  private Message randomMessage(Random random) {
+    String resource = RESOURCES[random.nextInt(RESOURCES.length)];
+    MessageType type =
+        random.nextInt(10) == 0 ? MessageType.SCHEDULER_MSG : MessageType.STATE_TRANSITION;
+    Message message = message(type, INSTANCES[random.nextInt(INSTANCES.length)], resource,
+        resource + "_" + random.nextInt(3));
+    String[] states = TRANSITIONS[random.nextInt(TRANSITIONS.length)].split("-");
+    message.setFromState(states[0]);
+    message.setToState(states[1]);
+    return message;
+  }
+
+  private Message message(String instance, String resource, String partition) {
+    return message(MessageType.STATE_TRANSITION, instance, resource, partition);
+  }
+
+  private Message message(MessageType type, String instance, String resource, String partition) {
+    Message message = new Message(type, UUID.randomUUID().toString());
+    message.setTgtName(instance);
+    message.setResourceName(resource);
+    message.setPartitionName(partition);
+    message.setFromState("OFFLINE");
+    message.setToState("SLAVE");
+    return message;
+  }
+
+  private ConstraintItem item(String value, ConstraintAttribute attribute, String attributeValue) {
+    Map<ConstraintAttribute, String> attributes = new TreeMap<>();
+    attributes.put(attribute, attributeValue);
+    return new ConstraintItem(attributes, value);
+  }
+}
@@ -29,6 +29,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.apache.helix.HelixAdmin;
+import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.PropertyKey.Builder;
@@ -380,6 +381,8 @@ public class TestRebalancePipeline extends ZkUnitTestBase {
     Builder keyBuilder = accessor.keyBuilder();
     List<String> msgIds = accessor.getChildNames(keyBuilder.messages("localhost_0"));
     accessor.removeProperty(keyBuilder.message("localhost_0", msgIds.get(0)));
+    cache.notifyDataChange(HelixConstants.ChangeType.MESSAGE,
+        keyBuilder.messages("localhost_0").getPath());
     runPipeline(event, dataRefresh, false);
     runPipeline(event, rebalancePipeline, false);
     msgSelOutput = event.getAttribute(AttributeName.MESSAGES_SELECTED.name());
@@ -0,0 +1,117 @@
+package org.apache.helix.integration.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Date;
+
+import org.apache.helix.PropertyKey;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.TestHelper;
+import org.apache.helix.common.ZkTestBase;
+import org.apache.helix.integration.manager.ClusterControllerManager;
+import org.apache.helix.integration.manager.MockParticipantManager;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
+import org.apache.helix.tools.ClusterVerifiers.ZkHelixClusterVerifier;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBatchedTransitionCommit extends ZkTestBase {
+
+  @Test
+  public void testBatchedTransitionCommit() throws Exception {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+    int n = 2;
+    int partitions = 64;
+
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    TestHelper.setupCluster(clusterName, ZK_ADDR, 12918, // participant port
+        "localhost", // participant name prefix
+        "TestDB", // resource name prefix
+        1, // resources
+        partitions, // partitions per resource
+        n, // number of nodes
+        2, // replicas
+        "MasterSlave", true); // do rebalance
+
+    ClusterControllerManager controller =
+        new ClusterControllerManager(ZK_ADDR, clusterName, "controller_0");
+    MockParticipantManager[] participants = new MockParticipantManager[n];
+    System.setProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_COMMIT_MAX_BATCH_SIZE, "16");
+    System.setProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_COMMIT_LINGER_MS, "20");
+    try {
+      controller.syncStart();
+      for (int i = 0; i < n; i++) {
+        String instanceName = "localhost_" + (12918 + i);
+        participants[i] = new MockParticipantManager(ZK_ADDR, clusterName, instanceName);
+        participants[i].syncStart();
+      }
+
+      ZkHelixClusterVerifier verifier =
+          new BestPossibleExternalViewVerifier.Builder(clusterName).setZkClient(_gZkClient)
+              .setWaitTillVerify(TestHelper.DEFAULT_REBALANCE_PROCESSING_WAIT_TIME).build();
+      try {
+        Assert.assertTrue(verifier.verifyByPolling());
+
+        // All the transitions are committed, and no message is left behind.
+        ZKHelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, _baseAccessor);
+        PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+        for (MockParticipantManager participant : participants) {
+          String instanceName = participant.getInstanceName();
+          CurrentState currentState = accessor.getProperty(
+              keyBuilder.currentState(instanceName, participant.getSessionId(), "TestDB0"));
+          Assert.assertEquals(currentState.getPartitionStateMap().size(), partitions);
+          Assert.assertTrue(TestHelper.verify(
+              () -> accessor.getChildNames(keyBuilder.messages(instanceName)).isEmpty(),
+              TestHelper.WAIT_DURATION));
+        }
+
+        // Dropped partitions are removed from the current states.
+        _gSetupTool.dropResourceFromCluster(clusterName, "TestDB0");
+        Assert.assertTrue(verifier.verifyByPolling());
+        for (MockParticipantManager participant : participants) {
+          Assert.assertTrue(TestHelper.verify(() -> {
+            CurrentState currentState = accessor.getProperty(keyBuilder.currentState(
+                participant.getInstanceName(), participant.getSessionId(), "TestDB0"));
+            return currentState == null || currentState.getPartitionStateMap().isEmpty();
+          }, TestHelper.WAIT_DURATION));
+        }
+      } finally {
+        verifier.close();
+      }
+    } finally {
+      System.clearProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_COMMIT_MAX_BATCH_SIZE);
+      System.clearProperty(SystemPropertyKeys.PARTICIPANT_TRANSITION_COMMIT_LINGER_MS);
+      controller.syncStop();
+      for (MockParticipantManager participant : participants) {
+        if (participant != null) {
+          participant.syncStop();
+        }
+      }
+      deleteCluster(clusterName);
+    }
+
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+}
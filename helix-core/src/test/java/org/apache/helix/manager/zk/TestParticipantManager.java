@@ -19,6 +19,9 @@ package org.apache.helix.manager.zk;
  * under the License.
  */
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 
@@ -28,6 +31,7 @@ import org.apache.helix.TestHelper;
 import org.apache.helix.ZkTestHelper;
 import org.apache.helix.common.ZkTestBase;
 import org.apache.helix.integration.manager.MockParticipantManager;
+import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
 import org.apache.helix.task.TaskConstants;
@@ -189,6 +193,77 @@ public class TestParticipantManager extends ZkTestBase {
     deleteCluster(clusterName);
   }
 
+  @Test
+  public void testCarryOverPreviousCurrentState() throws Exception {
+    final String className = TestHelper.getTestClassName();
+    final String methodName = TestHelper.getTestMethodName();
+    final String clusterName = className + "_" + methodName;
+    final int numResources = 30;
+    final int numPartitions = 5;
+
+    final ZKHelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName,
+        new ZkBaseDataAccessor.Builder<ZNRecord>().setZkAddress(ZK_ADDR).build());
+    final PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    TestHelper.setupCluster(clusterName, ZK_ADDR, 12918, // participant port
+        "localhost", // participant name prefix
+        "TestDB", // resource name prefix
+        1, // resources
+        10, // partitions per resource
+        1, // number of nodes
+        1, // replicas
+        "MasterSlave", false); // do rebalance
+
+    final String instanceName = "localhost_12918";
+    final String oldSessionId = "oldSession";
+    final String newSessionId = "newSession";
+    for (int i = 0; i < numResources; i++) {
+      CurrentState currentState = new CurrentState("Resource" + i);
+      currentState.setSessionId(oldSessionId);
+      currentState.setStateModelDefRef("MasterSlave");
+      for (int j = 0; j < numPartitions; j++) {
+        currentState.setState("Resource" + i + "_" + j, "MASTER");
+      }
+      accessor.setProperty(keyBuilder.currentState(instanceName, oldSessionId, "Resource" + i),
+          currentState);
+    }
+    // Task current states are not carried over
+    CurrentState taskCurrentState = new CurrentState("TaskResource");
+    taskCurrentState.setSessionId(oldSessionId);
+    taskCurrentState.setStateModelDefRef(TaskConstants.STATE_MODEL_NAME);
+    taskCurrentState.setState("TaskResource_0", "RUNNING");
+    accessor.setProperty(keyBuilder.currentState(instanceName, oldSessionId, "TaskResource"),
+        taskCurrentState);
+    // A partition already in the current state of new session is not overwritten
+    CurrentState newCurrentState = new CurrentState("Resource0");
+    newCurrentState.setSessionId(newSessionId);
+    newCurrentState.setStateModelDefRef("MasterSlave");
+    newCurrentState.setState("Resource0_0", "SLAVE");
+    accessor.setProperty(keyBuilder.currentState(instanceName, newSessionId, "Resource0"),
+        newCurrentState);
+
+    ParticipantManager.carryOverPreviousCurrentState(accessor, instanceName, newSessionId, null,
+        true);
+
+    Assert.assertEquals(accessor.getChildNames(keyBuilder.sessions(instanceName)),
+        Collections.singletonList(newSessionId));
+    List<CurrentState> carriedOver =
+        accessor.getChildValues(keyBuilder.currentStates(instanceName, newSessionId), true);
+    Assert.assertEquals(carriedOver.size(), numResources);
+    for (CurrentState currentState : carriedOver) {
+      Assert.assertEquals(currentState.getSessionId(), newSessionId);
+      Assert.assertEquals(currentState.getPartitionStateMap().size(), numPartitions);
+      for (Map.Entry<String, String> partitionState : currentState.getPartitionStateMap()
+          .entrySet()) {
+        String expectedState =
+            partitionState.getKey().equals("Resource0_0") ? "SLAVE" : "OFFLINE";
+        Assert.assertEquals(partitionState.getValue(), expectedState);
+      }
+    }
+
+    deleteCluster(clusterName);
+  }
+
   /*
    * Mocks PreConnectCallback to insert session expiry during ParticipantManager#handleNewSession()
    */
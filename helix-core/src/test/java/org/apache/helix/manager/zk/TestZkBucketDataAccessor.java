@@ -21,23 +21,29 @@ package org.apache.helix.manager.zk;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.BucketDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixProperty;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.TestHelper;
 import org.apache.helix.common.ZkTestBase;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordJacksonSerializer;
 import org.apache.helix.zookeeper.impl.factory.DedicatedZkClientFactory;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
 import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.testng.Assert;
@@ -50,6 +56,7 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
   private static final String NAME_KEY = TestHelper.getTestClassName();
   private static final String LAST_SUCCESSFUL_WRITE_KEY = "LAST_SUCCESSFUL_WRITE";
   private static final String LAST_WRITE_KEY = "LAST_WRITE";
+  private static final String BUCKETS_KEY = "BUCKETS";
   private static final long VERSION_TTL_MS = 1000L;
 
   // Populate list and map fields for content comparison
@@ -59,6 +66,7 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
   private final ZNRecord record = new ZNRecord(NAME_KEY);
 
   private BucketDataAccessor _bucketDataAccessor;
+  private BucketDataAccessor _legacyBucketDataAccessor;
   private BaseDataAccessor<byte[]> _zkBaseDataAccessor;
 
   @BeforeClass
@@ -81,7 +89,13 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
       }
     });
     _zkBaseDataAccessor = new ZkBaseDataAccessor<>(zkClient);
-    _bucketDataAccessor = new ZkBucketDataAccessor(zkClient, 50 * 1024, VERSION_TTL_MS);
+    _legacyBucketDataAccessor = new ZkBucketDataAccessor(zkClient, 50 * 1024, VERSION_TTL_MS);
+    System.setProperty(SystemPropertyKeys.ZK_BUCKET_DATA_ACCESSOR_DELTA_WRITE_ENABLED, "true");
+    try {
+      _bucketDataAccessor = new ZkBucketDataAccessor(zkClient, 50 * 1024, VERSION_TTL_MS);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.ZK_BUCKET_DATA_ACCESSOR_DELTA_WRITE_ENABLED);
+    }
 
     // Fill in some data for the record
     record.setSimpleField(NAME_KEY, NAME_KEY);
@@ -92,6 +106,7 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
   @AfterClass
   public void afterClass() {
     _bucketDataAccessor.disconnect();
+    _legacyBucketDataAccessor.disconnect();
   }
 
   /**
@@ -138,15 +153,21 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
         // Use Verifier because GC can take ZK delay
         Assert.assertTrue(TestHelper.verify(() -> {
           List<String> children = _zkBaseDataAccessor.getChildNames(path, AccessOption.PERSISTENT);
-          return children.size() == 3 && children.containsAll(ImmutableList
-              .of(LAST_SUCCESSFUL_WRITE_KEY, LAST_WRITE_KEY, new Long(lastSuccessfulWriteVer).toString()));
+          return children.size() == 4 && children.containsAll(ImmutableList
+              .of(LAST_SUCCESSFUL_WRITE_KEY, LAST_WRITE_KEY, BUCKETS_KEY,
+                  new Long(lastSuccessfulWriteVer).toString()));
         }, VERSION_TTL_MS * 2));
 
         // Wait one more TTL to ensure that the GC has been done.
         Thread.sleep(VERSION_TTL_MS);
         List<String> children = _zkBaseDataAccessor.getChildNames(path, AccessOption.PERSISTENT);
-        Assert.assertTrue(children.size() == 3 && children.containsAll(ImmutableList
-            .of(LAST_SUCCESSFUL_WRITE_KEY, LAST_WRITE_KEY, new Long(lastSuccessfulWriteVer).toString())));
+        Assert.assertTrue(children.size() == 4 && children.containsAll(ImmutableList
+            .of(LAST_SUCCESSFUL_WRITE_KEY, LAST_WRITE_KEY, BUCKETS_KEY,
+                new Long(lastSuccessfulWriteVer).toString())));
+        // The same record is written every time, so all versions share the same bucket
+        Assert.assertEquals(
+            _zkBaseDataAccessor.getChildNames(path + "/" + BUCKETS_KEY, AccessOption.PERSISTENT)
+                .size(), 1);
       }
     } finally {
       for (int j = 0; j < pathCount; j++) {
@@ -193,6 +214,176 @@ public class TestZkBucketDataAccessor extends ZkTestBase {
     Assert.assertEquals(readRecord, property);
   }
 
+  /**
+   * Rewriting a record with a few changed entries only writes the buckets around the changes,
+   * and the buckets that are no longer referenced are removed by the GC.
+   */
+  @Test(dependsOnMethods = "testLargeWriteAndRead")
+  public void testDeltaWrite() throws Exception {
+    String path = "/" + TestHelper.getTestMethodName();
+    String bucketsPath = path + "/" + BUCKETS_KEY;
+    HelixProperty property = new HelixProperty(TestHelper.getTestMethodName());
+    for (int i = 0; i < 20000; i++) {
+      property.getRecord().setMapField("TestDB_" + i,
+          ImmutableMap.of("localhost_" + i % 7, "MASTER", "localhost_" + (i + 1) % 7, "SLAVE"));
+    }
+
+    try {
+      _bucketDataAccessor.compressedBucketWrite(path, property);
+      int initialBucketCount =
+          _zkBaseDataAccessor.getChildNames(bucketsPath, AccessOption.PERSISTENT).size();
+      Assert.assertTrue(initialBucketCount > 3,
+          "The record should span several buckets, but got: " + initialBucketCount);
+
+      int changedPartitions = 3;
+      for (int i = 0; i < changedPartitions; i++) {
+        property.getRecord().setMapField("TestDB_" + i * 5000,
+            ImmutableMap.of("localhost_100", "MASTER", "localhost_101", "SLAVE"));
+      }
+      _bucketDataAccessor.compressedBucketWrite(path, property);
+      int newBucketCount =
+          _zkBaseDataAccessor.getChildNames(bucketsPath, AccessOption.PERSISTENT).size()
+              - initialBucketCount;
+      Assert.assertTrue(newBucketCount > 0 && newBucketCount <= 2 * changedPartitions,
+          "Unexpected number of new buckets: " + newBucketCount);
+      Assert.assertEquals(_bucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+
+      // Only the buckets of the latest version remain after the GC
+      Assert.assertTrue(TestHelper.verify(() -> _zkBaseDataAccessor
+          .getChildNames(bucketsPath, AccessOption.PERSISTENT).size() <= initialBucketCount,
+          VERSION_TTL_MS * 5));
+      Assert.assertEquals(_bucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+    } finally {
+      _bucketDataAccessor.compressedBucketDelete(path);
+    }
+  }
+
+  /**
+   * A record written in the legacy layout, a compressed buffer split into numbered buckets under
+   * the version node, can still be read.
+   */
+  @Test(dependsOnMethods = "testDeltaWrite")
+  public void testLegacyLayoutRead() throws IOException {
+    String path = "/" + TestHelper.getTestMethodName();
+    int bucketSize = 10;
+    byte[] compressedRecord =
+        GZipCompressionUtil.compress(new ZNRecordJacksonSerializer().serialize(record));
+    for (int i = 0; i * bucketSize < compressedRecord.length; i++) {
+      _zkBaseDataAccessor.set(path + "/0/" + i, Arrays.copyOfRange(compressedRecord,
+          i * bucketSize, Math.min(compressedRecord.length, (i + 1) * bucketSize)),
+          AccessOption.PERSISTENT);
+    }
+    Map<String, String> metadata = ImmutableMap.of("BUCKET_SIZE", Integer.toString(bucketSize),
+        "DATA_SIZE", Integer.toString(compressedRecord.length));
+    _zkBaseDataAccessor.set(path + "/0/METADATA", new ObjectMapper().writeValueAsBytes(metadata),
+        AccessOption.PERSISTENT);
+    _zkBaseDataAccessor.set(path + "/" + LAST_SUCCESSFUL_WRITE_KEY, "0".getBytes(),
+        AccessOption.PERSISTENT);
+
+    try {
+      HelixProperty readRecord = _bucketDataAccessor.compressedBucketRead(path, HelixProperty.class);
+      Assert.assertEquals(readRecord.getRecord(), record);
+    } finally {
+      _bucketDataAccessor.compressedBucketDelete(path);
+    }
+  }
+
+  /**
+   * Without the delta write config, records are written in the legacy layout, so they can be read
+   * by the readers that don't know the content addressed layout.
+   */
+  @Test(dependsOnMethods = "testLegacyLayoutRead")
+  public void testLegacyLayoutWrite() throws IOException {
+    String path = "/" + TestHelper.getTestMethodName();
+    HelixProperty property = createLargeHelixProperty(TestHelper.getTestMethodName(), 10000);
+
+    try {
+      _legacyBucketDataAccessor.compressedBucketWrite(path, property);
+      Assert.assertFalse(_zkBaseDataAccessor.exists(path + "/" + BUCKETS_KEY,
+          AccessOption.PERSISTENT));
+      List<String> versionChildren =
+          _zkBaseDataAccessor.getChildNames(path + "/0", AccessOption.PERSISTENT);
+      Assert.assertTrue(versionChildren.size() > 2);
+      Assert.assertTrue(versionChildren.containsAll(ImmutableList.of("METADATA", "0", "1")));
+      Map metadata = new ObjectMapper().readValue(
+          _zkBaseDataAccessor.get(path + "/0/METADATA", null, AccessOption.PERSISTENT), Map.class);
+      Assert.assertEquals(metadata.keySet(), ImmutableSet.of("BUCKET_SIZE", "DATA_SIZE"));
+
+      Assert.assertEquals(
+          _legacyBucketDataAccessor.compressedBucketRead(path, HelixProperty.class), property);
+      Assert.assertEquals(_bucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+    } finally {
+      _legacyBucketDataAccessor.compressedBucketDelete(path);
+    }
+  }
+
+  /**
+   * A record with a format version that the reader doesn't know fails to be read.
+   */
+  @Test(dependsOnMethods = "testLegacyLayoutWrite")
+  public void testUnknownFormatVersionRead() throws IOException {
+    String path = "/" + TestHelper.getTestMethodName();
+    Map<String, String> metadata = ImmutableMap.of("FORMAT_VERSION", "100", "BUCKET_SIZE", "10");
+    _zkBaseDataAccessor.set(path + "/0/METADATA", new ObjectMapper().writeValueAsBytes(metadata),
+        AccessOption.PERSISTENT);
+    _zkBaseDataAccessor.set(path + "/" + LAST_SUCCESSFUL_WRITE_KEY, "0".getBytes(),
+        AccessOption.PERSISTENT);
+
+    try {
+      _bucketDataAccessor.compressedBucketRead(path, HelixProperty.class);
+      Assert.fail("Reading an unknown format version should fail.");
+    } catch (HelixException e) {
+      Assert.assertTrue(e.getMessage().contains("Unsupported bucket format version"));
+    } finally {
+      _bucketDataAccessor.compressedBucketDelete(path);
+    }
+  }
+
+  /**
+   * The GC doesn't remove any bucket while a later write version, which may be written by another
+   * accessor, has no manifest yet.
+   */
+  @Test(dependsOnMethods = "testUnknownFormatVersionRead")
+  public void testBucketGCWithPendingWrite() throws Exception {
+    String path = "/" + TestHelper.getTestMethodName();
+    String bucketsPath = path + "/" + BUCKETS_KEY;
+
+    try {
+      _bucketDataAccessor.compressedBucketWrite(path,
+          createLargeHelixProperty(TestHelper.getTestMethodName(), 1000));
+      _bucketDataAccessor.compressedBucketWrite(path,
+          createLargeHelixProperty(TestHelper.getTestMethodName(), 1000));
+      // Reserve the next write version as a writer in another process would do
+      _zkBaseDataAccessor.set(path + "/" + LAST_WRITE_KEY, "2".getBytes(),
+          AccessOption.PERSISTENT);
+      int bucketCount =
+          _zkBaseDataAccessor.getChildNames(bucketsPath, AccessOption.PERSISTENT).size();
+
+      // The stale version is removed, but the buckets are kept
+      Assert.assertTrue(TestHelper.verify(
+          () -> !_zkBaseDataAccessor.exists(path + "/0", AccessOption.PERSISTENT),
+          VERSION_TTL_MS * 5));
+      Thread.sleep(VERSION_TTL_MS);
+      Assert.assertEquals(
+          _zkBaseDataAccessor.getChildNames(bucketsPath, AccessOption.PERSISTENT).size(),
+          bucketCount);
+
+      // Once the pending version is written, the unreferenced buckets are removed
+      HelixProperty property = createLargeHelixProperty(TestHelper.getTestMethodName(), 1000);
+      _bucketDataAccessor.compressedBucketWrite(path, property);
+      Assert.assertTrue(TestHelper.verify(() -> _zkBaseDataAccessor
+              .getChildNames(bucketsPath, AccessOption.PERSISTENT).size() < bucketCount,
+          VERSION_TTL_MS * 5));
+      Assert.assertEquals(_bucketDataAccessor.compressedBucketRead(path, HelixProperty.class),
+          property);
+    } finally {
+      _bucketDataAccessor.compressedBucketDelete(path);
+    }
+  }
+
   private HelixProperty createLargeHelixProperty(String name, int numEntries) {
     HelixProperty property = new HelixProperty(name);
     for (int i = 0; i < numEntries; i++) {
@@ -539,6 +539,80 @@ public class TestZkHelixAdmin extends ZkUnitTestBase {
     tool.dropCluster(clusterName);
   }
 
+  @Test
+  public void testAddResourcesAndInstances() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    HelixAdmin tool = new ZKHelixAdmin(_gZkClient);
+    tool.addCluster(clusterName, true);
+    tool.addStateModelDef(clusterName, "OnlineOffline",
+        new StateModelDefinition(StateModelConfigGenerator.generateConfigForOnlineOffline()));
+
+    InstanceConfig existingConfig = new InstanceConfig("host0_9999");
+    tool.addInstance(clusterName, existingConfig);
+
+    List<InstanceConfig> instanceConfigs = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      InstanceConfig config = new InstanceConfig("host" + i + "_9999");
+      config.setHostName("host" + i);
+      config.setPort("9999");
+      instanceConfigs.add(config);
+    }
+    // Duplicated instance in the same batch
+    instanceConfigs.add(new InstanceConfig("host1_9999"));
+    // An instance cannot be added with SWAP_IN if no instance shares its logicalId
+    InstanceConfig swapInConfig = new InstanceConfig("host10_9999");
+    swapInConfig.setInstanceOperation(InstanceConstants.InstanceOperation.SWAP_IN);
+    instanceConfigs.add(swapInConfig);
+
+    Map<String, Boolean> instanceResult = tool.addInstances(clusterName, instanceConfigs);
+    Assert.assertEquals(instanceResult.size(), 11);
+    Assert.assertFalse(instanceResult.get("host0_9999"));
+    Assert.assertFalse(instanceResult.get("host10_9999"));
+    for (int i = 1; i < 10; i++) {
+      String instanceName = "host" + i + "_9999";
+      Assert.assertTrue(instanceResult.get(instanceName));
+      Assert.assertEquals(tool.getInstanceConfig(clusterName, instanceName).getHostName(),
+          "host" + i);
+      Assert.assertTrue(ZKUtil.isInstanceSetup(_gZkClient, clusterName, instanceName,
+          InstanceType.PARTICIPANT));
+      Assert.assertTrue(_gZkClient.exists(PropertyPathBuilder
+          .instanceHistory(clusterName, instanceName)));
+      Assert.assertTrue(_gZkClient.exists(PropertyPathBuilder
+          .instanceCustomizedState(clusterName, instanceName)));
+    }
+    Assert.assertEquals(tool.getInstancesInCluster(clusterName).size(), 10);
+
+    tool.addResource(clusterName, "database_0", 2, "OnlineOffline");
+    List<IdealState> idealStates = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      IdealState is = new IdealState("database_" + i);
+      is.setStateModelDefRef("OnlineOffline");
+      is.setNumPartitions(2);
+      is.setRebalanceMode(IdealState.RebalanceMode.FULL_AUTO);
+      is.setReplicas("1");
+      idealStates.add(is);
+    }
+    IdealState unknownStateModel = new IdealState("database_5");
+    unknownStateModel.setStateModelDefRef("UnknownStateModel");
+    idealStates.add(unknownStateModel);
+
+    Map<String, Boolean> resourceResult = tool.addResources(clusterName, idealStates);
+    Assert.assertEquals(resourceResult.size(), 6);
+    Assert.assertFalse(resourceResult.get("database_0"));
+    Assert.assertFalse(resourceResult.get("database_5"));
+    for (int i = 1; i < 5; i++) {
+      Assert.assertTrue(resourceResult.get("database_" + i));
+      Assert.assertEquals(
+          tool.getResourceIdealState(clusterName, "database_" + i).getNumPartitions(), 2);
+    }
+    Assert.assertEquals(tool.getResourcesInCluster(clusterName).size(), 5);
+
+    tool.dropCluster(clusterName);
+  }
+
   @Test
   public void testEnableDisablePartitions() {
     String className = TestHelper.getTestClassName();
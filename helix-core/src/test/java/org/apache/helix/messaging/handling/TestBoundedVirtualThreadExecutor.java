@@ -0,0 +1,163 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.TestHelper;
+import org.apache.helix.monitoring.mbeans.ThreadPoolExecutorMonitor;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestBoundedVirtualThreadExecutor {
+  private static final int MAX_CONCURRENCY = 3;
+  private static final int TASK_COUNT = 10;
+
+  @Test
+  public void testConcurrencyLimit() throws Exception {
+    // The limit doesn't depend on the thread type, so platform threads run the tasks on any JDK.
+    BoundedVirtualThreadExecutor executor =
+        new BoundedVirtualThreadExecutor(MAX_CONCURRENCY, Thread::new, null);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    List<Integer> startOrder = new CopyOnWriteArrayList<>();
+    for (int i = 0; i < TASK_COUNT; i++) {
+      int taskId = i;
+      executor.submit(() -> {
+        startOrder.add(taskId);
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        release.await();
+        running.decrementAndGet();
+        return null;
+      });
+    }
+
+    Assert.assertTrue(TestHelper.verify(() -> startOrder.size() == MAX_CONCURRENCY,
+        TestHelper.WAIT_DURATION));
+    Assert.assertEquals(executor.getActiveCount(), MAX_CONCURRENCY);
+    Assert.assertEquals(executor.getQueueSize(), TASK_COUNT - MAX_CONCURRENCY);
+    // The tasks are started in the submission order.
+    Assert.assertEquals(new HashSet<>(startOrder), new HashSet<>(Arrays.asList(0, 1, 2)));
+
+    ThreadPoolExecutorMonitor monitor =
+        new ThreadPoolExecutorMonitor("TestBoundedVirtualThreadExecutor", executor);
+    try {
+      Assert.assertEquals(monitor.getThreadPoolCoreSizeGauge(), MAX_CONCURRENCY);
+      Assert.assertEquals(monitor.getThreadPoolMaxSizeGauge(), MAX_CONCURRENCY);
+      Assert.assertEquals(monitor.getNumOfActiveThreadsGauge(), MAX_CONCURRENCY);
+      Assert.assertEquals(monitor.getQueueSizeGauge(), TASK_COUNT - MAX_CONCURRENCY);
+    } finally {
+      monitor.unregister();
+    }
+
+    release.countDown();
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(TestHelper.WAIT_DURATION, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(maxRunning.get(), MAX_CONCURRENCY);
+    Assert.assertEquals(executor.getActiveCount(), 0);
+    Assert.assertEquals(startOrder.size(), TASK_COUNT);
+  }
+
+  @Test
+  public void testShutdownNow() throws Exception {
+    BoundedVirtualThreadExecutor executor =
+        new BoundedVirtualThreadExecutor(MAX_CONCURRENCY, Thread::new, null);
+    CountDownLatch never = new CountDownLatch(1);
+    AtomicInteger interrupted = new AtomicInteger();
+    for (int i = 0; i < TASK_COUNT; i++) {
+      executor.execute(() -> {
+        try {
+          never.await();
+        } catch (InterruptedException e) {
+          interrupted.incrementAndGet();
+        }
+      });
+    }
+    Assert.assertTrue(TestHelper.verify(() -> executor.getActiveCount() == MAX_CONCURRENCY,
+        TestHelper.WAIT_DURATION));
+
+    List<Runnable> pending = executor.shutdownNow();
+    Assert.assertEquals(pending.size(), TASK_COUNT - MAX_CONCURRENCY);
+    Assert.assertTrue(executor.awaitTermination(TestHelper.WAIT_DURATION, TimeUnit.MILLISECONDS));
+    Assert.assertEquals(interrupted.get(), MAX_CONCURRENCY);
+    Assert.assertEquals(executor.getQueueSize(), 0);
+    try {
+      executor.execute(() -> {
+      });
+      Assert.fail("Tasks should be rejected after shutdown");
+    } catch (RejectedExecutionException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testVirtualThreadSupport() throws Exception {
+    boolean supported = Runtime.version().feature() >= 21;
+    Assert.assertEquals(BoundedVirtualThreadExecutor.isSupported(), supported);
+    if (!supported) {
+      try {
+        new BoundedVirtualThreadExecutor(MAX_CONCURRENCY, "TestVirtualThread_");
+        Assert.fail("Virtual threads should not be supported by JDK " + Runtime.version());
+      } catch (UnsupportedOperationException expected) {
+        // expected
+      }
+      return;
+    }
+    BoundedVirtualThreadExecutor executor =
+        new BoundedVirtualThreadExecutor(MAX_CONCURRENCY, "TestVirtualThread_");
+    try {
+      Thread thread = executor.submit(Thread::currentThread).get();
+      Assert.assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+      Assert.assertTrue(thread.getName().startsWith("TestVirtualThread_"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testTaskExecutorVirtualThreadMode() {
+    System.setProperty(SystemPropertyKeys.PARTICIPANT_VIRTUAL_THREADS_ENABLED, "true");
+    HelixTaskExecutor executor;
+    try {
+      executor = new HelixTaskExecutor();
+    } finally {
+      System.clearProperty(SystemPropertyKeys.PARTICIPANT_VIRTUAL_THREADS_ENABLED);
+    }
+    try {
+      // Falls back to the platform thread pools on the JDKs without virtual threads
+      Assert.assertEquals(executor.isVirtualThreadModeUsed(),
+          BoundedVirtualThreadExecutor.isSupported());
+      Assert.assertEquals(executor._batchMessageExecutorService instanceof BoundedVirtualThreadExecutor,
+          BoundedVirtualThreadExecutor.isSupported());
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertFalse(new HelixTaskExecutor().isVirtualThreadModeUsed());
+  }
+}
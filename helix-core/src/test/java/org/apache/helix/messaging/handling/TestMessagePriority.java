@@ -0,0 +1,226 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.HelixProperty;
+import org.apache.helix.MockAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.TestHelper;
+import org.apache.helix.model.MasterSlaveSMD;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageType;
+import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.model.StateModelDefinition.StateModelDefinitionProperty;
+import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class TestMessagePriority {
+  private static final StateModelDefinition MASTER_SLAVE = MasterSlaveSMD.build();
+
+  @Test
+  public void testPriorityOrder() {
+    long now = System.currentTimeMillis();
+    MessagePriority bootstrap =
+        MessagePriority.of(createMessage("OFFLINE", "SLAVE"), MASTER_SLAVE, now);
+    MessagePriority promotion =
+        MessagePriority.of(createMessage("SLAVE", "MASTER"), MASTER_SLAVE, now);
+    Assert.assertEquals(promotion.getTransitionPriority(), 1);
+    Assert.assertEquals(bootstrap.getTransitionPriority(), 2);
+    Assert.assertTrue(promotion.compareTo(bootstrap) < 0);
+
+    // The transitions without a priority and the unknown state models come last.
+    MessagePriority unknownTransition =
+        MessagePriority.of(createMessage("ERROR", "OFFLINE"), MASTER_SLAVE, now);
+    MessagePriority unknownStateModel =
+        MessagePriority.of(createMessage("SLAVE", "MASTER"), null, now);
+    Assert.assertEquals(unknownTransition.getTransitionPriority(),
+        MessagePriority.LOWEST_TRANSITION_PRIORITY);
+    Assert.assertEquals(unknownStateModel.getTransitionPriority(),
+        MessagePriority.LOWEST_TRANSITION_PRIORITY);
+    Assert.assertTrue(bootstrap.compareTo(unknownTransition) < 0);
+
+    // The same transitions start by their deadlines, and then in the scheduled order.
+    Message expiringMessage = createMessage("OFFLINE", "SLAVE");
+    expiringMessage.setExpiryPeriod(TimeUnit.MINUTES.toMillis(1));
+    Message timeoutMessage = createMessage("OFFLINE", "SLAVE");
+    timeoutMessage.setExecutionTimeout((int) TimeUnit.SECONDS.toMillis(10));
+    MessagePriority expiring = MessagePriority.of(expiringMessage, MASTER_SLAVE, now);
+    MessagePriority timeout = MessagePriority.of(timeoutMessage, MASTER_SLAVE, now);
+    MessagePriority laterBootstrap =
+        MessagePriority.of(createMessage("OFFLINE", "SLAVE"), MASTER_SLAVE, now);
+    List<MessagePriority> priorities =
+        new ArrayList<>(Arrays.asList(laterBootstrap, bootstrap, expiring, timeout));
+    priorities.sort(null);
+    Assert.assertEquals(priorities, Arrays.asList(timeout, expiring, bootstrap, laterBootstrap));
+  }
+
+  @Test
+  public void testPriorityThreadPool() throws Exception {
+    ExecutorService pool = new PriorityThreadPoolExecutor(1, Thread::new);
+    try {
+      verifyQueueOrder(pool);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testPriorityVirtualThreadPool() throws Exception {
+    // The queue order doesn't depend on the thread type, so platform threads run the tasks.
+    ExecutorService pool =
+        new BoundedVirtualThreadExecutor(1, Thread::new, PrioritizedFutureTask.QUEUE_ORDER);
+    try {
+      verifyQueueOrder(pool);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private void verifyQueueOrder(ExecutorService pool) throws Exception {
+    ParticipantStatusMonitor monitor = mock(ParticipantStatusMonitor.class);
+    CountDownLatch release = new CountDownLatch(1);
+    // Block the only thread so the following tasks are queued.
+    pool.submit(() -> {
+      release.await();
+      return null;
+    });
+
+    List<String> startOrder = new CopyOnWriteArrayList<>();
+    List<PrioritizedFutureTask<Object>> tasks = new ArrayList<>();
+    List<String> msgIds = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    for (String transition : Arrays.asList("OFFLINE-SLAVE", "SLAVE-OFFLINE", "SLAVE-MASTER",
+        "OFFLINE-SLAVE", "MASTER-SLAVE")) {
+      String[] states = transition.split("-");
+      Message message = createMessage(states[0], states[1]);
+      PrioritizedFutureTask<Object> task = new PrioritizedFutureTask<>(() -> {
+        startOrder.add(message.getMsgId());
+        return null;
+      }, MessagePriority.of(message, MASTER_SLAVE, now), monitor);
+      tasks.add(task);
+      msgIds.add(message.getMsgId());
+      pool.execute(task);
+    }
+    // An unprioritized task starts after the prioritized tasks.
+    pool.submit(() -> startOrder.add("unprioritized"));
+    // A cancelled task leaves the queue without starting.
+    tasks.get(1).cancel(false);
+
+    release.countDown();
+    Assert.assertTrue(TestHelper.verify(() -> startOrder.size() == 5, TestHelper.WAIT_DURATION));
+    // MASTER-SLAVE, SLAVE-MASTER, then OFFLINE-SLAVE in the scheduled order
+    Assert.assertEquals(startOrder, Arrays.asList(msgIds.get(4), msgIds.get(2), msgIds.get(0),
+        msgIds.get(3), "unprioritized"));
+
+    verify(monitor, times(1)).reportQueuedMessage(0);
+    verify(monitor, times(1)).reportQueuedMessage(1);
+    verify(monitor, times(2)).reportQueuedMessage(2);
+    verify(monitor, times(1)).reportQueuedMessage(3);
+    verify(monitor, times(2)).reportDequeuedMessage(eq(2), anyLong());
+    verify(monitor, times(1)).reportDequeuedMessage(3, -1L);
+    verify(monitor, times(5)).reportDequeuedMessage(anyInt(), anyLong());
+  }
+
+  @Test
+  public void testStateModelDefinitionRefresh() {
+    AtomicInteger reads = new AtomicInteger();
+    MockAccessor accessor = new MockAccessor() {
+      @Override
+      public <T extends HelixProperty> List<T> getProperty(List<PropertyKey> keys,
+          boolean throwException) {
+        reads.addAndGet(keys.size());
+        return super.getProperty(keys, throwException);
+      }
+    };
+    PropertyKey stateModelDefKey = accessor.keyBuilder().stateModelDef(MasterSlaveSMD.name);
+    HelixTaskExecutor executor = new HelixTaskExecutor();
+    Message message = createMessage("SLAVE", "MASTER");
+    List<MessageHandler> handlers = Arrays.asList(createHandler(message));
+
+    // A missing definition is cached, and it is not read again until it is created.
+    executor.refreshStateModelDefinitions(handlers, accessor);
+    executor.refreshStateModelDefinitions(handlers, accessor);
+    Assert.assertNull(executor.getStateModelDefinition(message));
+    Assert.assertEquals(reads.get(), 0);
+
+    accessor.setProperty(stateModelDefKey, MASTER_SLAVE);
+    executor.refreshStateModelDefinitions(handlers, accessor);
+    executor.refreshStateModelDefinitions(handlers, accessor);
+    Assert.assertEquals(executor.getStateModelDefinition(message).getStateTransitionPriorityList(),
+        MASTER_SLAVE.getStateTransitionPriorityList());
+    Assert.assertEquals(reads.get(), 1);
+
+    // The updated priority list is used once the definition is changed.
+    ZNRecord record = new ZNRecord(MASTER_SLAVE.getRecord());
+    List<String> priorityList = Arrays.asList("OFFLINE-SLAVE", "SLAVE-MASTER");
+    record.setListField(StateModelDefinitionProperty.STATE_TRANSITION_PRIORITYLIST.toString(),
+        priorityList);
+    accessor.setProperty(stateModelDefKey, new StateModelDefinition(record));
+    executor.refreshStateModelDefinitions(handlers, accessor);
+    Assert.assertEquals(executor.getStateModelDefinition(message).getStateTransitionPriorityList(),
+        priorityList);
+    Assert.assertEquals(reads.get(), 2);
+
+    accessor.removeProperty(stateModelDefKey);
+    executor.refreshStateModelDefinitions(handlers, accessor);
+    Assert.assertNull(executor.getStateModelDefinition(message));
+    Assert.assertEquals(reads.get(), 2);
+  }
+
+  private MessageHandler createHandler(Message message) {
+    return new MessageHandler(message, null) {
+      @Override
+      public HelixTaskResult handleMessage() {
+        return new HelixTaskResult();
+      }
+
+      @Override
+      public void onError(Exception e, ErrorCode code, ErrorType type) {
+      }
+    };
+  }
+
+  private Message createMessage(String fromState, String toState) {
+    Message message = new Message(MessageType.STATE_TRANSITION, TestHelper.getTestMethodName()
+        + "_" + fromState + "_" + toState + "_" + System.nanoTime());
+    message.setFromState(fromState);
+    message.setToState(toState);
+    message.setStateModelDef(MasterSlaveSMD.name);
+    return message;
+  }
+}
@@ -0,0 +1,192 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.Message;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.ZNRecordDelta;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestStateTransitionCommitBatcher {
+  private static final String CLUSTER = "TestCluster";
+  private static final String INSTANCE = "localhost_12918";
+  private static final String SESSION = "session_0";
+
+  private final ExecutorService _executor = Executors.newCachedThreadPool();
+
+  @AfterClass
+  public void afterClass() {
+    _executor.shutdownNow();
+  }
+
+  @Test
+  public void testMergeCurrentStateUpdates() throws Exception {
+    int batchSize = 8;
+    // The linger is long enough that only a full batch is flushed.
+    StateTransitionCommitBatcher batcher = new StateTransitionCommitBatcher(batchSize, 60000L);
+    List<CurrentState> updates = Collections.synchronizedList(new ArrayList<>());
+    HelixDataAccessor accessor = mockAccessor(updates, true);
+    PropertyKey key = accessor.keyBuilder().currentState(INSTANCE, SESSION, "TestDB");
+
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < batchSize; i++) {
+      CurrentState delta = createDelta("TestDB_" + i, "MASTER");
+      results.add(_executor.submit(() -> batcher.updateCurrentState(accessor, key, delta)));
+    }
+    for (Future<Boolean> result : results) {
+      Assert.assertTrue(result.get());
+    }
+
+    Assert.assertEquals(updates.size(), 1);
+    CurrentState merged = updates.get(0);
+    Assert.assertEquals(merged.getSessionId(), SESSION);
+    Assert.assertEquals(merged.getPartitionStateMap().size(), batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      Assert.assertEquals(merged.getState("TestDB_" + i), "MASTER");
+    }
+  }
+
+  @Test
+  public void testLingerAndFailure() throws Exception {
+    long lingerMs = 100L;
+    StateTransitionCommitBatcher batcher = new StateTransitionCommitBatcher(8, lingerMs);
+    List<CurrentState> updates = Collections.synchronizedList(new ArrayList<>());
+    HelixDataAccessor accessor = mockAccessor(updates, false);
+    PropertyKey key = accessor.keyBuilder().currentState(INSTANCE, SESSION, "TestDB");
+
+    // A single commit is flushed once the linger time passes, and the failure is reported.
+    long start = System.currentTimeMillis();
+    Assert.assertFalse(batcher.updateCurrentState(accessor, key, createDelta("TestDB_0", "SLAVE")));
+    Assert.assertTrue(System.currentTimeMillis() - start >= lingerMs);
+    Assert.assertEquals(updates.size(), 1);
+
+    // Updates of different znodes are not merged.
+    PropertyKey otherKey = accessor.keyBuilder().currentState(INSTANCE, SESSION, "OtherDB");
+    CurrentState delta = createDelta("TestDB_1", "SLAVE");
+    Future<Boolean> result =
+        _executor.submit(() -> batcher.updateCurrentState(accessor, key, delta));
+    batcher.updateCurrentState(accessor, otherKey, createDelta("OtherDB_0", "SLAVE"));
+    result.get();
+    Assert.assertEquals(updates.size(), 3);
+  }
+
+  @Test
+  public void testDeltaListIsNotMerged() {
+    StateTransitionCommitBatcher batcher = new StateTransitionCommitBatcher(8, 60000L);
+    List<CurrentState> updates = Collections.synchronizedList(new ArrayList<>());
+    HelixDataAccessor accessor = mockAccessor(updates, true);
+    PropertyKey key = accessor.keyBuilder().currentState(INSTANCE, SESSION, "TestDB");
+
+    // A dropped partition is committed right away without waiting for a batch.
+    CurrentState delta = createDelta("TestDB_0", "DROPPED");
+    ZNRecord subtract = new ZNRecord("TestDB");
+    subtract.getMapFields().put("TestDB_0", null);
+    delta.setDeltaList(Collections
+        .singletonList(new ZNRecordDelta(subtract, ZNRecordDelta.MergeOperation.SUBTRACT)));
+    Assert.assertTrue(batcher.updateCurrentState(accessor, key, delta));
+    Assert.assertEquals(updates.size(), 1);
+    Assert.assertSame(updates.get(0), delta);
+  }
+
+  @Test
+  public void testBatchMessageRemoval() throws Exception {
+    int batchSize = 6;
+    StateTransitionCommitBatcher batcher = new StateTransitionCommitBatcher(batchSize, 60000L);
+    HelixDataAccessor accessor = mockAccessor(new ArrayList<>(), true);
+    BaseDataAccessor<ZNRecord> baseAccessor = accessor.getBaseDataAccessor();
+    List<List<String>> batchRemovals = Collections.synchronizedList(new ArrayList<>());
+    List<String> singleRemovals = Collections.synchronizedList(new ArrayList<>());
+    when(baseAccessor.remove(anyListOf(String.class), anyInt())).thenAnswer(invocation -> {
+      List<String> paths = (List<String>) invocation.getArguments()[0];
+      batchRemovals.add(new ArrayList<>(paths));
+      boolean[] results = new boolean[paths.size()];
+      for (int i = 0; i < paths.size(); i++) {
+        // the first message is already gone
+        results[i] = !paths.get(i).endsWith("msg_0");
+      }
+      return results;
+    });
+    when(baseAccessor.remove(anyString(), anyInt())).thenAnswer(invocation -> {
+      singleRemovals.add((String) invocation.getArguments()[0]);
+      return true;
+    });
+
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < batchSize; i++) {
+      Message message = new Message(Message.MessageType.STATE_TRANSITION, "msg_" + i);
+      message.setTgtName(INSTANCE);
+      Callable<Boolean> removal = () -> batcher.removeMessage(accessor, message, INSTANCE);
+      results.add(_executor.submit(removal));
+    }
+    for (Future<Boolean> result : results) {
+      Assert.assertTrue(result.get());
+    }
+
+    Assert.assertEquals(batchRemovals.size(), 1);
+    Assert.assertEquals(batchRemovals.get(0).size(), batchSize);
+    for (String path : batchRemovals.get(0)) {
+      Assert.assertTrue(path.startsWith(accessor.keyBuilder().messages(INSTANCE).getPath()));
+    }
+    Assert.assertEquals(singleRemovals,
+        Collections.singletonList(accessor.keyBuilder().message(INSTANCE, "msg_0").getPath()));
+  }
+
+  private static CurrentState createDelta(String partition, String state) {
+    CurrentState delta = new CurrentState("TestDB");
+    delta.setSessionId(SESSION);
+    delta.setStateModelDefRef("MasterSlave");
+    delta.setState(partition, state);
+    return delta;
+  }
+
+  private static HelixDataAccessor mockAccessor(List<CurrentState> updates, boolean success) {
+    HelixDataAccessor accessor = mock(HelixDataAccessor.class);
+    when(accessor.keyBuilder()).thenReturn(new PropertyKey.Builder(CLUSTER));
+    when(accessor.updateProperty(any(PropertyKey.class), any(CurrentState.class)))
+        .thenAnswer(invocation -> {
+          updates.add((CurrentState) invocation.getArguments()[1]);
+          return success;
+        });
+    BaseDataAccessor<ZNRecord> baseAccessor = mock(BaseDataAccessor.class);
+    when(accessor.getBaseDataAccessor()).thenReturn(baseAccessor);
+    return accessor;
+  }
+}
@@ -342,6 +342,7 @@ public class TestP2PMessages extends BaseStageTest {
           PropertyKey messageKey =
               new PropertyKey.Builder(_clusterName).message(instance, m.getMsgId());
           accessor.removeProperty(messageKey);
+          _dataCache.notifyDataChange(HelixConstants.ChangeType.MESSAGE, messageKey.getPath());
         }
       }
     }
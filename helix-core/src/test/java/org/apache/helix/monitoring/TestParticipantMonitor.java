@@ -40,6 +40,7 @@ import org.apache.helix.model.Message;
 import org.apache.helix.monitoring.mbeans.ClusterMBeanObserver;
 import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
 import org.apache.helix.monitoring.mbeans.ParticipantMessageMonitor;
+import org.apache.helix.monitoring.mbeans.ParticipantSessionMonitor;
 import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -186,11 +187,17 @@ public class TestParticipantMonitor {
 
     Message message = new Message(Message.MessageType.NO_OP, "0");
     monitor.reportReceivedMessage(message);
+    monitor.reportSessionPhaseLatency(ParticipantSessionMonitor.Phase.CarryOverCurrentState, 10);
+    monitor.reportSessionPhaseLatency(ParticipantSessionMonitor.Phase.CarryOverCurrentState, 5);
     Thread.sleep(1000);
     ParticipantMonitorListener monitorListener =
         new ParticipantMonitorListener(DOMAIN_NAME, "ParticipantName", PARTICIPANT_NAME);
     Thread.sleep(1000);
-    Assert.assertEquals(monitorListener._beanValueMap.size(), 2);
+    // Message monitor, message latency monitor and session monitor
+    Assert.assertEquals(monitorListener._beanValueMap.size(), 3);
+    Assert.assertEquals(monitorListener._beanValueMap.get(
+        getObjectName("ParticipantName=participant_0,MonitorType=ParticipantSessionMonitor")
+            .toString()).get("CarryOverCurrentStateTotalLatency"), 15L);
     Assert.assertEquals(monitorListener._beanValueMap.get(
         getObjectName("ParticipantName=participant_0,MonitorType=ParticipantMessageMonitor")
             .toString()).get("ReceivedMessages"), 1L);
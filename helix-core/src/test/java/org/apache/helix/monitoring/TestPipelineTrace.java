@@ -0,0 +1,132 @@
+package org.apache.helix.monitoring;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.controller.stages.AttributeName;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPipelineTrace {
+
+  @Test
+  public void testNestedSpans() {
+    ClusterEvent event = new ClusterEvent("testCluster", ClusterEventType.IdealStateChange);
+    PipelineTrace trace = createTrace(event);
+    event.addAttribute(AttributeName.PIPELINE_TRACE.name(), trace);
+    trace.attach();
+    try {
+      try (PipelineTrace.Span stage = event.startTraceSpan("Stage1")) {
+        try (PipelineTrace.Span read = PipelineTrace.startSpan("ZkBatchRead")) {
+          read.addCount("paths", 3).addCount("paths", 2);
+        }
+        PipelineTrace.startSpan("ZkBatchWrite").close();
+      }
+      event.startTraceSpan("Stage2").close();
+    } finally {
+      trace.finish();
+      PipelineTrace.detach();
+    }
+
+    List<PipelineTrace.Span> stages = trace.getRootSpan().getChildren();
+    Assert.assertEquals(stages.size(), 2);
+    Assert.assertEquals(stages.get(0).getName(), "Stage1");
+    Assert.assertEquals(stages.get(1).getName(), "Stage2");
+    List<PipelineTrace.Span> calls = stages.get(0).getChildren();
+    Assert.assertEquals(calls.size(), 2);
+    Assert.assertEquals(calls.get(0).getName(), "ZkBatchRead");
+    Assert.assertEquals(calls.get(0).getCounts().get("paths").longValue(), 5L);
+    Assert.assertEquals(calls.get(1).getName(), "ZkBatchWrite");
+    Assert.assertTrue(
+        trace.getRootSpan().getDurationNanos() >= stages.get(0).getDurationNanos());
+
+    Map<String, Object> map = trace.toMap();
+    Assert.assertEquals(map.get("eventId"), event.getEventId());
+    Assert.assertEquals(map.get("eventType"), ClusterEventType.IdealStateChange.name());
+    Assert.assertEquals(((List<?>) map.get("spans")).size(), 2);
+
+    // Nothing is recorded once the trace is detached
+    PipelineTrace.startSpan("Untraced").close();
+    Assert.assertEquals(trace.getRootSpan().getChildren().size(), 2);
+  }
+
+  @Test
+  public void testSpansOnOtherThreads() throws Exception {
+    ClusterEvent event = new ClusterEvent("testCluster", ClusterEventType.IdealStateChange);
+    PipelineTrace trace = createTrace(event);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    trace.attach();
+    try (PipelineTrace.Span refresh = PipelineTrace.startSpan("Refresh")) {
+      // Wrapped tasks record under the span of the submitting thread
+      executor.submit(PipelineTrace.wrap(() -> PipelineTrace.startSpan("CacheA").close())).get();
+      executor.submit(PipelineTrace.wrap(() -> PipelineTrace.startSpan("CacheB").close())).get();
+      // Tasks that are not wrapped are not traced
+      executor.submit(() -> PipelineTrace.startSpan("Untraced").close()).get();
+      Assert.assertEquals(refresh.getChildren().size(), 2);
+    } finally {
+      trace.finish();
+      PipelineTrace.detach();
+      executor.shutdown();
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+    List<PipelineTrace.Span> spans = trace.getRootSpan().getChildren();
+    Assert.assertEquals(spans.size(), 1);
+    Assert.assertEquals(spans.get(0).getChildren().size(), 2);
+  }
+
+  @Test
+  public void testSpanLimit() {
+    ClusterEvent event = new ClusterEvent("testCluster", ClusterEventType.IdealStateChange);
+    PipelineTrace trace = createTrace(event);
+    trace.attach();
+    try {
+      for (int i = 0; i < PipelineTrace.MAX_SPANS_PER_TRACE + 10; i++) {
+        PipelineTrace.startSpan("ZkBatchRead").close();
+      }
+    } finally {
+      trace.finish();
+      PipelineTrace.detach();
+    }
+    Assert.assertEquals(trace.getRootSpan().getChildren().size(),
+        PipelineTrace.MAX_SPANS_PER_TRACE);
+    Assert.assertEquals(trace.toMap().get("droppedSpans"), 10);
+  }
+
+  @Test
+  public void testUntracedEvent() {
+    ClusterEvent event = new ClusterEvent("testCluster", ClusterEventType.IdealStateChange);
+    PipelineTrace.Span span = event.startTraceSpan("Stage");
+    Assert.assertSame(span, PipelineTrace.Span.NOOP);
+    span.addCount("resources", 1).close();
+    Assert.assertTrue(span.getCounts().isEmpty());
+  }
+
+  private static PipelineTrace createTrace(ClusterEvent event) {
+    return new PipelineTrace(event.getClusterName(), event.getEventId(),
+        event.getEventType().name(), "DEFAULT");
+  }
+}
@@ -0,0 +1,135 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.controller.stages.ClusterEvent;
+import org.apache.helix.controller.stages.ClusterEventType;
+import org.apache.helix.integration.manager.ClusterControllerManager;
+import org.apache.helix.integration.manager.MockParticipantManager;
+import org.apache.helix.model.IdealState.RebalanceMode;
+import org.apache.helix.model.StatusUpdate;
+import org.apache.helix.monitoring.PipelineTrace;
+import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
+import org.apache.helix.tools.ClusterVerifiers.ZkHelixClusterVerifier;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPipelineTraceMonitor extends ZkUnitTestBase {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private final MBeanServerConnection _mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+  @Test
+  public void testRetainSlowestTraces() throws Exception {
+    ClusterStatusMonitor clusterStatusMonitor =
+        new ClusterStatusMonitor(TestHelper.getTestMethodName());
+    PipelineTraceMonitor monitor = new PipelineTraceMonitor(clusterStatusMonitor, 2);
+
+    PipelineTrace medium = createTrace(clusterStatusMonitor.getClusterName(), 50);
+    PipelineTrace slow = createTrace(clusterStatusMonitor.getClusterName(), 100);
+    PipelineTrace fast = createTrace(clusterStatusMonitor.getClusterName(), 0);
+    Assert.assertTrue(monitor.record(medium));
+    Assert.assertTrue(monitor.record(slow));
+    // Not slower than any retained trace
+    Assert.assertFalse(monitor.record(fast));
+
+    List<PipelineTrace> traces = monitor.getSlowestTraces();
+    Assert.assertEquals(traces.size(), 2);
+    Assert.assertSame(traces.get(0), slow);
+    Assert.assertSame(traces.get(1), medium);
+
+    List<Map<String, Object>> json = OBJECT_MAPPER.readValue(monitor.getSlowestTracesAsJson(),
+        new TypeReference<List<Map<String, Object>>>() {
+        });
+    Assert.assertEquals(json.size(), 2);
+    Assert.assertEquals(json.get(0).get("eventId"), slow.getEventId());
+  }
+
+  @Test
+  public void testControllerRecordsTraces() throws Exception {
+    String clusterName = TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    TestHelper.setupCluster(clusterName, ZK_ADDR, 12918, "localhost", "TestDB", 1, 8, 2, 2,
+        "MasterSlave", RebalanceMode.FULL_AUTO, true);
+    MockParticipantManager[] participants = new MockParticipantManager[2];
+    for (int i = 0; i < participants.length; i++) {
+      participants[i] =
+          new MockParticipantManager(ZK_ADDR, clusterName, "localhost_" + (12918 + i));
+      participants[i].syncStart();
+    }
+    ClusterControllerManager controller =
+        new ClusterControllerManager(ZK_ADDR, clusterName, "controller_0");
+    controller.syncStart();
+
+    try {
+      ZkHelixClusterVerifier clusterVerifier =
+          new BestPossibleExternalViewVerifier.Builder(clusterName).setZkClient(_gZkClient)
+              .setWaitTillVerify(TestHelper.DEFAULT_REBALANCE_PROCESSING_WAIT_TIME).build();
+      Assert.assertTrue(clusterVerifier.verifyByPolling());
+
+      // The slowest traces are exposed through JMX
+      ObjectName objectName = new ObjectName(String
+          .format("%s:cluster=%s,eventName=PipelineTrace", MonitorDomainNames.ClusterStatus.name(),
+              clusterName));
+      Assert.assertTrue(TestHelper.verify(() -> _mbeanServer.isRegistered(objectName)
+          && (long) _mbeanServer.getAttribute(objectName, "TracedEventCounter") > 0,
+          TestHelper.WAIT_DURATION));
+      String jmxTraces = (String) _mbeanServer.getAttribute(objectName, "SlowestEventTraces");
+      Assert.assertTrue(jmxTraces.contains("BestPossibleStateCalcStage"));
+      Assert.assertTrue(jmxTraces.contains("CacheRefresh.IdealState"));
+      Assert.assertTrue(jmxTraces.contains("ZkBatchRead"));
+
+      // And persisted for the REST API
+      HelixDataAccessor accessor = controller.getHelixDataAccessor();
+      Assert.assertTrue(TestHelper.verify(() -> {
+        StatusUpdate record = accessor.getProperty(accessor.keyBuilder()
+            .controllerTaskStatus(PipelineTrace.STATUS_UPDATE_SUB_PATH,
+                PipelineTrace.SLOWEST_EVENTS_RECORD));
+        return record != null && record.getRecord().getSimpleField(PipelineTrace.TRACES_FIELD)
+            .contains("BestPossibleStateCalcStage");
+      }, TestHelper.WAIT_DURATION));
+    } finally {
+      controller.syncStop();
+      for (MockParticipantManager participant : participants) {
+        participant.syncStop();
+      }
+      TestHelper.dropCluster(clusterName, _gZkClient);
+    }
+  }
+
+  private PipelineTrace createTrace(String clusterName, long durationMs)
+      throws InterruptedException {
+    ClusterEvent event = new ClusterEvent(clusterName, ClusterEventType.IdealStateChange);
+    PipelineTrace trace = new PipelineTrace(clusterName, event.getEventId(),
+        event.getEventType().name(), "DEFAULT");
+    Thread.sleep(durationMs);
+    trace.finish();
+    return trace;
+  }
+}
@@ -0,0 +1,207 @@
+package org.apache.helix.participant.statemachine;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.helix.NotificationContext;
+import org.apache.helix.model.Message;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStateTransitionDispatchTable {
+  public static class NameConventionStateModel extends StateModel {
+    public int _transitionCount = 0;
+
+    public void onBecomeSlaveFromOffline(Message message, NotificationContext context) {
+      _transitionCount++;
+    }
+
+    public String onBecomeMasterFromSlave(Message message, NotificationContext context) {
+      return "master";
+    }
+
+    public void onBecomeOfflineFromSlave(Message message, NotificationContext context) {
+      throw new IllegalStateException("failed transition");
+    }
+  }
+
+  @StateModelInfo(initialState = "OFFLINE", states = {
+      "ONLINE", "OFFLINE"
+  })
+  public static class AnnotationStateModel extends StateModel {
+    @Transition(to = "ONLINE", from = "OFFLINE")
+    public void online(Message message, NotificationContext context) {
+    }
+
+    @Transition(to = "OFFLINE", from = "*")
+    public void offline(Message message, NotificationContext context) {
+    }
+  }
+
+  @StateModelInfo(initialState = "A", states = {
+      "A", "A-B", "B-C", "C"
+  })
+  public static class DelimiterStateModel extends StateModel {
+    @Transition(to = "C", from = "A-B")
+    public void abToC(Message message, NotificationContext context) {
+    }
+
+    @Transition(to = "B-C", from = "A")
+    public void aToBc(Message message, NotificationContext context) {
+    }
+  }
+
+  public static class NameConventionStateModelFactory
+      extends StateModelFactory<NameConventionStateModel> {
+    @Override
+    public NameConventionStateModel createNewStateModel(String resourceName, String partitionKey) {
+      return new NameConventionStateModel();
+    }
+  }
+
+  public static class GenericStateModelFactory<T extends StateModel>
+      extends StateModelFactory<T> {
+  }
+
+  static class NonPublicStateModel extends StateModel {
+    public String onBecomeSlaveFromOffline(Message message, NotificationContext context) {
+      return "slave";
+    }
+  }
+
+  @Test
+  public void testNameConventionDispatch() throws Exception {
+    StateTransitionDispatchTable table =
+        StateTransitionDispatchTable.getInstance(NameConventionStateModel.class);
+    Assert.assertSame(StateTransitionDispatchTable.getInstance(NameConventionStateModel.class),
+        table);
+
+    NameConventionStateModel stateModel = new NameConventionStateModel();
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, "msg");
+    NotificationContext context = new NotificationContext(null);
+
+    // State names are matched case-insensitively
+    StateTransitionDispatchTable.TransitionMethod transitionMethod =
+        table.getTransitionMethod("OFFLINE", "SLAVE");
+    Assert.assertEquals(transitionMethod.getMethod().getName(), "onBecomeSlaveFromOffline");
+    Assert.assertSame(table.getTransitionMethod("Offline", "Slave"), transitionMethod);
+    Assert.assertNull(transitionMethod.invoke(stateModel, message, context));
+    Assert.assertEquals(stateModel._transitionCount, 1);
+
+    Assert.assertEquals(
+        table.getTransitionMethod("SLAVE", "MASTER").invoke(stateModel, message, context),
+        "master");
+    // Methods inherited from StateModel are resolved as well
+    Assert.assertEquals(table.getTransitionMethod("ERROR", "DROPPED").getMethod().getName(),
+        "onBecomeDroppedFromError");
+    Assert.assertNull(table.getTransitionMethod("MASTER", "LEADER"));
+
+    try {
+      table.getTransitionMethod("SLAVE", "OFFLINE").invoke(stateModel, message, context);
+      Assert.fail("Should throw InvocationTargetException");
+    } catch (InvocationTargetException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testAnnotationDispatch() {
+    StateTransitionDispatchTable table =
+        StateTransitionDispatchTable.getInstance(AnnotationStateModel.class);
+    Assert.assertEquals(table.getTransitionMethod("offline", "online").getMethod().getName(),
+        "online");
+    Assert.assertEquals(table.getTransitionMethod("online", "offline").getMethod().getName(),
+        "offline");
+    Assert.assertEquals(table.getTransitionMethod("error", "offline").getMethod().getName(),
+        "offline");
+  }
+
+  @Test
+  public void testNonPublicStateModel() throws Exception {
+    StateTransitionDispatchTable table =
+        StateTransitionDispatchTable.getInstance(NonPublicStateModel.class);
+    Assert.assertEquals(table.getTransitionMethod("OFFLINE", "SLAVE")
+            .invoke(new NonPublicStateModel(), null, null), "slave");
+  }
+
+  @Test
+  public void testPrepareFromFactory() {
+    StateTransitionDispatchTable table =
+        StateTransitionDispatchTable.prepare(new NameConventionStateModelFactory());
+    Assert.assertSame(table,
+        StateTransitionDispatchTable.getInstance(NameConventionStateModel.class));
+
+    // The StateModel class of a generic factory cannot be resolved
+    Assert.assertNull(
+        StateTransitionDispatchTable.prepare(new GenericStateModelFactory<NameConventionStateModel>()));
+  }
+
+  /**
+   * State names that contain the separator of a joined key don't make different transitions
+   * collide.
+   */
+  @Test
+  public void testStateNamesWithDelimiter() {
+    StateTransitionDispatchTable table =
+        StateTransitionDispatchTable.getInstance(DelimiterStateModel.class);
+    Assert.assertEquals(table.getTransitionMethod("A-B", "C").getMethod().getName(), "abToC");
+    Assert.assertEquals(table.getTransitionMethod("A", "B-C").getMethod().getName(), "aToBc");
+    Assert.assertNull(table.getTransitionMethod("A", "B"));
+  }
+
+  /**
+   * The table resolves the same methods as StateModelParser, and repeated lookups return the
+   * cached method.
+   */
+  @Test
+  public void testDispatchMatchesStateModelParser() throws Exception {
+    NameConventionStateModel stateModel = new NameConventionStateModel();
+    Message message = new Message(Message.MessageType.STATE_TRANSITION, "msg");
+    NotificationContext context = new NotificationContext(null);
+    Class<?>[] paramTypes = new Class[] {
+        Message.class, NotificationContext.class
+    };
+    StateModelParser parser = new StateModelParser();
+    StateTransitionDispatchTable table =
+        StateTransitionDispatchTable.getInstance(NameConventionStateModel.class);
+
+    String[][] transitions = new String[][] {
+        { "OFFLINE", "SLAVE" }, { "SLAVE", "MASTER" }, { "SLAVE", "OFFLINE" },
+        { "ERROR", "DROPPED" }, { "OFFLINE", "DROPPED" }, { "MASTER", "LEADER" }
+    };
+    for (String[] transition : transitions) {
+      Method method = parser.getMethodForTransition(NameConventionStateModel.class, transition[0],
+          transition[1], paramTypes);
+      StateTransitionDispatchTable.TransitionMethod transitionMethod =
+          table.getTransitionMethod(transition[0], transition[1]);
+      Assert.assertEquals(transitionMethod == null ? null : transitionMethod.getMethod(), method);
+      Assert.assertSame(table.getTransitionMethod(transition[0], transition[1]),
+          transitionMethod);
+    }
+
+    int transitionCount = 1000;
+    for (int i = 0; i < transitionCount; i++) {
+      table.getTransitionMethod("OFFLINE", "SLAVE").invoke(stateModel, message, context);
+    }
+    Assert.assertEquals(stateModel._transitionCount, transitionCount);
+  }
+}
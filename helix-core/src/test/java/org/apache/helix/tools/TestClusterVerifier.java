@@ -191,6 +191,45 @@ public class TestClusterVerifier extends ZkUnitTestBase {
     Assert.assertTrue(strictMatchVerifier.verify(10000));
   }
 
+  @Test
+  public void testIncrementalVerification() throws Exception {
+    BestPossibleExternalViewVerifier incrementalVerifier =
+        new BestPossibleExternalViewVerifier.Builder(_clusterName).setZkClient(_gZkClient)
+            .setIncrementalVerification(true)
+            .setWaitTillVerify(TestHelper.DEFAULT_REBALANCE_PROCESSING_WAIT_TIME)
+            .build();
+    Assert.assertEquals(incrementalVerifier.getLastTimeToConverge(), -1L);
+    Assert.assertTrue(incrementalVerifier.verify(10000));
+    Assert.assertTrue(incrementalVerifier.getLastTimeToConverge() >= 0);
+    // Nothing changed, the cached best possible states are reused
+    Assert.assertTrue(incrementalVerifier.verify(3000));
+
+    // Resource level change
+    _admin.enablePartition(false, _clusterName, _participants[0].getInstanceName(),
+        FULL_AUTO_RESOURCES[0], Lists.newArrayList(FULL_AUTO_RESOURCES[0] + "_0"));
+    Assert.assertTrue(incrementalVerifier.verify(10000));
+    _admin.enablePartition(true, _clusterName, _participants[0].getInstanceName(),
+        FULL_AUTO_RESOURCES[0], Lists.newArrayList(FULL_AUTO_RESOURCES[0] + "_0"));
+    Assert.assertTrue(incrementalVerifier.verify(10000));
+
+    // Cluster level change
+    _participants[0].syncStop();
+    Assert.assertTrue(incrementalVerifier.verify(10000));
+
+    HelixClusterVerifier fullVerifier =
+        new BestPossibleExternalViewVerifier.Builder(_clusterName).setZkClient(_gZkClient)
+            .build();
+    Assert.assertTrue(fullVerifier.verify(3000));
+
+    // A participant stuck in transitions never converges
+    _participants[0] = new MockParticipantManager(ZK_ADDR, _clusterName,
+        _participants[0].getInstanceName());
+    _participants[0].setTransition(new SleepTransition(99999999));
+    _participants[0].syncStart();
+    Thread.sleep(1000);
+    Assert.assertFalse(incrementalVerifier.verify(3000));
+  }
+
   @Test
   public void testResourceSubset() throws InterruptedException {
     String testDB = "resource-testDB";
@@ -0,0 +1,362 @@
+package org.apache.helix.lock.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.lock.LockInfo;
+import org.apache.helix.lock.LockScope;
+import org.apache.helix.manager.zk.GenericZkHelixApiBuilder;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.DataUpdater;
+import org.apache.helix.zookeeper.zkclient.IZkDataListener;
+import org.apache.helix.zookeeper.zkclient.annotation.PreFetchChangedData;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Manages many ZK distributed nonblocking locks with one ZK connection. The locks created by the
+ * manager share the manager's data accessor and a single data listener on the lock paths. The
+ * lock information of every lock path is kept in memory from the notifications, so
+ * {@link ZKDistributedNonblockingLock#isCurrentOwner()} and
+ * {@link ZKDistributedNonblockingLock#getCurrentLockInfo()} do not read ZK.
+ * The leases of the locks held through the manager are renewed in batches before they expire,
+ * until the locks are unlocked.
+ */
+@PreFetchChangedData(enabled = false)
+public class ZKDistributedLockManager implements IZkDataListener {
+  private static final Logger LOG = LoggerFactory.getLogger(ZKDistributedLockManager.class);
+  public static final long DEFAULT_LEASE_RENEWAL_INTERVAL = 1000L; // ms
+
+  private final BaseDataAccessor<ZNRecord> _baseDataAccessor;
+  private final long _leaseRenewalInterval;
+  private final Map<String, List<ZKDistributedNonblockingLock>> _locks = new ConcurrentHashMap<>();
+  private final Map<String, CachedLockInfo> _lockInfoCache = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService _leaseRenewalExecutor;
+
+  /**
+   * The lock information of a lock path together with the zxid of the change that produced it.
+   * The zxid orders reads done by the notification thread and by the lock callers, including
+   * across a deletion and recreation of the lock znode.
+   */
+  private static class CachedLockInfo {
+    final LockInfo _lockInfo;
+    final long _mzxid;
+
+    CachedLockInfo(LockInfo lockInfo, long mzxid) {
+      _lockInfo = lockInfo;
+      _mzxid = mzxid;
+    }
+  }
+
+  /**
+   * Initialize the lock manager with the zk address the locks connect to
+   * @param zkAddress the zk address
+   */
+  public ZKDistributedLockManager(String zkAddress) {
+    this(new ZkBaseDataAccessor<ZNRecord>(zkAddress), DEFAULT_LEASE_RENEWAL_INTERVAL);
+  }
+
+  /**
+   * Initialize the lock manager
+   * @param baseDataAccessor the data accessor shared by all the locks of the manager. It is closed
+   *                         when the manager is closed.
+   * @param leaseRenewalInterval the interval in ms between two checks for leases to renew
+   */
+  ZKDistributedLockManager(BaseDataAccessor<ZNRecord> baseDataAccessor,
+      long leaseRenewalInterval) {
+    if (leaseRenewalInterval <= 0) {
+      throw new IllegalArgumentException("Lease renewal interval must be positive.");
+    }
+    _baseDataAccessor = baseDataAccessor;
+    _leaseRenewalInterval = leaseRenewalInterval;
+    _leaseRenewalExecutor = Executors.newSingleThreadScheduledExecutor(
+        r -> new Thread(r, "ZKDistributedLockManager-LeaseRenewal"));
+    _leaseRenewalExecutor.scheduleWithFixedDelay(this::renewLeases, _leaseRenewalInterval,
+        _leaseRenewalInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Create a lock that shares the connection of the manager.
+   * @param scope the scope to lock
+   * @param leaseTimeout the leasing timeout period of the lock
+   * @param lockMsg the reason for having this lock
+   * @param userId a universal unique userId for lock owner identity
+   * @return the lock
+   */
+  public ZKDistributedNonblockingLock createLock(LockScope scope, long leaseTimeout,
+      String lockMsg, String userId) {
+    return createLock(new ZKLockConfig.Builder().setLockScope(scope).setLeaseTimeout(leaseTimeout)
+        .setLockMsg(lockMsg).setUserId(userId).setWaitingTimeout(Integer.MAX_VALUE).build());
+  }
+
+  /**
+   * Create a lock that shares the connection of the manager. The zk address in the config is
+   * ignored.
+   * @param zkLockConfig the lock config
+   * @return the lock
+   */
+  public ZKDistributedNonblockingLock createLock(ZKLockConfig zkLockConfig) {
+    ZKDistributedNonblockingLock lock = new ZKDistributedNonblockingLock(zkLockConfig, this);
+    String lockPath = lock.getLockPath();
+    boolean[] isNewPath = new boolean[1];
+    // Add the lock in the same atomic step that decides whether to watch the path, so it is not
+    // added to the list of a path whose last lock is being removed concurrently.
+    _locks.compute(lockPath, (path, locks) -> {
+      if (locks == null) {
+        isNewPath[0] = true;
+        locks = new CopyOnWriteArrayList<>();
+        _baseDataAccessor.subscribeDataChanges(path, this);
+      }
+      locks.add(lock);
+      return locks;
+    });
+    if (isNewPath[0]) {
+      refresh(lockPath);
+    }
+    return lock;
+  }
+
+  /**
+   * Stop renewing the leases, remove the watches and close the connection. The locks created by
+   * the manager cannot be used after the manager is closed.
+   */
+  public void close() {
+    _leaseRenewalExecutor.shutdownNow();
+    for (String lockPath : _locks.keySet()) {
+      _baseDataAccessor.unsubscribeDataChanges(lockPath, this);
+    }
+    _locks.clear();
+    _lockInfoCache.clear();
+    _baseDataAccessor.close();
+  }
+
+  BaseDataAccessor<ZNRecord> getBaseDataAccessor() {
+    return _baseDataAccessor;
+  }
+
+  /**
+   * Remove a closed lock. The lock path is no longer watched once its last lock is removed.
+   */
+  void removeLock(ZKDistributedNonblockingLock lock) {
+    String lockPath = lock.getLockPath();
+    _locks.computeIfPresent(lockPath, (path, locks) -> {
+      locks.remove(lock);
+      if (locks.isEmpty()) {
+        _baseDataAccessor.unsubscribeDataChanges(path, this);
+        _lockInfoCache.remove(path);
+        return null;
+      }
+      return locks;
+    });
+  }
+
+  /**
+   * @return the lock information of the lock path kept in memory
+   */
+  LockInfo getLockInfo(String lockPath) {
+    CachedLockInfo cachedLockInfo = _lockInfoCache.get(lockPath);
+    if (cachedLockInfo == null) {
+      // The lock is closed and the path is no longer watched
+      return new LockInfo(_baseDataAccessor.get(lockPath, null, AccessOption.PERSISTENT));
+    }
+    return cachedLockInfo._lockInfo;
+  }
+
+  /**
+   * Read the lock znode and update the lock information kept in memory.
+   * @return the record read, or null if the lock znode does not exist
+   */
+  ZNRecord refresh(String lockPath) {
+    Stat stat = new Stat();
+    ZNRecord record = _baseDataAccessor.get(lockPath, stat, AccessOption.PERSISTENT);
+    if (record != null) {
+      updateLockInfo(lockPath, new LockInfo(record), stat.getMzxid());
+    } else {
+      onLockDeleted(lockPath);
+    }
+    return record;
+  }
+
+  private void updateLockInfo(String lockPath, LockInfo lockInfo, long mzxid) {
+    if (!_locks.containsKey(lockPath)) {
+      return;
+    }
+    _lockInfoCache.merge(lockPath, new CachedLockInfo(lockInfo, mzxid),
+        (current, updated) -> updated._mzxid > current._mzxid ? updated : current);
+  }
+
+  private void onLockDeleted(String lockPath) {
+    if (!_locks.containsKey(lockPath)) {
+      return;
+    }
+    // Keep the zxid, so a read of the deleted znode that completes later is not applied
+    _lockInfoCache.compute(lockPath, (path, current) -> new CachedLockInfo(
+        LockInfo.defaultLockInfo, current == null ? -1L : current._mzxid));
+  }
+
+  @Override
+  public void handleDataChange(String dataPath, Object data) throws Exception {
+    ZNRecord record = refresh(dataPath);
+    List<ZKDistributedNonblockingLock> locks = _locks.get(dataPath);
+    if (record == null || locks == null) {
+      return;
+    }
+    // Every lock handles the notification, even if the lock information kept in memory is
+    // already up to date because of a read done by the lock itself.
+    LockInfo lockInfo = new LockInfo(record);
+    for (ZKDistributedNonblockingLock lock : locks) {
+      try {
+        lock.handleLockInfoChange(lockInfo);
+      } catch (Exception e) {
+        LOG.error("Lock of user {} failed to handle the change of lock path {}", lock.getUserId(),
+            dataPath, e);
+      }
+    }
+  }
+
+  @Override
+  public void handleDataDeleted(String dataPath) throws Exception {
+    onLockDeleted(dataPath);
+  }
+
+  /**
+   * Renew, in one batch, the leases of the locks held through this manager that will expire
+   * within half of their lease timeout.
+   */
+  private void renewLeases() {
+    try {
+      long now = System.currentTimeMillis();
+      List<String> paths = new ArrayList<>();
+      List<DataUpdater<ZNRecord>> updaters = new ArrayList<>();
+      for (Map.Entry<String, List<ZKDistributedNonblockingLock>> entry : _locks.entrySet()) {
+        CachedLockInfo cachedLockInfo = _lockInfoCache.get(entry.getKey());
+        if (cachedLockInfo == null) {
+          continue;
+        }
+        LockInfo lockInfo = cachedLockInfo._lockInfo;
+        for (ZKDistributedNonblockingLock lock : entry.getValue()) {
+          if (lockInfo.getOwner().equals(lock.getUserId()) && now < lockInfo.getTimeout()
+              && lockInfo.getTimeout() - now <= lock.getLeaseTimeout() / 2) {
+            paths.add(entry.getKey());
+            updaters.add(new LeaseRenewalUpdater(lock.getUserId(), lock.getLeaseTimeout()));
+            break;
+          }
+        }
+      }
+      if (paths.isEmpty()) {
+        return;
+      }
+
+      boolean[] renewed = _baseDataAccessor.updateChildren(paths, updaters, AccessOption.PERSISTENT);
+      List<String> renewedPaths = new ArrayList<>();
+      for (int i = 0; i < paths.size(); i++) {
+        if (renewed[i]) {
+          renewedPaths.add(paths.get(i));
+        } else {
+          LOG.warn("Failed to renew the lease of lock path {}", paths.get(i));
+        }
+      }
+      // Read the renewed leases back in one batch instead of waiting for the notifications
+      List<Stat> stats = new ArrayList<>();
+      List<ZNRecord> records =
+          _baseDataAccessor.get(renewedPaths, stats, AccessOption.PERSISTENT, false);
+      for (int i = 0; i < renewedPaths.size(); i++) {
+        if (records.get(i) != null) {
+          updateLockInfo(renewedPaths.get(i), new LockInfo(records.get(i)),
+              stats.get(i).getMzxid());
+        }
+      }
+      LOG.debug("Renewed the leases of {} locks", renewedPaths.size());
+    } catch (Exception e) {
+      LOG.error("Failed to renew the leases of the locks", e);
+    }
+  }
+
+  /**
+   * Extends the lease of a lock if the user still owns it. Does not update the znode otherwise.
+   */
+  private static class LeaseRenewalUpdater implements DataUpdater<ZNRecord> {
+    private final String _userId;
+    private final long _leaseTimeout;
+
+    LeaseRenewalUpdater(String userId, long leaseTimeout) {
+      _userId = userId;
+      _leaseTimeout = leaseTimeout;
+    }
+
+    @Override
+    public ZNRecord update(ZNRecord current) {
+      LockInfo curLockInfo = new LockInfo(current);
+      long now = System.currentTimeMillis();
+      if (current == null || !curLockInfo.getOwner().equals(_userId)
+          || now >= curLockInfo.getTimeout()) {
+        return null;
+      }
+      long timeout = _leaseTimeout > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + _leaseTimeout;
+      current.setLongField(LockInfo.LockInfoAttribute.TIMEOUT.name(), timeout);
+      return current;
+    }
+  }
+
+  /**
+   * Builder class to use with ZKDistributedLockManager.
+   */
+  public static class Builder extends GenericZkHelixApiBuilder<Builder> {
+    private long _leaseRenewalInterval = DEFAULT_LEASE_RENEWAL_INTERVAL;
+
+    public Builder() {
+    }
+
+    public Builder setLeaseRenewalInterval(long leaseRenewalInterval) {
+      _leaseRenewalInterval = leaseRenewalInterval;
+      return this;
+    }
+
+    public ZKDistributedLockManager build() {
+      // Resolve which way we want to create BaseDataAccessor instance
+      BaseDataAccessor<ZNRecord> baseDataAccessor;
+      // If enabled via System.Properties config or the given zkAddress is null, use ZooScalability
+      if (Boolean.getBoolean(SystemPropertyKeys.MULTI_ZK_ENABLED) || _zkAddress == null) {
+        // If the multi ZK config is enabled, use multi-realm mode with FederatedZkClient
+        baseDataAccessor = new ZkBaseDataAccessor.Builder<ZNRecord>().setRealmMode(_realmMode)
+            .setRealmAwareZkClientConfig(_realmAwareZkClientConfig)
+            .setRealmAwareZkConnectionConfig(_realmAwareZkConnectionConfig).setZkAddress(_zkAddress)
+            .build();
+      } else {
+        baseDataAccessor = new ZkBaseDataAccessor<>(_zkAddress);
+      }
+      return new ZKDistributedLockManager(baseDataAccessor, _leaseRenewalInterval);
+    }
+  }
+}
@@ -57,6 +57,9 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
   private final boolean _isForceful;
   private final LockListener _lockListener;
   private final BaseDataAccessor<ZNRecord> _baseDataAccessor;
+  // Set when the lock is created by a ZKDistributedLockManager, which shares its data accessor and
+  // watches with all of its locks and keeps the lock information in memory.
+  private final ZKDistributedLockManager _lockManager;
   private LockConstants.LockStatus _lockStatus;
   private long _pendingTimeout;
   private CountDownLatch _countDownLatch = new CountDownLatch(1);
@@ -72,7 +75,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
   public ZKDistributedNonblockingLock(LockScope scope, String zkAddress, Long leaseTimeout,
       String lockMsg, String userId) {
     this(scope.getPath(), leaseTimeout, lockMsg, userId, 0, Integer.MAX_VALUE, 0, false, null,
-        new ZkBaseDataAccessor<ZNRecord>(zkAddress));
+        new ZkBaseDataAccessor<ZNRecord>(zkAddress), null);
   }
 
   /**
@@ -105,7 +108,20 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
       String lockMsg, String userId, int priority, long waitingTimeout, long cleanupTimeout,
       boolean isForceful, LockListener lockListener) {
     this(scope.getPath(), leaseTimeout, lockMsg, userId, priority, waitingTimeout, cleanupTimeout,
-        isForceful, lockListener, new ZkBaseDataAccessor<ZNRecord>(zkAddress));
+        isForceful, lockListener, new ZkBaseDataAccessor<ZNRecord>(zkAddress), null);
+  }
+
+  /**
+   * Initialize a lock managed by the lock manager. The zk address in the config is ignored.
+   * @param zkLockConfig the lock config
+   * @param lockManager the lock manager that shares its data accessor with the lock
+   */
+  ZKDistributedNonblockingLock(ZKLockConfig zkLockConfig, ZKDistributedLockManager lockManager) {
+    this(zkLockConfig.getLockScope().getPath(), zkLockConfig.getLeaseTimeout(),
+        zkLockConfig.getLockMsg(), zkLockConfig.getUserId(), zkLockConfig.getPriority(),
+        zkLockConfig.getWaitingTimeout(), zkLockConfig.getCleanupTimeout(),
+        zkLockConfig.getIsForceful(), zkLockConfig.getLockListener(),
+        lockManager.getBaseDataAccessor(), lockManager);
   }
 
   /**
@@ -123,10 +139,12 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
    *                   lock encountered an exception during preempting lower priority lock
    * @param lockListener the listener associated to the lock
    * @param baseDataAccessor baseDataAccessor instance to do I/O against ZK with
+   * @param lockManager the lock manager of the lock, or null if the lock is standalone
    */
   private ZKDistributedNonblockingLock(String lockPath, Long leaseTimeout, String lockMsg,
       String userId, int priority, long waitingTimeout, long cleanupTimeout, boolean isForceful,
-      LockListener lockListener, BaseDataAccessor<ZNRecord> baseDataAccessor) {
+      LockListener lockListener, BaseDataAccessor<ZNRecord> baseDataAccessor,
+      ZKDistributedLockManager lockManager) {
     _lockPath = lockPath;
     if (leaseTimeout < 0 || waitingTimeout < 0 || cleanupTimeout < 0) {
       throw new IllegalArgumentException("Timeout cannot be negative.");
@@ -143,22 +161,23 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     _cleanupTimeout = cleanupTimeout;
     _lockListener = lockListener;
     _isForceful = isForceful;
+    _lockManager = lockManager;
     validateInput();
   }
 
   @Override
   public boolean tryLock() {
     // Set lock information fields
-    _baseDataAccessor.subscribeDataChanges(_lockPath, this);
+    subscribeDataChanges();
     LockUpdater updater = new LockUpdater(
         new LockInfo(_userId, _lockMsg, getNonOverflowTimestamp(_leaseTimeout), _priority,
             _waitingTimeout, _cleanupTimeout, null, 0, 0, 0));
-    boolean updateResult = _baseDataAccessor.update(_lockPath, updater, AccessOption.PERSISTENT);
+    boolean updateResult = update(updater);
 
     // Immediately return if the lock statue is not PENDING.
     if (_lockStatus != LockConstants.LockStatus.PENDING) {
       if (!updateResult) {
-        _baseDataAccessor.unsubscribeDataChanges(_lockPath, this);
+        unsubscribeDataChanges();
       }
       return updateResult;
     }
@@ -177,7 +196,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
       // If the reason for not being able to acquire the lock is due to high priority lock
       // preemption, directly return false.
       if (_lockStatus == LockConstants.LockStatus.PREEMPTED) {
-        _baseDataAccessor.unsubscribeDataChanges(_lockPath, this);
+        unsubscribeDataChanges();
         return false;
       }
       // Forceful lock request will grab the lock even the current owner has not finished
@@ -186,10 +205,10 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
         ZNRecord znRecord = composeNewOwnerRecord();
         ForcefulUpdater forcefulUpdater = new ForcefulUpdater(new LockInfo(znRecord));
         LOG.info("Updating Zookeeper with new owner {} information", _userId);
-        _baseDataAccessor.update(_lockPath, forcefulUpdater, AccessOption.PERSISTENT);
+        update(forcefulUpdater);
         return true;
       } else {
-        _baseDataAccessor.unsubscribeDataChanges(_lockPath, this);
+        unsubscribeDataChanges();
         throw new HelixException("Cleanup has not been finished by lock owner");
       }
     }
@@ -201,20 +220,25 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
   public boolean unlock() {
     // Initialize the lock updater with a default lock info represents the state of a unlocked lock
     LockUpdater updater = new LockUpdater(LockInfo.defaultLockInfo);
-    return _baseDataAccessor.update(_lockPath, updater, AccessOption.PERSISTENT);
+    return update(updater);
   }
 
+  /**
+   * Get the current lock information. A managed lock answers from the lock information its
+   * lock manager keeps in memory, without reading ZK.
+   */
   @Override
   public LockInfo getCurrentLockInfo() {
+    if (_lockManager != null) {
+      return _lockManager.getLockInfo(_lockPath);
+    }
     ZNRecord curLockInfo = _baseDataAccessor.get(_lockPath, null, AccessOption.PERSISTENT);
     return new LockInfo(curLockInfo);
   }
 
   @Override
   public boolean isCurrentOwner() {
-    LockInfo lockInfo = getCurrentLockInfo();
-    return lockInfo.getOwner().equals(_userId) && (System.currentTimeMillis() < lockInfo
-        .getTimeout());
+    return isCurrentOwner(getCurrentLockInfo());
   }
 
   @Override
@@ -222,6 +246,11 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     if (isCurrentOwner()) {
       throw new HelixException("Please unlock the lock before closing it.");
     }
+    if (_lockManager != null) {
+      // The data accessor and the watch on the lock path are shared with the other locks
+      _lockManager.removeLock(this);
+      return;
+    }
     _baseDataAccessor.unsubscribeDataChanges(_lockPath, this);
     _baseDataAccessor.close();
   }
@@ -231,7 +260,14 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
     Stat stat = new Stat();
     ZNRecord readData =
         _baseDataAccessor.get(dataPath, stat, AccessOption.THROW_EXCEPTION_IFNOTEXIST);
-    LockInfo lockInfo = new LockInfo(readData);
+    handleLockInfoChange(new LockInfo(readData));
+  }
+
+  /**
+   * Handle a change of the lock znode.
+   * @param lockInfo the lock information read after the change
+   */
+  void handleLockInfoChange(LockInfo lockInfo) {
     // We are the current owner
     if (isCurrentOwner(lockInfo)) {
       if (lockInfo.getRequestorId().equals(LockConstants.DEFAULT_USER_ID)
@@ -242,7 +278,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
         //  accuracy.
         _lockListener.onCleanupNotification();
         CleanupUpdater cleanupUpdater = new CleanupUpdater();
-        boolean res = _baseDataAccessor.update(_lockPath, cleanupUpdater, AccessOption.PERSISTENT);
+        boolean res = update(cleanupUpdater);
         if (!res) {
           throw new HelixException(
               String.format("User %s failed to update lock path %s", _userId, _lockPath));
@@ -254,7 +290,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
       if (lockInfo.getOwner().equals(LockConstants.DEFAULT_USER_ID)) {
         ZNRecord znRecord = composeNewOwnerRecord();
         LockUpdater updater = new LockUpdater(new LockInfo(znRecord));
-        _baseDataAccessor.update(_lockPath, updater, AccessOption.PERSISTENT);
+        update(updater);
         onAcquiredLockNotification();
       } else {
         LOG.info("We do not need to handle this data change");
@@ -453,6 +489,41 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
         .getTimeout());
   }
 
+  private boolean update(DataUpdater<ZNRecord> updater) {
+    boolean result = _baseDataAccessor.update(_lockPath, updater, AccessOption.PERSISTENT);
+    if (_lockManager != null) {
+      // Do not wait for the notification, so the lock sees its own update right away
+      _lockManager.refresh(_lockPath);
+    }
+    return result;
+  }
+
+  private void subscribeDataChanges() {
+    // A managed lock is notified through its lock manager, which watches the lock path as long
+    // as the lock is open.
+    if (_lockManager == null) {
+      _baseDataAccessor.subscribeDataChanges(_lockPath, this);
+    }
+  }
+
+  private void unsubscribeDataChanges() {
+    if (_lockManager == null) {
+      _baseDataAccessor.unsubscribeDataChanges(_lockPath, this);
+    }
+  }
+
+  String getLockPath() {
+    return _lockPath;
+  }
+
+  String getUserId() {
+    return _userId;
+  }
+
+  long getLeaseTimeout() {
+    return _leaseTimeout;
+  }
+
   /**
    * Builder class to use with ZKDistributedNonblockingLock.
    */
@@ -532,7 +603,7 @@ public class ZKDistributedNonblockingLock implements DistributedLock, IZkDataLis
       // Return a ZKDistributedNonblockingLock instance
       return new ZKDistributedNonblockingLock(_lockScope.getPath(), _timeout, _lockMsg, _userId,
           _priority, _waitingTimeout, _cleanupTimeout, _isForceful, _lockListener,
-          baseDataAccessor);
+          baseDataAccessor, null);
     }
   }
 
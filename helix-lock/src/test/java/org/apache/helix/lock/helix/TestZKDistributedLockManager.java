@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.helix.lock.helix;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.TestHelper;
+import org.apache.helix.common.ZkTestBase;
+import org.apache.helix.lock.LockInfo;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.data.Stat;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class TestZKDistributedLockManager extends ZkTestBase {
+  private static final int NUM_LOCKS = 200;
+
+  private final String _clusterName = TestHelper.getTestClassName();
+  private ZKDistributedLockManager _lockManager;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    System.out.println("START " + _clusterName + " at " + new Date(System.currentTimeMillis()));
+    TestHelper.setupCluster(_clusterName, ZK_ADDR, 12918, "localhost", "TestDB", 1, 10, 5, 3,
+        "MasterSlave", true);
+    _lockManager =
+        new ZKDistributedLockManager(new ZkBaseDataAccessor<ZNRecord>(ZK_ADDR), 100L);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _lockManager.close();
+    System.out.println("END " + _clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
+
+  @Test
+  public void testManyLocksShareOneManager() throws Exception {
+    // Count the reads done by the test thread, the notifications are handled by other threads
+    Thread testThread = Thread.currentThread();
+    AtomicInteger testThreadReads = new AtomicInteger();
+    ZKDistributedLockManager lockManager =
+        new ZKDistributedLockManager(new ZkBaseDataAccessor<ZNRecord>(ZK_ADDR) {
+          @Override
+          public ZNRecord get(String path, Stat stat, int options) {
+            if (Thread.currentThread() == testThread) {
+              testThreadReads.incrementAndGet();
+            }
+            return super.get(path, stat, options);
+          }
+        }, 100L);
+
+    String userId = UUID.randomUUID().toString();
+    List<ZKDistributedNonblockingLock> locks = new ArrayList<>();
+    for (int i = 0; i < NUM_LOCKS; i++) {
+      locks.add(lockManager.createLock(getResourceScope("TestDB_" + i), Long.MAX_VALUE,
+          "resource lock", userId));
+    }
+    for (ZKDistributedNonblockingLock lock : locks) {
+      Assert.assertFalse(lock.isCurrentOwner());
+      Assert.assertTrue(lock.tryLock());
+      // The lock sees its own update without waiting for the notification
+      Assert.assertTrue(lock.isCurrentOwner());
+      Assert.assertEquals(lock.getCurrentLockInfo().getOwner(), userId);
+    }
+
+    // The ownership checks use the lock information kept in memory
+    testThreadReads.set(0);
+    for (ZKDistributedNonblockingLock lock : locks) {
+      Assert.assertTrue(lock.isCurrentOwner());
+      Assert.assertEquals(lock.getCurrentLockInfo().getOwner(), userId);
+    }
+    Assert.assertEquals(testThreadReads.get(), 0);
+
+    for (ZKDistributedNonblockingLock lock : locks) {
+      Assert.assertTrue(lock.unlock());
+      Assert.assertFalse(lock.isCurrentOwner());
+      lock.close();
+    }
+    lockManager.close();
+  }
+
+  @Test
+  public void testLockInfoUpdatedByNotification() throws Exception {
+    HelixLockScope scope = getResourceScope("notification");
+    String lockPath = scope.getPath();
+    ZKDistributedNonblockingLock lock =
+        _lockManager.createLock(scope, Long.MAX_VALUE, "notification", "user");
+    Assert.assertEquals(lock.getCurrentLockInfo().getOwner(), LockConstants.DEFAULT_USER_ID);
+
+    // Another process takes the lock
+    String fakeUserId = UUID.randomUUID().toString();
+    ZNRecord fakeRecord = new ZNRecord(fakeUserId);
+    fakeRecord.setSimpleField(LockInfo.LockInfoAttribute.OWNER.name(), fakeUserId);
+    fakeRecord
+        .setSimpleField(LockInfo.LockInfoAttribute.TIMEOUT.name(), String.valueOf(Long.MAX_VALUE));
+    _gZkClient.create(lockPath, fakeRecord, CreateMode.PERSISTENT);
+    Assert.assertTrue(TestHelper.verify(
+        () -> lock.getCurrentLockInfo().getOwner().equals(fakeUserId), TestHelper.WAIT_DURATION));
+    Assert.assertFalse(lock.tryLock());
+
+    // The lock znode is removed
+    _gZkClient.delete(lockPath);
+    Assert.assertTrue(TestHelper.verify(
+        () -> lock.getCurrentLockInfo().getOwner().equals(LockConstants.DEFAULT_USER_ID),
+        TestHelper.WAIT_DURATION));
+    Assert.assertTrue(lock.tryLock());
+    Assert.assertTrue(lock.isCurrentOwner());
+    Assert.assertTrue(lock.unlock());
+    lock.close();
+  }
+
+  @Test
+  public void testLeaseRenewal() throws Exception {
+    HelixLockScope scope = getResourceScope("lease");
+    String lockPath = scope.getPath();
+    long leaseTimeout = 1000L;
+    ZKDistributedNonblockingLock lock =
+        _lockManager.createLock(scope, leaseTimeout, "lease", "user");
+    Assert.assertTrue(lock.tryLock());
+
+    // The lease is renewed before it expires
+    Thread.sleep(3 * leaseTimeout);
+    Assert.assertTrue(lock.isCurrentOwner());
+    LockInfo lockInfo = new LockInfo(_gZkClient.readData(lockPath));
+    Assert.assertTrue(lockInfo.getTimeout() > System.currentTimeMillis());
+
+    // After the lock is released, the lease is not renewed anymore
+    Assert.assertTrue(lock.unlock());
+    Thread.sleep(3 * leaseTimeout);
+    Assert.assertFalse(lock.isCurrentOwner());
+    lock.close();
+  }
+
+  @Test
+  public void testHigherPriorityRequestAcquired() throws Exception {
+    HelixLockScope scope = getResourceScope("priority");
+    AtomicBoolean isCleanupNotified = new AtomicBoolean(false);
+    ZKLockConfig.Builder configBuilder =
+        new ZKLockConfig.Builder().setLockScope(scope).setLeaseTimeout(3600000L)
+            .setLockMsg("lower priority lock").setUserId("low_lock").setPriority(0)
+            .setWaitingTimeout(30000).setCleanupTimeout(10000).setIsForceful(false)
+            .setLockListener(() -> isCleanupNotified.set(true));
+    ZKDistributedNonblockingLock lowerLock = _lockManager.createLock(configBuilder.build());
+    ZKDistributedNonblockingLock higherLock = _lockManager.createLock(
+        configBuilder.setLockMsg("higher priority lock").setUserId("high_lock").setPriority(2)
+            .build());
+
+    Assert.assertTrue(lowerLock.tryLock());
+    Assert.assertTrue(lowerLock.isCurrentOwner());
+
+    // Both locks are notified through the same lock manager
+    Assert.assertTrue(higherLock.tryLock());
+    Assert.assertTrue(isCleanupNotified.get());
+    Assert.assertTrue(higherLock.isCurrentOwner());
+    Assert.assertFalse(lowerLock.isCurrentOwner());
+    Assert.assertTrue(higherLock.unlock());
+    higherLock.close();
+    lowerLock.close();
+  }
+
+  private HelixLockScope getResourceScope(String resource) {
+    List<String> pathKeys = new ArrayList<>();
+    pathKeys.add(_clusterName);
+    pathKeys.add(resource);
+    return new HelixLockScope(HelixLockScope.LockScopeProperty.RESOURCE, pathKeys);
+  }
+}
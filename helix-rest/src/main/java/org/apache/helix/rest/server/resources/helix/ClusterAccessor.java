@@ -65,7 +65,9 @@ import org.apache.helix.model.MaintenanceSignal;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.RESTConfig;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.model.StatusUpdate;
 import org.apache.helix.model.builder.HelixConfigScopeBuilder;
+import org.apache.helix.monitoring.PipelineTrace;
 import org.apache.helix.rest.acl.AclRegister;
 import org.apache.helix.rest.common.ContextPropertyKeys;
 import org.apache.helix.rest.common.HttpConstants;
@@ -102,7 +104,8 @@ public class ClusterAccessor extends AbstractHelixResource {
     clusters,
     maintenanceSignal,
     maintenanceHistory,
-    clusterName
+    clusterName,
+    pipelineTraces
   }
 
   @NamespaceAuth
@@ -794,6 +797,34 @@ public class ClusterAccessor extends AbstractHelixResource {
     return notFound(String.format("Cluster %s is not in maintenance mode!", clusterId));
   }
 
+  @ClusterAuth
+  @ResponseMetered(name = HttpConstants.READ_REQUEST)
+  @Timed(name = HttpConstants.READ_REQUEST)
+  @GET
+  @Path("{clusterId}/controller/pipelineTraces")
+  public Response getClusterControllerPipelineTraces(@PathParam("clusterId") String clusterId)
+      throws IOException {
+    HelixDataAccessor dataAccessor = getDataAccssor(clusterId);
+    StatusUpdate slowestEvents = dataAccessor.getProperty(dataAccessor.keyBuilder()
+        .controllerTaskStatus(PipelineTrace.STATUS_UPDATE_SUB_PATH,
+            PipelineTrace.SLOWEST_EVENTS_RECORD));
+
+    List<Object> traces = Collections.emptyList();
+    if (slowestEvents != null) {
+      String content = slowestEvents.getRecord().getSimpleField(PipelineTrace.TRACES_FIELD);
+      if (content != null) {
+        traces = OBJECT_MAPPER.readValue(content, new TypeReference<List<Object>>() {
+        });
+      }
+    }
+
+    Map<String, Object> pipelineTraces = new HashMap<>();
+    pipelineTraces.put(Properties.id.name(), clusterId);
+    pipelineTraces.put(ClusterProperties.pipelineTraces.name(), traces);
+    pipelineTraces.put(Properties.count.name(), traces.size());
+    return JSONRepresentation(pipelineTraces);
+  }
+
   @ClusterAuth
   @ResponseMetered(name = HttpConstants.READ_REQUEST)
   @Timed(name = HttpConstants.READ_REQUEST)
@@ -36,6 +36,7 @@ import javax.ws.rs.core.Response;
 
 import com.codahale.metrics.annotation.ResponseMetered;
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
@@ -58,6 +59,7 @@ import org.apache.helix.rest.server.resources.exceptions.HelixHealthException;
 import org.apache.helix.rest.server.service.ClusterService;
 import org.apache.helix.rest.server.service.ClusterServiceImpl;
 import org.apache.helix.util.InstanceValidationUtil;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -191,6 +193,9 @@ public class InstancesAccessor extends AbstractHelixResource {
       if (node == null) {
         return badRequest("Invalid input for content : " + content);
       }
+      if (cmd == Command.add) {
+        return batchAddInstances(clusterId, node);
+      }
       List<String> enableInstances = OBJECT_MAPPER
           .readValue(node.get(InstancesAccessor.InstancesProperties.instances.name()).toString(),
               OBJECT_MAPPER.getTypeFactory().constructCollectionType(List.class, String.class));
@@ -219,6 +224,29 @@ public class InstancesAccessor extends AbstractHelixResource {
     return OK();
   }
 
+  /**
+   * Add the instances to the cluster in a batch. The content has the key "instances" with a list of
+   * InstanceConfig ZNRecords as the value.
+   */
+  private Response batchAddInstances(String clusterId, JsonNode node) throws IOException {
+    JsonNode instancesNode = node.get(InstancesAccessor.InstancesProperties.instances.name());
+    if (instancesNode == null) {
+      return badRequest(
+          "Input does not contain " + InstancesAccessor.InstancesProperties.instances.name() + "!");
+    }
+    List<ZNRecord> instanceConfigRecords = ZNRECORD_READER
+        .forType(new TypeReference<List<ZNRecord>>() {
+        }).readValue(instancesNode.toString());
+    List<InstanceConfig> instanceConfigs =
+        instanceConfigRecords.stream().map(InstanceConfig::new).collect(Collectors.toList());
+    try {
+      return JSONRepresentation(getHelixAdmin().addInstances(clusterId, instanceConfigs));
+    } catch (HelixException e) {
+      _logger.error("Failed to add instances to cluster {}", clusterId, e);
+      return badRequest(e.getMessage());
+    }
+  }
+
   private Response batchGetStoppableInstances(String clusterId, JsonNode node, boolean skipZKRead,
       boolean continueOnFailures, Set<StoppableCheck.Category> skipHealthCheckCategories,
       boolean random) throws IOException {
@@ -27,6 +27,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
@@ -108,6 +109,57 @@ public class ResourceAccessor extends AbstractHelixResource {
     return JSONRepresentation(root);
   }
 
+  /**
+   * Add resources to the cluster in a batch. The content is a map with the key "idealStates" and
+   * a list of IdealState ZNRecords as the value.
+   * @param clusterId
+   * @param command only "addResource" is supported
+   * @param content
+   * @return a map from resource name to whether the resource is added
+   */
+  @ResponseMetered(name = HttpConstants.WRITE_REQUEST)
+  @Timed(name = HttpConstants.WRITE_REQUEST)
+  @POST
+  public Response resourcesOperations(@PathParam("clusterId") String clusterId,
+      @DefaultValue("addResource") @QueryParam("command") String command, String content) {
+    Command cmd;
+    try {
+      cmd = Command.valueOf(command);
+    } catch (Exception e) {
+      return badRequest("Invalid command : " + command);
+    }
+    if (cmd != Command.addResource) {
+      _logger.error("Unsupported command :" + command);
+      return badRequest("Unsupported command :" + command);
+    }
+
+    List<ZNRecord> idealStateRecords;
+    try {
+      Map<String, List<ZNRecord>> input = ZNRECORD_READER
+          .forType(new TypeReference<Map<String, List<ZNRecord>>>() {
+          }).readValue(content);
+      idealStateRecords = input.get(ResourceProperties.idealStates.name());
+    } catch (IOException e) {
+      _logger.error("Failed to deserialize user's input {}, Exception: {}", content, e);
+      return badRequest("Input is not a valid map of String-ZNRecord list pairs!");
+    }
+    if (idealStateRecords == null) {
+      return badRequest("Input does not contain " + ResourceProperties.idealStates.name() + "!");
+    }
+
+    try {
+      List<IdealState> idealStates =
+          idealStateRecords.stream().map(IdealState::new).collect(Collectors.toList());
+      return JSONRepresentation(getHelixAdmin().addResources(clusterId, idealStates));
+    } catch (HelixException e) {
+      _logger.error("Failed to add resources in cluster {}", clusterId, e);
+      return badRequest(e.getMessage());
+    } catch (Exception e) {
+      _logger.error("Error in adding resources in cluster {}", clusterId, e);
+      return serverError(e);
+    }
+  }
+
   /**
    * Returns health profile of all resources in the cluster
    * @param clusterId
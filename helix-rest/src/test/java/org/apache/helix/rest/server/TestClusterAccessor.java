@@ -580,6 +580,30 @@ public class TestClusterAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testGetControllerLeadershipHistory")
+  public void testGetControllerPipelineTraces() throws Exception {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    String cluster = _clusters.iterator().next();
+
+    // The leader controller persists the slowest traces asynchronously
+    Assert.assertTrue(TestHelper.verify(() -> {
+      Map<String, Object> tracesMap =
+          getMapResponseFromRest("clusters/" + cluster + "/controller/pipelineTraces");
+      return (int) tracesMap.get(AbstractResource.Properties.count.name()) > 0;
+    }, TestHelper.WAIT_DURATION));
+
+    Map<String, Object> tracesMap =
+        getMapResponseFromRest("clusters/" + cluster + "/controller/pipelineTraces");
+    Assert.assertEquals(tracesMap.get(AbstractResource.Properties.id.name()), cluster);
+    List<?> traces =
+        (List<?>) tracesMap.get(ClusterAccessor.ClusterProperties.pipelineTraces.name());
+    Map<?, ?> slowest = (Map<?, ?>) traces.get(0);
+    Assert.assertEquals(slowest.get("clusterName"), cluster);
+    Assert.assertNotNull(slowest.get("eventId"));
+    Assert.assertFalse(((List<?>) slowest.get("spans")).isEmpty());
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testGetControllerLeadershipHistory")
   public void testGetMaintenanceHistory() throws IOException {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
@@ -40,6 +40,7 @@ import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.rest.server.resources.helix.InstancesAccessor;
 import org.apache.helix.rest.server.util.JerseyUriRequestBuilder;
 import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -519,6 +520,38 @@ public class TestInstancesAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test
+  public void testAddInstancesInBatch() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    String clusterName = "TestCluster_BatchAddInstances";
+    _gSetupTool.addCluster(clusterName, true);
+    _gSetupTool.addInstanceToCluster(clusterName, "existingInstance_12918");
+
+    List<ZNRecord> instanceConfigs = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      instanceConfigs.add(new InstanceConfig("batchInstance_" + (12918 + i)).getRecord());
+    }
+    instanceConfigs.add(new InstanceConfig("existingInstance_12918").getRecord());
+
+    Entity entity = Entity.entity(OBJECT_MAPPER.writeValueAsString(
+        ImmutableMap.of(InstancesAccessor.InstancesProperties.instances.name(), instanceConfigs)),
+        MediaType.APPLICATION_JSON_TYPE);
+    Response response = new JerseyUriRequestBuilder("clusters/{}/instances?command=add")
+        .format(clusterName).post(this, entity);
+    JsonNode jsonNode = OBJECT_MAPPER.readTree(response.readEntity(String.class));
+    for (int i = 0; i < 3; i++) {
+      Assert.assertTrue(jsonNode.get("batchInstance_" + (12918 + i)).booleanValue());
+    }
+    Assert.assertFalse(jsonNode.get("existingInstance_12918").booleanValue());
+    Assert.assertEquals(
+        new HashSet<>(_gSetupTool.getClusterManagementTool().getInstancesInCluster(clusterName)),
+        ImmutableSet.of("existingInstance_12918", "batchInstance_12918", "batchInstance_12919",
+            "batchInstance_12920"));
+
+    _gSetupTool.deleteCluster(clusterName);
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   private Set<String> getStringSet(JsonNode jsonNode, String key) {
     Set<String> result = new HashSet<>();
     jsonNode.withArray(key).forEach(s -> result.add(s.textValue()));
@@ -130,6 +130,43 @@ public class TestResourceAccessor extends AbstractTestClass {
     System.out.println("End test :" + TestHelper.getTestMethodName());
   }
 
+  @Test(dependsOnMethods = "testAddResources")
+  public void testAddResourcesInBatch() throws IOException {
+    System.out.println("Start test :" + TestHelper.getTestMethodName());
+    String batchResourceName = "batchResource";
+    List<ZNRecord> idealStates = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      idealStates.add(new FullAutoModeISBuilder(batchResourceName + i).setNumPartitions(4)
+          .setStateModel("OnlineOffline").setRebalancerMode(IdealState.RebalanceMode.FULL_AUTO)
+          .setRebalanceStrategy("DEFAULT").build().getRecord());
+    }
+    // An existing resource is not overwritten
+    idealStates.add(new IdealState("newResource").getRecord());
+
+    Entity entity = Entity.entity(OBJECT_MAPPER.writeValueAsString(
+        ImmutableMap.of(ResourceAccessor.ResourceProperties.idealStates.name(), idealStates)),
+        MediaType.APPLICATION_JSON_TYPE);
+    Response response = post("clusters/" + CLUSTER_NAME + "/resources", null, entity,
+        Response.Status.OK.getStatusCode(), true);
+    Map<String, Boolean> result = OBJECT_MAPPER.readValue(response.readEntity(String.class),
+        new TypeReference<Map<String, Boolean>>() {
+        });
+    Assert.assertEquals(result,
+        ImmutableMap.of(batchResourceName + 0, true, batchResourceName + 1, true,
+            batchResourceName + 2, true, "newResource", false));
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(_gSetupTool.getClusterManagementTool()
+              .getResourceIdealState(CLUSTER_NAME, batchResourceName + i).getRecord(),
+          idealStates.get(i));
+      _gSetupTool.getClusterManagementTool().dropResource(CLUSTER_NAME, batchResourceName + i);
+    }
+
+    // Unsupported command
+    post("clusters/" + CLUSTER_NAME + "/resources", ImmutableMap.of("command", "enable"), entity,
+        Response.Status.BAD_REQUEST.getStatusCode());
+    System.out.println("End test :" + TestHelper.getTestMethodName());
+  }
+
   @Test(dependsOnMethods = "testAddResources")
   public void testResourceConfig() throws IOException {
     System.out.println("Start test :" + TestHelper.getTestMethodName());
@@ -19,12 +19,18 @@ package org.apache.helix.view.aggregator;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
@@ -52,6 +58,7 @@ public class HelixViewAggregator implements ClusterConfigChangeListener {
   private static final Logger logger = LoggerFactory.getLogger(HelixViewAggregator.class);
   private static final long DEFAULT_INITIAL_EVENT_PROCESS_BACKOFF = 10;
   private static final long DEFAULT_MAX_EVENT_PROCESS_BACKOFF = 5 * 1000;
+  private static final int DEFAULT_SOURCE_CLUSTER_REFRESH_THREADS = 8;
   private final String _viewClusterName;
   private final HelixManager _viewClusterManager;
   private final Map<String, SourceClusterDataProvider> _dataProviderMap;
@@ -64,6 +71,9 @@ public class HelixViewAggregator implements ClusterConfigChangeListener {
   private final DedupEventProcessor<ClusterViewEvent.Type, ClusterViewEvent> _viewConfigProcessor;
   private final ViewAggregatorMonitor _monitor;
 
+  // Refreshes source cluster caches in parallel
+  private final ExecutorService _sourceClusterRefreshExecutor;
+
   private ClusterConfig _curViewClusterConfig;
   private Timer _viewClusterRefreshTimer;
   private ViewClusterRefresher _viewClusterRefresher;
@@ -77,6 +87,12 @@ public class HelixViewAggregator implements ClusterConfigChangeListener {
             InstanceType.SPECTATOR, zkAddr);
     _refreshViewCluster = new AtomicBoolean(true);
     _monitor = new ViewAggregatorMonitor(viewClusterName);
+    _sourceClusterRefreshExecutor = Executors.newFixedThreadPool(DEFAULT_SOURCE_CLUSTER_REFRESH_THREADS,
+        r -> {
+          Thread thread = new Thread(r, "SourceClusterRefresher-" + _viewClusterName);
+          thread.setDaemon(true);
+          return thread;
+        });
     _aggregator = new DedupEventProcessor<ClusterViewEvent.Type, ClusterViewEvent>(_viewClusterName,
         "Aggregator") {
       @Override
@@ -137,6 +153,8 @@ public class HelixViewAggregator implements ClusterConfigChangeListener {
       _viewClusterRefreshTimer.cancel();
     }
 
+    _sourceClusterRefreshExecutor.shutdownNow();
+
     // disconnect manager
     if (_viewClusterManager != null && _viewClusterManager.isConnected()) {
       logger.info("Shutting down view cluster helix manager");
@@ -361,21 +379,31 @@ public class HelixViewAggregator implements ClusterConfigChangeListener {
       providerView = new HashSet<>(_dataProviderMap.values());
     }
 
-    // Refresh data providers
-    // TODO: the following steps can be parallelized
+    // Refresh data providers in parallel. Wait for all of them to finish so no refresh is still
+    // running on a data provider when the next view cluster refresh starts.
+    List<Future<?>> refreshFutures = new ArrayList<>(providerView.size());
     for (SourceClusterDataProvider provider : providerView) {
+      refreshFutures.add(_sourceClusterRefreshExecutor.submit(provider::refreshCache));
+    }
+    for (Future<?> future : refreshFutures) {
       try {
-        provider.refreshCache();
-      } catch (Exception e) {
-        logger.warn("Caught exception when refreshing source cluster cache. Abort refresh.", e);
-        _refreshViewCluster.set(true);
+        future.get();
+      } catch (InterruptedException e) {
+        logger.warn("Interrupted when refreshing source cluster caches. Abort refresh.", e);
+        Thread.currentThread().interrupt();
         dataProviderFailure = true;
-
-        // Skip refresh view cluster when we cannot successfully refresh
-        // source cluster caches
         break;
+      } catch (ExecutionException e) {
+        logger.warn("Caught exception when refreshing source cluster cache. Abort refresh.",
+            e.getCause());
+        dataProviderFailure = true;
       }
     }
+    if (dataProviderFailure) {
+      // Skip refresh view cluster when we cannot successfully refresh
+      // source cluster caches
+      _refreshViewCluster.set(true);
+    }
 
     // Refresh properties in view cluster
     if (!dataProviderFailure) {
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import org.apache.helix.AccessOption;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
@@ -50,6 +51,19 @@ public class ViewClusterRefresher {
   private final ViewClusterDataCache _viewClusterDataCache;
   private Set<SourceClusterDataProvider> _dataProviderView;
 
+  // External views of each source cluster that are merged into _mergedExternalViews. They are
+  // compared by reference with the current ones in source cluster caches to find changed resources,
+  // as source cluster caches only reload external views whose ZNode version changed.
+  private final Map<SourceClusterDataProvider, Map<String, ExternalView>> _mergedSourceExternalViews =
+      new HashMap<>();
+  // External views merged from all source clusters, keyed by resource name
+  private final Map<String, ExternalView> _mergedExternalViews = new HashMap<>();
+  // External views in view cluster cache at last refresh, to find external views changed in view
+  // cluster since then
+  private Map<String, ExternalView> _lastViewExternalViews = Collections.emptyMap();
+  // Resources that failed to be written into view cluster and need to be compared again
+  private final Set<String> _externalViewsToRetry = new HashSet<>();
+
   public ViewClusterRefresher(String viewClusterName, HelixDataAccessor viewClusterDataAccessor) {
     _viewClusterName = viewClusterName;
     _viewClusterDataAccessor = viewClusterDataAccessor;
@@ -119,6 +133,9 @@ public class ViewClusterRefresher {
     Set<String> listedNamesInView;
     Set<String> listedNamesInSource = new HashSet<>();
     Map<String, HelixProperty> sourceProperties = new HashMap<>();
+    Map<SourceClusterDataProvider, Map<String, ExternalView>> sourceExternalViews = new HashMap<>();
+    // Names of the properties to compare with view cluster. Null means all properties.
+    Set<String> namesToCompare = null;
     Map<String, HelixProperty> viewClusterPropertyCache =
         (Map<String, HelixProperty>) getViewClusterPropertyCache(propertyType);
     if (viewClusterPropertyCache == null) {
@@ -148,13 +165,8 @@ public class ViewClusterRefresher {
           break;
         case EXTERNALVIEW:
           listedNamesInSource.addAll(provider.getExternalViewNames());
-          for (Map.Entry<String, ExternalView> entry : provider.getExternalViews().entrySet()) {
-            String resourceName = entry.getKey();
-            if (!sourceProperties.containsKey(resourceName)) {
-              sourceProperties.put(resourceName, new ExternalView(resourceName));
-            }
-            mergeExternalViews((ExternalView) sourceProperties.get(resourceName), entry.getValue());
-          }
+          // Copy as the cache may be cleared in place
+          sourceExternalViews.put(provider, new HashMap<>(provider.getExternalViews()));
           break;
         default:
           // Will NOT come here as for unsupported property type, exception will be thrown out
@@ -163,18 +175,120 @@ public class ViewClusterRefresher {
         }
       }
 
+      if (propertyType == PropertyType.EXTERNALVIEW) {
+        // Only re-merge and compare the external views affected by changes since last refresh
+        namesToCompare = mergeChangedExternalViews(sourceExternalViews);
+        namesToCompare.addAll(_externalViewsToRetry);
+        namesToCompare.addAll(getChangedViewExternalViews());
+        // External views listed in source clusters but missing in view cluster
+        for (String name : listedNamesInSource) {
+          if (!listedNamesInView.contains(name)) {
+            namesToCompare.add(name);
+          }
+        }
+        sourceProperties.putAll(_mergedExternalViews);
+      }
+
       // Perform refresh
-      ok = doRefresh(propertyType, listedNamesInView, listedNamesInSource, sourceProperties, viewClusterPropertyCache);
+      ok = doRefresh(propertyType, listedNamesInView, listedNamesInSource, sourceProperties,
+          viewClusterPropertyCache, namesToCompare);
     } catch (Exception e) {
       logger.warn(String
           .format("Caught exception during refreshing %s for view cluster %s", propertyType.name(),
               _viewClusterName), e);
+      if (propertyType == PropertyType.EXTERNALVIEW) {
+        // Changes merged in this round might not be written, re-merge all external views next time
+        _mergedSourceExternalViews.clear();
+      }
     }
     logRefreshResult(propertyType, ok);
 
     return ok;
   }
 
+  /**
+   * Re-merge external views of the resources that are added, changed or removed in any source
+   * cluster since last refresh, including resources of source clusters that are no longer
+   * aggregated.
+   *
+   * @param sourceExternalViews current external views of each source cluster to aggregate
+   * @return names of the resources whose merged external view is re-computed
+   */
+  private Set<String> mergeChangedExternalViews(
+      Map<SourceClusterDataProvider, Map<String, ExternalView>> sourceExternalViews) {
+    Set<String> changedResources = new HashSet<>();
+    for (Map.Entry<SourceClusterDataProvider, Map<String, ExternalView>> entry : sourceExternalViews
+        .entrySet()) {
+      Map<String, ExternalView> current = entry.getValue();
+      Map<String, ExternalView> previous =
+          _mergedSourceExternalViews.getOrDefault(entry.getKey(), Collections.emptyMap());
+      for (Map.Entry<String, ExternalView> ev : current.entrySet()) {
+        if (previous.get(ev.getKey()) != ev.getValue()) {
+          changedResources.add(ev.getKey());
+        }
+      }
+      for (String resourceName : previous.keySet()) {
+        if (!current.containsKey(resourceName)) {
+          changedResources.add(resourceName);
+        }
+      }
+    }
+    for (Map.Entry<SourceClusterDataProvider, Map<String, ExternalView>> entry : _mergedSourceExternalViews
+        .entrySet()) {
+      if (!sourceExternalViews.containsKey(entry.getKey())) {
+        changedResources.addAll(entry.getValue().keySet());
+      }
+    }
+
+    for (String resourceName : changedResources) {
+      ExternalView merged = null;
+      for (Map<String, ExternalView> externalViews : sourceExternalViews.values()) {
+        ExternalView toMerge = externalViews.get(resourceName);
+        if (toMerge == null) {
+          continue;
+        }
+        if (merged == null) {
+          merged = new ExternalView(resourceName);
+        }
+        mergeExternalViews(merged, toMerge);
+      }
+      if (merged == null) {
+        _mergedExternalViews.remove(resourceName);
+      } else {
+        _mergedExternalViews.put(resourceName, merged);
+      }
+    }
+
+    _mergedSourceExternalViews.clear();
+    _mergedSourceExternalViews.putAll(sourceExternalViews);
+    if (!changedResources.isEmpty()) {
+      logger.info(String.format("Re-merged %s changed external views for view cluster %s",
+          changedResources.size(), _viewClusterName));
+    }
+    return changedResources;
+  }
+
+  /**
+   * @return names of external views that are added, changed or removed in view cluster data cache
+   *         since last refresh
+   */
+  private Set<String> getChangedViewExternalViews() {
+    Map<String, ExternalView> current = new HashMap<>(_viewClusterDataCache.getExternalViews());
+    Set<String> changed = new HashSet<>();
+    for (Map.Entry<String, ExternalView> ev : current.entrySet()) {
+      if (_lastViewExternalViews.get(ev.getKey()) != ev.getValue()) {
+        changed.add(ev.getKey());
+      }
+    }
+    for (String name : _lastViewExternalViews.keySet()) {
+      if (!current.containsKey(name)) {
+        changed.add(name);
+      }
+    }
+    _lastViewExternalViews = current;
+    return changed;
+  }
+
   /**
    * Merge external view "toMerge" into external view "source":
    *  - if partition in toMerge does not exist in source, we add it into source
@@ -208,11 +322,14 @@ public class ViewClusterRefresher {
    * @param sourcePropertyNames names of all properties (i.e. liveInstances) in all source clusters
    * @param cachedSourceProperties all cached properties from source clusters
    * @param viewClusterPropertyCache all properties that are previously set successfully to view cluster
+   * @param namesToCompare names of the cached source properties to compare with view cluster
+   *                       property cache. If null, all cached source properties are compared
    * @return ClusterPropertyDiff object contains diff information
    */
   private ClusterPropertyDiff calculatePropertyDiff(
       Set<String> viewPropertyNames, Set<String> sourcePropertyNames,
-      Map<String, HelixProperty> cachedSourceProperties, Map<String, HelixProperty> viewClusterPropertyCache) {
+      Map<String, HelixProperty> cachedSourceProperties, Map<String, HelixProperty> viewClusterPropertyCache,
+      Set<String> namesToCompare) {
     ClusterPropertyDiff diff = new ClusterPropertyDiff();
 
     // items whose names are in view cluster but not in source should be removed for sure
@@ -220,9 +337,10 @@ public class ViewClusterRefresher {
     toDelete.removeAll(sourcePropertyNames);
     diff.addPropertiesToDelete(toDelete);
 
-    for (Map.Entry<String, HelixProperty> sourceProperty : cachedSourceProperties.entrySet()) {
-      String name = sourceProperty.getKey();
-      HelixProperty property = sourceProperty.getValue();
+    Collection<String> names =
+        namesToCompare == null ? cachedSourceProperties.keySet() : namesToCompare;
+    for (String name : names) {
+      HelixProperty property = cachedSourceProperties.get(name);
 
       // cache refresh happens earlier than list curNames, so if cache is still in curNames,
       // we confirm that this is a valid live instance. This is necessary because ZK
@@ -255,15 +373,18 @@ public class ViewClusterRefresher {
    * @param sourcePropertyNames all names of the target properties in source clusters
    * @param cachedSourceProperties all up-to-date cached properties in source cluster
    * @param viewClusterPropertyCache view cluster cache
+   * @param namesToCompare names of cached source properties to compare, null for all
    * @return true if all required refreshes are successful, else false
    */
   private boolean doRefresh(PropertyType propertyType,
       Set<String> viewPropertyNames, Set<String> sourcePropertyNames,
-      Map<String, HelixProperty> cachedSourceProperties, Map<String, HelixProperty> viewClusterPropertyCache) {
+      Map<String, HelixProperty> cachedSourceProperties, Map<String, HelixProperty> viewClusterPropertyCache,
+      Set<String> namesToCompare) {
     boolean ok = true;
     // Calculate diff
     ClusterPropertyDiff diff =
-        calculatePropertyDiff(viewPropertyNames, sourcePropertyNames, cachedSourceProperties, viewClusterPropertyCache);
+        calculatePropertyDiff(viewPropertyNames, sourcePropertyNames, cachedSourceProperties,
+            viewClusterPropertyCache, namesToCompare);
 
     // Generate property keys
     List<PropertyKey> keysToSet = new ArrayList<>();
@@ -291,6 +412,14 @@ public class ViewClusterRefresher {
     if (!addOrUpdateProperties(keysToSet, diff.getPropertiesToSet())) {
       ok = false;
     }
+
+    if (propertyType == PropertyType.EXTERNALVIEW) {
+      // View cluster cache is not updated for failed writes, so compare them again next time
+      _externalViewsToRetry.clear();
+      if (!ok) {
+        _externalViewsToRetry.addAll(diff.getKeysToSet());
+      }
+    }
     return ok;
   }
 
@@ -369,6 +498,8 @@ public class ViewClusterRefresher {
   /**
    * Delete properties in ZK specified by a list of property keys. Update the given cache
    * for the objects that got successfully deleted in ZK
+   * Properties are deleted with one batch of async requests. The ones that failed in the batch
+   * are removed again one by one, which also handles non-leaf and already deleted ZNodes.
    * @param keysToDelete
    * @param <T> HelixProperty
    * @return true if all objects got successfully deleted else false
@@ -376,11 +507,20 @@ public class ViewClusterRefresher {
   private <T extends HelixProperty> boolean deleteProperties(List<PropertyKey> keysToDelete) {
     boolean ok = true;
     logger.info(String.format("Deleting %s objects: %s", keysToDelete.size(), keysToDelete));
+    if (keysToDelete.isEmpty()) {
+      return true;
+    }
+    List<String> pathsToDelete = new ArrayList<>(keysToDelete.size());
     for (PropertyKey key : keysToDelete) {
-      if (!_viewClusterDataAccessor.removeProperty(key)) {
+      pathsToDelete.add(key.getPath());
+    }
+    boolean[] deleteResults =
+        _viewClusterDataAccessor.getBaseDataAccessor().remove(pathsToDelete, AccessOption.PERSISTENT);
+    for (int i = 0; i < deleteResults.length; i++) {
+      if (!deleteResults[i] && !_viewClusterDataAccessor.removeProperty(keysToDelete.get(i))) {
         ok = false;
-        logger.warn(String.format("Failed to create or update live instance %s, will retry later",
-            key.getPath()));
+        logger.warn(String.format("Failed to delete property %s, will retry later",
+            keysToDelete.get(i).getPath()));
       }
     }
     return ok;
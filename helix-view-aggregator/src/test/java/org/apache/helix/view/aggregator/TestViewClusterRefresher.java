@@ -19,6 +19,8 @@ package org.apache.helix.view.aggregator;
  * under the License.
  */
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -28,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixProperty;
@@ -79,6 +82,25 @@ public class TestViewClusterRefresher extends ZkTestBase {
       return super.removeProperty(key);
     }
 
+    /**
+     * Count paths removed in batch through base data accessor as removed properties
+     */
+    @Override
+    public BaseDataAccessor getBaseDataAccessor() {
+      BaseDataAccessor baseDataAccessor = super.getBaseDataAccessor();
+      return (BaseDataAccessor) Proxy.newProxyInstance(BaseDataAccessor.class.getClassLoader(),
+          new Class[]{BaseDataAccessor.class}, (proxy, method, args) -> {
+            if (method.getName().equals("remove") && args[0] instanceof List) {
+              _removeCount.addAndGet(((List) args[0]).size());
+            }
+            try {
+              return method.invoke(baseDataAccessor, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+
     public int getSetCount() {
       return _setCount.get();
     }
@@ -197,6 +219,51 @@ public class TestViewClusterRefresher extends ZkTestBase {
     verifyExternalView(accessor, 0, 0, 0);
   }
 
+  @Test
+  public void testRefreshOnlyChangedExternalViews() {
+    CounterBasedMockAccessor accessor = new CounterBasedMockAccessor(viewClusterName);
+    Map<String, SourceClusterDataProvider> dataProviderMap = new HashMap<>();
+    createMockDataProviders(dataProviderMap);
+
+    ViewClusterRefresher refresher = new ViewClusterRefresher(viewClusterName, accessor);
+    refresher.updateProviderView(new HashSet<>(dataProviderMap.values()));
+    MockSourceClusterDataProvider sampleProvider =
+        (MockSourceClusterDataProvider) dataProviderMap.get("cluster0");
+
+    Assert.assertTrue(refresher.refreshPropertiesInViewCluster(PropertyType.EXTERNALVIEW));
+    Assert.assertEquals(accessor.getSetCount(), numExternalViewPerSourceCluster);
+
+    // Nothing changed in source clusters, so no external view is written
+    accessor.resetCounters();
+    refresher.refreshViewClusterDataCache();
+    Assert.assertTrue(refresher.refreshPropertiesInViewCluster(PropertyType.EXTERNALVIEW));
+    Assert.assertEquals(accessor.getSetCount(), 0);
+    Assert.assertEquals(accessor.getRemoveCount(), 0);
+
+    // Only the resource changed in one source cluster is re-merged and written
+    List<ExternalView> externalViews =
+        new ArrayList<>(sampleProvider.getExternalViews().values());
+    ExternalView changedExternalView = new ExternalView("Resource0");
+    Map<String, String> stateMap = new HashMap<>();
+    stateMap.put("cluster0-instance", "SLAVE");
+    changedExternalView.setStateMap("Partition0", stateMap);
+    externalViews.removeIf(ev -> ev.getId().equals("Resource0"));
+    externalViews.add(changedExternalView);
+    sampleProvider.setExternalViews(externalViews);
+
+    accessor.resetCounters();
+    refresher.refreshViewClusterDataCache();
+    Assert.assertTrue(refresher.refreshPropertiesInViewCluster(PropertyType.EXTERNALVIEW));
+    Assert.assertEquals(accessor.getSetCount(), 1);
+    Assert.assertEquals(accessor.getRemoveCount(), 0);
+    ExternalView merged =
+        accessor.getProperty(accessor.keyBuilder().externalView("Resource0"));
+    Assert.assertEquals(merged.getPartitionSet().size(), numPartition);
+    Assert.assertEquals(merged.getStateMap("Partition0").get("cluster0-instance"), "SLAVE");
+    Assert.assertEquals(merged.getStateMap("Partition0").size(), numSourceCluster);
+    Assert.assertFalse(merged.getStateMap("Partition1").containsKey("cluster0-instance"));
+  }
+
   @Test
   public void testRefreshWithProviderChange() {
     CounterBasedMockAccessor viewClusterDataAccessor = new CounterBasedMockAccessor(viewClusterName);
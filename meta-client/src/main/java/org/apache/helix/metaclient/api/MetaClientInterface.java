@@ -54,7 +54,12 @@ public interface MetaClientInterface<T> {
     // For metadata storage that has non-hierarchical key space (e.g. etcd) If the entry is not modified
     // within the TTL, it will become a candidate to be deleted by the server at some point in the
     // future.
-    TTL
+    TTL,
+
+    // An ephemeral entry whose key is suffixed with a monotonically increasing counter maintained
+    // by the metadata storage. The counter is unique under the parent entry. It can be used to
+    // order entries created by different clients.
+    EPHEMERAL_SEQUENTIAL
   }
 
   enum ConnectState {
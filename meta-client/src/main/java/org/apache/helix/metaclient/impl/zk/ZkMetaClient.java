@@ -19,12 +19,17 @@ package org.apache.helix.metaclient.impl.zk;
  * under the License.
  */
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang3.NotImplementedException;
@@ -39,7 +44,9 @@ import org.apache.helix.metaclient.api.DirectChildSubscribeResult;
 import org.apache.helix.metaclient.api.MetaClientInterface;
 import org.apache.helix.metaclient.api.Op;
 import org.apache.helix.metaclient.api.OpResult;
+import org.apache.helix.metaclient.constants.MetaClientConstants;
 import org.apache.helix.metaclient.exception.MetaClientException;
+import org.apache.helix.metaclient.exception.MetaClientInterruptException;
 import org.apache.helix.metaclient.exception.MetaClientNoNodeException;
 import org.apache.helix.metaclient.exception.MetaClientNodeExistsException;
 import org.apache.helix.metaclient.impl.zk.adapter.ChildListenerAdapter;
@@ -57,6 +64,7 @@ import org.apache.helix.zookeeper.api.client.ChildrenSubscribeResult;
 import org.apache.helix.zookeeper.impl.client.ZkClient;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
 import org.apache.helix.zookeeper.zkclient.ZkConnection;
+import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
 import org.apache.helix.zookeeper.zkclient.exception.ZkException;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
@@ -132,8 +140,9 @@ public class ZkMetaClient<T> implements MetaClientInterface<T>, AutoCloseable {
     List<String> nodePaths = separateIntoUniqueNodePaths(key);
     int i = 0;
     // Ephemeral nodes cant have children, so change mode when creating parents
-    EntryMode parentMode = (EntryMode.EPHEMERAL.equals(mode) ?
-        EntryMode.PERSISTENT : mode);
+    EntryMode parentMode =
+        (EntryMode.EPHEMERAL.equals(mode) || EntryMode.EPHEMERAL_SEQUENTIAL.equals(mode)
+            ? EntryMode.PERSISTENT : mode);
 
     // Iterate over paths, starting with full key then attempting each successive parent
     // Try /a/b/c, if parent /a/b, does not exist, then try to create parent, etc..
@@ -433,39 +442,240 @@ public class ZkMetaClient<T> implements MetaClientInterface<T>, AutoCloseable {
     return false;
   }
 
+  // Batch APIs pipeline async ZK requests instead of issuing them one by one. At most
+  // DEFAULT_BATCH_MAX_IN_FLIGHT_REQUESTS requests are outstanding at a time so a large batch does
+  // not flood the ZK client outgoing queue. Results are reported per key, in the order of the keys.
   @Override
   public boolean[] create(List<String> key, List<T> data, List<EntryMode> mode) {
-    return new boolean[0];
+    validateBatchArgs(key, data, "data");
+    validateBatchArgs(key, mode, "mode");
+    final CreateMode[] zkModes = new CreateMode[key.size()];
+    for (int i = 0; i < key.size(); i++) {
+      try {
+        zkModes[i] = ZkMetaClientUtil.convertMetaClientMode(mode.get(i));
+      } catch (KeeperException e) {
+        throw new MetaClientException(e);
+      }
+    }
+    List<ZkAsyncCallbacks.CreateCallbackHandler> callbacks =
+        pipelineAsyncRequests(key.size(), window -> new ZkAsyncCallbacks.CreateCallbackHandler() {
+          @Override
+          public void handle() {
+            window.release();
+          }
+        }, (i, cb) -> _zkClient.asyncCreate(key.get(i), data.get(i), zkModes[i], cb));
+    return toBooleanResults(callbacks, "create");
   }
 
   @Override
   public boolean[] create(List<String> key, List<T> data) {
-    return new boolean[0];
+    return create(key, data, Collections.nCopies(key.size(), EntryMode.PERSISTENT));
   }
 
   @Override
   public boolean[] delete(List<String> keys) {
-    return new boolean[0];
+    List<ZkAsyncCallbacks.DeleteCallbackHandler> callbacks =
+        pipelineAsyncRequests(keys.size(), window -> new ZkAsyncCallbacks.DeleteCallbackHandler() {
+          @Override
+          public void handle() {
+            window.release();
+          }
+        }, (i, cb) -> _zkClient.asyncDelete(keys.get(i), cb));
+    return toBooleanResults(callbacks, "delete");
   }
 
   @Override
   public List<Stat> exists(List<String> keys) {
-    return null;
+    List<ZkAsyncCallbacks.ExistsCallbackHandler> callbacks =
+        pipelineAsyncRequests(keys.size(), window -> new ZkAsyncCallbacks.ExistsCallbackHandler() {
+          @Override
+          public void handle() {
+            window.release();
+          }
+        }, (i, cb) -> _zkClient.asyncExists(keys.get(i), cb));
+    List<Stat> stats = new ArrayList<>(keys.size());
+    for (ZkAsyncCallbacks.ExistsCallbackHandler cb : callbacks) {
+      KeeperException.Code rc = KeeperException.Code.get(cb.getRc());
+      if (rc == KeeperException.Code.OK) {
+        stats.add(ZkMetaClientUtil.convertZkStatToStat(cb.getStat()));
+      } else if (rc == KeeperException.Code.NONODE) {
+        stats.add(null);
+      } else {
+        throw createBatchOpException("exists", cb);
+      }
+    }
+    return stats;
   }
 
   @Override
   public List<T> get(List<String> keys) {
-    return null;
+    List<ZkAsyncCallbacks.GetDataCallbackHandler> callbacks = batchGetData(keys);
+    List<T> records = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      ZkAsyncCallbacks.GetDataCallbackHandler cb = callbacks.get(i);
+      KeeperException.Code rc = KeeperException.Code.get(cb.getRc());
+      if (rc == KeeperException.Code.OK) {
+        records.add(deserialize(cb.getData(), keys.get(i)));
+      } else if (rc == KeeperException.Code.NONODE) {
+        records.add(null);
+      } else {
+        throw createBatchOpException("get", cb);
+      }
+    }
+    return records;
   }
 
+  /**
+   * Batch update is done in rounds. Each round reads all pending entries and writes the updated
+   * values back with the version that was read, both pipelined. Entries that fail on a version
+   * conflict are retried in the next round. Entries that do not exist are reported as null.
+   */
   @Override
   public List<T> update(List<String> keys, List<DataUpdater<T>> updater) {
-    return null;
+    validateBatchArgs(keys, updater, "updater");
+    List<T> results = new ArrayList<>(Collections.nCopies(keys.size(), null));
+    List<Integer> pending = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      pending.add(i);
+    }
+
+    while (!pending.isEmpty()) {
+      List<String> readKeys = new ArrayList<>(pending.size());
+      for (int idx : pending) {
+        readKeys.add(keys.get(idx));
+      }
+      List<ZkAsyncCallbacks.GetDataCallbackHandler> readCallbacks = batchGetData(readKeys);
+
+      List<Integer> writeIndexes = new ArrayList<>(pending.size());
+      List<String> writeKeys = new ArrayList<>(pending.size());
+      List<T> writeData = new ArrayList<>(pending.size());
+      List<Integer> writeVersions = new ArrayList<>(pending.size());
+      for (int j = 0; j < pending.size(); j++) {
+        int idx = pending.get(j);
+        ZkAsyncCallbacks.GetDataCallbackHandler cb = readCallbacks.get(j);
+        KeeperException.Code rc = KeeperException.Code.get(cb.getRc());
+        if (rc == KeeperException.Code.NONODE) {
+          continue;
+        } else if (rc != KeeperException.Code.OK) {
+          throw createBatchOpException("update", cb);
+        }
+        T oldData = deserialize(cb.getData(), keys.get(idx));
+        writeIndexes.add(idx);
+        writeKeys.add(keys.get(idx));
+        writeData.add(updater.get(idx).update(oldData));
+        writeVersions.add(cb.getStat().getVersion());
+      }
+
+      List<ZkAsyncCallbacks.SetDataCallbackHandler> writeCallbacks =
+          batchSetData(writeKeys, writeData, writeVersions);
+      List<Integer> retry = new ArrayList<>();
+      for (int j = 0; j < writeIndexes.size(); j++) {
+        int idx = writeIndexes.get(j);
+        ZkAsyncCallbacks.SetDataCallbackHandler cb = writeCallbacks.get(j);
+        KeeperException.Code rc = KeeperException.Code.get(cb.getRc());
+        if (rc == KeeperException.Code.OK) {
+          results.set(idx, writeData.get(j));
+        } else if (rc == KeeperException.Code.BADVERSION) {
+          retry.add(idx);
+        } else if (rc != KeeperException.Code.NONODE) {
+          throw createBatchOpException("update", cb);
+        }
+      }
+      pending = retry;
+    }
+    return results;
   }
 
   @Override
   public boolean[] set(List<String> keys, List<T> datas, List<Integer> version) {
-    return new boolean[0];
+    validateBatchArgs(keys, datas, "data");
+    validateBatchArgs(keys, version, "version");
+    return toBooleanResults(batchSetData(keys, datas, version), "set");
+  }
+
+  private List<ZkAsyncCallbacks.GetDataCallbackHandler> batchGetData(List<String> keys) {
+    return pipelineAsyncRequests(keys.size(),
+        window -> new ZkAsyncCallbacks.GetDataCallbackHandler() {
+          @Override
+          public void handle() {
+            window.release();
+          }
+        }, (i, cb) -> _zkClient.asyncGetData(keys.get(i), cb));
+  }
+
+  private List<ZkAsyncCallbacks.SetDataCallbackHandler> batchSetData(List<String> keys,
+      List<T> datas, List<Integer> versions) {
+    return pipelineAsyncRequests(keys.size(),
+        window -> new ZkAsyncCallbacks.SetDataCallbackHandler() {
+          @Override
+          public void handle() {
+            window.release();
+          }
+        }, (i, cb) -> _zkClient.asyncSetData(keys.get(i), datas.get(i), versions.get(i), cb));
+  }
+
+  /**
+   * Issue one async request per index and wait until all of them complete. A new request is only
+   * sent once the number of outstanding requests drops below the in-flight window.
+   * @param size number of requests to issue
+   * @param callbackFactory creates the callback of a request. The callback must release the given
+   *                        window permit in its handle() method.
+   * @param request sends the request of the given index with the given callback
+   * @return the completed callbacks, in the order of the request indexes
+   */
+  private <C extends ZkAsyncCallbacks.DefaultCallback> List<C> pipelineAsyncRequests(int size,
+      Function<Semaphore, C> callbackFactory, BiConsumer<Integer, C> request) {
+    Semaphore window = new Semaphore(MetaClientConstants.DEFAULT_BATCH_MAX_IN_FLIGHT_REQUESTS);
+    List<C> callbacks = new ArrayList<>(size);
+    try {
+      for (int i = 0; i < size; i++) {
+        window.acquire();
+        C cb = callbackFactory.apply(window);
+        callbacks.add(cb);
+        request.accept(i, cb);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MetaClientInterruptException("Interrupted while sending batch requests", e);
+    } catch (ZkException e) {
+      throw translateZkExceptionToMetaclientException(e);
+    }
+
+    for (C cb : callbacks) {
+      if (!cb.waitForSuccess()) {
+        throw new MetaClientInterruptException("Interrupted while waiting for batch request results");
+      }
+    }
+    return callbacks;
+  }
+
+  private boolean[] toBooleanResults(List<? extends ZkAsyncCallbacks.DefaultCallback> callbacks,
+      String opName) {
+    boolean[] results = new boolean[callbacks.size()];
+    for (int i = 0; i < callbacks.size(); i++) {
+      ZkAsyncCallbacks.DefaultCallback cb = callbacks.get(i);
+      results[i] = cb.getRc() == KeeperException.Code.OK.intValue();
+      if (!results[i]) {
+        LOG.debug("Batch {} failed on key {}, return code {}", opName, cb.getPath(),
+            KeeperException.Code.get(cb.getRc()));
+      }
+    }
+    return results;
+  }
+
+  private static MetaClientException createBatchOpException(String opName,
+      ZkAsyncCallbacks.DefaultCallback cb) {
+    return new MetaClientException(String.format("Batch %s failed on key %s, return code: %s",
+        opName, cb.getPath(), ZkMetaClientUtil
+            .translateZooKeeperCodeToMetaClientCode(KeeperException.Code.get(cb.getRc()))));
+  }
+
+  private static void validateBatchArgs(List<String> keys, List<?> args, String argName) {
+    if (keys.size() != args.size()) {
+      throw new IllegalArgumentException(String.format(
+          "Number of keys (%d) does not match number of %s (%d)", keys.size(), argName,
+          args.size()));
+    }
   }
 
   @Override
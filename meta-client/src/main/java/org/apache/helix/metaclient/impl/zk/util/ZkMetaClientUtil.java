@@ -122,6 +122,8 @@ public class ZkMetaClientUtil {
         return CreateMode.EPHEMERAL;
       case CONTAINER:
         return CreateMode.CONTAINER;
+      case EPHEMERAL_SEQUENTIAL:
+        return CreateMode.EPHEMERAL_SEQUENTIAL;
       default:
         throw new IllegalArgumentException(entryMode.name() + " is not a supported EntryMode.");
     }
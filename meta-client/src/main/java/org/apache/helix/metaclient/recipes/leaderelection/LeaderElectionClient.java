@@ -22,11 +22,12 @@ package org.apache.helix.metaclient.recipes.leaderelection;
 import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.helix.metaclient.api.ConnectStateChangeListener;
 import org.apache.helix.metaclient.api.DataChangeListener;
@@ -71,7 +72,22 @@ public class LeaderElectionClient implements AutoCloseable {
   private static final Logger LOG = LoggerFactory.getLogger(LeaderElectionClient.class);
 
   // A list of leader election group that this client joins.
-  private Set<String> _leaderGroups = new HashSet<>();
+  private Set<String> _leaderGroups = ConcurrentHashMap.newKeySet();
+
+  // In memory leader of the joined leader election groups, keyed by leader entry key. It is kept
+  // up to date by the leader entry subscription of the group and invalidated when the connection
+  // to the metadata store is lost, so leadership checks do not need to read the metadata store.
+  private final Map<String, CachedLeader> _leaderCache = new ConcurrentHashMap<>();
+  // Bumped on every cache update from notifications or invalidation. A leader read from the
+  // metadata store is only cached if no such change happened during the read.
+  private final AtomicLong _leaderCacheGeneration = new AtomicLong();
+  // Max age of a cached leader before it is read again from the metadata store. A non-positive
+  // value means cached leaders only expire on change notification or connection loss.
+  private volatile long _leaderCacheStalenessBoundMs = DEFAULT_LEADER_CACHE_STALENESS_BOUND_MS;
+  private final AtomicLong _leaderCacheHitCount = new AtomicLong();
+  private final AtomicLong _leaderCacheMissCount = new AtomicLong();
+  private final AtomicLong _leaderCacheInvalidationCount = new AtomicLong();
+  private static final long DEFAULT_LEADER_CACHE_STALENESS_BOUND_MS = -1L;
 
   private Map<String, LeaderInfo> _participantInfos = new HashMap<>();
 
@@ -119,9 +135,52 @@ public class LeaderElectionClient implements AutoCloseable {
 
   /**
    * Returns true if current participant is the current leadership.
+   * For a leader election group joined by this client, the check is answered from the in memory
+   * leader cache when the cache is valid.
    */
   public boolean isLeader(String leaderPath) {
-    return getLeader(leaderPath).equalsIgnoreCase(_participant);
+    String leader = getLeader(leaderPath);
+    return leader != null && leader.equalsIgnoreCase(_participant);
+  }
+
+  /**
+   * Set the max age of a cached leader. A cached leader older than the bound is read again from
+   * the metadata store on the next leadership check.
+   * @param stalenessBoundMs the bound in milliseconds. A non-positive value means cached leaders
+   *                         only expire on change notification or connection loss.
+   */
+  public void setLeaderCacheStalenessBound(long stalenessBoundMs) {
+    _leaderCacheStalenessBoundMs = stalenessBoundMs;
+  }
+
+  /**
+   * Returns true if the leader of the given leader election group is cached and valid, meaning
+   * isLeader and getLeader can be answered without reading the metadata store.
+   */
+  public boolean isLeaderCacheValid(String leaderPath) {
+    return isValid(_leaderCache.get(leaderPath + LEADER_ENTRY_KEY));
+  }
+
+  /**
+   * @return number of leadership checks answered from the leader cache.
+   */
+  public long getLeaderCacheHitCount() {
+    return _leaderCacheHitCount.get();
+  }
+
+  /**
+   * @return number of leadership checks of joined groups that read the metadata store because
+   *         the cached leader was missing, invalidated or stale.
+   */
+  public long getLeaderCacheMissCount() {
+    return _leaderCacheMissCount.get();
+  }
+
+  /**
+   * @return number of times the leader cache was invalidated because of connection loss.
+   */
+  public long getLeaderCacheInvalidationCount() {
+    return _leaderCacheInvalidationCount.get();
   }
 
   /**
@@ -254,6 +313,7 @@ public class LeaderElectionClient implements AutoCloseable {
     // deleting ZNode. So that handler in ReElectListener won't recreate the leader node.
     if (exitLeaderElectionParticipantPool) {
       _leaderGroups.remove(leaderPath + LEADER_ENTRY_KEY);
+      _leaderCache.remove(leaderPath + LEADER_ENTRY_KEY);
       _metaClient.delete(leaderPath + PARTICIPANTS_ENTRY_PARENT + _participant);
     }
     // check if current participant is the leader
@@ -265,6 +325,8 @@ public class LeaderElectionClient implements AutoCloseable {
         List<Op> ops = Arrays.asList(Op.check(key, expectedVersion), Op.delete(key, expectedVersion));
         //Execute transactional support on operations
         List<OpResult> opResults = _metaClient.transactionOP(ops);
+        // Do not answer leadership checks from the cache until the deletion is notified.
+        invalidateLeaderCache(key);
         if (opResults.get(0).getType() == ERRORRESULT) {
           if (isLeader(leaderPath)) {
             // Participant re-elected as leader.
@@ -287,9 +349,53 @@ public class LeaderElectionClient implements AutoCloseable {
    * @throws RuntimeException when leader path does not exist. // TODO: define exp type
    */
   public String getLeader(String leaderPath) {
+    String key = leaderPath + LEADER_ENTRY_KEY;
+    if (!_leaderGroups.contains(key)) {
+      // Not subscribed to the leader entry, so it cannot be cached.
+      LeaderInfo leaderInfo = _metaClient.get(key);
+      return leaderInfo == null ? null : leaderInfo.getLeaderName();
+    }
+
+    CachedLeader cachedLeader = _leaderCache.get(key);
+    if (isValid(cachedLeader)) {
+      _leaderCacheHitCount.incrementAndGet();
+      return cachedLeader._leaderName;
+    }
+    _leaderCacheMissCount.incrementAndGet();
+    long generation = _leaderCacheGeneration.get();
+    LeaderInfo leaderInfo = _metaClient.get(key);
+    String leader = leaderInfo == null ? null : leaderInfo.getLeaderName();
+    // Only cache the read result if no notification or invalidation happened in between.
+    _leaderCache.compute(key, (k, current) -> generation == _leaderCacheGeneration.get()
+        ? new CachedLeader(leader) : current);
+    return leader;
+  }
+
+  private boolean isValid(CachedLeader cachedLeader) {
+    if (cachedLeader == null) {
+      return false;
+    }
+    long stalenessBoundMs = _leaderCacheStalenessBoundMs;
+    return stalenessBoundMs <= 0
+        || System.currentTimeMillis() - cachedLeader._updateTime <= stalenessBoundMs;
+  }
+
+  private void updateLeaderCache(String key, String leader) {
+    _leaderCacheGeneration.incrementAndGet();
+    if (_leaderGroups.contains(key)) {
+      _leaderCache.put(key, new CachedLeader(leader));
+    }
+  }
 
-    LeaderInfo leaderInfo = _metaClient.get(leaderPath + LEADER_ENTRY_KEY);
-    return leaderInfo == null ? null : leaderInfo.getLeaderName();
+  private void invalidateLeaderCache(String key) {
+    _leaderCacheGeneration.incrementAndGet();
+    _leaderCache.remove(key);
+  }
+
+  private void invalidateLeaderCache() {
+    _leaderCacheGeneration.incrementAndGet();
+    _leaderCache.clear();
+    _leaderCacheInvalidationCount.incrementAndGet();
   }
 
   /**
@@ -377,6 +483,13 @@ public class LeaderElectionClient implements AutoCloseable {
 
     @Override
     public void handleDataChange(String key, Object data, ChangeType changeType) throws Exception {
+      if (changeType == ChangeType.ENTRY_DELETED) {
+        updateLeaderCache(key, null);
+      } else {
+        // Data is read when handling the notification and may be gone already.
+        updateLeaderCache(key, data == null ? null : ((LeaderInfo) data).getLeaderName());
+      }
+
       if (changeType == ChangeType.ENTRY_CREATED) {
         LOG.info("new leader for leader election group {}.", key);
       } else if (changeType == ChangeType.ENTRY_DELETED) {
@@ -399,6 +512,10 @@ public class LeaderElectionClient implements AutoCloseable {
     @Override
     public void handleConnectStateChanged(MetaClientInterface.ConnectState prevState,
         MetaClientInterface.ConnectState currentState) throws Exception {
+      // Notifications may be missed while disconnected, and the leader entry of this participant
+      // is gone when the session expires. Invalidate cached leaders on any connect state change so
+      // leadership is read from the metadata store until new notifications arrive.
+      invalidateLeaderCache();
       if (prevState == MetaClientInterface.ConnectState.EXPIRED
           && currentState == MetaClientInterface.ConnectState.CONNECTED) {
         for (String leaderPath : _participantInfos.keySet()) {
@@ -439,4 +556,15 @@ public class LeaderElectionClient implements AutoCloseable {
   public MetaClientInterface getMetaClient() {
     return _metaClient;
   }
+
+  private static class CachedLeader {
+    // Null if there is no leader.
+    private final String _leaderName;
+    private final long _updateTime;
+
+    CachedLeader(String leaderName) {
+      _leaderName = leaderName;
+      _updateTime = System.currentTimeMillis();
+    }
+  }
 }
\ No newline at end of file
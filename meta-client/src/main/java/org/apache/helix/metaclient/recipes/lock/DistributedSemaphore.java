@@ -19,10 +19,15 @@ package org.apache.helix.metaclient.recipes.lock;
  * under the License.
  */
 
-import org.apache.commons.lang3.NotImplementedException;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.helix.metaclient.api.DataChangeListener;
+import org.apache.helix.metaclient.api.DataUpdater;
+import org.apache.helix.metaclient.api.DirectChildChangeListener;
 import org.apache.helix.metaclient.api.MetaClientInterface;
 import org.apache.helix.metaclient.datamodel.DataRecord;
+import org.apache.helix.metaclient.exception.MetaClientBadVersionException;
 import org.apache.helix.metaclient.exception.MetaClientException;
+import org.apache.helix.metaclient.exception.MetaClientNodeExistsException;
 import org.apache.helix.metaclient.factories.MetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
 import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientFactory;
@@ -32,6 +37,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 public class DistributedSemaphore {
@@ -40,6 +49,12 @@ public class DistributedSemaphore {
   private static final String INITIAL_CAPACITY_NAME = "INITIAL_CAPACITY";
   private static final String REMAINING_CAPACITY_NAME = "REMAINING_CAPACITY";
   private static final long DEFAULT_REMAINING_CAPACITY = -1;
+  // Blocking acquirers queue up as sequential entries under this child entry of the semaphore.
+  private static final String WAITERS_ENTRY_NAME = "waiters";
+  private static final String WAITER_PREFIX_SEPARATOR = "_";
+  private static final String REQUESTED_PERMITS_NAME = "REQUESTED_PERMITS";
+  // ZK appends a 10 digit sequence number to the name of sequential entries.
+  private static final int SEQUENCE_NUMBER_LENGTH = 10;
   private static final Logger LOG = LoggerFactory.getLogger(DistributedSemaphore.class);
 
   /**
@@ -159,13 +174,103 @@ public class DistributedSemaphore {
   /**
    * Try to acquire a permit. If no enough permit is available, wait for a specific time or return when it was able to acquire.
    * If timeout <=0, then return immediately when not able to acquire.
+   * Waiting acquirers are served in FIFO order: each of them enqueues a sequential entry under the
+   * semaphore and only the head of the queue may take permits. Waiters are woken up by change
+   * notifications on the semaphore and the queue instead of polling.
+   * Note that the non-blocking acquire methods do not go through the queue.
    * @param count number of permits to acquire
    * @param timeout time to wait
    * @param unit time unit
-   * @return a collection of permits
+   * @return a collection of permits, or null if not able to acquire before timeout
    */
   public Collection<Permit> acquire(int count, long timeout, TimeUnit unit) {
-    throw new NotImplementedException("Not implemented yet.");
+    if (count <= 0) {
+      throw new MetaClientException("Count must be positive");
+    }
+    String waitersPath = getWaitersPath();
+    if (timeout <= 0) {
+      if (_metaClient.exists(waitersPath) != null
+          && _metaClient.countDirectChildren(waitersPath) > 0) {
+        LOG.error("Failed to acquire permits. There are other acquirers waiting in the queue.");
+        return null;
+      }
+      return acquire(count);
+    }
+
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    Semaphore changeSignal = new Semaphore(0);
+    DataChangeListener semaphoreListener = (key, data, changeType) -> changeSignal.release();
+    DirectChildChangeListener waitersListener = key -> changeSignal.release();
+    ensureWaitersEntry(waitersPath);
+    // Subscribe before enqueueing so no change is missed between a check and the wait.
+    _metaClient.subscribeDataChange(_path, semaphoreListener, false);
+    _metaClient.subscribeDirectChildChange(waitersPath, waitersListener, false);
+    String waiterName = null;
+    try {
+      String waiterPrefix = UUID.randomUUID().toString() + WAITER_PREFIX_SEPARATOR;
+      waiterName = enqueueWaiter(waitersPath, waiterPrefix, count);
+      while (true) {
+        changeSignal.drainPermits();
+        List<String> waiters = getSortedWaiters(waitersPath);
+        if (!waiters.contains(waiterName)) {
+          // The ephemeral entry is gone with an expired session. Queue up again at the tail.
+          LOG.warn("Waiter entry {} of semaphore {} is lost, enqueue again.", waiterName, _path);
+          waiterName = enqueueWaiter(waitersPath, waiterPrefix, count);
+          continue;
+        }
+        if (waiters.get(0).equals(waiterName) && tryUpdateAcquirePermit(count)) {
+          return retrieveAcquiredPermits(count);
+        }
+        long remainingNanos = deadline - System.nanoTime();
+        if (remainingNanos <= 0) {
+          LOG.error("Failed to acquire {} permits from semaphore {} before timeout.", count, _path);
+          return null;
+        }
+        changeSignal.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.error("Interrupted while waiting to acquire permits.", e);
+      return null;
+    } catch (MetaClientException e) {
+      LOG.error("Failed to acquire permits.", e);
+      return null;
+    } finally {
+      _metaClient.unsubscribeDataChange(_path, semaphoreListener);
+      _metaClient.unsubscribeDirectChildChange(waitersPath, waitersListener);
+      if (waiterName != null) {
+        try {
+          _metaClient.delete(waitersPath + "/" + waiterName);
+        } catch (MetaClientException e) {
+          // The ephemeral entry is removed with the session anyway.
+          LOG.warn("Failed to delete waiter entry {} of semaphore {}.", waiterName, _path, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Retrieve the permits whose capacity has been taken from the semaphore. If they can't be
+   * retrieved, the capacity is given back so it is not lost.
+   * @param count number of the acquired permits
+   * @return a collection of permits
+   */
+  private Collection<Permit> retrieveAcquiredPermits(int count) {
+    try {
+      Collection<Permit> permits = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        permits.add(retrievePermit(_path));
+      }
+      return permits;
+    } catch (MetaClientException e) {
+      try {
+        updateReturnPermit(count);
+      } catch (MetaClientException returnException) {
+        LOG.error("Failed to return {} acquired permits to semaphore {}.", count, _path,
+            returnException);
+      }
+      throw e;
+    }
   }
 
   /**
@@ -194,18 +299,30 @@ public class DistributedSemaphore {
     if (permit.isReleased()) {
       LOG.info("The permit has already been released");
     } else {
-      updateReturnPermit();
+      updateReturnPermit(1);
       permit.releasePermit();
     }
   }
 
   /**
    * Return a collection of permits. If a permit in that collection is already returned,
-   * log and return void.
+   * log and skip it. The remaining capacity is updated once for all the returned permits.
    */
   public void returnAllPermits(Collection<Permit> permits) {
+    List<Permit> unreleasedPermits = new ArrayList<>(permits.size());
     for (Permit permit : permits) {
-      returnPermit(permit);
+      if (permit.isReleased()) {
+        LOG.info("The permit has already been released");
+      } else {
+        unreleasedPermits.add(permit);
+      }
+    }
+    if (unreleasedPermits.isEmpty()) {
+      return;
+    }
+    updateReturnPermit(unreleasedPermits.size());
+    for (Permit permit : unreleasedPermits) {
+      permit.releasePermit();
     }
   }
 
@@ -224,7 +341,7 @@ public class DistributedSemaphore {
    * @param count number of permits to acquire
    */
   private void updateAcquirePermit(int count) {
-    _metaClient.update(_path, record -> {
+    updateWithRetry(record -> {
       long permitsAvailable = record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
       if (permitsAvailable < count) {
         throw new MetaClientException("No sufficient permits available. Attempt to acquire " + count + " permits, but only "
@@ -236,13 +353,92 @@ public class DistributedSemaphore {
   }
 
   /**
-   * Update the remaining capacity of the semaphore after returning a permit.
+   * Try to update the remaining capacity of the semaphore after acquiring permits. The semaphore
+   * is only written when enough permits are available, so a failed attempt does not notify the
+   * other waiters.
+   * @param count number of permits to acquire
+   * @return true if the permits are acquired, false if not enough permits are available
+   */
+  private boolean tryUpdateAcquirePermit(int count) {
+    while (true) {
+      ImmutablePair<DataRecord, MetaClientInterface.Stat> dataAndStat =
+          _metaClient.getDataAndStat(_path);
+      DataRecord record = new DataRecord(dataAndStat.getLeft());
+      long permitsAvailable = record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
+      if (permitsAvailable < count) {
+        return false;
+      }
+      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable - count);
+      try {
+        _metaClient.set(_path, record, dataAndStat.getRight().getVersion());
+        return true;
+      } catch (MetaClientBadVersionException e) {
+        LOG.debug("Semaphore {} was modified concurrently, retry the update.", _path);
+      }
+    }
+  }
+
+  /**
+   * Update the remaining capacity of the semaphore after returning permits.
+   * @param count number of permits to return
    */
-  private void updateReturnPermit() {
-    _metaClient.update(_path, record -> {
+  private void updateReturnPermit(int count) {
+    updateWithRetry(record -> {
       long permitsAvailable = record.getLongField(REMAINING_CAPACITY_NAME, DEFAULT_REMAINING_CAPACITY);
-      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable + 1);
+      record.setLongField(REMAINING_CAPACITY_NAME, permitsAvailable + count);
       return record;
     });
   }
+
+  /**
+   * Apply the updater to the semaphore data record. The update is a versioned write, so it is
+   * retried when the record has been modified concurrently by another client.
+   */
+  private void updateWithRetry(DataUpdater<DataRecord> updater) {
+    while (true) {
+      try {
+        _metaClient.update(_path, updater);
+        return;
+      } catch (MetaClientBadVersionException e) {
+        LOG.debug("Semaphore {} was modified concurrently, retry the update.", _path);
+      }
+    }
+  }
+
+  private String getWaitersPath() {
+    return _path + "/" + WAITERS_ENTRY_NAME;
+  }
+
+  private void ensureWaitersEntry(String waitersPath) {
+    if (_metaClient.exists(waitersPath) == null) {
+      try {
+        _metaClient.create(waitersPath, new DataRecord(WAITERS_ENTRY_NAME));
+      } catch (MetaClientNodeExistsException e) {
+        // Created by another acquirer concurrently.
+      }
+    }
+  }
+
+  /**
+   * Enqueue a sequential waiter entry and return its name.
+   */
+  private String enqueueWaiter(String waitersPath, String waiterPrefix, int count) {
+    DataRecord waiterRecord = new DataRecord(waiterPrefix);
+    waiterRecord.setLongField(REQUESTED_PERMITS_NAME, count);
+    _metaClient.create(waitersPath + "/" + waiterPrefix, waiterRecord,
+        MetaClientInterface.EntryMode.EPHEMERAL_SEQUENTIAL);
+    for (String waiter : _metaClient.getDirectChildrenKeys(waitersPath)) {
+      if (waiter.startsWith(waiterPrefix)) {
+        return waiter;
+      }
+    }
+    throw new MetaClientException("Failed to find the waiter entry of prefix " + waiterPrefix);
+  }
+
+  private List<String> getSortedWaiters(String waitersPath) {
+    List<String> waiters = new ArrayList<>(_metaClient.getDirectChildrenKeys(waitersPath));
+    waiters.sort(Comparator.comparing(
+        waiter -> waiter.substring(Math.max(0, waiter.length() - SEQUENCE_NUMBER_LENGTH))));
+    return waiters;
+  }
 }
@@ -0,0 +1,162 @@
+package org.apache.helix.metaclient.impl.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.helix.metaclient.api.DataUpdater;
+import org.apache.helix.metaclient.api.MetaClientInterface;
+import org.apache.helix.metaclient.constants.MetaClientConstants;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class TestZkMetaClientBatchOperations extends ZkMetaClientTestBase {
+  private static final String BATCH_ROOT = "/TestBatchOperations";
+  private static final int LARGE_BATCH_SIZE =
+      4 * MetaClientConstants.DEFAULT_BATCH_MAX_IN_FLIGHT_REQUESTS;
+
+  @Test
+  public void testBatchCreateGetAndExists() {
+    final String root = BATCH_ROOT + "/createGet";
+    try (ZkMetaClient<String> zkMetaClient = createZkMetaClient()) {
+      zkMetaClient.connect();
+      zkMetaClient.recursiveCreate(root, ENTRY_STRING_VALUE, MetaClientInterface.EntryMode.PERSISTENT);
+
+      List<String> keys = Arrays.asList(root + "/a", root + "/b", root + "/nonExist/c");
+      List<String> data = Arrays.asList("a", "b", "c");
+      boolean[] created = zkMetaClient.create(keys, data);
+      Assert.assertEquals(created, new boolean[]{true, true, false});
+
+      // Creating existing entries fails per key without affecting the others.
+      created = zkMetaClient.create(Arrays.asList(root + "/a", root + "/d"), Arrays.asList("a", "d"),
+          Arrays.asList(MetaClientInterface.EntryMode.PERSISTENT,
+              MetaClientInterface.EntryMode.EPHEMERAL));
+      Assert.assertEquals(created, new boolean[]{false, true});
+
+      List<String> values =
+          zkMetaClient.get(Arrays.asList(root + "/a", root + "/b", root + "/nonExist/c", root + "/d"));
+      Assert.assertEquals(values, Arrays.asList("a", "b", null, "d"));
+
+      List<MetaClientInterface.Stat> stats =
+          zkMetaClient.exists(Arrays.asList(root + "/a", root + "/nonExist/c", root + "/d"));
+      Assert.assertEquals(stats.get(0).getEntryType(), MetaClientInterface.EntryMode.PERSISTENT);
+      Assert.assertNull(stats.get(1));
+      Assert.assertEquals(stats.get(2).getEntryType(), MetaClientInterface.EntryMode.EPHEMERAL);
+
+      zkMetaClient.recursiveDelete(root);
+    }
+  }
+
+  @Test
+  public void testBatchSetUpdateAndDelete() {
+    final String root = BATCH_ROOT + "/setUpdateDelete";
+    try (ZkMetaClient<String> zkMetaClient = createZkMetaClient()) {
+      zkMetaClient.connect();
+      zkMetaClient.recursiveCreate(root, ENTRY_STRING_VALUE, MetaClientInterface.EntryMode.PERSISTENT);
+      List<String> keys = Arrays.asList(root + "/a", root + "/b");
+      zkMetaClient.create(keys, Arrays.asList("a", "b"));
+
+      // Version mismatch only fails the mismatched entry.
+      boolean[] set = zkMetaClient.set(keys, Arrays.asList("a1", "b1"), Arrays.asList(0, 5));
+      Assert.assertEquals(set, new boolean[]{true, false});
+      Assert.assertEquals(zkMetaClient.get(keys), Arrays.asList("a1", "b"));
+
+      DataUpdater<String> appendUpdater = currentData -> currentData + "-updated";
+      List<String> updated = zkMetaClient.update(
+          Arrays.asList(root + "/a", root + "/b", root + "/nonExist"),
+          Arrays.asList(appendUpdater, appendUpdater, appendUpdater));
+      Assert.assertEquals(updated, Arrays.asList("a1-updated", "b-updated", null));
+      Assert.assertEquals(zkMetaClient.get(keys), Arrays.asList("a1-updated", "b-updated"));
+
+      boolean[] deleted = zkMetaClient.delete(Arrays.asList(root + "/a", root + "/nonExist", root + "/b"));
+      Assert.assertEquals(deleted, new boolean[]{true, false, true});
+      Assert.assertEquals(zkMetaClient.countDirectChildren(root), 0);
+
+      zkMetaClient.recursiveDelete(root);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBatchArgumentSizeMismatch() {
+    try (ZkMetaClient<String> zkMetaClient = createZkMetaClient()) {
+      zkMetaClient.connect();
+      zkMetaClient.create(Arrays.asList(BATCH_ROOT + "/x", BATCH_ROOT + "/y"),
+          Collections.singletonList("x"));
+    }
+  }
+
+  /**
+   * A batch much larger than the number of in flight requests returns the result and the status
+   * of every operation at its position in the batch.
+   */
+  @Test
+  public void testLargeBatch() {
+    final String root = BATCH_ROOT + "/largeBatch";
+    try (ZkMetaClient<String> zkMetaClient = createZkMetaClient()) {
+      zkMetaClient.connect();
+      zkMetaClient.recursiveCreate(root, ENTRY_STRING_VALUE, MetaClientInterface.EntryMode.PERSISTENT);
+
+      List<String> keys = new ArrayList<>(LARGE_BATCH_SIZE);
+      List<String> data = new ArrayList<>(LARGE_BATCH_SIZE);
+      for (int i = 0; i < LARGE_BATCH_SIZE; i++) {
+        keys.add(root + "/" + i);
+        data.add(ENTRY_STRING_VALUE + i);
+      }
+      // Every third entry already exists, so only its create fails
+      for (int i = 0; i < LARGE_BATCH_SIZE; i += 3) {
+        zkMetaClient.create(keys.get(i), data.get(i));
+      }
+      boolean[] created = zkMetaClient.create(keys, data);
+      for (int i = 0; i < LARGE_BATCH_SIZE; i++) {
+        Assert.assertEquals(created[i], i % 3 != 0, "Unexpected create status of " + keys.get(i));
+      }
+      Assert.assertEquals(zkMetaClient.get(keys), data);
+      Assert.assertEquals(zkMetaClient.countDirectChildren(root), LARGE_BATCH_SIZE);
+
+      // Every other entry is set with a mismatched version
+      List<String> newData = new ArrayList<>(LARGE_BATCH_SIZE);
+      List<Integer> versions = new ArrayList<>(LARGE_BATCH_SIZE);
+      for (int i = 0; i < LARGE_BATCH_SIZE; i++) {
+        newData.add(data.get(i) + "-new");
+        versions.add(i % 2 == 0 ? 0 : 1);
+      }
+      boolean[] set = zkMetaClient.set(keys, newData, versions);
+      List<String> values = zkMetaClient.get(keys);
+      List<MetaClientInterface.Stat> stats = zkMetaClient.exists(keys);
+      for (int i = 0; i < LARGE_BATCH_SIZE; i++) {
+        Assert.assertEquals(set[i], i % 2 == 0, "Unexpected set status of " + keys.get(i));
+        Assert.assertEquals(values.get(i), i % 2 == 0 ? newData.get(i) : data.get(i));
+        Assert.assertEquals(stats.get(i).getVersion(), i % 2 == 0 ? 1 : 0);
+      }
+
+      boolean[] deleted = zkMetaClient.delete(keys);
+      for (int i = 0; i < LARGE_BATCH_SIZE; i++) {
+        Assert.assertTrue(deleted[i], "Unexpected delete status of " + keys.get(i));
+      }
+      Assert.assertEquals(zkMetaClient.countDirectChildren(root), 0);
+
+      zkMetaClient.recursiveDelete(root);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package org.apache.helix.metaclient.impl.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.helix.metaclient.api.MetaClientInterface;
+import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
+
+/**
+ * Compares the throughput of batch calls against the same number of serial single-key calls.
+ * It is not part of the test suite, run it against a ZooKeeper server of choice.
+ * Usage: ZkMetaClientBatchBenchmark zkAddress [numEntries]
+ */
+public class ZkMetaClientBatchBenchmark {
+  private static final String BENCHMARK_ROOT = "/ZkMetaClientBatchBenchmark";
+
+  public static void main(String[] args) {
+    if (args.length < 1) {
+      System.err.println("Usage: ZkMetaClientBatchBenchmark zkAddress [numEntries]");
+      System.exit(1);
+    }
+    int numEntries = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+    ZkMetaClientConfig config =
+        new ZkMetaClientConfig.ZkMetaClientConfigBuilder().setConnectionAddress(args[0]).build();
+    try (ZkMetaClient<String> zkMetaClient = new ZkMetaClient<>(config)) {
+      zkMetaClient.connect();
+      String serialRoot = BENCHMARK_ROOT + "/serial";
+      String batchRoot = BENCHMARK_ROOT + "/batch";
+      zkMetaClient.recursiveCreate(serialRoot, "", MetaClientInterface.EntryMode.PERSISTENT);
+      zkMetaClient.recursiveCreate(batchRoot, "", MetaClientInterface.EntryMode.PERSISTENT);
+      try {
+        List<String> serialKeys = new ArrayList<>(numEntries);
+        List<String> batchKeys = new ArrayList<>(numEntries);
+        List<String> data = new ArrayList<>(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+          serialKeys.add(serialRoot + "/" + i);
+          batchKeys.add(batchRoot + "/" + i);
+          data.add("value" + i);
+        }
+
+        long startT = System.nanoTime();
+        for (int i = 0; i < numEntries; i++) {
+          zkMetaClient.create(serialKeys.get(i), data.get(i));
+        }
+        for (String key : serialKeys) {
+          zkMetaClient.get(key);
+        }
+        long serialNs = System.nanoTime() - startT;
+
+        startT = System.nanoTime();
+        zkMetaClient.create(batchKeys, data);
+        zkMetaClient.get(batchKeys);
+        long batchNs = System.nanoTime() - startT;
+
+        System.out.println(String.format(
+            "Created and read %d entries. Serial: %.1f ops/s, batch: %.1f ops/s", numEntries,
+            2 * numEntries * 1e9 / serialNs, 2 * numEntries * 1e9 / batchNs));
+      } finally {
+        zkMetaClient.recursiveDelete(BENCHMARK_ROOT);
+      }
+    }
+  }
+}
@@ -340,6 +340,52 @@ public class TestLeaderElection extends ZkMetaClientTestBase {
     System.out.println("END TestLeaderElection.testClientDisconnectAndReconnectBeforeExpire");
   }
 
+  @Test(dependsOnMethods = "testAcquireLeadership")
+  public void testLeaderCache() throws Exception {
+    System.out.println("START TestLeaderElection.testLeaderCache");
+    String leaderPath = LEADER_PATH + "/testLeaderCache";
+    LeaderElectionClient clt1 = createLeaderElectionClient(PARTICIPANT_NAME1);
+    LeaderElectionClient clt2 = createLeaderElectionClient(PARTICIPANT_NAME2);
+
+    clt1.joinLeaderElectionParticipantPool(leaderPath);
+    clt2.joinLeaderElectionParticipantPool(leaderPath);
+    Assert.assertTrue(MetaClientTestUtil.verify(() -> {
+      return (clt1.isLeader(leaderPath) && clt1.isLeaderCacheValid(leaderPath));
+    }, MetaClientTestUtil.WAIT_DURATION));
+
+    // Cached leadership checks do not read the metadata store.
+    long missCount = clt1.getLeaderCacheMissCount();
+    long hitCount = clt1.getLeaderCacheHitCount();
+    for (int i = 0; i < 100; i++) {
+      Assert.assertTrue(clt1.isLeader(leaderPath));
+    }
+    Assert.assertEquals(clt1.getLeaderCacheMissCount(), missCount);
+    Assert.assertEquals(clt1.getLeaderCacheHitCount(), hitCount + 100);
+
+    // A cached leader older than the staleness bound is read again.
+    clt1.setLeaderCacheStalenessBound(1);
+    Thread.sleep(10);
+    Assert.assertFalse(clt1.isLeaderCacheValid(leaderPath));
+    Assert.assertTrue(clt1.isLeader(leaderPath));
+    Assert.assertEquals(clt1.getLeaderCacheMissCount(), missCount + 1);
+    clt1.setLeaderCacheStalenessBound(-1);
+
+    // Leader change is applied to the cache of the other participant by notification.
+    Assert.assertTrue(MetaClientTestUtil.verify(() -> {
+      return (PARTICIPANT_NAME1.equals(clt2.getLeader(leaderPath)) && clt2.isLeaderCacheValid(leaderPath));
+    }, MetaClientTestUtil.WAIT_DURATION));
+    clt1.exitLeaderElectionParticipantPool(leaderPath);
+    Assert.assertTrue(MetaClientTestUtil.verify(() -> {
+      return clt2.isLeader(leaderPath);
+    }, MetaClientTestUtil.WAIT_DURATION));
+    Assert.assertFalse(clt1.isLeader(leaderPath));
+
+    clt2.exitLeaderElectionParticipantPool(leaderPath);
+    clt1.close();
+    clt2.close();
+    System.out.println("END TestLeaderElection.testLeaderCache");
+  }
+
   private void joinPoolTestHelper(String leaderPath, LeaderElectionClient clt1, LeaderElectionClient clt2)
       throws Exception {
     clt1.joinLeaderElectionParticipantPool(leaderPath);
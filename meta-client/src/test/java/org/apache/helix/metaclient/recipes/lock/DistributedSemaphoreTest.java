@@ -19,12 +19,23 @@ package org.apache.helix.metaclient.recipes.lock;
  * under the License.
  */
 
+import org.apache.helix.metaclient.datamodel.DataRecord;
+import org.apache.helix.metaclient.exception.MetaClientException;
 import org.apache.helix.metaclient.factories.MetaClientConfig;
+import org.apache.helix.metaclient.impl.zk.ZkMetaClient;
 import org.apache.helix.metaclient.impl.zk.ZkMetaClientTestBase;
+import org.apache.helix.metaclient.impl.zk.factory.ZkMetaClientConfig;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DistributedSemaphoreTest extends ZkMetaClientTestBase {
 
@@ -99,7 +110,120 @@ public class DistributedSemaphoreTest extends ZkMetaClientTestBase {
 
   @Test
   public void testTryAcquirePermit() {
-    // Not implemented
+    final String key = "/TestSemaphore_testTryAcquirePermit";
+    int capacity = 2;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+
+    Collection<Permit> permits = semaphoreClient.acquire(2, 1, TimeUnit.SECONDS);
+    Assert.assertEquals(permits.size(), 2);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 0);
+
+    // No permit available, return null immediately or after timeout.
+    Assert.assertNull(semaphoreClient.acquire(1, 0, TimeUnit.SECONDS));
+    long startTime = System.currentTimeMillis();
+    Assert.assertNull(semaphoreClient.acquire(1, 500, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 500);
+
+    semaphoreClient.returnAllPermits(permits);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), capacity);
+  }
+
+  @Test
+  public void testBlockingAcquireWokenUpByReturn() throws Exception {
+    final String key = "/TestSemaphore_testBlockingAcquireWokenUpByReturn";
+    int capacity = 1;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+    Permit permit = semaphoreClient.acquire();
+
+    MetaClientConfig config = new MetaClientConfig.MetaClientConfigBuilder<>().setConnectionAddress(ZK_ADDR)
+        .setStoreType(MetaClientConfig.StoreType.ZOOKEEPER).build();
+    DistributedSemaphore waitingClient = new DistributedSemaphore(config);
+    waitingClient.connectSemaphore(key);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Collection<Permit>> waitingAcquire =
+          executor.submit(() -> waitingClient.acquire(1, 30, TimeUnit.SECONDS));
+      Thread.sleep(500);
+      Assert.assertFalse(waitingAcquire.isDone());
+
+      semaphoreClient.returnPermit(permit);
+      Collection<Permit> permits = waitingAcquire.get(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(permits);
+      Assert.assertEquals(permits.size(), 1);
+      Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 0);
+
+      waitingClient.returnAllPermits(permits);
+      Assert.assertEquals(semaphoreClient.getRemainingCapacity(), capacity);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBlockingAcquireDoesNotWriteWithoutPermits() {
+    final String key = "/TestSemaphore_testBlockingAcquireDoesNotWriteWithoutPermits";
+    int capacity = 1;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+    Permit permit = semaphoreClient.acquire();
+
+    try (ZkMetaClient<String> zkMetaClient = createZkMetaClient()) {
+      zkMetaClient.connect();
+      int version = zkMetaClient.exists(key).getVersion();
+      // The waiter keeps checking the semaphore until timeout, but never updates it.
+      Assert.assertNull(semaphoreClient.acquire(1, 500, TimeUnit.MILLISECONDS));
+      Assert.assertEquals(zkMetaClient.exists(key).getVersion(), version);
+    }
+
+    semaphoreClient.returnPermit(permit);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), capacity);
+  }
+
+  @Test
+  public void testReturnAllPermitsSkipsReleasedPermits() {
+    final String key = "/TestSemaphore_testReturnAllPermitsSkipsReleasedPermits";
+    int capacity = 5;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+
+    List<Permit> permits = new ArrayList<>(semaphoreClient.acquire(3));
+    semaphoreClient.returnPermit(permits.get(0));
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), 3);
+
+    semaphoreClient.returnAllPermits(permits);
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), capacity);
+    for (Permit permit : permits) {
+      Assert.assertTrue(permit.isReleased());
+    }
   }
 
+  @Test
+  public void testBlockingAcquireReturnsCapacityOnFailure() {
+    final String key = "/TestSemaphore_testBlockingAcquireReturnsCapacityOnFailure";
+    int capacity = 2;
+    DistributedSemaphore semaphoreClient = createSemaphoreClientAndSemaphore(key, capacity);
+
+    // Fail reading the semaphore once its capacity has been taken.
+    AtomicBoolean capacityTaken = new AtomicBoolean(false);
+    ZkMetaClientConfig config = new ZkMetaClientConfig.ZkMetaClientConfigBuilder()
+        .setConnectionAddress(ZK_ADDR).setZkSerializer(new DataRecordSerializer()).build();
+    try (ZkMetaClient<DataRecord> failingMetaClient = new ZkMetaClient<DataRecord>(config) {
+      @Override
+      public void set(String path, DataRecord data, int version) {
+        super.set(path, data, version);
+        capacityTaken.set(key.equals(path));
+      }
+
+      @Override
+      public Stat exists(String path) {
+        if (capacityTaken.get() && key.equals(path)) {
+          throw new MetaClientException("Failed to read semaphore " + path);
+        }
+        return super.exists(path);
+      }
+    }) {
+      DistributedSemaphore failingClient = new DistributedSemaphore(failingMetaClient);
+      failingClient.connectSemaphore(key);
+      Assert.assertNull(failingClient.acquire(capacity, 1, TimeUnit.SECONDS));
+    }
+    Assert.assertEquals(semaphoreClient.getRemainingCapacity(), capacity);
+  }
 }
@@ -39,6 +39,7 @@ import org.apache.helix.msdcommon.util.ZkValidationUtil;
  */
 public class TrieRoutingData implements MetadataStoreRoutingData {
   private static final String DELIMITER = "/";
+  private static final char DELIMITER_CHAR = '/';
 
   private final TrieNode _rootNode;
 
@@ -58,6 +59,7 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
     } else {
       _rootNode = new TrieNode(new HashMap<>(), "/", false, "");
       constructTrie(routingData);
+      indexTrie();
     }
   }
 
@@ -158,18 +160,40 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
       return _rootNode;
     }
 
+    // Walk the path section by section using indices into the path, so no substring is created
     TrieNode curNode = _rootNode;
-    TrieNode nextNode;
-    for (String pathSection : path.substring(1).split(DELIMITER, 0)) {
-      nextNode = curNode.getChildren().get(pathSection);
+    int sectionStart = 1;
+    while (sectionStart <= path.length()) {
+      int sectionEnd = path.indexOf(DELIMITER_CHAR, sectionStart);
+      if (sectionEnd < 0) {
+        sectionEnd = path.length();
+      }
+      TrieNode nextNode = curNode.getChild(path, sectionStart, sectionEnd);
       if (nextNode == null) {
         return curNode;
       }
       curNode = nextNode;
+      sectionStart = sectionEnd + 1;
     }
     return curNode;
   }
 
+  /*
+   * Builds the child lookup index of every node once the trie is fully constructed. The trie is
+   * never modified after construction.
+   */
+  private void indexTrie() {
+    Deque<TrieNode> nodeStack = new ArrayDeque<>();
+    nodeStack.push(_rootNode);
+    while (!nodeStack.isEmpty()) {
+      TrieNode curNode = nodeStack.pop();
+      curNode.buildChildIndex();
+      for (TrieNode child : curNode.getChildren().values()) {
+        nodeStack.push(child);
+      }
+    }
+  }
+
   /*
    * Checks if there is any sharding key in the routing data
    * @param routingData - a mapping from "sharding keys" to "realm addresses" to be parsed into a
@@ -295,6 +319,13 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
      * available to the terminal nodes.
      */
     private final String _realmAddress;
+    /*
+     * Open addressing hash table of the children, built after the trie is constructed. It allows
+     * looking up a child by a section of a path without creating a substring for the section.
+     * The hash of a key is the same as String.hashCode() so it can be computed on a path section.
+     */
+    private String[] _childIndexKeys;
+    private TrieNode[] _childIndexNodes;
 
     TrieNode(Map<String, TrieNode> children, String path, boolean isShardingKey,
         String realmAddress) {
@@ -322,6 +353,56 @@ public class TrieRoutingData implements MetadataStoreRoutingData {
 
     public void addChild(String key, TrieNode node) {
       _children.put(key, node);
+      _childIndexKeys = null;
+      _childIndexNodes = null;
+    }
+
+    void buildChildIndex() {
+      if (_children.isEmpty()) {
+        return;
+      }
+      // Keep the load factor at or below 0.5
+      int capacity = Integer.highestOneBit(_children.size() * 2 - 1) << 1;
+      String[] keys = new String[capacity];
+      TrieNode[] nodes = new TrieNode[capacity];
+      for (Map.Entry<String, TrieNode> entry : _children.entrySet()) {
+        int slot = spread(entry.getKey().hashCode()) & (capacity - 1);
+        while (keys[slot] != null) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        keys[slot] = entry.getKey();
+        nodes[slot] = entry.getValue();
+      }
+      _childIndexKeys = keys;
+      _childIndexNodes = nodes;
+    }
+
+    /**
+     * Get the child whose key equals to path.substring(start, end).
+     */
+    TrieNode getChild(String path, int start, int end) {
+      String[] keys = _childIndexKeys;
+      if (keys == null) {
+        return _children.isEmpty() ? null : _children.get(path.substring(start, end));
+      }
+      int hash = 0;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + path.charAt(i);
+      }
+      int length = end - start;
+      int slot = spread(hash) & (keys.length - 1);
+      String key;
+      while ((key = keys[slot]) != null) {
+        if (key.length() == length && key.regionMatches(0, path, start, length)) {
+          return _childIndexNodes[slot];
+        }
+        slot = (slot + 1) & (keys.length - 1);
+      }
+      return null;
+    }
+
+    private static int spread(int hash) {
+      return hash ^ (hash >>> 16);
     }
   }
 }
\ No newline at end of file
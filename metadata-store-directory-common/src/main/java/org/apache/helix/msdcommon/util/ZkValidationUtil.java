@@ -19,7 +19,12 @@ package org.apache.helix.msdcommon.util;
  * under the License.
  */
 
+import java.util.regex.Pattern;
+
 public class ZkValidationUtil {
+  private static final Pattern ZK_PATH_PATTERN =
+      Pattern.compile("^/|(/[\\w?[$&+,:;=?@#|'<>.^*()%!-]-]+)+$");
+
   /**
    * Validates whether a given path string is a valid ZK path.
    *
@@ -35,6 +40,6 @@ public class ZkValidationUtil {
    * /abc/abc/abc/abc/
    **/
   public static boolean isPathValid(String path) {
-    return path.matches("^/|(/[\\w?[$&+,:;=?@#|'<>.^*()%!-]-]+)+$");
+    return ZK_PATH_PATTERN.matcher(path).matches();
   }
 }
@@ -343,4 +343,32 @@ public class TestTrieRoutingData {
   public void testContainsKeyRealmPairNoRealm() {
     Assert.assertFalse(_trie.containsKeyRealmPair("/h/i", "realmAddress0"));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testGetMetadataStoreRealmManySiblings() throws InvalidRoutingDataException {
+    Map<String, List<String>> routingData = new HashMap<>();
+    for (int i = 0; i < 100; i++) {
+      routingData.put("realmAddress" + i, Arrays.asList("/cluster" + i, "/group/cluster" + i));
+    }
+    TrieRoutingData trie = new TrieRoutingData(routingData);
+    for (int i = 0; i < 100; i++) {
+      String realmAddress = "realmAddress" + i;
+      Assert.assertEquals(trie.getMetadataStoreRealm("/cluster" + i), realmAddress);
+      Assert.assertEquals(trie.getMetadataStoreRealm("/cluster" + i + "/INSTANCES/host_1"),
+          realmAddress);
+      Assert.assertEquals(trie.getMetadataStoreRealm("/group/cluster" + i + "/CONFIGS"),
+          realmAddress);
+      Assert.assertEquals(trie.getShardingKeyInPath("/group/cluster" + i + "/CONFIGS"),
+          "/group/cluster" + i);
+    }
+    // Sections that are prefixes of existing keys must not match
+    for (String path : Arrays.asList("/cluster", "/cluster1000", "/group/cluster", "/groups/cluster1")) {
+      try {
+        trie.getMetadataStoreRealm(path);
+        Assert.fail("Expecting NoSuchElementException");
+      } catch (NoSuchElementException e) {
+        Assert.assertTrue(e.getMessage().contains("No sharding key found within the provided path"));
+      }
+    }
+  }
+}
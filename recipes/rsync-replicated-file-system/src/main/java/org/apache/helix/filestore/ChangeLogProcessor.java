@@ -29,6 +29,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * machine
  */
 public class ChangeLogProcessor implements Runnable {
+  // Time to wait before reading the change log again when no change could be read
+  private static final long RETRY_BACKOFF_MS = 1000;
   private final ChangeLogReader reader;
   RsyncInvoker rsyncInvoker;
   private AtomicBoolean shutdownRequested;
@@ -55,18 +57,26 @@ public class ChangeLogProcessor implements Runnable {
       do {
         try {
           List<ChangeRecord> changes = reader.getChangeSince(lastRecordProcessed);
-          Set<String> paths = getRemotePathsToSync(changes);
-          for (String path : paths) {
-            rsyncInvoker.rsync(path);
+          if (changes.isEmpty()) {
+            // Interrupted, or the change log could not be read
+            Thread.sleep(RETRY_BACKOFF_MS);
+            continue;
           }
+          // Contiguous records are replicated together, each changed path once per batch
+          Set<String> paths = getRemotePathsToSync(changes);
+          rsyncInvoker.rsync(paths);
           lastRecordProcessed = changes.get(changes.size() - 1);
           checkpointFile.checkpoint(lastRecordProcessed);
+        } catch (InterruptedException e) {
+          // Interrupted by stop(), the loop checks if the shutdown is requested
         } catch (Exception e) {
           e.printStackTrace();
         }
       } while (!shutdownRequested.get());
     } catch (Exception e) {
       e.printStackTrace();
+    } finally {
+      reader.close();
     }
   }
 
@@ -23,18 +23,65 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public class ChangeLogReader implements FileChangeWatcher {
-  int MAX_ENTRIES_TO_READ = 100;
+  private static final Logger LOG = LoggerFactory.getLogger(ChangeLogReader.class);
+  /**
+   * Releases a mapped segment without waiting for it to be garbage collected, if the JDK allows
+   */
+  private static final Method INVOKE_CLEANER;
+  private static final Object UNSAFE;
+
+  static {
+    Method invokeCleaner = null;
+    Object unsafe = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      unsafe = theUnsafe.get(null);
+      invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+    } catch (Exception e) {
+      LOG.info("Mapped change log segments are released by the garbage collector", e);
+    }
+    INVOKE_CLEANER = invokeCleaner;
+    UNSAFE = unsafe;
+  }
+
+  int MAX_ENTRIES_TO_READ = 1000;
+  /**
+   * Size of the change log segment that is memory mapped at a time
+   */
+  static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+  /**
+   * txid(8) + type(2) + timestamp(8) + file name length(2) + the longest modified UTF-8 file name
+   */
+  static final int MAX_RECORD_SIZE = 8 + 2 + 8 + 2 + 0xFFFF;
+
   private final String changeLogDir;
   Lock lock;
   private Condition condition;
 
+  // The mapped segment of the change log that is being read, guarded by lock
+  private String segmentFileName;
+  private long segmentStartOffset;
+  private MappedByteBuffer segment;
+  private char[] charBuffer = new char[256];
+
   public ChangeLogReader(String changeLogDir) {
     this.changeLogDir = changeLogDir;
     lock = new ReentrantLock();
@@ -43,9 +90,10 @@ public class ChangeLogReader implements FileChangeWatcher {
   }
 
   /**
-   * Blocking call
+   * Blocking call. Waits until at least one complete record after the given record is available,
+   * or the calling thread is interrupted.
    * @param record
-   * @return
+   * @return the records after the given record, empty if interrupted
    */
   public List<ChangeRecord> getChangeSince(ChangeRecord record) {
     List<ChangeRecord> changes = new ArrayList<ChangeRecord>();
@@ -63,36 +111,23 @@ public class ChangeLogReader implements FileChangeWatcher {
 
       File file;
       file = new File(changeLogDir + "/" + fileName);
-      while (!file.exists() || file.length() <= endOffset) {
-        // wait
-        try {
-          System.out.println("Waiting for new changes");
-          condition.await();
-          System.out.println("Detected changes");
-        } catch (InterruptedException e) {
-          e.printStackTrace();
+      // The change log up to this offset has no complete record after the given record
+      long readOffset = endOffset;
+      while (changes.isEmpty()) {
+        while (!file.exists() || file.length() <= readOffset) {
+          // wait
+          try {
+            System.out.println("Waiting for new changes");
+            condition.await();
+            System.out.println("Detected changes");
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return changes;
+          }
         }
+        readOffset = file.length();
+        readChanges(fileName, endOffset, readOffset, changes);
       }
-      RandomAccessFile raf = new RandomAccessFile(changeLogDir + "/" + fileName, "r");
-      raf.seek(endOffset);
-      // out.writeLong(record.txid);
-      // out.writeShort(record.type);
-      // out.writeLong(record.timestamp);
-      // out.writeUTF(record.file);
-
-      int count = 0;
-      do {
-        ChangeRecord newRecord = new ChangeRecord();
-        newRecord.changeLogFileName = fileName;
-        newRecord.startOffset = raf.getFilePointer();
-        newRecord.txid = raf.readLong();
-        newRecord.type = raf.readShort();
-        newRecord.timestamp = raf.readLong();
-        newRecord.file = raf.readUTF();
-        newRecord.endOffset = raf.getFilePointer();
-        changes.add(newRecord);
-        count++;
-      } while (count < MAX_ENTRIES_TO_READ && raf.getFilePointer() < raf.length());
     } catch (FileNotFoundException e) {
       e.printStackTrace();
     } catch (IOException e) {
@@ -103,6 +138,161 @@ public class ChangeLogReader implements FileChangeWatcher {
     return changes;
   }
 
+  /**
+   * Decodes the complete records in [offset, fileLength) of the change log, up to
+   * MAX_ENTRIES_TO_READ.
+   */
+  private void readChanges(String fileName, long offset, long fileLength,
+      List<ChangeRecord> changes) throws IOException {
+    ByteBuffer buffer = mapSegment(fileName, offset, fileLength);
+    // out.writeLong(record.txid);
+    // out.writeShort(record.type);
+    // out.writeLong(record.timestamp);
+    // out.writeUTF(record.file);
+
+    // Decode records straight out of the mapped segment. A record that is cut off by the end of
+    // the segment (or by a change log that is still being copied) is read by a later call.
+    int count = 0;
+    while (count < MAX_ENTRIES_TO_READ && buffer.remaining() >= 20) {
+      int recordStart = buffer.position();
+      int fileFieldLength = buffer.getShort(recordStart + 18) & 0xFFFF;
+      if (buffer.remaining() < 20 + fileFieldLength) {
+        break;
+      }
+      ChangeRecord newRecord = new ChangeRecord();
+      newRecord.changeLogFileName = fileName;
+      newRecord.startOffset = segmentStartOffset + recordStart;
+      newRecord.txid = buffer.getLong();
+      newRecord.type = buffer.getShort();
+      newRecord.timestamp = buffer.getLong();
+      newRecord.fileFieldLength = buffer.getShort();
+      newRecord.file = readUTF(buffer, fileFieldLength);
+      newRecord.endOffset = segmentStartOffset + buffer.position();
+      changes.add(newRecord);
+      count++;
+    }
+  }
+
+  /**
+   * Returns a view of the change log positioned at the offset. The current segment is reused as
+   * long as it covers the rest of the file or still holds at least one complete record; otherwise
+   * a new segment starting at the offset is mapped.
+   */
+  private ByteBuffer mapSegment(String fileName, long offset, long fileLength) throws IOException {
+    if (segment != null && fileName.equals(segmentFileName) && offset >= segmentStartOffset) {
+      long segmentEndOffset = segmentStartOffset + segment.capacity();
+      if (offset <= segmentEndOffset
+          && (segmentEndOffset >= fileLength || segmentEndOffset - offset >= MAX_RECORD_SIZE)) {
+        ByteBuffer buffer = segment.duplicate();
+        buffer.position((int) (offset - segmentStartOffset));
+        return buffer;
+      }
+    }
+    long length = Math.min(fileLength - offset, SEGMENT_SIZE);
+    unmapSegment();
+    try (RandomAccessFile raf = new RandomAccessFile(changeLogDir + "/" + fileName, "r");
+        FileChannel channel = raf.getChannel()) {
+      // The mapping stays valid after the channel is closed
+      segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+    segmentFileName = fileName;
+    segmentStartOffset = offset;
+    return segment.duplicate();
+  }
+
+  private void unmapSegment() {
+    if (segment != null && INVOKE_CLEANER != null) {
+      try {
+        INVOKE_CLEANER.invoke(UNSAFE, segment);
+      } catch (Exception e) {
+        LOG.warn("Failed to release the mapped segment of {}", segmentFileName, e);
+      }
+    }
+    segment = null;
+    segmentFileName = null;
+  }
+
+  /**
+   * Releases the mapped segment of the change log. The reader maps a new one if it is used again.
+   */
+  public void close() {
+    try {
+      lock.lock();
+      unmapSegment();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Decodes a modified UTF-8 string of the given length in bytes, as written by
+   * {@link java.io.DataOutput#writeUTF(String)}, directly from the buffer.
+   */
+  String readUTF(ByteBuffer buffer, int utfLength) throws UTFDataFormatException {
+    if (charBuffer.length < utfLength) {
+      charBuffer = new char[Math.max(utfLength, charBuffer.length * 2)];
+    }
+    char[] chars = charBuffer;
+    int end = buffer.position() + utfLength;
+    int pos = buffer.position();
+    int charCount = 0;
+    // Fast path for the common case of ASCII file names
+    while (pos < end) {
+      int c = buffer.get(pos);
+      if (c < 0) {
+        break;
+      }
+      chars[charCount++] = (char) c;
+      pos++;
+    }
+    while (pos < end) {
+      int c = buffer.get(pos) & 0xFF;
+      switch (c >> 4) {
+      case 0:
+      case 1:
+      case 2:
+      case 3:
+      case 4:
+      case 5:
+      case 6:
+      case 7:
+        chars[charCount++] = (char) c;
+        pos++;
+        break;
+      case 12:
+      case 13: {
+        if (pos + 2 > end) {
+          throw new UTFDataFormatException("malformed input: partial character at end");
+        }
+        int c2 = buffer.get(pos + 1);
+        if ((c2 & 0xC0) != 0x80) {
+          throw new UTFDataFormatException("malformed input around byte " + (pos + 1));
+        }
+        chars[charCount++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+        pos += 2;
+        break;
+      }
+      case 14: {
+        if (pos + 3 > end) {
+          throw new UTFDataFormatException("malformed input: partial character at end");
+        }
+        int c2 = buffer.get(pos + 1);
+        int c3 = buffer.get(pos + 2);
+        if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80) {
+          throw new UTFDataFormatException("malformed input around byte " + (pos + 2));
+        }
+        chars[charCount++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+        pos += 3;
+        break;
+      }
+      default:
+        throw new UTFDataFormatException("malformed input around byte " + pos);
+      }
+    }
+    buffer.position(end);
+    return new String(chars, 0, charCount);
+  }
+
   @Override
   public void onEntryModified(String path) {
     try {
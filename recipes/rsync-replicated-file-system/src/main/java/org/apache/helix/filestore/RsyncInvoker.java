@@ -20,8 +20,16 @@ package org.apache.helix.filestore;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 public class RsyncInvoker {
+  /**
+   * Max number of source paths passed to a single rsync invocation
+   */
+  static final int MAX_PATHS_PER_RSYNC = 256;
+
   private Thread backgroundThread;
   private final String remoteHost;
   private final String remoteLogDir;
@@ -57,6 +65,58 @@ public class RsyncInvoker {
     return false;
   }
 
+  /**
+   * Rsync a batch of paths, passing up to {@link #MAX_PATHS_PER_RSYNC} sources to each rsync
+   * process instead of starting one process per path.
+   * @param relativePaths
+   * @return true if all the paths are synced
+   */
+  public boolean rsync(Collection<String> relativePaths) {
+    boolean success = true;
+    List<String> command = new ArrayList<String>();
+    int pathCount = 0;
+    for (String relativePath : relativePaths) {
+      if (pathCount == 0) {
+        command.add("rsync");
+      }
+      command.add(remoteLogDir + "/" + relativePath);
+      pathCount++;
+      if (pathCount == MAX_PATHS_PER_RSYNC) {
+        success &= rsync(command, pathCount);
+        command.clear();
+        pathCount = 0;
+      }
+    }
+    if (pathCount > 0) {
+      success &= rsync(command, pathCount);
+    }
+    return success;
+  }
+
+  private boolean rsync(List<String> command, int pathCount) {
+    int exitVal = -1;
+    command.add(localLogDir);
+    try {
+      ProcessBuilder pb = new ProcessBuilder(command);
+      System.out.println("Rsyncing " + pathCount + " paths from:" + remoteLogDir + " dest:"
+          + localLogDir);
+      ExternalCommand ec = new ExternalCommand(pb);
+      ec.start();
+      exitVal = ec.waitFor();
+      if (exitVal != 0) {
+        System.out.println("Failed to rsync " + ec.getStringError());
+      } else {
+        return true;
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    }
+
+    return false;
+  }
+
   public boolean stop() {
     if (backgroundThread != null) {
       backgroundThread.interrupt();
@@ -0,0 +1,202 @@
+package org.apache.helix.filestore;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestChangeLogReader {
+  private File _changeLogDir;
+  private File _changeLog;
+  private ChangeLogReader _reader;
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    _changeLogDir = Files.createTempDirectory("changelog").toFile();
+    _changeLog = new File(_changeLogDir, "log.1");
+    _reader = new ChangeLogReader(_changeLogDir.getPath());
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    _reader.close();
+    FileUtils.deleteDirectory(_changeLogDir);
+  }
+
+  /**
+   * File names are decoded the same way as DataInput#readUTF would, including the characters that
+   * modified UTF-8 encodes in two, three and six bytes.
+   */
+  @Test
+  public void testReadModifiedUtf8FileNames() throws IOException {
+    StringBuilder longName = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      longName.append("dir_\u00e9\u4e2d/");
+    }
+    List<String> fileNames = Arrays.asList("filestore/a", "caf\u00e9", "\u4e2d\u6587/\u6587\u4ef6",
+        "nul_\u0000_char", "emoji_\ud83d\ude00", "mixed_\u00e9_\u4e2d_\ud83d\ude00_end", "",
+        longName.toString());
+    appendToChangeLog(encodeRecords(fileNames, 0));
+
+    List<ChangeRecord> changes = _reader.getChangeSince(null);
+    Assert.assertEquals(changes.size(), fileNames.size());
+    for (int i = 0; i < fileNames.size(); i++) {
+      ChangeRecord change = changes.get(i);
+      Assert.assertEquals(change.file, fileNames.get(i));
+      Assert.assertEquals(change.txid, i);
+      Assert.assertEquals(change.timestamp, 1000L + i);
+    }
+    Assert.assertEquals(changes.get(changes.size() - 1).endOffset, _changeLog.length());
+  }
+
+  @Test
+  public void testReadMalformedUtf8() {
+    // A three byte character cut off by the end of the field
+    assertMalformed(new byte[] { 'a', (byte) 0xE4, (byte) 0xB8 });
+    // A continuation byte without a leading byte
+    assertMalformed(new byte[] { 'a', (byte) 0x80 });
+    // A leading byte followed by a byte that is not a continuation byte
+    assertMalformed(new byte[] { (byte) 0xC3, 'a' });
+    // Four byte UTF-8 sequences are not used by modified UTF-8
+    assertMalformed(new byte[] { (byte) 0xF0, (byte) 0x9F, (byte) 0x98, (byte) 0x80 });
+  }
+
+  /**
+   * A record that is only partially written is not returned until the rest of it is written, and
+   * the reader waits for the change log to grow instead of returning no change.
+   */
+  @Test
+  public void testPartialRecord() throws Exception {
+    byte[] records = encodeRecords(Arrays.asList("a", "b", "partial_\u00e9"), 0);
+    int secondRecordEnd =
+        records.length - encodeRecords(Arrays.asList("partial_\u00e9"), 0).length;
+    // The third record is cut off in its file name
+    int cutOffset = records.length - 3;
+    appendToChangeLog(Arrays.copyOfRange(records, 0, cutOffset));
+
+    List<ChangeRecord> changes = _reader.getChangeSince(null);
+    Assert.assertEquals(changes.size(), 2);
+    ChangeRecord lastRecord = changes.get(1);
+    Assert.assertEquals(lastRecord.file, "b");
+    Assert.assertEquals(lastRecord.endOffset, secondRecordEnd);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<ChangeRecord>> future = executor.submit(() -> _reader.getChangeSince(lastRecord));
+      assertBlocked(future);
+
+      // One more byte still doesn't complete the record
+      appendToChangeLog(Arrays.copyOfRange(records, cutOffset, cutOffset + 1));
+      _reader.onEntryModified(_changeLog.getPath());
+      assertBlocked(future);
+
+      appendToChangeLog(Arrays.copyOfRange(records, cutOffset + 1, records.length));
+      _reader.onEntryModified(_changeLog.getPath());
+      changes = future.get(10, TimeUnit.SECONDS);
+      Assert.assertEquals(changes.size(), 1);
+      Assert.assertEquals(changes.get(0).file, "partial_\u00e9");
+      Assert.assertEquals(changes.get(0).txid, 2);
+      Assert.assertEquals(changes.get(0).startOffset, secondRecordEnd);
+      Assert.assertEquals(changes.get(0).endOffset, records.length);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * A reader waiting for changes returns no change once the thread is interrupted.
+   */
+  @Test
+  public void testInterruptWaitingReader() throws Exception {
+    appendToChangeLog(encodeRecords(Arrays.asList("a"), 0));
+    ChangeRecord lastRecord = _reader.getChangeSince(null).get(0);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<ChangeRecord>> future = executor.submit(() -> _reader.getChangeSince(lastRecord));
+      assertBlocked(future);
+      executor.shutdownNow();
+      Assert.assertTrue(future.get(10, TimeUnit.SECONDS).isEmpty());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void assertMalformed(byte[] utf) {
+    try {
+      _reader.readUTF(ByteBuffer.wrap(utf), utf.length);
+      Assert.fail("Malformed input should fail: " + Arrays.toString(utf));
+    } catch (UTFDataFormatException e) {
+      // expected
+    }
+  }
+
+  private static void assertBlocked(Future<?> future) throws Exception {
+    try {
+      future.get(200, TimeUnit.MILLISECONDS);
+      Assert.fail("The reader should wait for a complete record.");
+    } catch (TimeoutException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Encodes the change records the way ChangeLogGenerator writes them.
+   */
+  private static byte[] encodeRecords(List<String> fileNames, long firstTxid) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      long txid = firstTxid;
+      for (String fileName : fileNames) {
+        out.writeLong(txid);
+        out.writeShort(1);
+        out.writeLong(1000L + txid);
+        out.writeUTF(fileName);
+        txid++;
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private void appendToChangeLog(byte[] data) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(_changeLog, true)) {
+      out.write(data);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package org.apache.helix.servicediscovery;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+/**
+ * Notified when services register or go away. Useful for client side load balancers that keep
+ * their own view of the available services.
+ */
+public interface ServiceChangeListener {
+  /**
+   * Invoked after the discovery cache has applied a change. The cache snapshot already reflects
+   * the change when this is called.
+   * @param addedServices services that became available
+   * @param removedServices services that are no longer available
+   */
+  void onServiceChange(List<ServiceMetadata> addedServices, List<ServiceMetadata> removedServices);
+}
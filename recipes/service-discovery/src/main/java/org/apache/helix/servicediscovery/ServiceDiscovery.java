@@ -22,20 +22,23 @@ package org.apache.helix.servicediscovery;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixManagerFactory;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.InstanceType;
 import org.apache.helix.LiveInstanceChangeListener;
 import org.apache.helix.LiveInstanceInfoProvider;
 import org.apache.helix.NotificationContext;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
+import org.apache.helix.api.listeners.PreFetch;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.manager.zk.ZKHelixManager;
 import org.apache.helix.model.HelixConfigScope;
@@ -47,16 +50,16 @@ public class ServiceDiscovery {
   private final String zkAddress;
   private final String cluster;
   private HelixManager admin;
-  List<ServiceMetadata> cache;
-  static int DEFAULT_POLL_INTERVAL = 30 * 1000; // in ms
+  final ServiceDiscoveryCache cache;
   private final Mode mode;
   Map<String, HelixManager> serviceMap;
-  private Timer timer;
+  // ZNode stats of the live instances the cached services were read from
+  private final Map<String, HelixProperty.Stat> liveInstanceStats =
+      new ConcurrentHashMap<String, HelixProperty.Stat>();
 
   enum Mode {
     NONE, // No monitoring, only registration, on demand reading zk
-    WATCH, // Watches ZK path
-    POLL// Polls zk at some intervals
+    WATCH // Watches ZK path and applies the changes to the cache as deltas
   }
 
   public ServiceDiscovery(String zkAddress, String cluster, Mode mode) {
@@ -64,7 +67,7 @@ public class ServiceDiscovery {
     this.cluster = cluster;
     this.mode = mode;
     serviceMap = new HashMap<String, HelixManager>();
-    cache = Collections.emptyList();
+    cache = new ServiceDiscoveryCache();
   }
 
   /**
@@ -84,9 +87,6 @@ public class ServiceDiscovery {
     properties.put(ZKHelixManager.ALLOW_PARTICIPANT_AUTO_JOIN, String.valueOf(true));
     admin.getClusterManagmentTool().setConfig(scope, properties);
     switch (mode) {
-    case POLL:
-      startBackgroundTask();
-      break;
     case WATCH:
       setupWatcher();
       break;
@@ -97,26 +97,16 @@ public class ServiceDiscovery {
     return true;
   }
 
-  private void startBackgroundTask() {
-    TimerTask timertask = new TimerTask() {
-
-      @Override
-      public void run() {
-        refreshCache();
-      }
-    };
-    timer = new Timer();
-    timer.scheduleAtFixedRate(timertask, DEFAULT_POLL_INTERVAL, DEFAULT_POLL_INTERVAL);
-  }
-
   private void setupWatcher() throws Exception {
 
     LiveInstanceChangeListener listener = new LiveInstanceChangeListener() {
+      // Only the names of the live instances are needed to compute the delta
       @Override
+      @PreFetch(enabled = false)
       public void onLiveInstanceChange(List<LiveInstance> liveInstances,
           NotificationContext changeContext) {
         if (changeContext.getType() != NotificationContext.Type.FINALIZE) {
-          refreshCache();
+          applyLiveInstanceChanges();
         }
       }
     };
@@ -127,9 +117,6 @@ public class ServiceDiscovery {
     if (admin != null && admin.isConnected()) {
       admin.disconnect();
     }
-    if (timer != null) {
-      timer.cancel();
-    }
     return true;
   }
 
@@ -138,6 +125,8 @@ public class ServiceDiscovery {
     if (helixManager != null && helixManager.isConnected()) {
       helixManager.disconnect();
     }
+    cache.update(Collections.<String, ServiceMetadata> emptyMap(),
+        Collections.singletonList(serviceId));
   }
 
   public boolean register(final String serviceId, final ServiceMetadata serviceMetadata)
@@ -159,38 +148,126 @@ public class ServiceDiscovery {
     helixManager.setLiveInstanceInfoProvider(liveInstanceInfoProvider);
     helixManager.connect();
     serviceMap.put(serviceId, helixManager);
-    refreshCache();
+    cache.update(Collections.singletonMap(serviceId, serviceMetadata),
+        Collections.<String> emptyList());
     return true;
   }
 
-  private void refreshCache() {
+  /**
+   * Read all the live instances and replace the content of the cache.
+   */
+  private synchronized void refreshCache() {
     Builder propertyKeyBuilder = new PropertyKey.Builder(cluster);
     HelixDataAccessor helixDataAccessor = admin.getHelixDataAccessor();
-    List<LiveInstance> liveInstances =
-        helixDataAccessor.getChildValues(propertyKeyBuilder.liveInstances());
-    refreshCache(liveInstances);
+    List<PropertyKey> liveInstanceKeys = new ArrayList<PropertyKey>();
+    for (String liveInstanceName : helixDataAccessor
+        .getChildNames(propertyKeyBuilder.liveInstances())) {
+      liveInstanceKeys.add(propertyKeyBuilder.liveInstance(liveInstanceName));
+    }
+    // Read the live instances with their stats
+    List<LiveInstance> liveInstances = helixDataAccessor.getProperty(liveInstanceKeys, false);
+    Map<String, ServiceMetadata> services = new HashMap<String, ServiceMetadata>();
+    liveInstanceStats.clear();
+    for (LiveInstance liveInstance : liveInstances) {
+      // null if the live instance is gone again
+      if (liveInstance == null) {
+        continue;
+      }
+      services.put(liveInstance.getInstanceName(), toServiceMetadata(liveInstance));
+      liveInstanceStats.put(liveInstance.getInstanceName(), toStat(liveInstance));
+    }
+    cache.reset(services);
   }
 
-  private void refreshCache(List<LiveInstance> liveInstances) {
-    List<ServiceMetadata> services = new ArrayList<ServiceMetadata>();
-    for (LiveInstance liveInstance : liveInstances) {
-      ServiceMetadata metadata = new ServiceMetadata();
-      ZNRecord rec = liveInstance.getRecord();
-      metadata.setPort(Integer.parseInt(rec.getSimpleField("PORT")));
-      metadata.setHost(rec.getSimpleField("HOST"));
-      metadata.setServiceName(rec.getSimpleField("SERVICE_NAME"));
-      services.add(metadata);
+  /**
+   * Diff the live instances against the cache. Only the stats of the live instances are read for
+   * all of them, and only the live instances that were added or whose ZNode changed since they
+   * were cached, e.g. because the service registered again with a new host or port, are read.
+   */
+  private synchronized void applyLiveInstanceChanges() {
+    Builder propertyKeyBuilder = new PropertyKey.Builder(cluster);
+    HelixDataAccessor helixDataAccessor = admin.getHelixDataAccessor();
+    List<String> liveInstanceNames =
+        helixDataAccessor.getChildNames(propertyKeyBuilder.liveInstances());
+    List<PropertyKey> liveInstanceKeys = new ArrayList<PropertyKey>();
+    for (String liveInstanceName : liveInstanceNames) {
+      liveInstanceKeys.add(propertyKeyBuilder.liveInstance(liveInstanceName));
+    }
+    List<HelixProperty.Stat> stats = helixDataAccessor.getPropertyStats(liveInstanceKeys);
+
+    Set<String> liveServiceIds = new HashSet<String>();
+    List<PropertyKey> changedKeys = new ArrayList<PropertyKey>();
+    for (int i = 0; i < liveInstanceNames.size(); i++) {
+      String liveInstanceName = liveInstanceNames.get(i);
+      HelixProperty.Stat stat = stats.get(i);
+      // null if the live instance is gone again
+      if (stat != null) {
+        liveServiceIds.add(liveInstanceName);
+        if (!stat.equals(liveInstanceStats.get(liveInstanceName))) {
+          changedKeys.add(liveInstanceKeys.get(i));
+        }
+      }
     }
-    // protect against multiple threads updating this
-    synchronized (this) {
-      cache = services;
+    List<String> removedServiceIds = new ArrayList<String>();
+    for (String serviceId : cache.getSnapshot().getServiceIds()) {
+      if (!liveServiceIds.contains(serviceId)) {
+        removedServiceIds.add(serviceId);
+      }
     }
+    liveInstanceStats.keySet().retainAll(liveServiceIds);
+
+    Map<String, ServiceMetadata> changedServices = new HashMap<String, ServiceMetadata>();
+    if (!changedKeys.isEmpty()) {
+      List<LiveInstance> liveInstances = helixDataAccessor.getProperty(changedKeys, false);
+      for (LiveInstance liveInstance : liveInstances) {
+        // null if the live instance is gone again, the next notification removes its service
+        if (liveInstance != null) {
+          changedServices.put(liveInstance.getInstanceName(), toServiceMetadata(liveInstance));
+          liveInstanceStats.put(liveInstance.getInstanceName(), toStat(liveInstance));
+        }
+      }
+    }
+    cache.update(changedServices, removedServiceIds);
+  }
+
+  private static HelixProperty.Stat toStat(LiveInstance liveInstance) {
+    ZNRecord rec = liveInstance.getRecord();
+    return new HelixProperty.Stat(rec.getVersion(), rec.getCreationTime(), rec.getModifiedTime(),
+        rec.getEphemeralOwner());
+  }
+
+  private static ServiceMetadata toServiceMetadata(LiveInstance liveInstance) {
+    ServiceMetadata metadata = new ServiceMetadata();
+    ZNRecord rec = liveInstance.getRecord();
+    metadata.setPort(Integer.parseInt(rec.getSimpleField("PORT")));
+    metadata.setHost(rec.getSimpleField("HOST"));
+    metadata.setServiceName(rec.getSimpleField("SERVICE_NAME"));
+    return metadata;
+  }
+
+  /**
+   * Listen on services that are added or removed. In {@link Mode#NONE}, changes are only picked up
+   * when the services are looked up.
+   */
+  public void addServiceChangeListener(ServiceChangeListener listener) {
+    cache.addServiceChangeListener(listener);
+  }
+
+  public void removeServiceChangeListener(ServiceChangeListener listener) {
+    cache.removeServiceChangeListener(listener);
   }
 
   public List<ServiceMetadata> findAllServices() {
     if (mode == Mode.NONE) {
       refreshCache();
     }
-    return cache;
+    return cache.getSnapshot().getAllServices();
+  }
+
+  public List<ServiceMetadata> findServices(String serviceName) {
+    if (mode == Mode.NONE) {
+      refreshCache();
+    }
+    return cache.getSnapshot().getServices(serviceName);
   }
 }
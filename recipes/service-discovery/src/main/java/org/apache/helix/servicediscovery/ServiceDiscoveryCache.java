@@ -0,0 +1,221 @@
+package org.apache.helix.servicediscovery;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Discovery cache that is updated with deltas of added and removed services. Readers get an
+ * immutable snapshot without taking any lock; writers copy the snapshot, apply the delta and
+ * publish the new snapshot.
+ */
+public class ServiceDiscoveryCache {
+  private static final Logger LOG = LoggerFactory.getLogger(ServiceDiscoveryCache.class);
+
+  private volatile Snapshot snapshot = new Snapshot(Collections.<String, ServiceMetadata> emptyMap(),
+      Collections.<String, List<ServiceMetadata>> emptyMap());
+  private final List<ServiceChangeListener> listeners =
+      new CopyOnWriteArrayList<ServiceChangeListener>();
+
+  /**
+   * Immutable view of the registered services.
+   */
+  public static class Snapshot {
+    private final Map<String, ServiceMetadata> servicesById;
+    private final Map<String, List<ServiceMetadata>> servicesByName;
+    private final List<ServiceMetadata> allServices;
+
+    private Snapshot(Map<String, ServiceMetadata> servicesById,
+        Map<String, List<ServiceMetadata>> servicesByName) {
+      this.servicesById = servicesById;
+      this.servicesByName = servicesByName;
+      this.allServices =
+          Collections.unmodifiableList(new ArrayList<ServiceMetadata>(servicesById.values()));
+    }
+
+    public List<ServiceMetadata> getAllServices() {
+      return allServices;
+    }
+
+    public List<ServiceMetadata> getServices(String serviceName) {
+      List<ServiceMetadata> services = servicesByName.get(serviceName);
+      return services == null ? Collections.<ServiceMetadata> emptyList() : services;
+    }
+
+    public ServiceMetadata getService(String serviceId) {
+      return servicesById.get(serviceId);
+    }
+
+    public Set<String> getServiceIds() {
+      return servicesById.keySet();
+    }
+  }
+
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public void addServiceChangeListener(ServiceChangeListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeServiceChangeListener(ServiceChangeListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Apply a delta to the cache. Only the per service name lists touched by the delta are rebuilt.
+   * @param addedServices services to add or replace, keyed by service id
+   * @param removedServiceIds ids of the services to remove
+   */
+  public synchronized void update(Map<String, ServiceMetadata> addedServices,
+      Collection<String> removedServiceIds) {
+    Snapshot current = snapshot;
+    Map<String, ServiceMetadata> servicesById =
+        new HashMap<String, ServiceMetadata>(current.servicesById);
+    List<ServiceMetadata> removed = new ArrayList<ServiceMetadata>();
+    List<ServiceMetadata> added = new ArrayList<ServiceMetadata>();
+
+    for (String serviceId : removedServiceIds) {
+      ServiceMetadata metadata = servicesById.remove(serviceId);
+      if (metadata != null) {
+        removed.add(metadata);
+      }
+    }
+    for (Map.Entry<String, ServiceMetadata> entry : addedServices.entrySet()) {
+      ServiceMetadata metadata = entry.getValue();
+      ServiceMetadata previous = servicesById.put(entry.getKey(), metadata);
+      if (isSameService(metadata, previous)) {
+        servicesById.put(entry.getKey(), previous);
+        continue;
+      }
+      if (previous != null) {
+        removed.add(previous);
+      }
+      added.add(metadata);
+    }
+    if (added.isEmpty() && removed.isEmpty()) {
+      return;
+    }
+
+    snapshot = new Snapshot(Collections.unmodifiableMap(servicesById),
+        updateServicesByName(current.servicesByName, added, removed));
+
+    for (ServiceChangeListener listener : listeners) {
+      try {
+        listener.onServiceChange(added, removed);
+      } catch (Exception e) {
+        LOG.error("Service change listener {} failed", listener, e);
+      }
+    }
+  }
+
+  /**
+   * Replace the content of the cache with the given services. Services that are unchanged are
+   * kept as they are.
+   */
+  public synchronized void reset(Map<String, ServiceMetadata> services) {
+    Map<String, ServiceMetadata> current = snapshot.servicesById;
+    Map<String, ServiceMetadata> addedServices = new HashMap<String, ServiceMetadata>();
+    for (Map.Entry<String, ServiceMetadata> entry : services.entrySet()) {
+      if (!isSameService(entry.getValue(), current.get(entry.getKey()))) {
+        addedServices.put(entry.getKey(), entry.getValue());
+      }
+    }
+    List<String> removedServiceIds = new ArrayList<String>();
+    for (String serviceId : current.keySet()) {
+      if (!services.containsKey(serviceId)) {
+        removedServiceIds.add(serviceId);
+      }
+    }
+    update(addedServices, removedServiceIds);
+  }
+
+  /**
+   * ServiceMetadata is mutable, so it is compared field by field here instead of by equals.
+   */
+  private static boolean isSameService(ServiceMetadata metadata, ServiceMetadata other) {
+    return other != null && metadata.getPort() == other.getPort()
+        && Objects.equals(metadata.getHost(), other.getHost())
+        && Objects.equals(metadata.getServiceName(), other.getServiceName());
+  }
+
+  private static Map<String, List<ServiceMetadata>> updateServicesByName(
+      Map<String, List<ServiceMetadata>> servicesByName, List<ServiceMetadata> added,
+      List<ServiceMetadata> removed) {
+    Map<String, Set<ServiceMetadata>> removedByName = new HashMap<String, Set<ServiceMetadata>>();
+    for (ServiceMetadata metadata : removed) {
+      Set<ServiceMetadata> services = removedByName.get(metadata.getServiceName());
+      if (services == null) {
+        services = Collections.newSetFromMap(new IdentityHashMap<ServiceMetadata, Boolean>());
+        removedByName.put(metadata.getServiceName(), services);
+      }
+      services.add(metadata);
+    }
+    Map<String, List<ServiceMetadata>> addedByName = new HashMap<String, List<ServiceMetadata>>();
+    for (ServiceMetadata metadata : added) {
+      List<ServiceMetadata> services = addedByName.get(metadata.getServiceName());
+      if (services == null) {
+        services = new ArrayList<ServiceMetadata>();
+        addedByName.put(metadata.getServiceName(), services);
+      }
+      services.add(metadata);
+    }
+
+    Set<String> changedNames = new HashSet<String>(removedByName.keySet());
+    changedNames.addAll(addedByName.keySet());
+    Map<String, List<ServiceMetadata>> updated =
+        new HashMap<String, List<ServiceMetadata>>(servicesByName);
+    for (String serviceName : changedNames) {
+      List<ServiceMetadata> services = new ArrayList<ServiceMetadata>();
+      List<ServiceMetadata> currentServices = servicesByName.get(serviceName);
+      Set<ServiceMetadata> removedServices = removedByName.get(serviceName);
+      if (currentServices != null) {
+        for (ServiceMetadata metadata : currentServices) {
+          if (removedServices == null || !removedServices.contains(metadata)) {
+            services.add(metadata);
+          }
+        }
+      }
+      if (addedByName.containsKey(serviceName)) {
+        services.addAll(addedByName.get(serviceName));
+      }
+      if (services.isEmpty()) {
+        updated.remove(serviceName);
+      } else {
+        updated.put(serviceName, Collections.unmodifiableList(services));
+      }
+    }
+    return Collections.unmodifiableMap(updated);
+  }
+}
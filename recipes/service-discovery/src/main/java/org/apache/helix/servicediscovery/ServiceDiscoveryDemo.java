@@ -36,8 +36,6 @@ public class ServiceDiscoveryDemo {
 
     // registration + zk watch
     demo(clusterName, zkAddress, serviceName, numServices, Mode.WATCH);
-    // registration + periodic poll
-    demo(clusterName, zkAddress, serviceName, numServices, Mode.POLL);
     // only registration + ondemand
     demo(clusterName, zkAddress, serviceName, numServices, Mode.NONE);
 
@@ -96,10 +94,6 @@ public class ServiceDiscoveryDemo {
     case WATCH:
       Thread.sleep(100);// callback should be immediate
       break;
-    case POLL:
-      System.out.println("\tSleeping for poll interval:" + ServiceDiscovery.DEFAULT_POLL_INTERVAL);
-      Thread.sleep(ServiceDiscovery.DEFAULT_POLL_INTERVAL + 1000);
-      break;
     case NONE: // no need to wait, it reads on demand
     default:
       break;
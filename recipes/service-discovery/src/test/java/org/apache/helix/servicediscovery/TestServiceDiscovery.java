@@ -0,0 +1,99 @@
+package org.apache.helix.servicediscovery;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+import org.apache.helix.PropertyKey;
+import org.apache.helix.TestHelper;
+import org.apache.helix.common.ZkTestBase;
+import org.apache.helix.servicediscovery.ServiceDiscovery.Mode;
+import org.apache.helix.servicediscovery.TestServiceDiscoveryCache.RecordingListener;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestServiceDiscovery extends ZkTestBase {
+  private static final String SERVICE_NAME = "service";
+  private static final String SERVICE_ID = "localhost_12000";
+  private static final long TIMEOUT = 10 * 1000L;
+
+  private final String _clusterName = CLUSTER_PREFIX + "_" + getShortClassName();
+  private ServiceDiscovery _watcher;
+  private ServiceDiscovery _registrar;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    _gSetupTool.addCluster(_clusterName, true);
+    // The watcher only learns about the services through the live instance changes
+    _watcher = new ServiceDiscovery(ZK_ADDR, _clusterName, Mode.WATCH);
+    _watcher.start();
+    _registrar = new ServiceDiscovery(ZK_ADDR, _clusterName, Mode.NONE);
+    _registrar.start();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _registrar.stop();
+    _watcher.stop();
+    deleteCluster(_clusterName);
+  }
+
+  @Test
+  public void testWatchServices() throws Exception {
+    RecordingListener listener = new RecordingListener();
+    _watcher.addServiceChangeListener(listener);
+    try {
+      _registrar.register(SERVICE_ID,
+          TestServiceDiscoveryCache.createMetadata("localhost", 12000, SERVICE_NAME));
+      Assert.assertTrue(TestHelper.verify(() -> hasService(12000), TIMEOUT));
+      Assert.assertTrue(TestHelper.verify(() -> listener.added.size() == 1, TIMEOUT));
+      Assert.assertEquals(listener.added.get(0).getPort(), 12000);
+      Assert.assertEquals(_registrar.findAllServices().size(), 1);
+
+      // The service registers again under the same id with new metadata
+      String liveInstancePath = new PropertyKey.Builder(_clusterName).liveInstance(SERVICE_ID)
+          .getPath();
+      ZNRecord record = _gZkClient.readData(liveInstancePath);
+      record.setSimpleField("PORT", "12001");
+      _gZkClient.writeData(liveInstancePath, record);
+      Assert.assertTrue(TestHelper.verify(() -> hasService(12001), TIMEOUT));
+      Assert.assertTrue(TestHelper.verify(() -> listener.removed.size() == 1, TIMEOUT));
+      Assert.assertEquals(listener.removed.get(0).getPort(), 12000);
+      Assert.assertEquals(listener.added.get(listener.added.size() - 1).getPort(), 12001);
+
+      _registrar.deregister(SERVICE_ID);
+      Assert.assertTrue(
+          TestHelper.verify(() -> _watcher.findAllServices().isEmpty(), TIMEOUT));
+      Assert.assertTrue(TestHelper.verify(() -> listener.removed.size() == 2, TIMEOUT));
+      Assert.assertTrue(_watcher.findServices(SERVICE_NAME).isEmpty());
+    } finally {
+      _watcher.removeServiceChangeListener(listener);
+    }
+  }
+
+  private boolean hasService(int port) {
+    List<ServiceMetadata> services = _watcher.findServices(SERVICE_NAME);
+    return services.size() == 1 && services.get(0).getPort() == port
+        && services.get(0).getHost().equals("localhost");
+  }
+}
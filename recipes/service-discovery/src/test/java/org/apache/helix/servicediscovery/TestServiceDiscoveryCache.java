@@ -0,0 +1,164 @@
+package org.apache.helix.servicediscovery;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestServiceDiscoveryCache {
+  private static final String SERVICE_NAME = "service";
+
+  @Test
+  public void testUpdate() {
+    ServiceDiscoveryCache cache = new ServiceDiscoveryCache();
+    Map<String, ServiceMetadata> services = new HashMap<String, ServiceMetadata>();
+    services.put("a_1", createMetadata("a", 1, SERVICE_NAME));
+    services.put("b_2", createMetadata("b", 2, SERVICE_NAME));
+    services.put("c_3", createMetadata("c", 3, "otherService"));
+    cache.update(services, Collections.<String> emptyList());
+
+    ServiceDiscoveryCache.Snapshot snapshot = cache.getSnapshot();
+    Assert.assertEquals(snapshot.getAllServices().size(), 3);
+    Assert.assertEquals(snapshot.getServices(SERVICE_NAME).size(), 2);
+    Assert.assertEquals(snapshot.getServices("otherService").size(), 1);
+    Assert.assertTrue(snapshot.getServices("unknownService").isEmpty());
+    Assert.assertSame(snapshot.getService("a_1"), services.get("a_1"));
+
+    cache.update(Collections.<String, ServiceMetadata> emptyMap(), Arrays.asList("a_1", "c_3"));
+    Assert.assertEquals(cache.getSnapshot().getServiceIds(), Collections.singleton("b_2"));
+    Assert.assertEquals(cache.getSnapshot().getServices(SERVICE_NAME).size(), 1);
+    Assert.assertTrue(cache.getSnapshot().getServices("otherService").isEmpty());
+    // The previous snapshot is not affected by the update
+    Assert.assertEquals(snapshot.getAllServices().size(), 3);
+  }
+
+  /**
+   * Services with the same host, port and name are not reported as changed, and a service whose
+   * metadata changed replaces the previous one.
+   */
+  @Test
+  public void testChangedService() {
+    ServiceDiscoveryCache cache = new ServiceDiscoveryCache();
+    RecordingListener listener = new RecordingListener();
+    cache.addServiceChangeListener(listener);
+    ServiceMetadata metadata = createMetadata("a", 1, SERVICE_NAME);
+    cache.update(Collections.singletonMap("a_1", metadata), Collections.<String> emptyList());
+    Assert.assertEquals(listener.added, Collections.singletonList(metadata));
+
+    listener.clear();
+    cache.update(Collections.singletonMap("a_1", createMetadata("a", 1, SERVICE_NAME)),
+        Collections.<String> emptyList());
+    Assert.assertTrue(listener.added.isEmpty());
+    Assert.assertSame(cache.getSnapshot().getService("a_1"), metadata);
+
+    ServiceMetadata changedMetadata = createMetadata("a", 2, SERVICE_NAME);
+    cache.update(Collections.singletonMap("a_1", changedMetadata),
+        Collections.<String> emptyList());
+    Assert.assertEquals(listener.added, Collections.singletonList(changedMetadata));
+    Assert.assertEquals(listener.removed, Collections.singletonList(metadata));
+    Assert.assertEquals(cache.getSnapshot().getServices(SERVICE_NAME),
+        Collections.singletonList(changedMetadata));
+  }
+
+  @Test
+  public void testReset() {
+    ServiceDiscoveryCache cache = new ServiceDiscoveryCache();
+    ServiceMetadata metadata = createMetadata("a", 1, SERVICE_NAME);
+    Map<String, ServiceMetadata> services = new HashMap<String, ServiceMetadata>();
+    services.put("a_1", metadata);
+    services.put("b_2", createMetadata("b", 2, SERVICE_NAME));
+    cache.reset(services);
+
+    RecordingListener listener = new RecordingListener();
+    cache.addServiceChangeListener(listener);
+    ServiceMetadata addedMetadata = createMetadata("c", 3, SERVICE_NAME);
+    services = new HashMap<String, ServiceMetadata>();
+    services.put("a_1", createMetadata("a", 1, SERVICE_NAME));
+    services.put("c_3", addedMetadata);
+    cache.reset(services);
+
+    Assert.assertEquals(listener.added, Collections.singletonList(addedMetadata));
+    Assert.assertEquals(listener.removed.size(), 1);
+    Assert.assertEquals(listener.removed.get(0).getHost(), "b");
+    // The unchanged service is kept as it is
+    Assert.assertSame(cache.getSnapshot().getService("a_1"), metadata);
+    Assert.assertEquals(cache.getSnapshot().getServiceIds().size(), 2);
+  }
+
+  /**
+   * A failing listener doesn't keep the other listeners from being notified.
+   */
+  @Test
+  public void testFailingListener() {
+    ServiceDiscoveryCache cache = new ServiceDiscoveryCache();
+    cache.addServiceChangeListener(new ServiceChangeListener() {
+      @Override
+      public void onServiceChange(List<ServiceMetadata> addedServices,
+          List<ServiceMetadata> removedServices) {
+        throw new IllegalStateException("Listener failure for testing");
+      }
+    });
+    RecordingListener listener = new RecordingListener();
+    cache.addServiceChangeListener(listener);
+
+    ServiceMetadata metadata = createMetadata("a", 1, SERVICE_NAME);
+    cache.update(Collections.singletonMap("a_1", metadata), Collections.<String> emptyList());
+    Assert.assertEquals(listener.added, Collections.singletonList(metadata));
+    Assert.assertSame(cache.getSnapshot().getService("a_1"), metadata);
+
+    cache.removeServiceChangeListener(listener);
+    cache.update(Collections.<String, ServiceMetadata> emptyMap(), Arrays.asList("a_1"));
+    Assert.assertTrue(listener.removed.isEmpty());
+  }
+
+  static ServiceMetadata createMetadata(String host, int port, String serviceName) {
+    ServiceMetadata metadata = new ServiceMetadata();
+    metadata.setHost(host);
+    metadata.setPort(port);
+    metadata.setServiceName(serviceName);
+    return metadata;
+  }
+
+  static class RecordingListener implements ServiceChangeListener {
+    final List<ServiceMetadata> added =
+        Collections.synchronizedList(new ArrayList<ServiceMetadata>());
+    final List<ServiceMetadata> removed =
+        Collections.synchronizedList(new ArrayList<ServiceMetadata>());
+
+    @Override
+    public void onServiceChange(List<ServiceMetadata> addedServices,
+        List<ServiceMetadata> removedServices) {
+      added.addAll(addedServices);
+      removed.addAll(removedServices);
+    }
+
+    void clear() {
+      added.clear();
+      removed.clear();
+    }
+  }
+}
@@ -20,6 +20,8 @@ package org.apache.helix.zookeeper.api.client;
  */
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.helix.msdcommon.constant.MetadataStoreRoutingConstants;
@@ -32,17 +34,20 @@ import org.apache.helix.zookeeper.zkclient.IZkChildListener;
 import org.apache.helix.zookeeper.zkclient.IZkDataListener;
 import org.apache.helix.zookeeper.zkclient.IZkStateListener;
 import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
+import org.apache.helix.zookeeper.zkclient.exception.ZkException;
 import org.apache.helix.zookeeper.zkclient.exception.ZkTimeoutException;
 import org.apache.helix.zookeeper.zkclient.serialize.BasicZkSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.PathBasedZkSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.SerializableSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.Op;
 import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.server.DataTree;
 
 
 /**
@@ -289,6 +294,105 @@ public interface RealmAwareZkClient {
 
   void asyncDelete(final String path, final ZkAsyncCallbacks.DeleteCallbackHandler cb);
 
+  /*
+   * Non-blocking counterparts of the basic CRUD operations. They are built on top of the callback
+   * based async methods above, so retry on transient connection errors and the async call metrics
+   * behave the same way. A non-OK return code completes the future exceptionally with the
+   * corresponding ZkException. Note the futures are completed on the ZooKeeper event thread, where
+   * ZkClient operations are rejected; dependents that call the ZkClient, block or do heavy work
+   * must be chained with a *Async method (e.g. thenComposeAsync) and an executor.
+   */
+
+  /**
+   * Create a node asynchronously.
+   * @return a future completed once the node is created, or exceptionally with
+   *         ZkNodeExistsException etc. if the creation fails
+   */
+  default CompletableFuture<Void> createAsync(String path, Object data, CreateMode mode) {
+    ZkAsyncCallbacks.CreateCallbackHandler cb = new ZkAsyncCallbacks.CreateCallbackHandler();
+    asyncCreate(path, data, mode, cb);
+    return cb.getCompletionFuture().thenApply(rc -> {
+      checkAsyncResult(rc, path);
+      return null;
+    });
+  }
+
+  /**
+   * Set the data of a node asynchronously.
+   * @param expectedVersion the expected version of the node, -1 matches any version
+   * @return a future of the stat of the node after the update, completed exceptionally with
+   *         ZkBadVersionException or ZkNoNodeException etc. if the update fails
+   */
+  default CompletableFuture<Stat> setDataAsync(String path, Object data, int expectedVersion) {
+    ZkAsyncCallbacks.SetDataCallbackHandler cb = new ZkAsyncCallbacks.SetDataCallbackHandler();
+    asyncSetData(path, data, expectedVersion, cb);
+    return cb.getCompletionFuture().thenApply(rc -> {
+      checkAsyncResult(rc, path);
+      return cb.getStat();
+    });
+  }
+
+  /**
+   * Read the data of a node asynchronously.
+   * @param stat if not null, filled with the stat of the node once the read succeeds
+   * @return a future of the deserialized data, completed exceptionally with ZkNoNodeException
+   *         if the node does not exist
+   */
+  default <T extends Object> CompletableFuture<T> readDataAsync(String path, Stat stat) {
+    ZkAsyncCallbacks.GetDataCallbackHandler cb = new ZkAsyncCallbacks.GetDataCallbackHandler();
+    asyncGetData(path, cb);
+    return cb.getCompletionFuture().thenApply(rc -> {
+      checkAsyncResult(rc, path);
+      if (stat != null && cb.getStat() != null) {
+        DataTree.copyStat(cb.getStat(), stat);
+      }
+      return deserialize(cb.getData(), path);
+    });
+  }
+
+  /**
+   * Check the existence of a node asynchronously.
+   * @return a future of the stat of the node, or null if the node does not exist
+   */
+  default CompletableFuture<Stat> existsAsync(String path) {
+    ZkAsyncCallbacks.ExistsCallbackHandler cb = new ZkAsyncCallbacks.ExistsCallbackHandler();
+    asyncExists(path, cb);
+    return cb.getCompletionFuture().thenApply(rc -> {
+      if (rc == KeeperException.Code.NONODE.intValue()) {
+        return null;
+      }
+      checkAsyncResult(rc, path);
+      return cb.getStat();
+    });
+  }
+
+  /**
+   * Delete a node asynchronously.
+   * @return a future of true if the node is deleted, or false if the node does not exist
+   */
+  default CompletableFuture<Boolean> deleteAsync(String path) {
+    ZkAsyncCallbacks.DeleteCallbackHandler cb = new ZkAsyncCallbacks.DeleteCallbackHandler();
+    asyncDelete(path, cb);
+    return cb.getCompletionFuture().thenApply(rc -> {
+      if (rc == KeeperException.Code.NONODE.intValue()) {
+        return false;
+      }
+      checkAsyncResult(rc, path);
+      return true;
+    });
+  }
+
+  /**
+   * Translate a non-OK async return code to the corresponding ZkException, wrapped so it becomes
+   * the cause of the failed future.
+   */
+  private static void checkAsyncResult(int rc, String path) {
+    if (rc != KeeperException.Code.OK.intValue()) {
+      throw new CompletionException(
+          ZkException.create(KeeperException.create(KeeperException.Code.get(rc), path)));
+    }
+  }
+
   void watchForData(final String path);
 
   List<String> watchForChilds(final String path);
@@ -60,6 +60,30 @@ public class ZkSystemPropertyKeys {
   public static final String ZK_SERIALIZER_ZNRECORD_WRITE_SIZE_LIMIT_BYTES =
       "zk.serializer.znrecord.write.size.limit.bytes";
 
+  /**
+   * This property defines the deflate level, from 0 (no compression) to 9 (best compression), that
+   * {@link org.apache.helix.zookeeper.util.GZipCompressionUtil} uses to compress ZNRecords. Lower
+   * levels trade compression ratio for CPU time when large records are written frequently. The
+   * compressed data is always in the GZIP format, so it can be read regardless of the level.
+   * <p>
+   * Default value is -1, which is the default level of {@link java.util.zip.Deflater}.
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL =
+      "zk.serializer.znrecord.compression.level";
+
+  /**
+   * This property defines the max capacity in bytes of the serialization buffer that the ZNRecord
+   * serializers keep for reuse on every thread that has serialized a record. The buffer of a
+   * thread only grows to the size of the largest record serialized on it, and a buffer grown
+   * beyond this capacity is released after the serialization. So every serializing thread keeps
+   * at most this many bytes of heap for as long as it lives.
+   * <p>
+   * Default value is 256 KB. If the configured capacity is less than or equal to 0 byte, the
+   * default value will be used.
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_BUFFER_RETAINED_CAPACITY_BYTES =
+      "zk.serializer.znrecord.buffer.retained.capacity.bytes";
+
   /**
    * This property determines the behavior of ZkClient issuing an sync() to server upon new session
    * established.
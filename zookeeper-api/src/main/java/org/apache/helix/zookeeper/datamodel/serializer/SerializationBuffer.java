@@ -0,0 +1,99 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+
+
+/**
+ * A per-thread reusable output buffer for the ZNRecord serializers. A fresh output stream grows
+ * by repeated copying while a large record is serialized, and the serialized bytes are copied
+ * once more before they can be compressed. The pooled buffer keeps its capacity across
+ * serializations, and the serialized bytes are compressed directly from it.
+ * Buffers that grew beyond {@link #MAX_RETAINED_CAPACITY} are shrunk back on release, so an
+ * occasional huge record doesn't pin its memory on the thread.
+ * <p>
+ * Every thread that has serialized a record keeps its buffer for as long as it lives, so the
+ * retained heap is up to {@link #MAX_RETAINED_CAPACITY} times the number of serializing threads.
+ * The capacity is configured by
+ * {@link ZkSystemPropertyKeys#ZK_SERIALIZER_ZNRECORD_BUFFER_RETAINED_CAPACITY_BYTES}.
+ */
+final class SerializationBuffer extends ByteArrayOutputStream {
+  static final int INITIAL_CAPACITY = 8 * 1024;
+  // Near the size of the typical records, the rare larger ones are serialized into a buffer
+  // released right after.
+  static final int DEFAULT_MAX_RETAINED_CAPACITY = 256 * 1024;
+  static final int MAX_RETAINED_CAPACITY = getMaxRetainedCapacity();
+
+  private static final ThreadLocal<SerializationBuffer> BUFFER =
+      ThreadLocal.withInitial(SerializationBuffer::new);
+
+  private boolean _inUse;
+
+  private SerializationBuffer() {
+    super(INITIAL_CAPACITY);
+  }
+
+  /**
+   * @return an empty buffer owned by the caller until {@link #release()}
+   */
+  static SerializationBuffer acquire() {
+    SerializationBuffer buffer = BUFFER.get();
+    if (buffer._inUse) {
+      // nested serialization on the same thread, fall back to a private buffer
+      buffer = new SerializationBuffer();
+    }
+    buffer._inUse = true;
+    return buffer;
+  }
+
+  /**
+   * Return the buffer to the pool of the current thread.
+   */
+  void release() {
+    reset();
+    if (buf.length > MAX_RETAINED_CAPACITY) {
+      buf = new byte[INITIAL_CAPACITY];
+    }
+    _inUse = false;
+  }
+
+  /**
+   * @return the internal array; only the first {@link #size()} bytes are valid
+   */
+  byte[] array() {
+    return buf;
+  }
+
+  int capacity() {
+    return buf.length;
+  }
+
+  private static int getMaxRetainedCapacity() {
+    Integer capacity = Integer
+        .getInteger(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_BUFFER_RETAINED_CAPACITY_BYTES);
+    if (capacity == null || capacity <= 0) {
+      return DEFAULT_MAX_RETAINED_CAPACITY;
+    }
+    return capacity;
+  }
+}
@@ -20,7 +20,8 @@ package org.apache.helix.zookeeper.datamodel.serializer;
  */
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -85,23 +86,35 @@ public class ZNRecordSerializer implements ZkSerializer {
     mapper.enable(MapperFeature.AUTO_DETECT_FIELDS);
     mapper.enable(MapperFeature.CAN_OVERRIDE_ACCESS_MODIFIERS);
 
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    SerializationBuffer buffer = SerializationBuffer.acquire();
     byte[] serializedBytes;
     boolean isCompressed = false;
 
     try {
-      mapper.writeValue(baos, data);
-      serializedBytes = baos.toByteArray();
-      // apply compression if needed
-      if (ZNRecordUtil.shouldCompress(record, serializedBytes.length)) {
-        serializedBytes = GZipCompressionUtil.compress(serializedBytes);
+      if (ZNRecordUtil.isCompressionEnabled(record)) {
+        // compress while serializing, the uncompressed bytes are never buffered
+        try (OutputStream out = GZipCompressionUtil.compressingStream(buffer)) {
+          mapper.writeValue(out, data);
+        }
+        serializedBytes = buffer.toByteArray();
         isCompressed = true;
+      } else {
+        mapper.writeValue(buffer, data);
+        // apply compression if needed
+        if (ZNRecordUtil.shouldCompress(record, buffer.size())) {
+          serializedBytes = GZipCompressionUtil.compress(buffer.array(), 0, buffer.size());
+          isCompressed = true;
+        } else {
+          serializedBytes = buffer.toByteArray();
+        }
       }
     } catch (Exception e) {
       LOG.error(
           "Exception during data serialization. ZNRecord ID: {} will not be written to zk.",
           record.getId(), e);
       throw new ZkMarshallingError(e);
+    } finally {
+      buffer.release();
     }
 
     int writeSizeLimit = ZNRecordUtil.getSerializerWriteSizeLimit();
@@ -124,19 +137,18 @@ public class ZNRecordSerializer implements ZkSerializer {
       return null;
     }
 
-    ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+    InputStream in = new ByteArrayInputStream(bytes);
 
     mapper.enable(MapperFeature.AUTO_DETECT_FIELDS);
     mapper.enable(MapperFeature.AUTO_DETECT_SETTERS);
     mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     try {
-      //decompress the data if its already compressed
+      // parse the compressed data directly from the uncompressing stream
       if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
-        bais = new ByteArrayInputStream(uncompressedBytes);
+        in = GZipCompressionUtil.uncompressingStream(in);
       }
 
-      return mapper.readValue(bais, ZNRecord.class);
+      return mapper.readValue(in, ZNRecord.class);
     } catch (Exception e) {
       LOG.error("Exception during deserialization of bytes: {}", new String(bytes), e);
       return null;
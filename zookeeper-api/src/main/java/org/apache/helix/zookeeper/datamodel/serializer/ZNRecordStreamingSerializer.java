@@ -20,7 +20,7 @@ package org.apache.helix.zookeeper.datamodel.serializer;
  */
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -78,13 +78,15 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
         }
       }
     }
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    SerializationBuffer buffer = SerializationBuffer.acquire();
     byte[] serializedBytes;
-    boolean isCompressed = false;
+    boolean isCompressed = ZNRecordUtil.isCompressionEnabled(record);
 
     try {
       JsonFactory f = new JsonFactory();
-      JsonGenerator g = f.createJsonGenerator(baos);
+      // compress while serializing if the record is always compressed
+      JsonGenerator g = f.createJsonGenerator(
+          isCompressed ? GZipCompressionUtil.compressingStream(buffer) : buffer);
 
       g.writeStartObject();
 
@@ -154,17 +156,20 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       // important: will force flushing of output, close underlying output
       // stream
       g.close();
-      serializedBytes = baos.toByteArray();
       // apply compression if needed
-      if (ZNRecordUtil.shouldCompress(record, serializedBytes.length)) {
-        serializedBytes = GZipCompressionUtil.compress(serializedBytes);
+      if (!isCompressed && ZNRecordUtil.shouldCompress(record, buffer.size())) {
+        serializedBytes = GZipCompressionUtil.compress(buffer.array(), 0, buffer.size());
         isCompressed = true;
+      } else {
+        serializedBytes = buffer.toByteArray();
       }
     } catch (Exception e) {
       LOG.error(
           "Exception during data serialization. ZNRecord ID: {} will not be written to zk.",
           record.getId(), e);
       throw new ZkMarshallingError(e);
+    } finally {
+      buffer.release();
     }
     // check size
     int writeSizeLimit = ZNRecordUtil.getSerializerWriteSizeLimit();
@@ -187,7 +192,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       return null;
     }
 
-    ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
+    InputStream in = new ByteArrayInputStream(bytes);
 
     ZNRecord record = null;
     String id = null;
@@ -197,13 +202,12 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
     byte[] rawPayload = null;
 
     try {
-      // decompress the data if its already compressed
+      // parse the compressed data directly from the uncompressing stream
       if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
-        bais = new ByteArrayInputStream(uncompressedBytes);
+        in = GZipCompressionUtil.uncompressingStream(in);
       }
       JsonFactory f = new JsonFactory();
-      JsonParser jp = f.createJsonParser(bais);
+      JsonParser jp = f.createJsonParser(in);
 
       jp.nextToken(); // will return JsonToken.START_OBJECT (verify?)
       while (jp.nextToken() != JsonToken.END_OBJECT) {
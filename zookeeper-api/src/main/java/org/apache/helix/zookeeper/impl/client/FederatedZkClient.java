@@ -22,8 +22,8 @@ package org.apache.helix.zookeeper.impl.client;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import org.apache.helix.msdcommon.datamodel.MetadataStoreRoutingData;
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
@@ -82,6 +82,11 @@ public class FederatedZkClient implements RealmAwareZkClient {
   // ZK realm -> ZkClient
   private final Map<String, ZkClient> _zkRealmToZkClientMap;
 
+  // Sharding key -> ZK realm of the sharding keys resolved from _metadataStoreRoutingData, so it
+  // is bounded by the number of sharding keys. It is replaced with an empty cache whenever
+  // _metadataStoreRoutingData is updated, after the update is visible.
+  private volatile ZkRealmCache _shardingKeyToZkRealmCache;
+
   private volatile boolean _isClosed;
   private PathBasedZkSerializer _pathBasedZkSerializer;
   private final boolean _routingDataUpdateOnCacheMissEnabled = Boolean.parseBoolean(
@@ -102,6 +107,7 @@ public class FederatedZkClient implements RealmAwareZkClient {
     _clientConfig = clientConfig;
     _pathBasedZkSerializer = clientConfig.getZkSerializer();
     _zkRealmToZkClientMap = new ConcurrentHashMap<>();
+    _shardingKeyToZkRealmCache = new ZkRealmCache();
   }
 
   @Override
@@ -486,15 +492,21 @@ public class FederatedZkClient implements RealmAwareZkClient {
     if (ops == null) {
       throw new NullPointerException("ops must not be null.");
     }
-    boolean anyDifferent = StreamSupport.stream(ops.spliterator(), false)
-            .map(op -> getZkRealm(op.getPath()))
-            .anyMatch(s -> !s.equals(getZkRealm(ops.iterator().next().getPath())));
-
-    if (anyDifferent) {
-      throw new IllegalArgumentException("Cannot execute multi on ops of different realms!");
+    // Resolve the realm of every op once
+    String zkRealm = null;
+    for (Op op : ops) {
+      String opZkRealm = getZkRealm(op.getPath());
+      if (zkRealm == null) {
+        zkRealm = opZkRealm;
+      } else if (!zkRealm.equals(opZkRealm)) {
+        throw new IllegalArgumentException("Cannot execute multi on ops of different realms!");
+      }
+    }
+    if (zkRealm == null) {
+      throw new NoSuchElementException("ops must not be empty.");
     }
     // No different zk realms so call multi on the realm of the first op
-    return getZkClient(ops.iterator().next().getPath()).multi(ops);
+    return getZkClientForRealm(zkRealm).multi(ops);
   }
 
   @Override
@@ -608,7 +620,13 @@ public class FederatedZkClient implements RealmAwareZkClient {
     // If FederatedZkClient is closed, should not return ZkClient.
     checkClosedState();
 
-    String zkRealm = getZkRealm(path);
+    return getZkClientForRealm(getZkRealm(path));
+  }
+
+  private ZkClient getZkClientForRealm(String zkRealm) {
+    // If FederatedZkClient is closed, should not return ZkClient.
+    checkClosedState();
+
     // Use this zkClient reference to protect the returning zkClient from being null because of
     // race condition. Once we get the reference, even _zkRealmToZkClientMap is cleared by closed(),
     // this zkClient is not null which guarantees the returned value not null.
@@ -640,15 +658,38 @@ public class FederatedZkClient implements RealmAwareZkClient {
   }
 
   private String getZkRealm(String path) {
+    // Read the cache before the routing data, so a realm resolved from stale routing data is
+    // never put into the cache of newer routing data.
+    ZkRealmCache shardingKeyToZkRealmCache = _shardingKeyToZkRealmCache;
+    String zkRealm = shardingKeyToZkRealmCache.get(path);
+    if (zkRealm != null) {
+      return zkRealm;
+    }
+
+    // The routing data validates the path on a cache miss. A path that starts with a cached
+    // sharding key has been routed before, so it is not validated again on a cache hit.
     if (_routingDataUpdateOnCacheMissEnabled) {
       try {
-        return updateRoutingDataOnCacheMiss(path);
+        zkRealm = updateRoutingDataOnCacheMiss(path);
       } catch (InvalidRoutingDataException e) {
         throw new MultiZkException("FederatedZkClient::getZkRealm: Failed to update routing data due to invalid routing "
             + "data!", e);
       }
+    } else {
+      zkRealm = _metadataStoreRoutingData.getMetadataStoreRealm(path);
     }
-    return _metadataStoreRoutingData.getMetadataStoreRealm(path);
+
+    try {
+      shardingKeyToZkRealmCache.put(_metadataStoreRoutingData.getShardingKeyInPath(path), zkRealm);
+    } catch (NoSuchElementException e) {
+      // The routing data has been updated since the realm was resolved, so leave it uncached
+    }
+    return zkRealm;
+  }
+
+  private void updateMetadataStoreRoutingData(MetadataStoreRoutingData metadataStoreRoutingData) {
+    _metadataStoreRoutingData = metadataStoreRoutingData;
+    _shardingKeyToZkRealmCache = new ZkRealmCache();
   }
 
   /**
@@ -673,8 +714,8 @@ public class FederatedZkClient implements RealmAwareZkClient {
           // ZkClient objects may have triggered a cache refresh, so we first update the
           // in-memory reference. This refresh only affects this object/thread, so we synchronize
           // on "this".
-          _metadataStoreRoutingData =
-              RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig);
+          updateMetadataStoreRoutingData(
+              RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig));
           try {
             zkRealm = _metadataStoreRoutingData.getMetadataStoreRealm(path);
           } catch (NoSuchElementException e3) {
@@ -684,7 +725,8 @@ public class FederatedZkClient implements RealmAwareZkClient {
               // Try 2) Reset RoutingDataManager and re-read the routing data from routing data
               // source via I/O, since RoutingDataManager's cache doesn't have it either.
               RoutingDataManager.getInstance().reset(false);
-              _metadataStoreRoutingData = RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig);
+              updateMetadataStoreRoutingData(
+                  RealmAwareZkClient.getMetadataStoreRoutingData(_connectionConfig));
               // No try-catch for the following call because if this throws a
               // NoSuchElementException, it means the ZK path sharding key doesn't exist even
               // after a full cache refresh
@@ -717,4 +759,113 @@ public class FederatedZkClient implements RealmAwareZkClient {
             + ". Instead, please use " + DEDICATED_ZK_CLIENT_FACTORY
             + " to create a dedicated RealmAwareZkClient for this operation.");
   }
+
+  /**
+   * Sharding key -> ZK realm cache that looks up the sharding key of a path without creating a
+   * substring for every prefix of the path. It is an open addressing hash table whose hash of a
+   * key is the same as String.hashCode(), so the hash of every prefix of a path is computed in one
+   * pass over the path. The table is read without locking and only grows, so it is written under
+   * the lock of the cache.
+   */
+  private static class ZkRealmCache {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private volatile AtomicReferenceArray<ZkRealmEntry> _table =
+        new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private volatile String _rootZkRealm;
+    private int _size;
+
+    /**
+     * Look up the realm of the sharding key that the path starts with. Sharding keys never contain
+     * each other, so the first prefix of the path that is a cached sharding key is the sharding key
+     * of the path.
+     * @return the cached ZK realm, or null if the sharding key of the path is not cached yet
+     */
+    String get(String path) {
+      String rootZkRealm = _rootZkRealm;
+      if (rootZkRealm != null || path == null) {
+        return rootZkRealm;
+      }
+      AtomicReferenceArray<ZkRealmEntry> table = _table;
+      int hash = 0;
+      for (int i = 0; i < path.length(); i++) {
+        char c = path.charAt(i);
+        if (c == '/' && i > 0) {
+          String zkRealm = get(table, path, i, hash);
+          if (zkRealm != null) {
+            return zkRealm;
+          }
+        }
+        hash = 31 * hash + c;
+      }
+      return path.length() > 1 ? get(table, path, path.length(), hash) : null;
+    }
+
+    /**
+     * @return the realm of the sharding key that equals to path.substring(0, length)
+     */
+    private static String get(AtomicReferenceArray<ZkRealmEntry> table, String path, int length,
+        int hash) {
+      int mask = table.length() - 1;
+      for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+        ZkRealmEntry entry = table.get(slot);
+        if (entry == null) {
+          return null;
+        }
+        if (entry._shardingKey.length() == length
+            && entry._shardingKey.regionMatches(0, path, 0, length)) {
+          return entry._zkRealm;
+        }
+      }
+    }
+
+    synchronized void put(String shardingKey, String zkRealm) {
+      if (shardingKey.length() == 1) {
+        _rootZkRealm = zkRealm;
+        return;
+      }
+      AtomicReferenceArray<ZkRealmEntry> table = _table;
+      if (get(table, shardingKey, shardingKey.length(), shardingKey.hashCode()) != null) {
+        return;
+      }
+      // Keep the load factor at or below 0.5
+      if ((_size + 1) * 2 > table.length()) {
+        AtomicReferenceArray<ZkRealmEntry> newTable =
+            new AtomicReferenceArray<>(table.length() * 2);
+        for (int i = 0; i < table.length(); i++) {
+          ZkRealmEntry entry = table.get(i);
+          if (entry != null) {
+            insert(newTable, entry);
+          }
+        }
+        table = newTable;
+      }
+      insert(table, new ZkRealmEntry(shardingKey, zkRealm));
+      _table = table;
+      _size++;
+    }
+
+    private static void insert(AtomicReferenceArray<ZkRealmEntry> table, ZkRealmEntry entry) {
+      int mask = table.length() - 1;
+      int slot = spread(entry._shardingKey.hashCode()) & mask;
+      while (table.get(slot) != null) {
+        slot = (slot + 1) & mask;
+      }
+      table.set(slot, entry);
+    }
+
+    private static int spread(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+  }
+
+  private static class ZkRealmEntry {
+    final String _shardingKey;
+    final String _zkRealm;
+
+    ZkRealmEntry(String shardingKey, String zkRealm) {
+      _shardingKey = shardingKey;
+      _zkRealm = zkRealm;
+    }
+  }
 }
@@ -22,11 +22,24 @@ package org.apache.helix.zookeeper.util;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+
 
 public class GZipCompressionUtil {
+  // The JDK default of 512 bytes makes the deflater and inflater run many small rounds on large
+  // records.
+  private static final int STREAM_BUFFER_SIZE = 8 * 1024;
+  // Serialized ZNRecords are repetitive JSON, which usually compresses to well below a quarter of
+  // its size.
+  private static final int ESTIMATED_COMPRESSION_RATIO = 4;
+  private static final int MIN_BUFFER_SIZE = 32;
+
   /**
    * Compresses a byte array by applying GZIP compression
    * @param buffer
@@ -34,27 +47,77 @@ public class GZipCompressionUtil {
    * @throws IOException
    */
   public static byte[] compress(byte[] buffer) throws IOException {
-    ByteArrayOutputStream gzipByteArrayOutputStream = new ByteArrayOutputStream();
-    GZIPOutputStream gzipOutputStream = null;
-    gzipOutputStream = new GZIPOutputStream(gzipByteArrayOutputStream);
-    gzipOutputStream.write(buffer, 0, buffer.length);
-    gzipOutputStream.close();
-    byte[] compressedBytes = gzipByteArrayOutputStream.toByteArray();
-    return compressedBytes;
+    return compress(buffer, 0, buffer.length);
+  }
+
+  /**
+   * Compresses a range of a byte array by applying GZIP compression, so the caller doesn't need
+   * to copy the range out first.
+   * @param buffer the data
+   * @param offset the start offset of the range
+   * @param length the length of the range
+   * @return the compressed bytes
+   * @throws IOException
+   */
+  public static byte[] compress(byte[] buffer, int offset, int length) throws IOException {
+    ByteArrayOutputStream gzipByteArrayOutputStream =
+        new ByteArrayOutputStream(Math.max(MIN_BUFFER_SIZE, length / ESTIMATED_COMPRESSION_RATIO));
+    try (OutputStream gzipOutputStream = compressingStream(gzipByteArrayOutputStream)) {
+      gzipOutputStream.write(buffer, offset, length);
+    }
+    return gzipByteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * Returns a stream that GZIP compresses everything written to it into the given stream, so
+   * large data can be compressed while it is being produced. Closing the returned stream
+   * finishes the compressed data and closes the given stream.
+   * The compression level is configured by
+   * {@link ZkSystemPropertyKeys#ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL}.
+   * @param out the stream that receives the compressed data
+   * @return the compressing stream
+   * @throws IOException
+   */
+  public static OutputStream compressingStream(OutputStream out) throws IOException {
+    return new LeveledGZIPOutputStream(out, getCompressionLevel());
+  }
+
+  /**
+   * Returns a stream that reads the uncompressed data of the given GZIP compressed stream, so the
+   * data can be parsed without being uncompressed into a separate buffer first.
+   * @param in the compressed data
+   * @return the uncompressing stream
+   * @throws IOException
+   */
+  public static InputStream uncompressingStream(InputStream in) throws IOException {
+    return new GZIPInputStream(in, STREAM_BUFFER_SIZE);
   }
 
   public static byte[] uncompress(ByteArrayInputStream bais) throws IOException {
-    GZIPInputStream gzipInputStream = new GZIPInputStream(bais);
-    byte[] buffer = new byte[1024];
-    int length;
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    while ((length = gzipInputStream.read(buffer)) != -1) {
-      baos.write(buffer, 0, length);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(
+        Math.max(MIN_BUFFER_SIZE, bais.available() * ESTIMATED_COMPRESSION_RATIO));
+    try (InputStream gzipInputStream = uncompressingStream(bais)) {
+      byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+      int length;
+      while ((length = gzipInputStream.read(buffer)) != -1) {
+        baos.write(buffer, 0, length);
+      }
     }
-    gzipInputStream.close();
-    baos.close();
-    byte[] uncompressedBytes = baos.toByteArray();
-    return uncompressedBytes;
+    return baos.toByteArray();
+  }
+
+  /**
+   * Returns the deflate level of the GZIP compression. If the level is not configured or invalid,
+   * {@link Deflater#DEFAULT_COMPRESSION} will be used instead.
+   */
+  public static int getCompressionLevel() {
+    Integer level =
+        Integer.getInteger(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL);
+    if (level == null || level < Deflater.DEFAULT_COMPRESSION
+        || level > Deflater.BEST_COMPRESSION) {
+      return Deflater.DEFAULT_COMPRESSION;
+    }
+    return level;
   }
 
   /*
@@ -71,4 +134,12 @@ public class GZipCompressionUtil {
       return ((bytes[0] == (byte) (GZIPInputStream.GZIP_MAGIC)) && (bytes[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8)));
     }
   }
+
+  private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+    LeveledGZIPOutputStream(OutputStream out, int level) throws IOException {
+      super(out, STREAM_BUFFER_SIZE);
+      // Only the header has been written so far, which is not deflated.
+      def.setLevel(level);
+    }
+  }
 }
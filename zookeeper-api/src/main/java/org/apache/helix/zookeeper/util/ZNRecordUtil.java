@@ -37,7 +37,7 @@ public class ZNRecordUtil {
    * @return
    */
   public static boolean shouldCompress(ZNRecord record, int serializedLength) {
-    if (record.getBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, false)) {
+    if (isCompressionEnabled(record)) {
       return true;
     }
 
@@ -48,6 +48,17 @@ public class ZNRecordUtil {
     return autoCompressEnabled && serializedLength > getSerializerCompressThreshold();
   }
 
+  /**
+   * Checks whether or not a ZNRecord is always compressed, regardless of its serialized size.
+   * Such a record can be compressed while it is being serialized.
+   *
+   * @param record raw ZNRecord before being serialized
+   * @return true if compression is enabled in the record
+   */
+  public static boolean isCompressionEnabled(ZNRecord record) {
+    return record.getBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, false);
+  }
+
   /**
    * Returns the threshold in bytes that ZNRecord serializer should compress a ZNRecord with larger size.
    * If threshold is configured to be less than or equal to 0, the serializer will always compress ZNRecords as long as
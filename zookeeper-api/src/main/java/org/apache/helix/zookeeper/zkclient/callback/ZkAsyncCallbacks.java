@@ -19,6 +19,7 @@ package org.apache.helix.zookeeper.zkclient.callback;
  * under the License.
  */
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.helix.zookeeper.zkclient.metric.ZkClientMonitor;
@@ -195,6 +196,8 @@ public class ZkAsyncCallbacks {
     AtomicBoolean _isOperationDone = new AtomicBoolean(false);
     int _rc = KeeperException.Code.APIERROR.intValue();
     String _path;
+    // Lazily created, guarded by _isOperationDone
+    private CompletableFuture<Integer> _completionFuture;
 
     public void callback(int rc, String path, Object ctx) {
       if (rc != 0) {
@@ -272,6 +275,25 @@ public class ZkAsyncCallbacks {
       return true;
     }
 
+    /**
+     * Get a future that is completed with the return code once the operation has been completed
+     * without retrying. Note the future is completed on the ZooKeeper event thread, so dependents
+     * that call the ZkClient or block should be chained with a *Async method and an executor.
+     */
+    public CompletableFuture<Integer> getCompletionFuture() {
+      CompletableFuture<Integer> future;
+      synchronized (_isOperationDone) {
+        if (_completionFuture == null) {
+          _completionFuture = new CompletableFuture<>();
+          if (_isOperationDone.get()) {
+            _completionFuture.complete(_rc);
+          }
+        }
+        future = _completionFuture;
+      }
+      return future;
+    }
+
     public int getRc() {
       return _rc;
     }
@@ -293,9 +315,15 @@ public class ZkAsyncCallbacks {
     abstract public void handle();
 
     private void markOperationDone() {
+      CompletableFuture<Integer> future;
       synchronized (_isOperationDone) {
         _isOperationDone.set(true);
         _isOperationDone.notifyAll();
+        future = _completionFuture;
+      }
+      // Complete outside of the lock so dependents never run while holding it
+      if (future != null) {
+        future.complete(_rc);
       }
     }
 
@@ -0,0 +1,127 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+
+public class TestZNRecordSerializerCompression {
+
+  @DataProvider
+  public Object[][] serializers() {
+    return new Object[][] {
+        { new ZNRecordSerializer() }, { new ZNRecordStreamingSerializer() }
+    };
+  }
+
+  @Test(dataProvider = "serializers")
+  public void testStreamingCompression(ZkSerializer serializer) throws IOException {
+    ZNRecord record = createRecord(2000);
+    byte[] plain = serializer.serialize(record);
+    Assert.assertFalse(GZipCompressionUtil.isCompressed(plain));
+
+    // A record with compression enabled is compressed while being serialized, into plain GZIP
+    // data of the same serialized format.
+    record.setBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, true);
+    byte[] compressed = serializer.serialize(record);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(compressed));
+    Assert.assertTrue(compressed.length < plain.length);
+    Assert.assertEquals(serializer.deserialize(compressed), record);
+    byte[] uncompressed = GZipCompressionUtil.uncompress(new ByteArrayInputStream(compressed));
+    Assert.assertFalse(GZipCompressionUtil.isCompressed(uncompressed));
+    Assert.assertEquals(serializer.deserialize(uncompressed), record);
+  }
+
+  @Test(dataProvider = "serializers")
+  public void testDeserializeCompressedData(ZkSerializer serializer) throws IOException {
+    ZNRecord record = createRecord(2000);
+    byte[] plain = serializer.serialize(record);
+
+    // Data compressed by the previous implementation, and by any compression level, is read.
+    byte[] legacy = legacyCompress(plain);
+    Assert.assertEquals(serializer.deserialize(legacy), record);
+    Assert.assertEquals(serializer.deserialize(GZipCompressionUtil.compress(plain)), record);
+
+    // Truncated compressed data can't be read.
+    byte[] truncated = Arrays.copyOf(legacy, legacy.length / 2);
+    Assert.assertNull(serializer.deserialize(truncated));
+  }
+
+  @Test(dataProvider = "serializers")
+  public void testBufferReuse(ZkSerializer serializer) {
+    SerializationBuffer buffer = SerializationBuffer.acquire();
+    buffer.release();
+
+    // Records that fit in the retained capacity reuse the thread's buffer.
+    serializer.serialize(createRecord(500));
+    SerializationBuffer reused = SerializationBuffer.acquire();
+    Assert.assertSame(reused, buffer);
+    Assert.assertEquals(reused.size(), 0);
+    Assert.assertTrue(reused.capacity() > SerializationBuffer.INITIAL_CAPACITY);
+
+    // A nested acquisition gets a private buffer.
+    SerializationBuffer nested = SerializationBuffer.acquire();
+    Assert.assertNotSame(nested, reused);
+    nested.release();
+    reused.release();
+
+    // A buffer grown beyond the retained capacity is shrunk on release.
+    buffer = SerializationBuffer.acquire();
+    buffer.write(new byte[SerializationBuffer.MAX_RETAINED_CAPACITY + 1], 0,
+        SerializationBuffer.MAX_RETAINED_CAPACITY + 1);
+    buffer.release();
+    Assert.assertEquals(buffer.capacity(), SerializationBuffer.INITIAL_CAPACITY);
+  }
+
+  private static byte[] legacyCompress(byte[] data) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+      gzip.write(data);
+    }
+    return baos.toByteArray();
+  }
+
+  private static ZNRecord createRecord(int partitions) {
+    ZNRecord record = new ZNRecord("testResource");
+    record.setSimpleField("REPLICAS", "3");
+    for (int i = 0; i < partitions; i++) {
+      Map<String, String> stateMap = new HashMap<>();
+      stateMap.put("localhost_" + i % 10, "MASTER");
+      stateMap.put("localhost_" + (i + 1) % 10, "SLAVE");
+      record.setMapField("testResource_" + i, stateMap);
+      record.setListField("testResource_" + i,
+          Arrays.asList("localhost_" + i % 10, "localhost_" + (i + 1) % 10));
+    }
+    return record;
+  }
+}
@@ -328,6 +328,19 @@ public class TestFederatedZkClient extends RealmAwareZkClientTestBase {
     // Deleting on realmTwo.
     Assert.assertTrue(_realmAwareZkClient.delete(TEST_REALM_TWO_VALID_PATH));
     Assert.assertFalse(_realmAwareZkClient.exists(TEST_REALM_TWO_VALID_PATH));
+
+    // The sharding keys of the paths are cached now. Other paths under the sharding keys are
+    // resolved the same way, and a path that only shares a name prefix with a sharding key still
+    // has no realm.
+    Assert.assertTrue(_realmAwareZkClient.exists(TEST_SHARDING_KEY_PREFIX + "/1"));
+    Assert.assertTrue(_realmAwareZkClient.exists(TEST_SHARDING_KEY_PREFIX + "/2/x"));
+    try {
+      _realmAwareZkClient.exists(TEST_INVALID_PATH);
+      Assert.fail("Exists() should not succeed on an invalid path!");
+    } catch (NoSuchElementException ex) {
+      Assert.assertEquals(ex.getMessage(),
+          "No sharding key found within the provided path. Path: " + TEST_INVALID_PATH);
+    }
   }
 
   /**
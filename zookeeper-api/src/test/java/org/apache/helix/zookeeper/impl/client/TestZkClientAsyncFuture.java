@@ -0,0 +1,168 @@
+package org.apache.helix.zookeeper.impl.client;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.impl.ZkTestBase;
+import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
+import org.apache.helix.zookeeper.zkclient.exception.ZkBadVersionException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
+import org.apache.helix.zookeeper.zkclient.exception.ZkNodeExistsException;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Test the CompletableFuture based async API of the ZkClient.
+ */
+public class TestZkClientAsyncFuture extends ZkTestBase {
+  private static final long TIMEOUT_SEC = 10L;
+  private final String TEST_ROOT = String.format("/%s", getClass().getSimpleName());
+
+  private ZkClient _zkClient;
+
+  @BeforeClass
+  public void beforeClass() {
+    _zkClient = new ZkClient(ZkTestBase.ZK_ADDR);
+    _zkClient.setZkSerializer(new ZNRecordSerializer());
+    _zkClient.createPersistent(TEST_ROOT);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _zkClient.deleteRecursively(TEST_ROOT);
+    _zkClient.close();
+  }
+
+  @Test
+  public void testCrud() throws Exception {
+    String path = TEST_ROOT + "/crud";
+    ZNRecord record = new ZNRecord("crud");
+    record.setSimpleField("key", "value0");
+
+    _zkClient.createAsync(path, record, CreateMode.PERSISTENT).get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    Stat stat = _zkClient.existsAsync(path).get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    Assert.assertNotNull(stat);
+    Assert.assertEquals(stat.getVersion(), 0);
+
+    record.setSimpleField("key", "value1");
+    Stat newStat =
+        _zkClient.setDataAsync(path, record, stat.getVersion()).get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    Assert.assertEquals(newStat.getVersion(), 1);
+
+    Stat readStat = new Stat();
+    ZNRecord readRecord =
+        _zkClient.<ZNRecord>readDataAsync(path, readStat).get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    Assert.assertEquals(readRecord, record);
+    Assert.assertEquals(readStat, newStat);
+    // The async read is consistent with the blocking one
+    Assert.assertEquals(_zkClient.readData(path), readRecord);
+
+    Assert.assertTrue(_zkClient.deleteAsync(path).get(TIMEOUT_SEC, TimeUnit.SECONDS));
+    Assert.assertNull(_zkClient.existsAsync(path).get(TIMEOUT_SEC, TimeUnit.SECONDS));
+    Assert.assertFalse(_zkClient.deleteAsync(path).get(TIMEOUT_SEC, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFailures() throws Exception {
+    String path = TEST_ROOT + "/failures";
+    ZNRecord record = new ZNRecord("failures");
+
+    assertFailure(_zkClient.readDataAsync(path, null), ZkNoNodeException.class);
+    assertFailure(_zkClient.setDataAsync(path, record, -1), ZkNoNodeException.class);
+
+    _zkClient.createAsync(path, record, CreateMode.PERSISTENT).get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    assertFailure(_zkClient.createAsync(path, record, CreateMode.PERSISTENT),
+        ZkNodeExistsException.class);
+    assertFailure(_zkClient.setDataAsync(path, record, 10), ZkBadVersionException.class);
+    // The failed operations leave the node unchanged
+    Assert.assertEquals(_zkClient.existsAsync(path).get(TIMEOUT_SEC, TimeUnit.SECONDS).getVersion(),
+        0);
+  }
+
+  @Test
+  public void testComposition() throws Exception {
+    String parent = TEST_ROOT + "/composition";
+    int count = 50;
+    _zkClient.createPersistent(parent);
+
+    // Issue all the writes without blocking, then wait for them together. The follow-up ZkClient
+    // calls must not run on the ZooKeeper event thread, so they are chained on an executor.
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    List<CompletableFuture<Stat>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; i++) {
+        String path = parent + "/node" + i;
+        ZNRecord record = new ZNRecord("node" + i);
+        futures.add(_zkClient.createAsync(path, record, CreateMode.PERSISTENT)
+            .thenComposeAsync(v -> {
+              record.setSimpleField("updated", "true");
+              return _zkClient.setDataAsync(path, record, 0);
+            }, executor));
+      }
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+          .get(TIMEOUT_SEC, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdown();
+    }
+
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals(futures.get(i).get().getVersion(), 1);
+      ZNRecord record = _zkClient.readData(parent + "/node" + i);
+      Assert.assertEquals(record.getSimpleField("updated"), "true");
+    }
+  }
+
+  @Test
+  public void testCompletionFutureAfterDone() throws Exception {
+    ZkAsyncCallbacks.ExistsCallbackHandler cb = new ZkAsyncCallbacks.ExistsCallbackHandler();
+    _zkClient.asyncExists(TEST_ROOT, cb);
+    Assert.assertTrue(cb.waitForSuccess());
+    // A future requested after the operation is done is completed immediately
+    CompletableFuture<Integer> future = cb.getCompletionFuture();
+    Assert.assertTrue(future.isDone());
+    Assert.assertEquals(future.get().intValue(), KeeperException.Code.OK.intValue());
+    Assert.assertSame(cb.getCompletionFuture(), future);
+  }
+
+  private void assertFailure(CompletableFuture<?> future, Class<? extends Exception> expected)
+      throws Exception {
+    try {
+      future.get(TIMEOUT_SEC, TimeUnit.SECONDS);
+      Assert.fail("Should fail with " + expected.getSimpleName());
+    } catch (ExecutionException e) {
+      Assert.assertTrue(expected.isInstance(e.getCause()), "Unexpected cause: " + e.getCause());
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package org.apache.helix.zookeeper.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+
+public class TestGZipCompressionUtil {
+  private static final byte[] DATA = buildData();
+
+  @AfterMethod
+  public void afterMethod() {
+    System.clearProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL);
+  }
+
+  @Test
+  public void testCompressRange() throws IOException {
+    int start = 100;
+    int end = DATA.length - 100;
+    byte[] compressed = GZipCompressionUtil.compress(DATA, start, end - start);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(compressed));
+    Assert.assertEquals(compressed,
+        GZipCompressionUtil.compress(Arrays.copyOfRange(DATA, start, end)));
+    Assert.assertEquals(GZipCompressionUtil.uncompress(new ByteArrayInputStream(compressed)),
+        Arrays.copyOfRange(DATA, start, end));
+  }
+
+  @Test
+  public void testStreams() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (OutputStream out = GZipCompressionUtil.compressingStream(baos)) {
+      // write in small pieces, like a JSON generator does
+      for (int i = 0; i < DATA.length; i += 100) {
+        out.write(DATA, i, Math.min(100, DATA.length - i));
+      }
+    }
+    byte[] compressed = baos.toByteArray();
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(compressed));
+    Assert.assertEquals(compressed, GZipCompressionUtil.compress(DATA));
+
+    // The stream output is plain GZIP, readable without the util.
+    Assert.assertEquals(readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))), DATA);
+    Assert.assertEquals(
+        readAll(GZipCompressionUtil.uncompressingStream(new ByteArrayInputStream(compressed))),
+        DATA);
+  }
+
+  @Test
+  public void testCompressionLevel() throws IOException {
+    Assert.assertEquals(GZipCompressionUtil.getCompressionLevel(), Deflater.DEFAULT_COMPRESSION);
+    byte[] defaultCompressed = GZipCompressionUtil.compress(DATA);
+
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL,
+        String.valueOf(Deflater.NO_COMPRESSION));
+    byte[] stored = GZipCompressionUtil.compress(DATA);
+    Assert.assertTrue(stored.length > DATA.length);
+
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL,
+        String.valueOf(Deflater.BEST_SPEED));
+    byte[] fast = GZipCompressionUtil.compress(DATA);
+    Assert.assertTrue(fast.length < DATA.length);
+
+    // All the levels produce the same format.
+    for (byte[] compressed : Arrays.asList(defaultCompressed, stored, fast)) {
+      Assert.assertTrue(GZipCompressionUtil.isCompressed(compressed));
+      Assert.assertEquals(GZipCompressionUtil.uncompress(new ByteArrayInputStream(compressed)),
+          DATA);
+    }
+
+    // Invalid levels fall back to the default.
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL, "10");
+    Assert.assertEquals(GZipCompressionUtil.getCompressionLevel(), Deflater.DEFAULT_COMPRESSION);
+    Assert.assertEquals(GZipCompressionUtil.compress(DATA), defaultCompressed);
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_LEVEL, "fast");
+    Assert.assertEquals(GZipCompressionUtil.getCompressionLevel(), Deflater.DEFAULT_COMPRESSION);
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (InputStream stream = in) {
+      byte[] buffer = new byte[1024];
+      int length;
+      while ((length = stream.read(buffer)) != -1) {
+        baos.write(buffer, 0, length);
+      }
+    }
+    return baos.toByteArray();
+  }
+
+  private static byte[] buildData() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      sb.append("\"partition_").append(i).append("\" : \"localhost_").append(i % 17)
+          .append("\",\n");
+    }
+    return sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}